@@ -0,0 +1,512 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.bno055;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+
+
+/**
+ * <p>
+ * Command/response engine for the BNO055 UART protocol.<br/>
+ * Register read and write requests can be submitted from any thread and are
+ * queued for a single I/O thread that owns the serial port. Each request
+ * returns a future and has its own timeout, so a slow or lost response
+ * never blocks other callers on a lock. Since the chip only handles one
+ * command at a time, queued commands are sent back to back as soon as the
+ * previous response has been received.
+ * </p><p>
+ * Read responses are decoded into little-endian buffers taken from a pool.
+ * They must be returned with {@link #releaseBuffer(ByteBuffer)} when the
+ * caller is done decoding them.
+ * </p><p>
+ * When many sensors are polled by a shared thread pool, the engine can also
+ * run without I/O thread. Threads waiting for a response then take turns
+ * owning the port and process all queued requests, so that no thread is
+ * needed per sensor.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class Bno055CommandEngine
+{
+    public final static long DEFAULT_TIMEOUT = 500; // ms
+
+    protected final static int MAX_RESPONSE_SIZE = 128;
+    protected final static int BUFFER_POOL_SIZE = 8;
+    private final static int MAX_WRITE_ATTEMPTS = 5;
+    private final static long POLL_INTERVAL = 200000L; // ns
+    private final static long PORT_WAIT_INTERVAL = 1; // ms
+
+    private final static byte WRITE_SUCCESS = 0x01;
+    private final static byte BUS_OVER_RUN_ERROR = 0x07;
+
+
+    final InputStream is;
+    final OutputStream os;
+    final Logger log;
+    final BlockingQueue<Request> requestQueue = new LinkedBlockingQueue<>();
+    final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    final ReentrantLock portLock = new ReentrantLock();
+    volatile Thread ioThread;
+    volatile boolean running;
+
+
+    /*
+     * Queued request, completed by I/O thread with the response buffer
+     * for reads, or null for writes
+     */
+    static class Request extends CompletableFuture<ByteBuffer>
+    {
+        final byte[] cmd;
+        final boolean isRead;
+        final boolean checkAck;
+        final long deadline;
+
+        Request(byte[] cmd, boolean isRead, boolean checkAck, long timeout)
+        {
+            this.cmd = cmd;
+            this.isRead = isRead;
+            this.checkAck = checkAck;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+    }
+
+
+    public Bno055CommandEngine(InputStream is, OutputStream os, Logger log)
+    {
+        this.is = is;
+        this.os = os;
+        this.log = log;
+
+        for (int i = 0; i < BUFFER_POOL_SIZE; i++)
+            bufferPool.offer(newBuffer());
+    }
+
+
+    public void start()
+    {
+        start(true);
+    }
+
+
+    /**
+     * Starts processing requests
+     * @param dedicatedThread true to process requests in a dedicated I/O thread,
+     * false to let threads waiting for a response take turns owning the port.
+     * In the latter case, requests are only processed when {@link #waitFor(Future)}
+     * or a synchronous method is called.
+     */
+    public void start(boolean dedicatedThread)
+    {
+        running = true;
+        if (dedicatedThread)
+        {
+            Thread t = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    processRequests();
+                }
+            }, "BNO055-IO");
+            ioThread = t;
+            t.start();
+        }
+    }
+
+
+    public void stop()
+    {
+        running = false;
+        Thread t = ioThread;
+        if (t != null)
+        {
+            ioThread = null;
+            t.interrupt();
+        }
+        else
+            failPendingRequests();
+    }
+
+
+    /**
+     * Submits a register read command
+     * @param readCmd full read command, including start byte
+     * @param timeout max time to wait for the response, in ms, including time spent in queue
+     * @return future completed with a pooled buffer containing the register values
+     */
+    public Future<ByteBuffer> submitRead(byte[] readCmd, long timeout)
+    {
+        return submit(new Request(readCmd, true, false, timeout));
+    }
+
+
+    /**
+     * Submits a register write command
+     * @param writeCmd full write command, including start byte and data
+     * @param checkAck true to wait for the chip to acknowledge the write
+     * @param timeout max time to wait for the ACK, in ms, including time spent in queue
+     * @return future completed with null when the command has been sent or acknowledged
+     */
+    public Future<ByteBuffer> submitWrite(byte[] writeCmd, boolean checkAck, long timeout)
+    {
+        return submit(new Request(writeCmd, false, checkAck, timeout));
+    }
+
+
+    /**
+     * Sends a register read command and waits for the response
+     * @param readCmd full read command, including start byte
+     * @return pooled buffer containing the register values
+     * @throws IOException if the chip reports an error or the response times out
+     */
+    public ByteBuffer read(byte[] readCmd) throws IOException
+    {
+        return read(readCmd, DEFAULT_TIMEOUT);
+    }
+
+
+    /**
+     * Sends a register read command and waits for the response
+     * @param readCmd full read command, including start byte
+     * @param timeout max time to wait for the response, in ms
+     * @return pooled buffer containing the register values
+     * @throws IOException if the chip reports an error or the response times out
+     */
+    public ByteBuffer read(byte[] readCmd, long timeout) throws IOException
+    {
+        return waitFor(submitRead(readCmd, timeout));
+    }
+
+
+    /**
+     * Sends a register write command and waits until it has been sent or acknowledged
+     * @param writeCmd full write command, including start byte and data
+     * @param checkAck true to wait for the chip to acknowledge the write
+     * @throws IOException if the chip reports an error or the ACK times out
+     */
+    public void write(byte[] writeCmd, boolean checkAck) throws IOException
+    {
+        waitFor(submitWrite(writeCmd, checkAck, DEFAULT_TIMEOUT));
+    }
+
+
+    /**
+     * Waits for completion of a submitted request, at most until the request
+     * deadline, even if the thread owning the port is blocked on the stream
+     * @param future future returned by one of the submit methods
+     * @return pooled response buffer for reads, null for writes
+     * @throws IOException if the request failed or timed out
+     */
+    public ByteBuffer waitFor(Future<ByteBuffer> future) throws IOException
+    {
+        long deadline;
+        if (future instanceof Request)
+            deadline = ((Request)future).deadline;
+        else
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEFAULT_TIMEOUT);
+
+        try
+        {
+            // without I/O thread, waiting threads take turns processing queued requests
+            while (ioThread == null && !future.isDone() && deadline - System.nanoTime() > 0)
+            {
+                if (portLock.tryLock())
+                {
+                    try { processPendingRequests(); }
+                    finally { portLock.unlock(); }
+                }
+                else
+                {
+                    try { future.get(PORT_WAIT_INTERVAL, TimeUnit.MILLISECONDS); }
+                    catch (TimeoutException e) { }
+                }
+            }
+
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            future.cancel(false);
+            throw new IOException("Timeout while waiting for response");
+        }
+        catch (InterruptedException e)
+        {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for response", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+
+    /**
+     * Returns a response buffer to the pool
+     * @param buf buffer obtained from a read request
+     */
+    public void releaseBuffer(ByteBuffer buf)
+    {
+        if (buf != null && buf.capacity() == MAX_RESPONSE_SIZE)
+            bufferPool.offer(buf);
+    }
+
+
+    private Request submit(Request req)
+    {
+        if (!running)
+        {
+            req.completeExceptionally(new IOException("Command engine is not started"));
+            return req;
+        }
+
+        // make sure request doesn't stay in queue if engine was stopped concurrently
+        requestQueue.add(req);
+        if (!running)
+            failPendingRequests();
+        return req;
+    }
+
+
+    private void processRequests()
+    {
+        Thread thisThread = Thread.currentThread();
+
+        while (ioThread == thisThread)
+        {
+            Request req;
+            try
+            {
+                req = requestQueue.take();
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            execute(req);
+        }
+
+        if (!running)
+            failPendingRequests();
+    }
+
+
+    /*
+     * Processes all queued requests in the calling thread
+     */
+    private void processPendingRequests()
+    {
+        Request req;
+        while (running && (req = requestQueue.poll()) != null)
+            execute(req);
+
+        if (!running)
+            failPendingRequests();
+    }
+
+
+    private void execute(Request req)
+    {
+        // skip requests cancelled or expired while in queue
+        if (req.isDone())
+            return;
+        if (System.nanoTime() - req.deadline > 0)
+        {
+            req.completeExceptionally(new IOException("Request timed out before being sent"));
+            return;
+        }
+
+        try
+        {
+            if (req.isRead)
+            {
+                ByteBuffer resp = executeRead(req);
+                if (!req.complete(resp))
+                    releaseBuffer(resp);
+            }
+            else
+            {
+                executeWrite(req);
+                req.complete(null);
+            }
+        }
+        catch (IOException e)
+        {
+            req.completeExceptionally(e);
+        }
+        catch (RuntimeException e)
+        {
+            // keep processing other requests if the stream fails unexpectedly
+            log.error("Error while executing command", e);
+            req.completeExceptionally(new IOException("Error while executing command", e));
+        }
+    }
+
+
+    private void failPendingRequests()
+    {
+        Request req;
+        while ((req = requestQueue.poll()) != null)
+            req.completeExceptionally(new IOException("Command engine was stopped"));
+    }
+
+
+    private ByteBuffer executeRead(Request req) throws IOException
+    {
+        flushInput();
+        os.write(req.cmd);
+        os.flush();
+
+        // check for error
+        int b0 = readByte(req.deadline);
+        if (b0 != (Bno055Constants.ACK_BYTE & 0xFF))
+            throw new IOException(String.format("Register Read Error: %02X", readByte(req.deadline)));
+
+        // read response into pooled buffer
+        int length = readByte(req.deadline);
+        if (length > MAX_RESPONSE_SIZE)
+            throw new IOException("Register read response too long: " + length + " bytes");
+
+        ByteBuffer buf = bufferPool.poll();
+        if (buf == null)
+            buf = newBuffer();
+
+        try
+        {
+            buf.clear();
+            readFully(buf.array(), length, req.deadline);
+            buf.limit(length);
+            return buf;
+        }
+        catch (IOException e)
+        {
+            releaseBuffer(buf);
+            throw e;
+        }
+    }
+
+
+    private void executeWrite(Request req) throws IOException
+    {
+        int nAttempts = 0;
+        while (nAttempts < MAX_WRITE_ATTEMPTS)
+        {
+            nAttempts++;
+
+            flushInput();
+            os.write(req.cmd);
+            os.flush();
+
+            if (!req.checkAck)
+                return;
+
+            // check ACK
+            int b0 = readByte(req.deadline);
+            int b1 = readByte(req.deadline);
+            if (b0 != (Bno055Constants.ERR_BYTE & 0xFF) || b1 != WRITE_SUCCESS)
+            {
+                // retry only if bus was busy
+                String msg = String.format("Register Write Error: 0x%02X 0x%02X (%d)", b0, b1, nAttempts);
+                if (b1 != BUS_OVER_RUN_ERROR || nAttempts >= MAX_WRITE_ATTEMPTS)
+                    throw new IOException(msg);
+                log.warn(msg);
+                continue;
+            }
+
+            return;
+        }
+    }
+
+
+    /*
+     * Discards any pending received data to get into a clean state
+     */
+    private void flushInput() throws IOException
+    {
+        int n;
+        while ((n = is.available()) > 0)
+            is.skip(n);
+    }
+
+
+    /*
+     * Waits until some data is available or deadline is reached, so we never
+     * block in a read that may not return
+     */
+    private void waitForData(long deadline) throws IOException
+    {
+        while (is.available() <= 0)
+        {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                throw new IOException("Timeout while waiting for response");
+
+            LockSupport.parkNanos(Math.min(remaining, POLL_INTERVAL));
+            Thread t = ioThread;
+            if (!running || (t != null && t != Thread.currentThread()))
+                throw new IOException("Command engine was stopped");
+        }
+    }
+
+
+    private int readByte(long deadline) throws IOException
+    {
+        waitForData(deadline);
+        int b = is.read();
+        if (b < 0)
+            throw new IOException("End of stream reached");
+        return b;
+    }
+
+
+    private void readFully(byte[] buf, int length, long deadline) throws IOException
+    {
+        int offset = 0;
+        while (offset < length)
+        {
+            waitForData(deadline);
+            int n = is.read(buf, offset, Math.min(length - offset, is.available()));
+            if (n < 0)
+                throw new IOException("End of stream reached");
+            offset += n;
+        }
+    }
+
+
+    private ByteBuffer newBuffer()
+    {
+        return ByteBuffer.allocate(MAX_RESPONSE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -31,7 +31,19 @@ public class Bno055Config extends SensorConfig
     @DisplayInfo(desc="Communication settings to connect to IMU data stream")
     public CommProviderConfig<?> commSettings;
     
-    
+
+    @DisplayInfo(label="Read All Data", desc="Set to read accelerations, angular rates, magnetic field, Euler angles, quaternion, linear acceleration, gravity, temperature and calibration status in a single register read, instead of the quaternion only")
+    public boolean readAllData = false;
+
+
+    @DisplayInfo(label="Sampling Rate", desc="Rate at which data is polled from the sensor, in Hz (fusion data is updated by the sensor at 100Hz max)")
+    public double samplingRate = 10.0;
+
+
+    @DisplayInfo(label="Use Shared Scheduler", desc="Poll the sensor with the thread pool shared by all BNO055 sensors instead of dedicated threads")
+    public boolean useSharedScheduler = false;
+
+
     public Bno055Config()
     {
         this.moduleClass = Bno055Sensor.class.getCanonicalName();
@@ -24,6 +24,17 @@ public class Bno055Constants
     public final static byte DATA_WRITE = (byte)0x00;
     public final static byte DATA_READ = (byte)0x01;
     
+    public final static byte CHIP_ID_ADDR = 0x00;
+    public final static byte CHIP_ID = (byte)0xA0;
+    
+    public final static byte SYS_STATUS_ADDR = 0x39;
+    public final static byte SYS_ERR_ADDR = 0x3A;
+    public final static byte SYS_STATUS_IDLE = 0x00;
+    public final static byte SYS_STATUS_ERROR = 0x01;
+    public final static byte SYS_STATUS_FUSION_RUNNING = 0x05;
+    
+    public final static byte SYS_TRIGGER_RST_SYS = 0x20;
+    
     public final static byte OPERATION_MODE_ADDR = 0X3D;
     public final static byte POWER_MODE_ADDR = 0X3E;
     public final static byte SYS_TRIGGER_ADDR = 0X3F;
@@ -46,9 +57,19 @@ public class Bno055Constants
     public final static byte POWER_MODE_LOWPOWER = 0X01;
     public final static byte POWER_MODE_SUSPEND = 0X02;
     
+    public final static byte ACC_DATA_X_LSB_ADDR = 0x08;
+    public final static byte MAG_DATA_X_LSB_ADDR = 0x0E;
+    public final static byte GYR_DATA_X_LSB_ADDR = 0x14;
+    public final static byte EUL_HEADING_LSB_ADDR = 0x1A;
     public final static byte QUAT_DATA_W_LSB_ADDR = 0x20;
+    public final static byte LIA_DATA_X_LSB_ADDR = 0x28;
+    public final static byte GRV_DATA_X_LSB_ADDR = 0x2E;
+    public final static byte TEMP_ADDR = 0x34;
     public final static byte QUAT_SIZE = 0x08;
     
+    // whole data block from ACC_DATA_X_LSB to CALIB_STAT
+    public final static byte DATA_BLOCK_SIZE = 46;
+    
     public final static byte CALIB_STAT_ADDR = 0x35;
     public final static byte CALIB_ADDR = 0x55;
     public final static byte CALIB_SIZE = 22;
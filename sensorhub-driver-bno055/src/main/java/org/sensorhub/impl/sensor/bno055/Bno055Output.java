@@ -19,21 +19,23 @@ import org.sensorhub.api.comm.ICommProvider;
 import org.sensorhub.api.sensor.SensorDataEvent;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import net.opengis.swe.v20.DataEncoding;
 import net.opengis.swe.v20.DataType;
 import net.opengis.swe.v20.Vector;
-import org.vast.swe.DataInputStreamLI;
-import org.vast.swe.DataOutputStreamLI;
+import org.vast.swe.SWEHelper;
 import org.vast.swe.helper.GeoPosHelper;
 
 
 /**
  * <p>
- * Implementation of the absolute orientation quaternion output
+ * Implementation of the absolute orientation quaternion output.<br/>
+ * When readAllData is set in config, the whole data register block is read
+ * with a single command and the output also includes raw and fused inertial
+ * measurements, temperature and calibration status.
  * </p>
  *
  * @author Alex Robin
@@ -49,14 +51,28 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
         0x08
     };
     
+    private final static byte[] READ_ALL_CMD =
+    {
+        Bno055Constants.START_BYTE,
+        Bno055Constants.DATA_READ,
+        Bno055Constants.ACC_DATA_X_LSB_ADDR,
+        Bno055Constants.DATA_BLOCK_SIZE
+    };
+    
     private final static double QUAT_SCALE = 1<<14;
+    private final static double ACCEL_SCALE = 100.0; // LSB per m/s2
+    private final static double MAG_SCALE = 16.0; // LSB per uT
+    private final static double GYRO_SCALE = 16.0; // LSB per deg/s
+    private final static double EULER_SCALE = 16.0; // LSB per deg
+    
+    protected final static double MAX_SAMPLING_RATE = 100.0; // Hz
     
     
     DataComponent imuData;
     DataEncoding dataEncoding;
-    Timer timer;
-    DataInputStreamLI dataIn;
-    DataOutputStreamLI dataOut;
+    volatile Thread pollThread;
+    volatile Bno055Scheduler.PollTask pollTask;
+    boolean firstSampleSent;
     
     int decimFactor = 1;
     int sampleCounter;
@@ -65,6 +81,7 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
     float[] accel = new float[3];
     float[] mag = new float[3];
     float[] quat = new float[4];
+    boolean readAllData;
     
     
     public Bno055Output(Bno055Sensor parentSensor)
@@ -83,9 +100,10 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
     protected void init()
     {
         GeoPosHelper fac = new GeoPosHelper();
+        readAllData = parentSensor.getConfiguration().readAllData;
         
         // build SWE Common record structure
-        imuData = fac.newDataRecord(4);
+        imuData = fac.newDataRecord(readAllData ? 11 : 2);
         imuData.setName(getName());
         imuData.setDefinition("http://sensorml.com/ont/swe/property/ImuData");
         
@@ -95,35 +113,57 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
         imuData.addComponent("time", fac.newTimeStampIsoUTC());
         
         // raw inertial measurements
-        /*Vector angRate = fac.newAngularVelocityVector(
-                SWEHelper.getPropertyUri("AngularRate"),
-                localRefFrame,
-                "deg/s");
-        angRate.setDataType(DataType.FLOAT);
-        imuData.addComponent("angRate", angRate);
-        
-        Vector accel = fac.newAccelerationVector(
-                SWEHelper.getPropertyUri("Acceleration"),
-                localRefFrame,
-                "m/s2");
-        accel.setDataType(DataType.FLOAT);
-        imuData.addComponent("accel", accel);*/
+        if (readAllData)
+        {
+            imuData.addComponent("accel", newBodyVector(fac, "Acceleration", localFrame, "m/s2"));
+            imuData.addComponent("angRate", newBodyVector(fac, "AngularRate", localFrame, "deg/s"));
+            imuData.addComponent("magField", newBodyVector(fac, "MagneticField", localFrame, "uT"));
+            
+            Vector euler = fac.newEulerOrientationENU(null);
+            euler.setDataType(DataType.FLOAT);
+            euler.setLocalFrame(localFrame);
+            imuData.addComponent("eulerAngles", euler);
+        }
         
         // integrated measurements
-        //fac.newEulerOrientationENU(def)
         Vector quat = fac.newQuatOrientationENU(null);
         quat.setDataType(DataType.FLOAT);
         quat.setLocalFrame(localFrame);
         imuData.addComponent("attitude", quat);
+        
+        if (readAllData)
+        {
+            imuData.addComponent("linearAccel", newBodyVector(fac, "LinearAcceleration", localFrame, "m/s2"));
+            imuData.addComponent("gravity", newBodyVector(fac, "GravityAcceleration", localFrame, "m/s2"));
+            imuData.addComponent("temp", fac.newQuantity(SWEHelper.getPropertyUri("Temperature"), "Temperature", null, "Cel", DataType.FLOAT));
+            imuData.addComponent("calibStatus", fac.newCount(SWEHelper.getPropertyUri("CalibrationStatus"), "Calibration Status", "Calibration status byte (2 bits each for system, gyroscope, accelerometer and magnetometer, from MSB to LSB)", DataType.INT));
+        }
      
         // also generate encoding definition as text block
         dataEncoding = fac.newTextEncoding(",", "\n");        
     }
     
+    
+    private Vector newBodyVector(GeoPosHelper fac, String def, String localFrame, String uom)
+    {
+        String[] axes = new String[] {"X", "Y", "Z"};
+        Vector vect = fac.newVector(SWEHelper.getPropertyUri(def), localFrame,
+                new String[] {"x", "y", "z"}, axes, new String[] {uom, uom, uom}, axes);
+        vect.setLocalFrame(localFrame);
+        vect.setDataType(DataType.FLOAT);
+        return vect;
+    }
+    
 
     /* TODO: only using HV message; add support for HT and ML */
     private void pollAndSendMeasurement()
     {
+        if (readAllData)
+        {
+            pollAndSendAllData();
+            return;
+        }
+        
     	long msgTime = System.currentTimeMillis();
     	
         // decode message
@@ -135,6 +175,7 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
             quat[3] = (float)(resp.getShort() / QUAT_SCALE);
             for (int i=0; i<3; i++)
                 quat[i] = (float)(resp.getShort() / QUAT_SCALE);
+            parentSensor.releaseResponse(resp);
         }
         catch (IOException e)
         {
@@ -158,21 +199,100 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
         for (int i=0; i<4; i++, k++)
             dataBlock.setFloatValue(k, quat[i]);
         
+        publishRecord(dataBlock, msgTime);
+    }
+    
+    
+    /*
+     * Reads the whole data register block with a single command
+     * and decodes it directly from the pooled response buffer
+     */
+    private void pollAndSendAllData()
+    {
+        long msgTime = System.currentTimeMillis();
+        ByteBuffer resp;
+        
+        try
+        {
+            resp = parentSensor.sendReadCommand(READ_ALL_CMD);
+        }
+        catch (IOException e)
+        {
+            // skip measurement if there is a bus error
+            return;
+        }
+        
+        if (resp.limit() != Bno055Constants.DATA_BLOCK_SIZE)
+        {
+            parentSensor.releaseResponse(resp);
+            return;
+        }
+        
+        // create and populate datablock
+        DataBlock dataBlock;
+        if (latestRecord == null)
+            dataBlock = imuData.createDataBlock();
+        else
+            dataBlock = latestRecord.renew();
+        
+        int k = 0;
+        dataBlock.setDoubleValue(k++, msgTime / 1000.);
+        k = putVector(dataBlock, k, resp, Bno055Constants.ACC_DATA_X_LSB_ADDR, ACCEL_SCALE);
+        k = putVector(dataBlock, k, resp, Bno055Constants.GYR_DATA_X_LSB_ADDR, GYRO_SCALE);
+        k = putVector(dataBlock, k, resp, Bno055Constants.MAG_DATA_X_LSB_ADDR, MAG_SCALE);
+        
+        // euler angles are stored as heading, roll, pitch
+        int offset = Bno055Constants.EUL_HEADING_LSB_ADDR - Bno055Constants.ACC_DATA_X_LSB_ADDR;
+        dataBlock.setFloatValue(k++, (float)(resp.getShort(offset) / EULER_SCALE));
+        dataBlock.setFloatValue(k++, (float)(resp.getShort(offset+4) / EULER_SCALE));
+        dataBlock.setFloatValue(k++, (float)(resp.getShort(offset+2) / EULER_SCALE));
+        
+        // quaternion is stored scalar first
+        offset = Bno055Constants.QUAT_DATA_W_LSB_ADDR - Bno055Constants.ACC_DATA_X_LSB_ADDR;
+        for (int i=1; i<4; i++, k++)
+            dataBlock.setFloatValue(k, (float)(resp.getShort(offset+2*i) / QUAT_SCALE));
+        dataBlock.setFloatValue(k++, (float)(resp.getShort(offset) / QUAT_SCALE));
+        
+        k = putVector(dataBlock, k, resp, Bno055Constants.LIA_DATA_X_LSB_ADDR, ACCEL_SCALE);
+        k = putVector(dataBlock, k, resp, Bno055Constants.GRV_DATA_X_LSB_ADDR, ACCEL_SCALE);
+        dataBlock.setFloatValue(k++, resp.get(Bno055Constants.TEMP_ADDR - Bno055Constants.ACC_DATA_X_LSB_ADDR));
+        dataBlock.setIntValue(k++, resp.get(Bno055Constants.CALIB_STAT_ADDR - Bno055Constants.ACC_DATA_X_LSB_ADDR) & 0xFF);
+        parentSensor.releaseResponse(resp);
+        
+        publishRecord(dataBlock, msgTime);
+    }
+    
+    
+    private void publishRecord(DataBlock dataBlock, long msgTime)
+    {
         // update latest record and send event
         latestRecord = dataBlock;
         latestRecordTime = msgTime;
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, Bno055Output.this, dataBlock));        
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, Bno055Output.this, dataBlock));
+        
+        if (!firstSampleSent)
+        {
+            firstSampleSent = true;
+            parentSensor.firstSampleSent();
+        }
+    }
+    
+    
+    private int putVector(DataBlock dataBlock, int k, ByteBuffer resp, byte regAddr, double scale)
+    {
+        int offset = regAddr - Bno055Constants.ACC_DATA_X_LSB_ADDR;
+        for (int i=0; i<3; i++, k++)
+            dataBlock.setFloatValue(k, (float)(resp.getShort(offset+2*i) / scale));
+        return k;
     }
    
 
     protected void start(ICommProvider<?> commProvider)
     {
         sampleCounter = -1;
-        dataIn = parentSensor.dataIn;
-        dataOut = parentSensor.dataOut;        
+        firstSampleSent = false;
         
-        // start main measurement thread
-        TimerTask t = new TimerTask()
+        Runnable poll = new Runnable()
         {
             public void run()
             {
@@ -180,25 +300,99 @@ public class Bno055Output extends AbstractSensorOutput<Bno055Sensor>
             }
         };
         
-        timer = new Timer();
-        timer.schedule(t, 0, (long)(getAverageSamplingPeriod()*1000));
+        Bno055Config config = parentSensor.getConfiguration();
+        final Bno055Scheduler.PollTask task = new Bno055Scheduler.PollTask(poll, config.samplingRate, parentSensor.getLogger());
+        pollTask = task;
+        
+        // let shared scheduler poll the sensor
+        if (config.useSharedScheduler)
+        {
+            Bno055Scheduler.schedule(task);
+            return;
+        }
+        
+        // or start dedicated measurement thread
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                runPollLoop(task);
+            }
+        }, "BNO055-" + parentSensor.getLocalID());
+        pollThread = t;
+        t.start();
+    }
+    
+    
+    /*
+     * Runs poll task in dedicated thread at each of its ticks
+     */
+    private void runPollLoop(Bno055Scheduler.PollTask task)
+    {
+        // loop exits when stopped or replaced by a new thread
+        Thread thisThread = Thread.currentThread();
+        
+        while (pollThread == thisThread)
+        {
+            // wait until next tick
+            long delay = task.getDelay(TimeUnit.NANOSECONDS);
+            while (delay > 0 && pollThread == thisThread)
+            {
+                LockSupport.parkNanos(delay);
+                delay = task.getDelay(TimeUnit.NANOSECONDS);
+            }
+            
+            if (pollThread != thisThread)
+                break;
+            
+            task.run();
+        }
     }
 
 
     protected void stop()
     {
-    	if (timer != null)
-    	{
-	        timer.cancel();
-	        timer = null;
-    	}
+        Bno055Scheduler.PollTask task = pollTask;
+        if (task != null)
+            Bno055Scheduler.cancel(task);
+        
+        Thread t = pollThread;
+        if (t != null)
+        {
+            pollThread = null;
+            LockSupport.unpark(t);
+        }
+    }
+
+
+    /**
+     * @return Number of polls that took longer than the sampling period
+     */
+    public long getOverrunCount()
+    {
+        Bno055Scheduler.PollTask task = pollTask;
+        return (task != null) ? task.getOverrunCount() : 0;
+    }
+
+
+    /**
+     * @return Number of sampling ticks skipped because of overruns
+     */
+    public long getSkippedSampleCount()
+    {
+        Bno055Scheduler.PollTask task = pollTask;
+        return (task != null) ? task.getSkippedTickCount() : 0;
     }
 
 
     @Override
     public double getAverageSamplingPeriod()
     {
-    	return 0.1;
+        // report measured period once sampling has started
+        Bno055Scheduler.PollTask task = pollTask;
+        if (task != null && !Double.isNaN(task.getMeasuredPeriod()))
+            return task.getMeasuredPeriod();
+        return 1.0 / parentSensor.getConfiguration().samplingRate;
     }
 
 
@@ -0,0 +1,529 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.bno055;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>
+ * Shared acquisition scheduler polling many BNO055 sensors with a small
+ * fixed pool of threads, instead of one polling thread per sensor.<br/>
+ * Each poll task has its own rate target. Tasks whose tick is due are run
+ * least recently polled first, and a task is only queued again once its poll
+ * is done, so when the pool is overloaded all sensors are slowed down evenly
+ * and a slow sensor cannot delay the others by more than one poll.
+ * </p><p>
+ * The scheduler is created when the first task is scheduled and its threads
+ * are stopped when the last task is cancelled. Aggregate statistics of the
+ * delay between each tick and the actual start of its poll (latency), and of
+ * the poll durations, are kept for all tasks.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class Bno055Scheduler
+{
+    static final Logger log = LoggerFactory.getLogger(Bno055Scheduler.class);
+
+    // workers mostly wait for serial responses so this doesn't depend on the number of CPUs
+    public static final int NUM_THREADS = 4;
+    static final long STATS_LOG_PERIOD = 60000000000L; // ns
+
+    static Bno055Scheduler instance;
+    static int refCount;
+    static final Stats stats = new Stats();
+
+    // tasks waiting for their next tick, and tasks due
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition taskAvailable = lock.newCondition();
+    final PriorityQueue<PollTask> waitingTasks = new PriorityQueue<>(16, new Comparator<PollTask>()
+    {
+        public int compare(PollTask t1, PollTask t2)
+        {
+            return Long.compare(t1.dueTime - t2.dueTime, 0);
+        }
+    });
+    final PriorityQueue<PollTask> dueTasks = new PriorityQueue<>(16, new Comparator<PollTask>()
+    {
+        public int compare(PollTask t1, PollTask t2)
+        {
+            int c = Long.compare(t1.lastPollTime - t2.lastPollTime, 0);
+            return (c != 0) ? c : Long.compare(t1.seqNum, t2.seqNum);
+        }
+    });
+    final Thread[] workers;
+    volatile boolean started;
+
+
+    /**
+     * Source of monotonic time used by poll tasks
+     */
+    public interface Clock
+    {
+        /** @return Current time, in ns, from an arbitrary origin */
+        long nanoTime();
+    }
+
+
+    /**
+     * Default clock based on {@link System#nanoTime()}
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock()
+    {
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+    };
+
+
+    /**
+     * <p>
+     * Poll task run at a fixed rate on the monotonic clock, so the rate doesn't
+     * drift with the duration of each serial transaction. When a poll overruns
+     * its period, the task is polled once right away and the other missed ticks
+     * are skipped rather than queued, so a slow poll never causes a burst of
+     * samples. Tasks are run either by the shared scheduler or by a dedicated
+     * thread.
+     * </p>
+     */
+    public static class PollTask
+    {
+        static final double PERIOD_FILTER_GAIN = 0.05;
+        static final long OVERRUN_REPORT_PERIOD = 10000000000L; // ns
+        static final AtomicLong sequence = new AtomicLong();
+
+        final Runnable poll;
+        final Clock clock;
+        final Logger log;
+        final long period; // ns
+        final long startTime;
+        long tick;
+        long dueTime;
+        long seqNum;
+        long lastPollTime;
+        long lastOverrunReportTime;
+        volatile double measuredPeriod = Double.NaN; // s
+        volatile long numPolls;
+        volatile long numOverruns;
+        volatile long numSkippedTicks;
+        boolean scheduled;
+        volatile boolean cancelled;
+
+        public PollTask(Runnable poll, double rate, Logger log)
+        {
+            this(poll, rate, SYSTEM_CLOCK, log);
+        }
+
+        /**
+         * Creates a poll task using the given clock. Only tasks using the
+         * system clock can be scheduled with the shared scheduler.
+         * @param poll polling function
+         * @param rate target polling rate, in Hz
+         * @param clock source of monotonic time
+         * @param log logger used to report errors and overruns
+         */
+        public PollTask(Runnable poll, double rate, Clock clock, Logger log)
+        {
+            this.poll = poll;
+            this.clock = clock;
+            this.log = log;
+            this.period = (long)(1e9 / rate);
+            this.startTime = clock.nanoTime();
+            this.dueTime = startTime;
+        }
+
+        /**
+         * Runs poll and computes time of next tick. This must only be called
+         * directly when the task is run by a dedicated thread.
+         */
+        public void run()
+        {
+            // update measured sampling period
+            long now = clock.nanoTime();
+            if (lastPollTime != 0)
+            {
+                double dt = (now - lastPollTime) / 1e9;
+                double p = measuredPeriod;
+                measuredPeriod = Double.isNaN(p) ? dt : p + PERIOD_FILTER_GAIN * (dt - p);
+            }
+            lastPollTime = now;
+
+            try
+            {
+                poll.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Error while polling sensor", e);
+            }
+            numPolls++;
+
+            // if the next tick was missed during this poll, poll again right
+            // away for the latest tick and skip the older ones
+            long lastTick = (clock.nanoTime() - startTime) / period;
+            if (lastTick > tick)
+            {
+                reportOverrun(lastTick - tick - 1);
+                tick = lastTick;
+            }
+            else
+                tick++;
+            dueTime = startTime + tick*period;
+        }
+
+        private void reportOverrun(long skippedTicks)
+        {
+            numOverruns++;
+            numSkippedTicks += skippedTicks;
+
+            // throttle warnings so a slow link doesn't flood the log
+            long now = clock.nanoTime();
+            if (lastOverrunReportTime == 0 || now - lastOverrunReportTime > OVERRUN_REPORT_PERIOD)
+            {
+                log.warn("Sampling overrun: {} overruns and {} skipped samples since start", numOverruns, numSkippedTicks);
+                lastOverrunReportTime = now;
+            }
+        }
+
+        /**
+         * @param unit time unit of result
+         * @return Time remaining until next tick
+         */
+        public long getDelay(TimeUnit unit)
+        {
+            return unit.convert(dueTime - clock.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return Measured sampling period, in seconds, or NaN if fewer than 2 polls have run
+         */
+        public double getMeasuredPeriod()
+        {
+            return measuredPeriod;
+        }
+
+        /**
+         * @return Number of polls run since the task was created
+         */
+        public long getPollCount()
+        {
+            return numPolls;
+        }
+
+        /**
+         * @return Number of polls that ended after the next tick
+         */
+        public long getOverrunCount()
+        {
+            return numOverruns;
+        }
+
+        /**
+         * @return Number of ticks skipped because of overruns
+         */
+        public long getSkippedTickCount()
+        {
+            return numSkippedTicks;
+        }
+    }
+
+
+    /**
+     * <p>
+     * Aggregate poll statistics of all tasks run by the scheduler
+     * </p>
+     */
+    public static class Stats
+    {
+        long numPolls;
+        long totalLatency;
+        long maxLatency;
+        long totalDuration;
+        long maxDuration;
+        long numOverruns;
+
+        synchronized void record(long latency, long duration, boolean overrun)
+        {
+            numPolls++;
+            if (overrun)
+                numOverruns++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            totalDuration += duration;
+            maxDuration = Math.max(maxDuration, duration);
+        }
+
+        /** @return Number of polls run by the scheduler */
+        public synchronized long getPollCount()
+        {
+            return numPolls;
+        }
+
+        /** @return Mean delay between ticks and actual start of polls, in ms */
+        public synchronized double getMeanLatency()
+        {
+            return (numPolls > 0) ? totalLatency / 1e6 / numPolls : 0.0;
+        }
+
+        /** @return Max delay between ticks and actual start of polls, in ms */
+        public synchronized double getMaxLatency()
+        {
+            return maxLatency / 1e6;
+        }
+
+        /** @return Mean duration of polls, in ms */
+        public synchronized double getMeanDuration()
+        {
+            return (numPolls > 0) ? totalDuration / 1e6 / numPolls : 0.0;
+        }
+
+        /** @return Max duration of polls, in ms */
+        public synchronized double getMaxDuration()
+        {
+            return maxDuration / 1e6;
+        }
+
+        /** @return Number of polls that ended after the next tick of their task */
+        public synchronized long getOverrunCount()
+        {
+            return numOverruns;
+        }
+
+        /** Resets all statistics */
+        public synchronized void reset()
+        {
+            numPolls = 0;
+            totalLatency = maxLatency = 0;
+            totalDuration = maxDuration = 0;
+            numOverruns = 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d polls, latency mean=%.2fms max=%.2fms, duration mean=%.2fms max=%.2fms, %d overruns",
+                getPollCount(), getMeanLatency(), getMaxLatency(), getMeanDuration(), getMaxDuration(), getOverrunCount());
+        }
+    }
+
+
+    private Bno055Scheduler()
+    {
+        started = true;
+        workers = new Thread[NUM_THREADS];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    runTasks();
+                }
+            }, "Bno055Scheduler-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        log.info("BNO055 scheduler started with {} threads", workers.length);
+    }
+
+
+    /**
+     * Schedules a poll task with the shared scheduler, creating the scheduler if needed
+     * @param task task to run at its own rate until it is cancelled
+     */
+    public static synchronized void schedule(PollTask task)
+    {
+        if (task.scheduled)
+            throw new IllegalStateException("Poll task can only be scheduled once");
+        if (task.clock != SYSTEM_CLOCK)
+            throw new IllegalArgumentException("Poll task must use the system clock");
+        task.scheduled = true;
+
+        if (instance == null)
+            instance = new Bno055Scheduler();
+        refCount++;
+
+        task.seqNum = PollTask.sequence.incrementAndGet();
+        instance.addTask(task);
+    }
+
+
+    /**
+     * Cancels a poll task and stops the scheduler if no other task is scheduled.
+     * The task won't run anymore after its current poll completes, if any.
+     * Nothing is done if the task was not scheduled with the shared scheduler.
+     * @param task task to cancel
+     */
+    public static synchronized void cancel(PollTask task)
+    {
+        if (instance == null || !task.scheduled || task.cancelled)
+            return;
+
+        task.cancelled = true;
+        instance.removeTask(task);
+        refCount--;
+
+        if (refCount <= 0)
+        {
+            instance.started = false;
+            for (Thread t: instance.workers)
+                t.interrupt();
+            instance = null;
+            refCount = 0;
+            log.info("BNO055 scheduler stopped ({})", stats);
+        }
+    }
+
+
+    private void runTasks()
+    {
+        long lastStatsTime = System.nanoTime();
+
+        while (started)
+        {
+            PollTask task;
+            try
+            {
+                task = nextTask();
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            if (task.cancelled)
+                continue;
+
+            long start = System.nanoTime();
+            long latency = start - task.dueTime;
+            long numOverruns = task.numOverruns;
+            task.run();
+            long end = System.nanoTime();
+            stats.record(latency, end - start, task.numOverruns > numOverruns);
+
+            // queue again for next tick unless it was cancelled while running
+            synchronized (Bno055Scheduler.class)
+            {
+                if (!task.cancelled)
+                    addTask(task);
+            }
+
+            if (log.isDebugEnabled() && end - lastStatsTime > STATS_LOG_PERIOD)
+            {
+                log.debug("Poll stats: {}", stats);
+                lastStatsTime = end;
+            }
+        }
+    }
+
+
+    /*
+     * Waits until a task is due and returns the due task that was
+     * polled least recently, so that tasks that skipped ticks because
+     * the pool is overloaded are run first at the next tick
+     */
+    private PollTask nextTask() throws InterruptedException
+    {
+        lock.lockInterruptibly();
+        try
+        {
+            while (true)
+            {
+                long now = System.nanoTime();
+                PollTask task;
+                while ((task = waitingTasks.peek()) != null && task.dueTime - now <= 0)
+                    dueTasks.add(waitingTasks.poll());
+
+                task = dueTasks.poll();
+                if (task != null)
+                {
+                    // let other workers run remaining due tasks
+                    if (!dueTasks.isEmpty())
+                        taskAvailable.signal();
+                    return task;
+                }
+
+                task = waitingTasks.peek();
+                if (task == null)
+                    taskAvailable.await();
+                else
+                    taskAvailable.awaitNanos(task.dueTime - now);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    private void addTask(PollTask task)
+    {
+        lock.lock();
+        try
+        {
+            waitingTasks.add(task);
+            taskAvailable.signal();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    private void removeTask(PollTask task)
+    {
+        lock.lock();
+        try
+        {
+            waitingTasks.remove(task);
+            dueTasks.remove(task);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return Aggregate poll statistics of all tasks run by the shared scheduler
+     */
+    public static Stats getStats()
+    {
+        return stats;
+    }
+
+
+    /**
+     * @return Number of tasks currently scheduled
+     */
+    public static synchronized int getNumTasks()
+    {
+        return refCount;
+    }
+}
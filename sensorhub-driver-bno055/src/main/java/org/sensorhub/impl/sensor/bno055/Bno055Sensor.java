@@ -16,12 +16,13 @@ package org.sensorhub.impl.sensor.bno055;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Future;
 import net.opengis.sensorml.v20.ClassifierList;
 import net.opengis.sensorml.v20.PhysicalSystem;
 import net.opengis.sensorml.v20.SpatialFrame;
@@ -31,8 +32,6 @@ import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.api.module.IModuleStateManager;
 import org.sensorhub.impl.sensor.AbstractSensorModule;
 import org.vast.sensorML.SMLFactory;
-import org.vast.swe.DataInputStreamLI;
-import org.vast.swe.DataOutputStreamLI;
 import org.vast.swe.SWEHelper;
 
 
@@ -50,6 +49,26 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     
     private final static String STATE_CALIB_DATA = "calib_data";
     
+    private final static long STARTUP_TIMEOUT = 2000; // ms
+    private final static long RESET_MIN_TIME = 20; // ms
+    private final static long MIN_POLL_BACKOFF = 5; // ms
+    private final static long MAX_POLL_BACKOFF = 50; // ms
+    private final static long POLL_TIMEOUT = 20; // ms
+    private final static long CONFIG_MODE_SWITCH_TIME = 19; // ms, from any mode to config
+    private final static long OPERATION_MODE_SWITCH_TIME = 7; // ms, from config to any mode
+    private final static double CALIB_POLL_RATE = 2.0; // Hz
+    
+    enum StartupState
+    {
+        RESET,
+        WAIT_BOOT,
+        WAIT_IDLE,
+        CONFIGURE,
+        START_FUSION,
+        WAIT_FUSION,
+        READY
+    }
+    
     private final static byte[] READ_CALIB_STAT_CMD =
     {
         Bno055Constants.START_BYTE,
@@ -68,11 +87,13 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     
     
     ICommProvider<?> commProvider;
-    DataInputStreamLI dataIn;
-    DataOutputStreamLI dataOut;
+    Bno055CommandEngine cmdEngine;
     Bno055Output dataInterface;
     byte[] calibData;
     Timer calibTimer;
+    Bno055Scheduler.PollTask calibTask;
+    long startTime;
+    volatile long timeToFirstSample = -1;
     
     
     public Bno055Sensor()
@@ -85,6 +106,9 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     {
         super.init();
         
+        if (config.samplingRate <= 0 || config.samplingRate > Bno055Output.MAX_SAMPLING_RATE)
+            throw new SensorHubException("Sampling rate must be > 0 and <= " + Bno055Output.MAX_SAMPLING_RATE + " Hz");
+        
         // generate identifiers: use serial number from config or first characters of local ID
         generateUniqueID("urn:bosch:bno055:", config.serialNumber);
         generateXmlID("BOSCH_BNO055_", config.serialNumber);
@@ -137,6 +161,9 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     @Override
     public void start() throws SensorHubException
     {
+        startTime = System.nanoTime();
+        timeToFirstSample = -1;
+        
         // init comm provider
         if (commProvider == null)
         {
@@ -149,8 +176,9 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             // connect to comm data streams
             try
             {   
-                dataIn = new DataInputStreamLI(commProvider.getInputStream());
-                dataOut = new DataOutputStreamLI(commProvider.getOutputStream());
+                cmdEngine = new Bno055CommandEngine(commProvider.getInputStream(), commProvider.getOutputStream(), getLogger());
+                // with shared scheduler, polling threads also handle I/O
+                cmdEngine.start(!config.useSharedScheduler);
                 getLogger().info("Connected to IMU data stream");
             }
             catch (IOException e)
@@ -161,28 +189,31 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             // send init commands
             try
             {
-                reset();
-                
-                setOperationMode(Bno055Constants.OPERATION_MODE_CONFIG);
-                
-                setPowerMode(Bno055Constants.POWER_MODE_NORMAL);
-                setTriggerMode((byte)0);
-                
-                // load saved calibration coefs
-                if (calibData != null)
-                    loadCalibration();
-                
-                setOperationMode(Bno055Constants.OPERATION_MODE_NDOF);
+                runStartupSequence();
             }
             catch (Exception e)
             {
+                cmdEngine.stop();
                 commProvider.stop();
                 commProvider = null;
                 throw new SensorHubException("Error sending init commands", e);
             }
             
             // monitor calibration status
-            if (getLogger().isTraceEnabled())
+            if (getLogger().isTraceEnabled() && config.useSharedScheduler)
+            {
+                calibTask = new Bno055Scheduler.PollTask(new Runnable()
+                {
+                    public void run()
+                    {
+                        boolean calibOk = showCalibStatus();
+                        if (calibOk)
+                            Bno055Scheduler.cancel(calibTask);
+                    }
+                }, CALIB_POLL_RATE, getLogger());
+                Bno055Scheduler.schedule(calibTask);
+            }
+            else if (getLogger().isTraceEnabled())
             {
                 calibTimer = new Timer();
                 calibTimer.schedule(new TimerTask()
@@ -201,6 +232,87 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     }
     
     
+    /*
+     * Resets the chip and brings it to fusion mode, polling its status
+     * registers with a short back-off instead of waiting for worst case
+     * boot and mode switch times
+     */
+    protected void runStartupSequence() throws IOException
+    {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT*1000000L;
+        long backoff = MIN_POLL_BACKOFF;
+        StartupState state = StartupState.RESET;
+        
+        while (state != StartupState.READY)
+        {
+            // sleeps and response waits all return immediately once interrupted
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Sensor startup was interrupted (state " + state + ")");
+            
+            if (System.nanoTime() - deadline > 0)
+                throw new IOException("Sensor not ready after " + STARTUP_TIMEOUT + "ms (state " + state + ")");
+            
+            StartupState nextState = state;
+            switch (state)
+            {
+                case RESET:
+                    reset();
+                    sleep(RESET_MIN_TIME);
+                    nextState = StartupState.WAIT_BOOT;
+                    break;
+                    
+                case WAIT_BOOT:
+                    // chip doesn't respond while booting
+                    if (pollRegister(Bno055Constants.CHIP_ID_ADDR) == (Bno055Constants.CHIP_ID & 0xFF))
+                        nextState = StartupState.WAIT_IDLE;
+                    break;
+                    
+                case WAIT_IDLE:
+                    // chip comes out of reset in config mode
+                    int status = pollRegister(Bno055Constants.SYS_STATUS_ADDR);
+                    if (status == Bno055Constants.SYS_STATUS_ERROR)
+                        throw new IOException(String.format("System error: 0x%02X", pollRegister(Bno055Constants.SYS_ERR_ADDR)));
+                    if (status == Bno055Constants.SYS_STATUS_IDLE)
+                        nextState = StartupState.CONFIGURE;
+                    break;
+                    
+                case CONFIGURE:
+                    configure();
+                    nextState = StartupState.START_FUSION;
+                    break;
+                    
+                case START_FUSION:
+                    setOperationMode(Bno055Constants.OPERATION_MODE_NDOF);
+                    nextState = StartupState.WAIT_FUSION;
+                    break;
+                    
+                case WAIT_FUSION:
+                    if (pollRegister(Bno055Constants.SYS_STATUS_ADDR) == Bno055Constants.SYS_STATUS_FUSION_RUNNING)
+                        nextState = StartupState.READY;
+                    break;
+                    
+                default:
+                    break;
+            }
+            
+            // back-off only if we're still waiting in the same state
+            if (nextState == state)
+            {
+                sleep(backoff);
+                backoff = Math.min(2*backoff, MAX_POLL_BACKOFF);
+            }
+            else
+            {
+                getLogger().debug("Startup state {} after {}ms", nextState, (System.nanoTime() - startTime) / 1000000);
+                backoff = MIN_POLL_BACKOFF;
+                state = nextState;
+            }
+        }
+        
+        getLogger().info("Sensor ready in {}ms", (System.nanoTime() - startTime) / 1000000);
+    }
+    
+    
     protected void reset() throws IOException
     {
         byte[] resetCmd = new byte[] {
@@ -208,13 +320,72 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             Bno055Constants.DATA_WRITE,
             Bno055Constants.SYS_TRIGGER_ADDR,
             1,
-            0x20
+            Bno055Constants.SYS_TRIGGER_RST_SYS
         };
         
         sendWriteCommand(resetCmd, false);
+    }
+    
+    
+    /*
+     * Sets power and trigger modes and loads saved calibration coefs.
+     * Power mode and trigger registers are contiguous so they are set with
+     * a single write, and the calibration write is queued right behind it
+     * so both are sent without waiting for a round trip in between.
+     */
+    protected void configure() throws IOException
+    {
+        byte[] setModesCmd = new byte[] {
+            Bno055Constants.START_BYTE,
+            Bno055Constants.DATA_WRITE,
+            Bno055Constants.POWER_MODE_ADDR,
+            2,
+            Bno055Constants.POWER_MODE_NORMAL,
+            0
+        };
+        
+        Future<ByteBuffer> setModes = cmdEngine.submitWrite(setModesCmd, true, Bno055CommandEngine.DEFAULT_TIMEOUT);
+        Future<ByteBuffer> setCal = null;
+        if (calibData != null)
+            setCal = cmdEngine.submitWrite(buildCalibCommand(), true, Bno055CommandEngine.DEFAULT_TIMEOUT);
+        
+        cmdEngine.waitFor(setModes);
+        if (setCal != null)
+        {
+            cmdEngine.waitFor(setCal);
+            getLogger().debug("Loaded calibration data: {}", Arrays.toString(calibData));
+        }
+    }
+    
+    
+    /* reads a single register, returns -1 if the chip doesn't respond */
+    protected int pollRegister(byte address)
+    {
+        byte[] readCmd = new byte[] {
+            Bno055Constants.START_BYTE,
+            Bno055Constants.DATA_READ,
+            address,
+            1
+        };
         
-        try { Thread.sleep(650); }
-        catch (InterruptedException e) { }
+        try
+        {
+            ByteBuffer resp = cmdEngine.read(readCmd, POLL_TIMEOUT);
+            int val = (resp.limit() > 0) ? resp.get(0) & 0xFF : -1;
+            releaseResponse(resp);
+            return val;
+        }
+        catch (IOException e)
+        {
+            return -1;
+        }
+    }
+    
+    
+    private void sleep(long millis)
+    {
+        try { Thread.sleep(millis); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
     }
     
     
@@ -233,17 +404,17 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     protected void setOperationMode(byte mode) throws IOException
     {
         setMode(Bno055Constants.OPERATION_MODE_ADDR, mode);
-        try { Thread.sleep(50); }
-        catch (InterruptedException e) { }
+        
+        // wait for mode switch to complete (times from datasheet)
+        if (mode == Bno055Constants.OPERATION_MODE_CONFIG)
+            sleep(CONFIG_MODE_SWITCH_TIME);
+        else
+            sleep(OPERATION_MODE_SWITCH_TIME);
     }
     
     
     protected void setMode(byte address, byte mode) throws IOException
     {
-        // wait for previous command to complete
-        try { Thread.sleep(30); }
-        catch (InterruptedException e) { }
-        
         // build command
         byte[] setModeCmd = new byte[] {
             Bno055Constants.START_BYTE,
@@ -253,11 +424,8 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             mode
         };
         
+        // register is written when chip acknowledges
         sendWriteCommand(setModeCmd, true);
-        
-        // wait for mode switch to complete
-        try { Thread.sleep(30); }
-        catch (InterruptedException e) { }
     }
     
     
@@ -269,6 +437,7 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             
             // read calib status byte
             byte calStatus = resp.get();
+            releaseResponse(resp);
             int sys = (calStatus >> 6) & 0x03;
             int gyro = (calStatus >> 4) & 0x03;
             int accel = (calStatus >> 2) & 0x03;
@@ -287,29 +456,19 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     }
     
     
-    /* load calibration data to sensor */
-    protected void loadCalibration() throws Exception
+    /* build command to load calibration data to sensor */
+    protected byte[] buildCalibCommand() throws IOException
     {
-        try
-        {
-            if (calibData.length != Bno055Constants.CALIB_SIZE)
-                throw new IOException("Calibration data must be " + Bno055Constants.CALIB_SIZE + " bytes");
-            
-            // build command
-            byte[] setCalCmd = new byte[4 + Bno055Constants.CALIB_SIZE];
-            setCalCmd[0] = Bno055Constants.START_BYTE;
-            setCalCmd[1] = Bno055Constants.DATA_WRITE;
-            setCalCmd[2] = Bno055Constants.CALIB_ADDR;
-            setCalCmd[3] = Bno055Constants.CALIB_SIZE;
-            System.arraycopy(calibData, 0, setCalCmd, 4, Bno055Constants.CALIB_SIZE);
-            
-            sendWriteCommand(setCalCmd, true);            
-            getLogger().debug("Loaded calibration data: {}", Arrays.toString(calibData));
-        }
-        catch (IOException e)
-        {
-            throw new SensorHubException("Error loading calibration table", e);
-        }
+        if (calibData.length != Bno055Constants.CALIB_SIZE)
+            throw new IOException("Calibration data must be " + Bno055Constants.CALIB_SIZE + " bytes");
+        
+        byte[] setCalCmd = new byte[4 + Bno055Constants.CALIB_SIZE];
+        setCalCmd[0] = Bno055Constants.START_BYTE;
+        setCalCmd[1] = Bno055Constants.DATA_WRITE;
+        setCalCmd[2] = Bno055Constants.CALIB_ADDR;
+        setCalCmd[3] = Bno055Constants.CALIB_SIZE;
+        System.arraycopy(calibData, 0, setCalCmd, 4, Bno055Constants.CALIB_SIZE);
+        return setCalCmd;
     }
     
     
@@ -321,7 +480,10 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
             setOperationMode(Bno055Constants.OPERATION_MODE_CONFIG);
             
             ByteBuffer resp = sendReadCommand(READ_CALIB_DATA_CMD);
-            calibData = resp.array();          
+            byte[] data = new byte[Bno055Constants.CALIB_SIZE];
+            resp.get(data);
+            releaseResponse(resp);
+            calibData = data;
             getLogger().debug("Read calibration data: {}", Arrays.toString(calibData));
         }
         catch (Exception e)
@@ -331,64 +493,40 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
     }
     
     
-    protected synchronized ByteBuffer sendReadCommand(byte[] readCmd) throws IOException
+    /* returned buffer is pooled and must be released with releaseResponse() */
+    protected ByteBuffer sendReadCommand(byte[] readCmd) throws IOException
     {
-        // flush any pending received data to get into a clean state
-        while (dataIn.available() > 0)
-            dataIn.read();
-        
-        dataOut.write(readCmd);
-        dataOut.flush();
-        
-        // check for error
-        int b0 = dataIn.read();
-        if (b0 != (Bno055Constants.ACK_BYTE & 0xFF))
-            throw new IOException(String.format("Register Read Error: %02X", dataIn.read()));
-        
-        // read response
-        int length = dataIn.read();
-        byte[] response = new byte[length];
-        dataIn.readFully(response);
-        ByteBuffer buf = ByteBuffer.wrap(response);
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        return buf;
+        return cmdEngine.read(readCmd);
     }
     
     
-    protected synchronized void sendWriteCommand(byte[] writeCmd, boolean checkAck) throws IOException
+    protected void releaseResponse(ByteBuffer resp)
     {
-        int nAttempts = 0;
-        int maxAttempts = 5;
-        while (nAttempts < maxAttempts)
-        {
-            nAttempts++;
-            
-            // flush any pending received data to get into a clean state
-            while (dataIn.available() > 0)
-                dataIn.read();
-            
-            // write command to serial port
-            dataOut.write(writeCmd);
-            dataOut.flush();
-            
-            // check ACK
-            if (checkAck)
-            {
-                int b0 = dataIn.read();
-                int b1 = dataIn.read();
-                
-                if (b0 != (0xEE & 0xFF) || b1 != 0x01)
-                {
-                    String msg = String.format("Register Write Error: 0x%02X 0x%02X (%d)", b0, b1, nAttempts);
-                    if (b1 != 0x07 || nAttempts >= maxAttempts)
-                        throw new IOException(msg);
-                    getLogger().warn(msg);
-                    continue;
-                }
-            }
-            
-            return;
-        }
+        cmdEngine.releaseBuffer(resp);
+    }
+    
+    
+    protected void sendWriteCommand(byte[] writeCmd, boolean checkAck) throws IOException
+    {
+        cmdEngine.write(writeCmd, checkAck);
+    }
+    
+
+    /* called by output when first sample is published after start */
+    protected void firstSampleSent()
+    {
+        timeToFirstSample = (System.nanoTime() - startTime) / 1000000;
+        getLogger().info("First sample sent {}ms after start", timeToFirstSample);
+    }
+    
+    
+    /**
+     * @return Time between last call to start() and first published sample, in ms,
+     * or -1 if no sample has been published yet
+     */
+    public long getTimeToFirstSample()
+    {
+        return timeToFirstSample;
     }
     
 
@@ -443,12 +581,19 @@ public class Bno055Sensor extends AbstractSensorModule<Bno055Config>
         if (calibTimer != null)
             calibTimer.cancel();
         
+        if (calibTask != null)
+        {
+            Bno055Scheduler.cancel(calibTask);
+            calibTask = null;
+        }
+        
         if (dataInterface != null)
             dataInterface.stop();
                         
         if (commProvider != null)
         {
             readCalibration();
+            cmdEngine.stop();
             commProvider.stop();
             commProvider = null;
         }
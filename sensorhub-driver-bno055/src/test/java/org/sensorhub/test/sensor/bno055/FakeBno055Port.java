@@ -0,0 +1,183 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import org.sensorhub.api.comm.CommProviderConfig;
+import org.sensorhub.api.comm.ICommProvider;
+import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.impl.module.AbstractModule;
+import org.sensorhub.impl.sensor.bno055.Bno055Constants;
+import org.sensorhub.test.sensor.bno055.TestBno055CommandEngine.FakeChip;
+
+
+/**
+ * <p>
+ * Comm provider connected to a simulated BNO055 chip that goes through
+ * the boot, config and fusion states like the real one after a reset.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class FakeBno055Port extends AbstractModule<CommProviderConfig<?>> implements ICommProvider<CommProviderConfig<?>>
+{
+    PipedInputStream hostIn;
+    PipedOutputStream hostOut;
+    BootingChip chip;
+
+
+    public static class Config extends CommProviderConfig<Object>
+    {
+        // register map shared with the chip, test can change it at any time
+        public byte[] registers = new byte[256];
+
+        // time the chip takes to boot after a reset, or -1 to never boot
+        public long bootTime = 50; // ms
+
+        // time taken to start fusion after switching to NDOF mode
+        public long fusionDelay = 20; // ms
+
+        // system status reported after boot (idle or error)
+        public byte bootStatus = Bno055Constants.SYS_STATUS_IDLE;
+        public byte sysError = 0;
+
+        // number of data block reads answered with a truncated block
+        public volatile int shortReads;
+
+        public Config()
+        {
+            this.moduleClass = FakeBno055Port.class.getCanonicalName();
+        }
+    }
+
+
+    /*
+     * Chip doesn't respond while booting and reports fusion running only
+     * some time after switching to NDOF mode
+     */
+    static class BootingChip extends FakeChip
+    {
+        final Config config;
+        volatile long bootEnd;
+        volatile long fusionStart = Long.MAX_VALUE;
+
+        BootingChip(InputStream is, OutputStream os, Config config)
+        {
+            super(is, os, config.registers);
+            this.config = config;
+        }
+
+        @Override
+        protected int readRegisters(int addr, int len)
+        {
+            long now = System.currentTimeMillis();
+            if (config.bootTime < 0 || now < bootEnd)
+                return -1;
+
+            registers[Bno055Constants.CHIP_ID_ADDR] = Bno055Constants.CHIP_ID;
+            registers[Bno055Constants.SYS_STATUS_ADDR] = (now >= fusionStart) ? Bno055Constants.SYS_STATUS_FUSION_RUNNING : config.bootStatus;
+            registers[Bno055Constants.SYS_ERR_ADDR] = config.sysError;
+
+            if (len == Bno055Constants.DATA_BLOCK_SIZE && config.shortReads > 0)
+            {
+                config.shortReads--;
+                return len / 2;
+            }
+
+            return len;
+        }
+
+        @Override
+        protected boolean writeRegisters(int addr, byte[] data)
+        {
+            // chip reboots without acknowledging the reset command
+            if (addr == Bno055Constants.SYS_TRIGGER_ADDR && (data[0] & Bno055Constants.SYS_TRIGGER_RST_SYS) != 0)
+            {
+                bootEnd = System.currentTimeMillis() + config.bootTime;
+                fusionStart = Long.MAX_VALUE;
+                return false;
+            }
+
+            if (addr == Bno055Constants.OPERATION_MODE_ADDR)
+                fusionStart = (data[0] == Bno055Constants.OPERATION_MODE_NDOF) ? System.currentTimeMillis() + config.fusionDelay : Long.MAX_VALUE;
+
+            return super.writeRegisters(addr, data);
+        }
+    }
+
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        return hostIn;
+    }
+
+
+    @Override
+    public OutputStream getOutputStream() throws IOException
+    {
+        return hostOut;
+    }
+
+
+    @Override
+    public void start() throws SensorHubException
+    {
+        try
+        {
+            hostOut = new PipedOutputStream();
+            PipedInputStream chipIn = new PipedInputStream(hostOut, 1024);
+            PipedOutputStream chipOut = new PipedOutputStream();
+            hostIn = new PipedInputStream(chipOut, 1024);
+
+            chip = new BootingChip(chipIn, chipOut, (Config)config);
+            chip.start();
+        }
+        catch (IOException e)
+        {
+            throw new SensorHubException("Cannot connect to simulated chip", e);
+        }
+    }
+
+
+    @Override
+    public void stop() throws SensorHubException
+    {
+        if (chip != null)
+        {
+            chip.running = false;
+            try
+            {
+                chip.is.close();
+                hostIn.close();
+            }
+            catch (IOException e)
+            {
+            }
+            chip = null;
+        }
+    }
+
+
+    @Override
+    public void cleanup() throws SensorHubException
+    {
+    }
+}
@@ -0,0 +1,400 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import static org.junit.Assert.*;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.bno055.Bno055CommandEngine;
+import org.sensorhub.impl.sensor.bno055.Bno055Constants;
+import org.slf4j.LoggerFactory;
+
+
+public class TestBno055CommandEngine
+{
+    static final byte SILENT_ADDR = 0x70;
+
+    Bno055CommandEngine engine;
+    FakeChip chip;
+    FaultyOutputStream hostOut;
+
+
+    /*
+     * Emulates the register map and UART protocol of the chip
+     */
+    static class FakeChip extends Thread
+    {
+        final byte[] registers;
+        final InputStream is;
+        final OutputStream os;
+        volatile int busyWrites;
+        volatile boolean running = true;
+
+        FakeChip(InputStream is, OutputStream os)
+        {
+            this(is, os, new byte[256]);
+        }
+
+        FakeChip(InputStream is, OutputStream os, byte[] registers)
+        {
+            this.is = is;
+            this.os = os;
+            this.registers = registers;
+        }
+
+        /*
+         * Returns the number of register bytes sent back or -1 if the chip
+         * doesn't respond to this read
+         */
+        protected int readRegisters(int addr, int len)
+        {
+            return (addr == SILENT_ADDR) ? -1 : len;
+        }
+
+        /*
+         * Returns false if the chip doesn't acknowledge this write
+         */
+        protected boolean writeRegisters(int addr, byte[] data)
+        {
+            System.arraycopy(data, 0, registers, addr, data.length);
+            return true;
+        }
+
+        public void run()
+        {
+            try
+            {
+                while (running)
+                {
+                    if (is.read() != (Bno055Constants.START_BYTE & 0xFF))
+                        continue;
+                    int rw = is.read();
+                    int addr = is.read();
+                    int len = is.read();
+
+                    if (rw == Bno055Constants.DATA_READ)
+                    {
+                        int respLen = readRegisters(addr, len);
+                        if (respLen < 0)
+                            continue;
+                        os.write(Bno055Constants.ACK_BYTE);
+                        os.write(respLen);
+                        os.write(registers, addr, respLen);
+                    }
+                    else
+                    {
+                        byte[] data = new byte[len];
+                        for (int i = 0; i < len; i++)
+                            data[i] = (byte)is.read();
+                        if (busyWrites > 0)
+                        {
+                            busyWrites--;
+                            os.write(Bno055Constants.ERR_BYTE);
+                            os.write(0x07);
+                        }
+                        else if (writeRegisters(addr, data))
+                        {
+                            os.write(Bno055Constants.ERR_BYTE);
+                            os.write(0x01);
+                        }
+                    }
+                    os.flush();
+                }
+            }
+            catch (IOException e)
+            {
+                // pipe closed at end of test
+            }
+        }
+    }
+
+
+    /*
+     * Serial port output that can fail or block like a disconnected USB bridge
+     */
+    static class FaultyOutputStream extends FilterOutputStream
+    {
+        volatile boolean throwErrors;
+        volatile boolean stalled;
+
+        FaultyOutputStream(OutputStream os)
+        {
+            super(os);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (throwErrors)
+                throw new IllegalStateException("Port was closed");
+
+            while (stalled)
+            {
+                try { Thread.sleep(5); }
+                catch (InterruptedException e) { throw new InterruptedIOException(); }
+            }
+
+            out.write(b, off, len);
+        }
+    }
+
+
+    @Before
+    public void init() throws Exception
+    {
+        PipedOutputStream pipeOut = new PipedOutputStream();
+        PipedInputStream chipIn = new PipedInputStream(pipeOut, 1024);
+        PipedOutputStream chipOut = new PipedOutputStream();
+        PipedInputStream hostIn = new PipedInputStream(chipOut, 1024);
+
+        chip = new FakeChip(chipIn, chipOut);
+        chip.start();
+
+        hostOut = new FaultyOutputStream(pipeOut);
+        engine = new Bno055CommandEngine(hostIn, hostOut, LoggerFactory.getLogger(getClass()));
+        startEngine();
+    }
+
+
+    protected void startEngine()
+    {
+        engine.start();
+    }
+
+
+    protected byte[] readCmd(int addr, int len)
+    {
+        return new byte[] {Bno055Constants.START_BYTE, Bno055Constants.DATA_READ, (byte)addr, (byte)len};
+    }
+
+
+    protected byte[] writeCmd(int addr, byte... data)
+    {
+        byte[] cmd = new byte[4 + data.length];
+        cmd[0] = Bno055Constants.START_BYTE;
+        cmd[1] = Bno055Constants.DATA_WRITE;
+        cmd[2] = (byte)addr;
+        cmd[3] = (byte)data.length;
+        System.arraycopy(data, 0, cmd, 4, data.length);
+        return cmd;
+    }
+
+
+    @Test
+    public void testWriteAndReadBack() throws Exception
+    {
+        engine.write(writeCmd(0x20, (byte)0x34, (byte)0x12, (byte)0xFE, (byte)0xFF), true);
+
+        ByteBuffer resp = engine.read(readCmd(0x20, 4));
+        assertEquals(4, resp.limit());
+        assertEquals(0x1234, resp.getShort());
+        assertEquals(-2, resp.getShort());
+        engine.releaseBuffer(resp);
+    }
+
+
+    @Test
+    public void testConcurrentRequests() throws Exception
+    {
+        for (int i = 0; i < Bno055Constants.DATA_BLOCK_SIZE; i++)
+            chip.registers[Bno055Constants.ACC_DATA_X_LSB_ADDR + i] = (byte)i;
+        chip.registers[Bno055Constants.CALIB_STAT_ADDR] = (byte)0xFF;
+
+        // calibration polling thread runs concurrently with data polling
+        final AtomicInteger calibErrors = new AtomicInteger();
+        Thread calibThread = new Thread()
+        {
+            public void run()
+            {
+                for (int n = 0; n < 200; n++)
+                {
+                    try
+                    {
+                        ByteBuffer resp = engine.read(readCmd(Bno055Constants.CALIB_STAT_ADDR, 1));
+                        if (resp.get(0) != (byte)0xFF)
+                            calibErrors.incrementAndGet();
+                        engine.releaseBuffer(resp);
+                    }
+                    catch (IOException e)
+                    {
+                        calibErrors.incrementAndGet();
+                    }
+                }
+            }
+        };
+        calibThread.start();
+
+        for (int n = 0; n < 500; n++)
+        {
+            ByteBuffer resp = engine.read(readCmd(Bno055Constants.ACC_DATA_X_LSB_ADDR, Bno055Constants.DATA_BLOCK_SIZE));
+            assertEquals(Bno055Constants.DATA_BLOCK_SIZE, resp.limit());
+            for (int i = 0; i < Bno055Constants.DATA_BLOCK_SIZE - 1; i++)
+                assertEquals(i, resp.get(i));
+            engine.releaseBuffer(resp);
+        }
+
+        calibThread.join();
+        assertEquals(0, calibErrors.get());
+    }
+
+
+    @Test
+    public void testTimeoutAndRecovery() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+
+        long t0 = System.currentTimeMillis();
+        Future<ByteBuffer> lost = engine.submitRead(readCmd(SILENT_ADDR, 2), 50);
+        Future<ByteBuffer> next = engine.submitRead(readCmd(0x00, 1), 500);
+
+        try
+        {
+            lost.get();
+            fail("Read without response should time out");
+        }
+        catch (Exception e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertTrue(System.currentTimeMillis() - t0 < 400);
+
+        // queued request is not affected by timeout
+        assertEquals((byte)0xA0, next.get().get(0));
+    }
+
+
+    @Test
+    public void testWriteRetryOnBusyBus() throws Exception
+    {
+        chip.busyWrites = 2;
+        engine.write(writeCmd(0x3D, (byte)0x0C), true);
+        assertEquals(0x0C, chip.registers[0x3D]);
+        assertEquals(0, chip.busyWrites);
+    }
+
+
+    @Test
+    public void testStreamErrorFailsRequestOnly() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+
+        hostOut.throwErrors = true;
+        try
+        {
+            engine.read(readCmd(0x00, 1));
+            fail("Read should fail when stream throws");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // engine still processes requests once stream is back
+        hostOut.throwErrors = false;
+        ByteBuffer resp = engine.read(readCmd(0x00, 1));
+        assertEquals((byte)0xA0, resp.get(0));
+        engine.releaseBuffer(resp);
+    }
+
+
+    @Test
+    public void testTimeoutWhenWriteBlocks() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+
+        hostOut.stalled = true;
+        long t0 = System.currentTimeMillis();
+        try
+        {
+            engine.read(readCmd(0x00, 1), 100);
+            fail("Read should time out when write blocks");
+        }
+        catch (IOException e)
+        {
+            assertTrue(System.currentTimeMillis() - t0 < 400);
+        }
+
+        // late response of cancelled request is ignored
+        hostOut.stalled = false;
+        ByteBuffer resp = engine.read(readCmd(0x00, 1));
+        assertEquals((byte)0xA0, resp.get(0));
+        engine.releaseBuffer(resp);
+    }
+
+
+    @Test
+    public void testStopWhileRequestInFlight() throws Exception
+    {
+        // first request waits for a response that never comes, second one is queued
+        final AtomicInteger numErrors = new AtomicInteger();
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        engine.read(readCmd(SILENT_ADDR, 1), 2000);
+                    }
+                    catch (IOException e)
+                    {
+                        numErrors.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        Thread.sleep(100);
+        long t0 = System.currentTimeMillis();
+        engine.stop();
+        for (Thread t: threads)
+            t.join(1000);
+
+        assertEquals(2, numErrors.get());
+        assertTrue(System.currentTimeMillis() - t0 < 500);
+    }
+
+
+    @Test(expected = IOException.class)
+    public void testStopFailsRequests() throws Exception
+    {
+        engine.stop();
+        engine.read(readCmd(0x00, 1));
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        hostOut.stalled = false;
+        engine.stop();
+        chip.running = false;
+        chip.is.close();
+    }
+}
@@ -0,0 +1,147 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+
+/*
+ * Runs the command engine tests without I/O thread, as when sensors are
+ * polled by the shared scheduler, plus tests of the port turn-taking
+ */
+public class TestBno055CommandEngineShared extends TestBno055CommandEngine
+{
+    // reader threads must stay alive after their request since
+    // piped streams break when the last thread using them has died
+    ExecutorService callers = Executors.newCachedThreadPool();
+
+
+    @Override
+    protected void startEngine()
+    {
+        engine.start(false);
+    }
+
+
+    protected Future<Byte> readInOtherThread(final int addr, final long timeout)
+    {
+        return callers.submit(new Callable<Byte>()
+        {
+            public Byte call() throws IOException
+            {
+                ByteBuffer resp = engine.read(readCmd(addr, 1), timeout);
+                byte val = resp.get(0);
+                engine.releaseBuffer(resp);
+                return val;
+            }
+        });
+    }
+
+
+    @Test
+    public void testRequestExecutedByPortOwner() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+        chip.registers[0x01] = (byte)0xFB;
+
+        // nothing is sent until a thread waits for a response
+        Future<ByteBuffer> f1 = engine.submitRead(readCmd(0x00, 1), 500);
+        Future<ByteBuffer> f2 = engine.submitRead(readCmd(0x01, 1), 500);
+        Thread.sleep(50);
+        assertFalse(f1.isDone());
+        assertFalse(f2.isDone());
+
+        // other thread processes all queued requests while waiting for its own
+        readInOtherThread(0x02, 500).get(1, TimeUnit.SECONDS);
+        assertTrue(f1.isDone());
+        assertTrue(f2.isDone());
+        assertEquals((byte)0xA0, f1.get().get(0));
+        assertEquals((byte)0xFB, f2.get().get(0));
+    }
+
+
+    @Test
+    @Override
+    public void testTimeoutAndRecovery() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+
+        long t0 = System.currentTimeMillis();
+        Future<ByteBuffer> lost = engine.submitRead(readCmd(SILENT_ADDR, 2), 50);
+        Future<ByteBuffer> next = engine.submitRead(readCmd(0x00, 1), 500);
+
+        try
+        {
+            engine.waitFor(lost);
+            fail("Read without response should time out");
+        }
+        catch (IOException e)
+        {
+        }
+        assertTrue(System.currentTimeMillis() - t0 < 400);
+
+        // queued request is not affected by timeout
+        assertEquals((byte)0xA0, engine.waitFor(next).get(0));
+    }
+
+
+    @Test
+    @Override
+    public void testTimeoutWhenWriteBlocks() throws Exception
+    {
+        chip.registers[0x00] = (byte)0xA0;
+
+        // first thread owns the port and is blocked in write
+        hostOut.stalled = true;
+        Future<Byte> owner = readInOtherThread(0x00, 2000);
+        Thread.sleep(50);
+
+        // other thread times out although it cannot get the port
+        long t0 = System.currentTimeMillis();
+        try
+        {
+            engine.read(readCmd(0x00, 1), 100);
+            fail("Read should time out while port is owned by another thread");
+        }
+        catch (IOException e)
+        {
+            assertTrue(System.currentTimeMillis() - t0 < 400);
+        }
+
+        // owner completes its request once stream is unblocked
+        hostOut.stalled = false;
+        assertEquals((byte)0xA0, (byte)owner.get(1, TimeUnit.SECONDS));
+
+        ByteBuffer resp = engine.read(readCmd(0x00, 1));
+        assertEquals((byte)0xA0, resp.get(0));
+        engine.releaseBuffer(resp);
+    }
+
+
+    @After
+    public void stopCallers()
+    {
+        callers.shutdownNow();
+    }
+}
@@ -0,0 +1,203 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import net.opengis.swe.v20.DataBlock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.api.common.Event;
+import org.sensorhub.api.common.IEventListener;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.bno055.Bno055Config;
+import org.sensorhub.impl.sensor.bno055.Bno055Constants;
+import org.sensorhub.impl.sensor.bno055.Bno055Sensor;
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>
+ * Checks decoding of the whole data register block read from a simulated
+ * chip with known register contents.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestBno055Output implements IEventListener
+{
+    static final float EPS = 1e-6f;
+
+    Bno055Sensor driver;
+    Bno055Config config;
+    FakeBno055Port.Config portConfig;
+    BlockingQueue<DataBlock> records = new LinkedBlockingQueue<>();
+
+
+    @Before
+    public void init() throws Exception
+    {
+        portConfig = new FakeBno055Port.Config();
+
+        config = new Bno055Config();
+        config.id = UUID.randomUUID().toString();
+        config.readAllData = true;
+        config.samplingRate = 50.0;
+        config.commSettings = portConfig;
+
+        driver = new Bno055Sensor();
+        driver.init(config);
+        driver.getObservationOutputs().get("imuData").registerListener(this);
+    }
+
+
+    @Override
+    public void handleEvent(Event<?> e)
+    {
+        if (e instanceof SensorDataEvent)
+            records.add(((SensorDataEvent)e).getRecords()[0]);
+    }
+
+
+    /* writes a little endian 16-bit register value */
+    protected void setShort(int addr, int val)
+    {
+        portConfig.registers[addr] = (byte)val;
+        portConfig.registers[addr+1] = (byte)(val >> 8);
+    }
+
+
+    protected void setVector(int addr, int x, int y, int z)
+    {
+        setShort(addr, x);
+        setShort(addr+2, y);
+        setShort(addr+4, z);
+    }
+
+
+    protected void setTestRegisters()
+    {
+        setVector(Bno055Constants.ACC_DATA_X_LSB_ADDR, 981, -123, 5);
+        setVector(Bno055Constants.MAG_DATA_X_LSB_ADDR, 160, -16, -32768);
+        setVector(Bno055Constants.GYR_DATA_X_LSB_ADDR, 16, -32, 8000);
+
+        // heading, roll, pitch
+        setVector(Bno055Constants.EUL_HEADING_LSB_ADDR, 16*270, -16*10, 16*45);
+
+        // w, x, y, z
+        setShort(Bno055Constants.QUAT_DATA_W_LSB_ADDR, 8192);
+        setVector(Bno055Constants.QUAT_DATA_W_LSB_ADDR+2, -4096, 2048, 16383);
+
+        setVector(Bno055Constants.LIA_DATA_X_LSB_ADDR, -50, 25, 0);
+        setVector(Bno055Constants.GRV_DATA_X_LSB_ADDR, 0, 1, -981);
+        portConfig.registers[Bno055Constants.TEMP_ADDR] = (byte)-5;
+        portConfig.registers[Bno055Constants.CALIB_STAT_ADDR] = (byte)0xFC;
+    }
+
+
+    protected void checkTestRecord(DataBlock rec)
+    {
+        assertEquals(25, rec.getAtomCount());
+        int k = 1;
+
+        // acceleration in m/s2
+        assertEquals(9.81f, rec.getFloatValue(k++), EPS);
+        assertEquals(-1.23f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.05f, rec.getFloatValue(k++), EPS);
+
+        // angular rate in deg/s
+        assertEquals(1.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(-2.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(500.0f, rec.getFloatValue(k++), EPS);
+
+        // magnetic field in uT
+        assertEquals(10.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(-1.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(-2048.0f, rec.getFloatValue(k++), EPS);
+
+        // heading, pitch, roll in deg
+        assertEquals(270.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(45.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(-10.0f, rec.getFloatValue(k++), EPS);
+
+        // quaternion x, y, z, w
+        assertEquals(-0.25f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.125f, rec.getFloatValue(k++), EPS);
+        assertEquals(16383f/16384f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.5f, rec.getFloatValue(k++), EPS);
+
+        // linear acceleration and gravity in m/s2
+        assertEquals(-0.5f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.25f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(0.01f, rec.getFloatValue(k++), EPS);
+        assertEquals(-9.81f, rec.getFloatValue(k++), EPS);
+
+        // temperature is signed, calibration status isn't
+        assertEquals(-5.0f, rec.getFloatValue(k++), EPS);
+        assertEquals(0xFC, rec.getIntValue(k++));
+    }
+
+
+    @Test
+    public void testDecodeAllData() throws Exception
+    {
+        setTestRegisters();
+        driver.start();
+
+        DataBlock rec = records.poll(2, TimeUnit.SECONDS);
+        assertNotNull("No record received", rec);
+        checkTestRecord(rec);
+
+        // registers are read again on each poll
+        portConfig.registers[Bno055Constants.TEMP_ADDR] = 40;
+        do
+        {
+            rec = records.poll(2, TimeUnit.SECONDS);
+            assertNotNull("No record received", rec);
+        }
+        while (rec.getFloatValue(23) != 40.0f);
+
+        // set right after first record is published
+        assertTrue(driver.getTimeToFirstSample() >= 0);
+    }
+
+
+    @Test
+    public void testSkipShortResponse() throws Exception
+    {
+        setTestRegisters();
+        portConfig.shortReads = 5;
+        driver.start();
+
+        // truncated blocks are dropped and polling goes on
+        DataBlock rec = records.poll(2, TimeUnit.SECONDS);
+        assertNotNull("No record received", rec);
+        assertEquals(0, portConfig.shortReads);
+        checkTestRecord(rec);
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        driver.stop();
+    }
+}
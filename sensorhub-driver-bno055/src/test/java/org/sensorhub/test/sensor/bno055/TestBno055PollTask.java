@@ -0,0 +1,183 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import static org.junit.Assert.*;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler.PollTask;
+import org.slf4j.LoggerFactory;
+
+
+public class TestBno055PollTask
+{
+    static final long PERIOD = 10000000L; // ns
+    static final long START_TIME = 1000000000L; // ns
+
+    FakeClock clock;
+    PollTask task;
+
+
+    /*
+     * Clock advanced by the test and by simulated serial transactions
+     */
+    static class FakeClock implements Bno055Scheduler.Clock
+    {
+        long time = START_TIME;
+        long pollDuration;
+
+        public long nanoTime()
+        {
+            return time;
+        }
+    }
+
+
+    @Before
+    public void init()
+    {
+        clock = new FakeClock();
+        Runnable poll = new Runnable()
+        {
+            public void run()
+            {
+                clock.time += clock.pollDuration;
+            }
+        };
+
+        task = new PollTask(poll, 1e9 / PERIOD, clock, LoggerFactory.getLogger(getClass()));
+    }
+
+
+    protected long getDueTime()
+    {
+        return clock.time + task.getDelay(TimeUnit.NANOSECONDS);
+    }
+
+
+    /*
+     * Runs task when it is due, possibly late by the given delay
+     */
+    protected void runWhenDue(long lateness)
+    {
+        clock.time = Math.max(clock.time, getDueTime()) + lateness;
+        task.run();
+    }
+
+
+    @Test
+    public void testNoDrift()
+    {
+        // wake-up jitter and poll duration don't shift the ticks
+        clock.pollDuration = 3000000L;
+        for (int i = 0; i < 100; i++)
+        {
+            runWhenDue((i % 5) * 1000000L);
+            assertEquals(START_TIME + (i+1)*PERIOD, getDueTime());
+        }
+
+        assertEquals(100, task.getPollCount());
+        assertEquals(0, task.getOverrunCount());
+        assertEquals(0, task.getSkippedTickCount());
+        assertEquals(PERIOD / 1e9, task.getMeasuredPeriod(), 1e-3);
+    }
+
+
+    protected void checkOverrun(int numPeriods)
+    {
+        clock.pollDuration = 2000000L;
+        for (int i = 0; i < 10; i++)
+            runWhenDue(0);
+        long tick = 10;
+
+        // poll overruns by N periods
+        clock.pollDuration = numPeriods * PERIOD + PERIOD / 2;
+        runWhenDue(0);
+        assertEquals(1, task.getOverrunCount());
+        assertEquals(numPeriods - 1, task.getSkippedTickCount());
+
+        // one immediate poll for the latest missed tick
+        assertEquals(START_TIME + (tick + numPeriods)*PERIOD, getDueTime());
+        assertTrue(task.getDelay(TimeUnit.NANOSECONDS) < 0);
+        clock.pollDuration = 2000000L;
+        runWhenDue(0);
+
+        // then back on the regular ticks, without burst
+        assertTrue(task.getDelay(TimeUnit.NANOSECONDS) > 0);
+        for (int i = 1; i <= 10; i++)
+        {
+            assertEquals(START_TIME + (tick + numPeriods + i)*PERIOD, getDueTime());
+            runWhenDue(0);
+        }
+
+        assertEquals(22, task.getPollCount());
+        assertEquals(1, task.getOverrunCount());
+        assertEquals(numPeriods - 1, task.getSkippedTickCount());
+    }
+
+
+    @Test
+    public void testOverrunOnePeriod()
+    {
+        checkOverrun(1);
+    }
+
+
+    @Test
+    public void testOverrunSeveralPeriods()
+    {
+        checkOverrun(3);
+    }
+
+
+    @Test
+    public void testOverrunManyPeriods()
+    {
+        checkOverrun(25);
+    }
+
+
+    @Test
+    public void testPollErrorKeepsTicks()
+    {
+        final PollTask failingTask = new PollTask(new Runnable()
+        {
+            public void run()
+            {
+                clock.time += 1000000L;
+                throw new IllegalStateException("Poll error");
+            }
+        }, 1e9 / PERIOD, clock, LoggerFactory.getLogger(getClass()));
+
+        for (int i = 0; i < 5; i++)
+        {
+            clock.time = START_TIME + i*PERIOD;
+            failingTask.run();
+        }
+
+        assertEquals(5, failingTask.getPollCount());
+        assertEquals(0, failingTask.getOverrunCount());
+        assertEquals(START_TIME + 5*PERIOD, clock.time + failingTask.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleWithOtherClock()
+    {
+        Bno055Scheduler.schedule(task);
+    }
+}
@@ -0,0 +1,145 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler.PollTask;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>
+ * Load test of the shared BNO055 scheduler with simulated polls.<br/>
+ * Checks rate targets and fairness against the wall clock, so it is not
+ * part of the automated build and has to be run manually on an idle machine.
+ * Tick and overrun logic is tested deterministically in {@link TestBno055PollTask}
+ * and scheduler start and stop in {@link TestBno055SchedulerLifecycle}.
+ * </p>
+ */
+public class TestBno055Scheduler
+{
+    PollTask[] tasks;
+
+
+    @Before
+    public void init()
+    {
+        Bno055Scheduler.getStats().reset();
+    }
+
+
+    protected PollTask[] scheduleTasks(int numTasks, double rate, final long pollDuration)
+    {
+        Runnable poll = new Runnable()
+        {
+            public void run()
+            {
+                // simulate serial transaction
+                try { Thread.sleep(pollDuration); }
+                catch (InterruptedException e) { }
+            }
+        };
+
+        tasks = new PollTask[numTasks];
+        for (int i = 0; i < numTasks; i++)
+        {
+            tasks[i] = new PollTask(poll, rate, LoggerFactory.getLogger(getClass()));
+            Bno055Scheduler.schedule(tasks[i]);
+        }
+
+        return tasks;
+    }
+
+
+    protected int countWorkerThreads()
+    {
+        int count = 0;
+        for (Thread t: Thread.getAllStackTraces().keySet())
+        {
+            if (t.getName().startsWith("Bno055Scheduler-") && t.isAlive())
+                count++;
+        }
+        return count;
+    }
+
+
+    @Test
+    public void testRateTargets() throws Exception
+    {
+        // 12 sensors at 50Hz and 2 at 10Hz
+        PollTask[] fast = scheduleTasks(12, 50.0, 2);
+        Runnable noop = new Runnable() { public void run() { } };
+        PollTask slow1 = new PollTask(noop, 10.0, LoggerFactory.getLogger(getClass()));
+        PollTask slow2 = new PollTask(noop, 10.0, LoggerFactory.getLogger(getClass()));
+        Bno055Scheduler.schedule(slow1);
+        Bno055Scheduler.schedule(slow2);
+        assertEquals(14, Bno055Scheduler.getNumTasks());
+
+        Thread.sleep(2000);
+        assertEquals(Bno055Scheduler.NUM_THREADS, countWorkerThreads());
+
+        for (PollTask task: fast)
+        {
+            assertEquals(100, task.getPollCount(), 3);
+            assertEquals(0.02, task.getMeasuredPeriod(), 0.002);
+        }
+        assertEquals(20, slow1.getPollCount(), 2);
+        assertEquals(20, slow2.getPollCount(), 2);
+
+        Bno055Scheduler.Stats stats = Bno055Scheduler.getStats();
+        assertTrue(stats.getPollCount() >= 1200);
+        assertTrue(stats.getMeanLatency() < 5.0);
+        assertTrue(stats.getMeanDuration() >= 1.5);
+
+        Bno055Scheduler.cancel(slow1);
+        Bno055Scheduler.cancel(slow2);
+    }
+
+
+    @Test
+    public void testFairnessWhenOverloaded() throws Exception
+    {
+        // demand is 1000 polls/s but pool can only run about 800
+        scheduleTasks(10, 100.0, 5);
+        Thread.sleep(2000);
+
+        long min = Long.MAX_VALUE, max = 0;
+        for (PollTask task: tasks)
+        {
+            min = Math.min(min, task.getPollCount());
+            max = Math.max(max, task.getPollCount());
+            assertTrue(task.getOverrunCount() > 0);
+        }
+
+        assertTrue("Unfair polling: min=" + min + ", max=" + max, min >= 0.9 * max);
+        assertTrue(max < 200);
+        assertTrue(Bno055Scheduler.getStats().getOverrunCount() > 0);
+    }
+
+
+    @After
+    public void cleanup()
+    {
+        if (tasks != null)
+        {
+            for (PollTask task: tasks)
+                Bno055Scheduler.cancel(task);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler;
+import org.sensorhub.impl.sensor.bno055.Bno055Scheduler.PollTask;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>
+ * Checks how the shared BNO055 scheduler is started and stopped as
+ * tasks are scheduled and cancelled, including from a worker thread.
+ * Tests only wait for events signaled by the polls, not for rates.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestBno055SchedulerLifecycle
+{
+    static final long TIMEOUT = 2000; // ms
+
+    List<PollTask> tasks = new ArrayList<>();
+
+
+    /*
+     * Poll counting its runs and signaling when the nth run is reached
+     */
+    static class CountingPoll implements Runnable
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch reached;
+
+        CountingPoll(int numPolls)
+        {
+            reached = new CountDownLatch(numPolls);
+        }
+
+        public void run()
+        {
+            count.incrementAndGet();
+            reached.countDown();
+        }
+
+        void await() throws InterruptedException
+        {
+            assertTrue("Task was not polled", reached.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+    }
+
+
+    protected PollTask schedule(Runnable poll)
+    {
+        PollTask task = new PollTask(poll, 50.0, LoggerFactory.getLogger(getClass()));
+        tasks.add(task);
+        Bno055Scheduler.schedule(task);
+        return task;
+    }
+
+
+    protected int countWorkerThreads()
+    {
+        int count = 0;
+        for (Thread t: Thread.getAllStackTraces().keySet())
+        {
+            if (t.getName().startsWith("Bno055Scheduler-") && t.isAlive())
+                count++;
+        }
+        return count;
+    }
+
+
+    /* waits until the expected number of workers are running */
+    protected void checkWorkerThreads(int expected) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (countWorkerThreads() != expected && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(expected, countWorkerThreads());
+    }
+
+
+    @Test
+    public void testStopWithLastTask() throws Exception
+    {
+        final CountDownLatch inPoll = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        PollTask blocked = schedule(new Runnable()
+        {
+            public void run()
+            {
+                if (count.incrementAndGet() == 1)
+                {
+                    inPoll.countDown();
+                    try { release.await(); }
+                    catch (InterruptedException e) { }
+                }
+            }
+        });
+
+        CountingPoll poll1 = new CountingPoll(3);
+        CountingPoll poll2 = new CountingPoll(3);
+        schedule(poll1);
+        schedule(poll2);
+        assertTrue(inPoll.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        poll1.await();
+        poll2.await();
+        assertEquals(Bno055Scheduler.NUM_THREADS, countWorkerThreads());
+
+        // cancel while polling, twice
+        Bno055Scheduler.cancel(blocked);
+        Bno055Scheduler.cancel(blocked);
+        assertEquals(2, Bno055Scheduler.getNumTasks());
+        release.countDown();
+
+        // other tasks keep the pool running
+        CountingPoll poll3 = new CountingPoll(3);
+        schedule(poll3);
+        poll3.await();
+        assertEquals(Bno055Scheduler.NUM_THREADS, countWorkerThreads());
+
+        cleanup();
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+        checkWorkerThreads(0);
+
+        // poll in progress completed but task was not queued again
+        assertEquals(1, count.get());
+        assertEquals(1, blocked.getPollCount());
+    }
+
+
+    @Test
+    public void testCancelAndReschedule() throws Exception
+    {
+        CountingPoll poll = new CountingPoll(2);
+        PollTask task = schedule(poll);
+        poll.await();
+
+        Bno055Scheduler.cancel(task);
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+        checkWorkerThreads(0);
+
+        try
+        {
+            Bno055Scheduler.schedule(task);
+            fail("Cancelled task cannot be scheduled again");
+        }
+        catch (IllegalStateException e)
+        {
+        }
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+
+        // new task with same poll restarts the pool
+        poll = new CountingPoll(2);
+        schedule(poll);
+        poll.await();
+        assertEquals(1, Bno055Scheduler.getNumTasks());
+        checkWorkerThreads(Bno055Scheduler.NUM_THREADS);
+    }
+
+
+    @Test
+    public void testCancelFromPoll() throws Exception
+    {
+        final PollTask[] self = new PollTask[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        self[0] = schedule(new Runnable()
+        {
+            public void run()
+            {
+                // e.g. calibration monitoring stops itself when done
+                Bno055Scheduler.cancel(self[0]);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+        checkWorkerThreads(0);
+        assertEquals(1, self[0].getPollCount());
+    }
+
+
+    @Test
+    public void testInvalidTasks() throws Exception
+    {
+        // nothing is done with tasks that were not scheduled
+        PollTask task = new PollTask(new CountingPoll(1), 10.0, LoggerFactory.getLogger(getClass()));
+        Bno055Scheduler.cancel(task);
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+
+        // tasks with test clocks are run manually
+        task = new PollTask(new CountingPoll(1), 10.0, new Bno055Scheduler.Clock()
+        {
+            public long nanoTime()
+            {
+                return 0;
+            }
+        }, LoggerFactory.getLogger(getClass()));
+
+        try
+        {
+            Bno055Scheduler.schedule(task);
+            fail("Task with custom clock cannot be scheduled");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+        assertEquals(0, Bno055Scheduler.getNumTasks());
+        assertEquals(0, countWorkerThreads());
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        for (PollTask task: tasks)
+            Bno055Scheduler.cancel(task);
+        checkWorkerThreads(0);
+    }
+}
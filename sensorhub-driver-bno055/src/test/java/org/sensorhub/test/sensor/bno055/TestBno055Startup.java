@@ -0,0 +1,213 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.bno055;
+
+import java.io.InterruptedIOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.impl.sensor.bno055.Bno055Config;
+import org.sensorhub.impl.sensor.bno055.Bno055Constants;
+import org.sensorhub.impl.sensor.bno055.Bno055Sensor;
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>
+ * Runs the sensor startup sequence against a simulated chip that is slow
+ * to boot or start fusion, reports a system error or never responds.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestBno055Startup
+{
+    static final long STARTUP_TIMEOUT = 2000; // ms
+
+    Bno055Sensor driver;
+    Bno055Config config;
+    FakeBno055Port.Config portConfig;
+
+
+    @Before
+    public void init() throws Exception
+    {
+        portConfig = new FakeBno055Port.Config();
+
+        config = new Bno055Config();
+        config.id = UUID.randomUUID().toString();
+        config.samplingRate = 50.0;
+        config.commSettings = portConfig;
+
+        driver = new Bno055Sensor();
+        driver.init(config);
+    }
+
+
+    /* starts the sensor and returns the time it took in ms */
+    protected long timedStart() throws SensorHubException
+    {
+        long t0 = System.currentTimeMillis();
+        driver.start();
+        return System.currentTimeMillis() - t0;
+    }
+
+
+    protected Throwable startWithError()
+    {
+        try
+        {
+            driver.start();
+            fail("Startup should have failed");
+            return null;
+        }
+        catch (SensorHubException e)
+        {
+            assertFalse(driver.isConnected());
+            return e.getCause();
+        }
+    }
+
+
+    @Test
+    public void testWaitBoot() throws Exception
+    {
+        portConfig.bootTime = 300;
+        portConfig.fusionDelay = 0;
+
+        long startTime = timedStart();
+        assertTrue("Started before end of boot: " + startTime + "ms", startTime >= 300);
+        assertTrue(startTime < STARTUP_TIMEOUT);
+        assertTrue(driver.isConnected());
+
+        // configured and switched to fusion mode once idle
+        assertEquals(Bno055Constants.POWER_MODE_NORMAL, portConfig.registers[Bno055Constants.POWER_MODE_ADDR]);
+        assertEquals(Bno055Constants.OPERATION_MODE_NDOF, portConfig.registers[Bno055Constants.OPERATION_MODE_ADDR]);
+    }
+
+
+    @Test
+    public void testWaitFusion() throws Exception
+    {
+        portConfig.bootTime = 0;
+        portConfig.fusionDelay = 400;
+
+        long startTime = timedStart();
+        assertTrue("Started before fusion was running: " + startTime + "ms", startTime >= 400);
+        assertTrue(startTime < STARTUP_TIMEOUT);
+        assertEquals(Bno055Constants.SYS_STATUS_FUSION_RUNNING, portConfig.registers[Bno055Constants.SYS_STATUS_ADDR]);
+    }
+
+
+    @Test
+    public void testSystemError() throws Exception
+    {
+        portConfig.bootStatus = Bno055Constants.SYS_STATUS_ERROR;
+        portConfig.sysError = 0x03;
+
+        Throwable e = startWithError();
+        assertEquals("System error: 0x03", e.getMessage());
+
+        // fusion is never started
+        assertEquals(0, portConfig.registers[Bno055Constants.OPERATION_MODE_ADDR]);
+    }
+
+
+    @Test
+    public void testBootTimeout() throws Exception
+    {
+        portConfig.bootTime = -1;
+
+        long t0 = System.currentTimeMillis();
+        Throwable e = startWithError();
+        long dt = System.currentTimeMillis() - t0;
+
+        assertTrue(e.getMessage(), e.getMessage().contains("WAIT_BOOT"));
+        assertTrue("Timed out after " + dt + "ms", dt >= STARTUP_TIMEOUT && dt < STARTUP_TIMEOUT + 1000);
+    }
+
+
+    @Test
+    public void testFusionTimeout() throws Exception
+    {
+        portConfig.fusionDelay = 10*STARTUP_TIMEOUT;
+
+        Throwable e = startWithError();
+        assertTrue(e.getMessage(), e.getMessage().contains("WAIT_FUSION"));
+    }
+
+
+    @Test
+    public void testInterruptedStart() throws Exception
+    {
+        portConfig.bootTime = -1;
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread t = new Thread()
+        {
+            public void run()
+            {
+                error.set(startWithError());
+            }
+        };
+
+        t.start();
+        Thread.sleep(200);
+        long t0 = System.currentTimeMillis();
+        t.interrupt();
+        t.join(STARTUP_TIMEOUT);
+        long dt = System.currentTimeMillis() - t0;
+
+        assertFalse(t.isAlive());
+        assertTrue("Interrupt took " + dt + "ms", dt < 500);
+        assertTrue(String.valueOf(error.get()), error.get() instanceof InterruptedIOException);
+    }
+
+
+    @Test
+    public void testTimeToFirstSample() throws Exception
+    {
+        portConfig.bootTime = 100;
+        assertEquals(-1, driver.getTimeToFirstSample());
+
+        long startTime = timedStart();
+
+        // set by output thread when first sample is published
+        long deadline = System.currentTimeMillis() + 1000;
+        while (driver.getTimeToFirstSample() < 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        long ttfs = driver.getTimeToFirstSample();
+        assertTrue("Time to first sample not set", ttfs >= 0);
+        assertTrue(ttfs + "ms < " + startTime + "ms", ttfs >= startTime);
+
+        // reset on restart
+        driver.stop();
+        portConfig.bootTime = -1;
+        startWithError();
+        assertEquals(-1, driver.getTimeToFirstSample());
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        driver.stop();
+    }
+}
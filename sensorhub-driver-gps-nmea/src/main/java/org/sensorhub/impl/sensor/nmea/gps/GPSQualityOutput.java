@@ -29,6 +29,8 @@ import org.vast.swe.SWEHelper;
  */
 public class GPSQualityOutput extends NMEAGpsOutput
 {
+    private static final int[] SUPPORTED_SENTENCES = {NMEASentence.GSA};
+    
         
     public GPSQualityOutput(NMEAGpsSensor parentSensor)
     {
@@ -62,17 +64,22 @@ public class GPSQualityOutput extends NMEAGpsOutput
     }
     
     
-    protected void handleMessage(long msgTime, String msgID, String msg)
+    @Override
+    protected int[] getSupportedSentences()
+    {
+        return SUPPORTED_SENTENCES;
+    }
+    
+    
+    protected void handleMessage(long msgTime, NMEASentence msg)
     {
         DataBlock dataBlock = null;
                 
         // process different message types
-        if (msgID.equals(NMEAGpsSensor.GSA_MSG))
+        if (msg.getSentenceID() == NMEASentence.GSA)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-                        
             // skip if position fix not available
-            if (tokens[2].charAt(0) == '1' || Double.isNaN(parentSensor.lastFixUtcTime))
+            if (msg.charAt(2, 0) == '1' || Double.isNaN(parentSensor.lastFixUtcTime))
             {
                 log.debug("GSA: No position fix");
                 return;
@@ -82,7 +89,7 @@ public class GPSQualityOutput extends NMEAGpsOutput
             int numSats = 0;
             for (int i = 3; i < 15; i++)
             {
-                if (tokens[i].trim().length() > 0)
+                if (!msg.isEmpty(i))
                     numSats++;
             }
             
@@ -90,10 +97,12 @@ public class GPSQualityOutput extends NMEAGpsOutput
             dataBlock = getNewDataBlock();
             dataBlock.setDoubleValue(0, parentSensor.lastFixUtcTime);
             dataBlock.setIntValue(1, numSats);
-            dataBlock.setFloatValue(2, Float.parseFloat(tokens[16]));
-            dataBlock.setFloatValue(3, Float.parseFloat(tokens[17]));
-            dataBlock.setFloatValue(4, Float.parseFloat(tokens[16]) * 5.0f);
-            dataBlock.setFloatValue(5, Float.parseFloat(tokens[17]) * 5.0f);         
+            float hdop = msg.parseFloat(16);
+            float vdop = msg.parseFloat(17);
+            dataBlock.setFloatValue(2, hdop);
+            dataBlock.setFloatValue(3, vdop);
+            dataBlock.setFloatValue(4, hdop * 5.0f);
+            dataBlock.setFloatValue(5, vdop * 5.0f);         
         }        
         
         if (dataBlock != null)
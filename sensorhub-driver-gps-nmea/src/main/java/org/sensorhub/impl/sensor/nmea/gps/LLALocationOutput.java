@@ -14,9 +14,6 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.nmea.gps;
 
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-import java.util.TimeZone;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.Vector;
 import org.vast.swe.SWEConstants;
@@ -38,21 +35,20 @@ import org.vast.util.DateTimeFormat;
  */
 public class LLALocationOutput extends NMEAGpsOutput
 {
+    private static final int[] SUPPORTED_SENTENCES = {NMEASentence.GGA, NMEASentence.RMC, NMEASentence.ZDA};
+    
     static final long SECONDS_PER_DAY = 24*3600L;
     static final long MILLIS_PER_DAY = SECONDS_PER_DAY*1000L;
     
     double lastFixUtcDateTime = Double.NaN;
     double lastFixUtcTimeValue = Double.NaN;
-    GregorianCalendar cal;
+    NMEADecoder decoder = new NMEADecoder();
     
     
     public LLALocationOutput(NMEAGpsSensor parentSensor)
     {
         super(parentSensor);
         this.samplingPeriod = 1.0; // default to 1Hz on startup
-        
-        this.cal = new GregorianCalendar();
-        cal.setTimeZone(TimeZone.getTimeZone("UTC"));
     }
     
     
@@ -81,86 +77,74 @@ public class LLALocationOutput extends NMEAGpsOutput
     }
     
     
-    protected void handleMessage(long msgTime, String msgID, String msg)
+    @Override
+    protected int[] getSupportedSentences()
+    {
+        return SUPPORTED_SENTENCES;
+    }
+    
+    
+    protected void handleMessage(long msgTime, NMEASentence msg)
     {
         DataBlock dataBlock = null;
                 
         // init with system date if no GNSS message has been received for a while
         // this is needed to properly compute unix time of messages that contain only the time of day
-        double now = System.currentTimeMillis() / 1000.;
+        double now = parentSensor.getCurrentTime();
         if (Double.isNaN(lastFixUtcDateTime) || (now - lastFixUtcDateTime) > 600.0)
             lastFixUtcDateTime = now;
         
         // process different message types
-        if (msgID.equals(NMEAGpsSensor.GGA_MSG))
+        if (msg.getSentenceID() == NMEASentence.GGA)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-                        
             // skip if position fix not available
-            if (tokens[6].charAt(0) == '0')
+            if (msg.charAt(6, 0) == '0')
             {
                 log.debug("GGA: No position fix");
                 return;
             }
             
             // skip if location was already processed for this fix time
-            String utcTimeToken = tokens[1];
-            double utcTime = Double.parseDouble(utcTimeToken);
+            double utcTime = msg.parseDouble(1);
             if (utcTime == lastFixUtcTimeValue)
                 return;
             
             // populate datablock
             dataBlock = getNewDataBlock();
-            dataBlock.setDoubleValue(0, toJulianTime(utcTimeToken));
-            dataBlock.setDoubleValue(1, toDecimalDegrees(tokens[2], tokens[3], false)); // lat
-            dataBlock.setDoubleValue(2, toDecimalDegrees(tokens[4], tokens[5], true)); // lon
-            dataBlock.setDoubleValue(3, toEllipsoidalHeight(tokens[9], tokens[11])); // alt           
+            dataBlock.setDoubleValue(0, toJulianTime(msg, 1, utcTime));
+            dataBlock.setDoubleValue(1, toDecimalDegrees(msg, 2, 3, false)); // lat
+            dataBlock.setDoubleValue(2, toDecimalDegrees(msg, 4, 5, true)); // lon
+            dataBlock.setDoubleValue(3, toEllipsoidalHeight(msg, 9, 11)); // alt           
         }
         
-        else if (msgID.equals(NMEAGpsSensor.RMC_MSG))
+        else if (msg.getSentenceID() == NMEASentence.RMC)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-            
             // skip if data is marked as invalid
-            if (tokens[2].charAt(0) != 'A')
+            if (msg.charAt(2, 0) != 'A')
             {
                 log.debug("RMC: No position fix");
                 return;
             }
             
             // skip if location was already processed
-            String utcTimeToken = tokens[1];
-            double utcTime = Double.parseDouble(utcTimeToken);
+            double utcTime = msg.parseDouble(1);
             if (utcTime == lastFixUtcTimeValue)
                 return;
             
             // populate datablock
             dataBlock = getNewDataBlock();
-            dataBlock.setDoubleValue(0, toJulianTime(utcTimeToken, tokens[9]));
-            dataBlock.setDoubleValue(1, toDecimalDegrees(tokens[3], tokens[4], false)); // lat
-            dataBlock.setDoubleValue(2, toDecimalDegrees(tokens[5], tokens[6], true)); // lon 
+            dataBlock.setDoubleValue(0, toJulianTime(msg, 1, 9, utcTime));
+            dataBlock.setDoubleValue(1, toDecimalDegrees(msg, 3, 4, false)); // lat
+            dataBlock.setDoubleValue(2, toDecimalDegrees(msg, 5, 6, true)); // lon 
             dataBlock.setDoubleValue(3, Double.NaN); // alt
         }
         
-        else if (msgID.equals(NMEAGpsSensor.ZDA_MSG))
+        else if (msg.getSentenceID() == NMEASentence.ZDA)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-            
-            // UTC date
-            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(tokens[2]));
-            cal.set(Calendar.MONTH, Integer.parseInt(tokens[3])-1);
-            cal.set(Calendar.YEAR, Integer.parseInt(tokens[4]));
-            
-            // UTC time
-            String utcTimeToken = tokens[1];
-            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(utcTimeToken.substring(0, 2)));
-            cal.set(Calendar.MINUTE, Integer.parseInt(utcTimeToken.substring(2, 4)));            
-            double seconds = Double.parseDouble(utcTimeToken.substring(4));
-            cal.set(Calendar.SECOND, (int)seconds);
-            double subSeconds = seconds - Math.floor(seconds);
-            cal.set(Calendar.MILLISECOND, (int)(subSeconds*1000));
-            
-            setLastFixUtcDateTime(cal.getTimeInMillis() / 1000.0);         
+            // UTC date and time
+            decoder.setDate(msg.parseInt(2), msg.parseInt(3), msg.parseInt(4));
+            decoder.decodeTime(msg, 1);
+            setLastFixUtcDateTime(decoder.toEpochSeconds());         
         }
         
         if (dataBlock != null)
@@ -168,58 +152,41 @@ public class LLALocationOutput extends NMEAGpsOutput
     }
     
     
-    protected double toJulianTime(String utcTime)
+    protected double toJulianTime(NMEATokenizer msg, int timeField, double utcTimeValue)
     {
         // UTC time of day
-        int hours = Integer.parseInt(utcTime.substring(0, 2));
-        int minutes = Integer.parseInt(utcTime.substring(2, 4));
-        double seconds = Double.parseDouble(utcTime.substring(4));
+        decoder.decodeTime(msg, timeField);
         
         // combine with current day
         double secondsAtBeginingOfDay = Math.floor(lastFixUtcDateTime / SECONDS_PER_DAY) * SECONDS_PER_DAY;
-        double fixDateTime = secondsAtBeginingOfDay + hours*3600. + minutes*60. + seconds;
+        double fixDateTime = secondsAtBeginingOfDay + decoder.getHours()*3600. + decoder.getMinutes()*60. + decoder.getSeconds();
         
         // handle change of day
         if (fixDateTime < lastFixUtcDateTime)
             fixDateTime += SECONDS_PER_DAY;
         
-        lastFixUtcTimeValue = Double.parseDouble(utcTime);
+        lastFixUtcTimeValue = utcTimeValue;
         return setLastFixUtcDateTime(fixDateTime);
     }
     
     
-    protected double toJulianTime(String utcTime, String utcDate)
+    protected double toJulianTime(NMEATokenizer msg, int timeField, int dateField, double utcTimeValue)
     {
-        // UTC date
-        cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(utcDate.substring(0, 2)));
-        cal.set(Calendar.MONTH, Integer.parseInt(utcDate.substring(2, 4))-1);
-        cal.set(Calendar.YEAR, 2000 + Integer.parseInt(utcDate.substring(4, 6)));
-        
-        // UTC time
-        cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(utcTime.substring(0, 2)));
-        cal.set(Calendar.MINUTE, Integer.parseInt(utcTime.substring(2, 4)));        
-        double seconds = Double.parseDouble(utcTime.substring(4));
-        cal.set(Calendar.SECOND, (int)seconds);
-        double subSeconds = seconds - Math.floor(seconds);
-        cal.set(Calendar.MILLISECOND, (int)(subSeconds*1000));
+        decoder.decodeDate(msg, dateField);
+        decoder.decodeTime(msg, timeField);
         
-        lastFixUtcTimeValue = Double.parseDouble(utcTime);
-        return setLastFixUtcDateTime(cal.getTimeInMillis() / 1000.0);
+        lastFixUtcTimeValue = utcTimeValue;
+        return setLastFixUtcDateTime(decoder.toEpochSeconds());
     }
     
     
-    protected double toDecimalDegrees(String latLon, String signIndicator, boolean lon)
+    protected double toDecimalDegrees(NMEATokenizer msg, int latLonField, int signField, boolean lon)
     {
-        double val = Double.NaN;
-        
         // convert to decimal degrees
-        int sep = lon ? 3 : 2;
-        String integerDegrees = latLon.substring(0, sep);
-        String decimalMinutes = latLon.substring(sep);
-        val = Double.parseDouble(integerDegrees) + Double.parseDouble(decimalMinutes) / 60.;
+        double val = NMEADecoder.toDecimalDegrees(msg, latLonField, lon);
                 
         // handle sign according to N/S or E/W indicator
-        char dir = signIndicator.charAt(0);
+        char dir = msg.charAt(signField, 0);
         if (dir == 'S' || dir == 'W')
             return -val;
         else
@@ -242,8 +209,8 @@ public class LLALocationOutput extends NMEAGpsOutput
     }
     
     
-    protected double toEllipsoidalHeight(String mslAlt, String geoidSep)
+    protected double toEllipsoidalHeight(NMEATokenizer msg, int mslAltField, int geoidSepField)
     {
-        return Double.parseDouble(mslAlt) + Double.parseDouble(geoidSep);
+        return msg.parseDouble(mslAltField) + msg.parseDouble(geoidSepField);
     }
 }
@@ -32,6 +32,7 @@ import org.vast.swe.SWEHelper;
  */
 public class NEDVelocityOutput extends NMEAGpsOutput
 {
+    private static final int[] SUPPORTED_SENTENCES = {NMEASentence.VTG, NMEASentence.HDT};
     private static final double KMH_TO_MS = 1000./3600.;
     
     Logger log;
@@ -74,15 +75,20 @@ public class NEDVelocityOutput extends NMEAGpsOutput
     }
     
     
-    protected void handleMessage(long msgTime, String msgID, String msg)
+    @Override
+    protected int[] getSupportedSentences()
+    {
+        return SUPPORTED_SENTENCES;
+    }
+    
+    
+    protected void handleMessage(long msgTime, NMEASentence msg)
     {
         DataBlock dataBlock = null;
                 
         // process different message types
-        if (msgID.equals(NMEAGpsSensor.VTG_MSG))
+        if (msg.getSentenceID() == NMEASentence.VTG)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-            
             // skip if position fix not available
             if (Double.isNaN(parentSensor.lastFixUtcTime))
             {
@@ -93,14 +99,12 @@ public class NEDVelocityOutput extends NMEAGpsOutput
             // populate datablock
             dataBlock = getNewDataBlock();
             dataBlock.setDoubleValue(0, parentSensor.lastFixUtcTime);
-            dataBlock.setDoubleValue(1, Double.parseDouble(tokens[1])); // heading
-            dataBlock.setDoubleValue(2, toMetersPerSecond(tokens[7])); // speed    
+            dataBlock.setDoubleValue(1, msg.parseDouble(1)); // heading
+            dataBlock.setDoubleValue(2, toMetersPerSecond(msg.parseDouble(7))); // speed    
         }
         
-        else if (msgID.equals(NMEAGpsSensor.HDT_MSG))
+        else if (msg.getSentenceID() == NMEASentence.HDT)
         {
-            String[] tokens = msg.split(NMEA_SEP_REGEX);
-            
             // skip if position fix not available
             if (Double.isNaN(parentSensor.lastFixUtcTime))
             {
@@ -111,7 +115,7 @@ public class NEDVelocityOutput extends NMEAGpsOutput
             // populate datablock
             dataBlock = getNewDataBlock();
             dataBlock.setDoubleValue(0, parentSensor.lastFixUtcTime);
-            dataBlock.setDoubleValue(1, Double.parseDouble(tokens[1])); // heading
+            dataBlock.setDoubleValue(1, msg.parseDouble(1)); // heading
             dataBlock.setDoubleValue(2, Double.NaN); // speed 
         }
         
@@ -120,8 +124,8 @@ public class NEDVelocityOutput extends NMEAGpsOutput
     }
        
     
-    protected double toMetersPerSecond(String speedKmPerHours)
+    protected double toMetersPerSecond(double speedKmPerHours)
     {
-        return Double.parseDouble(speedKmPerHours) * KMH_TO_MS;
+        return speedKmPerHours * KMH_TO_MS;
     }
 }
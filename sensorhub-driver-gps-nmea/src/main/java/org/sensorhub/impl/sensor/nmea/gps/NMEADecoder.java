@@ -0,0 +1,193 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+
+/**
+ * <p>
+ * Decoder for the fixed format numeric fields used in NMEA sentences:
+ * <ul>
+ * <li>ddmm.mmmm / dddmm.mmmm latitudes and longitudes</li>
+ * <li>hhmmss.ss UTC times of day</li>
+ * <li>ddmmyy UTC dates</li>
+ * </ul>
+ * Values are read directly from the tokenized sentence buffer and UTC
+ * date/times are converted to unix time arithmetically, without using
+ * java.util.Calendar. Results are bit-identical to the ones obtained by
+ * parsing the same fields with Double.parseDouble and a lenient
+ * GregorianCalendar set to UTC.
+ * </p><p>
+ * Decoded date/time components are stored in the decoder instance, so
+ * instances are not thread-safe and must not be shared between outputs.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEADecoder
+{
+    static final long MILLIS_PER_DAY = 24*3600*1000L;
+
+    int hours;
+    int minutes;
+    double seconds;
+    int day;
+    int month;
+    int year;
+
+
+    /**
+     * Converts a ddmm.mmmm or dddmm.mmmm field to decimal degrees
+     * @param msg tokenized NMEA sentence
+     * @param field index of latitude or longitude field
+     * @param lon true if field is a longitude (i.e. has 3 digits for degrees)
+     * @return unsigned decimal degrees
+     */
+    public static double toDecimalDegrees(NMEATokenizer msg, int field, boolean lon)
+    {
+        int sep = lon ? 3 : 2;
+        int length = msg.getFieldLength(field);
+        double integerDegrees = parseDigits(msg, field, 0, sep);
+        double decimalMinutes = msg.parseDouble(field, sep, length);
+        return integerDegrees + decimalMinutes / 60.;
+    }
+
+
+    /**
+     * Decodes a hhmmss.ss UTC time of day field.<br/>
+     * Decoded values are available via {@link #getHours()}, {@link #getMinutes()}
+     * and {@link #getSeconds()}.
+     * @param msg tokenized NMEA sentence
+     * @param field index of time field
+     */
+    public void decodeTime(NMEATokenizer msg, int field)
+    {
+        hours = parseDigits(msg, field, 0, 2);
+        minutes = parseDigits(msg, field, 2, 4);
+        seconds = msg.parseDouble(field, 4, msg.getFieldLength(field));
+    }
+
+
+    /**
+     * Decodes a ddmmyy UTC date field (years are assumed to be 20yy).
+     * @param msg tokenized NMEA sentence
+     * @param field index of date field
+     */
+    public void decodeDate(NMEATokenizer msg, int field)
+    {
+        day = parseDigits(msg, field, 0, 2);
+        month = parseDigits(msg, field, 2, 4);
+        year = 2000 + parseDigits(msg, field, 4, 6);
+    }
+
+
+    /**
+     * Sets the UTC date directly (e.g. when day, month and year are in
+     * separate fields as in ZDA sentences)
+     * @param day day of month (1-31)
+     * @param month month (1-12)
+     * @param year full year
+     */
+    public void setDate(int day, int month, int year)
+    {
+        this.day = day;
+        this.month = month;
+        this.year = year;
+    }
+
+
+    /**
+     * @return unix time (in seconds) corresponding to the last decoded
+     * date and time, truncated to the millisecond
+     */
+    public double toEpochSeconds()
+    {
+        // normalize month like a lenient calendar would
+        int monthIndex = month - 1;
+        long y = year + Math.floorDiv(monthIndex, 12);
+        int m = Math.floorMod(monthIndex, 12) + 1;
+
+        long millis = daysFromCivil(y, m, day) * MILLIS_PER_DAY
+            + hours * 3600000L
+            + minutes * 60000L
+            + (int)seconds * 1000L
+            + (int)((seconds - Math.floor(seconds)) * 1000);
+
+        return millis / 1000.0;
+    }
+
+
+    /**
+     * Computes the number of days between 1970-01-01 and the given date
+     * of the proleptic gregorian calendar.<br/>
+     * The day can be outside of the month range, in which case the result
+     * is offset accordingly.
+     * @param y year
+     * @param m month (1-12)
+     * @param d day of month
+     * @return number of days since epoch (negative before 1970)
+     */
+    public static long daysFromCivil(long y, int m, int d)
+    {
+        // see http://howardhinnant.github.io/date_algorithms.html
+        y -= (m <= 2) ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;                          // [0, 399]
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;  // [0, 365]
+        long doe = yoe * 365 + yoe/4 - yoe/100 + doy;      // [0, 146096]
+        return era * 146097 + doe - 719468;
+    }
+
+
+    /*
+     * Parses a fixed size unsigned decimal number from part of a field
+     */
+    private static int parseDigits(NMEATokenizer msg, int field, int from, int to)
+    {
+        if (to > msg.getFieldLength(field))
+            return msg.parseInt(field, from, to); // will throw
+
+        byte[] buf = msg.getBuffer();
+        int start = msg.getFieldStart(field);
+        int val = 0;
+        for (int i = start + from; i < start + to; i++)
+        {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9)
+                return msg.parseInt(field, from, to);
+            val = val * 10 + digit;
+        }
+
+        return val;
+    }
+
+
+    public final int getHours()
+    {
+        return hours;
+    }
+
+
+    public final int getMinutes()
+    {
+        return minutes;
+    }
+
+
+    public final double getSeconds()
+    {
+        return seconds;
+    }
+}
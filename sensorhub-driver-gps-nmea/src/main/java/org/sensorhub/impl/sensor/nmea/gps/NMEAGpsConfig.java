@@ -39,6 +39,26 @@ public class NMEAGpsConfig extends SensorConfig
     public List<String> activeSentences = new ArrayList<String>();
     
     
+    @DisplayInfo(label="Use Shared Reader", desc="Read data stream with the thread pool shared by all NMEA receivers instead of a dedicated thread. The pool only reads bytes reported as available by the stream, so a dedicated thread is used anyway if the comm provider stream doesn't support it")
+    public boolean useSharedHub = false;
+    
+    
+    @DisplayInfo(label="Shared Reader Timeout", desc="Max time without data before the stream is considered disconnected when using the shared reader, in ms (0 to wait forever)")
+    public long sharedHubTimeout = NMEAStreamHub.DEFAULT_IDLE_TIMEOUT;
+    
+    
+    @DisplayInfo(label="Replay File", desc="Path of NMEA log file to replay instead of reading from communication provider")
+    public String replayFile;
+    
+    
+    @DisplayInfo(label="Replay Date", desc="UTC date of the first record in the log file (YYYY-MM-DD), used when the log only contains time of day. Defaults to the file modification date")
+    public String replayDate;
+    
+    
+    @DisplayInfo(label="Replay Speed", desc="Replay speed factor relative to recorded time (e.g. 10 to replay 10x faster), or 0 to replay as fast as possible")
+    public double replaySpeedFactor = 0.0;
+    
+    
     public NMEAGpsConfig()
     {
         this.moduleClass = NMEAGpsSensor.class.getCanonicalName();
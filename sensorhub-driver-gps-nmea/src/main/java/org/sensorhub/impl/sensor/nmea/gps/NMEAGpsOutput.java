@@ -31,8 +31,6 @@ import org.sensorhub.impl.sensor.AbstractSensorOutput;
  */
 public abstract class NMEAGpsOutput extends AbstractSensorOutput<NMEAGpsSensor>
 {
-    protected static final String NMEA_SEP_REGEX = ",|\\*";
-    
     protected DataComponent dataStruct;
     protected DataEncoding dataEncoding;
     protected double samplingPeriod;
@@ -68,6 +66,10 @@ public abstract class NMEAGpsOutput extends AbstractSensorOutput<NMEAGpsSensor>
     
     protected void sendOutput(long msgTime, DataBlock dataBlock)
     {
+        // when replaying a log, use UTC time of sample instead of reception time
+        if (parentSensor.isReplaying())
+            msgTime = (long)(dataBlock.getDoubleValue(0) * 1000.);
+        
         // update latest record and send event
         latestRecord = dataBlock;
         latestRecordTime = msgTime;
@@ -94,12 +96,20 @@ public abstract class NMEAGpsOutput extends AbstractSensorOutput<NMEAGpsSensor>
     
     
     /**
-     * Method to be implemented by concrete outputs to handle appropriate NMEA messages
+     * Method to be implemented by concrete outputs to list the NMEA sentences they can handle
+     * @return integer codes of sentence IDs (see constants in {@link NMEASentence})
+     */
+    protected abstract int[] getSupportedSentences();
+    
+    
+    /**
+     * Method to be implemented by concrete outputs to handle appropriate NMEA messages.<br/>
+     * This is only called for sentences listed by {@link #getSupportedSentences()}.
      * @param msgTime system time at which message was received
-     * @param msgID NMEA message ID (not including the $XX talker ID)
-     * @param msg Complete NMEA message string including the full message ID
+     * @param msg Parsed NMEA message (field 0 is the full message ID).
+     * This object is reused for the next message so it must not be retained.
      */
-    protected abstract void handleMessage(long msgTime, String msgID, String msg);
+    protected abstract void handleMessage(long msgTime, NMEASentence msg);
     
 
 }
@@ -14,12 +14,14 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.nmea.gps;
 
-import java.io.BufferedReader;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import org.sensorhub.api.comm.ICommProvider;
 import org.sensorhub.api.common.SensorHubException;
 import org.sensorhub.api.sensor.ISensorDataInterface;
@@ -45,10 +47,15 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
     public static final String HDT_MSG = "HDT";
     
     ICommProvider<?> commProvider;
-    BufferedReader reader;
+    NMEALineReader reader;
+    NMEALogReplay replay;
+    double replayStartTime;
+    NMEASentence sentence = new NMEASentence();
     volatile boolean started;
     
-    HashSet<String> activeMessages = new HashSet<String>();
+    // dispatch table: sorted sentence IDs and outputs interested in each of them
+    int[] dispatchKeys = new int[0];
+    NMEAGpsOutput[][] dispatchTargets = new NMEAGpsOutput[0][];
     double lastFixUtcTime = Double.NaN;
     
     
@@ -90,7 +97,59 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
             dataInterface.init();
         }
         
-        this.activeMessages.addAll(config.activeSentences);
+        buildDispatchTable();
+    }
+    
+    
+    /*
+     * Precomputes the list of outputs to call for each active sentence ID
+     */
+    protected void buildDispatchTable()
+    {
+        // collect codes of active sentences
+        int[] keys = new int[config.activeSentences.size()];
+        int numKeys = 0;
+        for (String msgID: config.activeSentences)
+        {
+            int code = NMEASentence.toSentenceID(msgID);
+            if (code != NMEASentence.UNKNOWN_ID)
+                keys[numKeys++] = code;
+        }
+        keys = Arrays.copyOf(keys, numKeys);
+        Arrays.sort(keys);
+        
+        // remove duplicates
+        numKeys = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (numKeys == 0 || keys[i] != keys[numKeys-1])
+                keys[numKeys++] = keys[i];
+        }
+        keys = Arrays.copyOf(keys, numKeys);
+        
+        // find outputs registered for each sentence ID
+        NMEAGpsOutput[][] targets = new NMEAGpsOutput[numKeys][];
+        for (int i = 0; i < numKeys; i++)
+        {
+            ArrayList<NMEAGpsOutput> outputList = new ArrayList<NMEAGpsOutput>();
+            for (ISensorDataInterface output: this.getAllOutputs().values())
+            {
+                NMEAGpsOutput nmeaOut = (NMEAGpsOutput)output;
+                for (int code: nmeaOut.getSupportedSentences())
+                {
+                    if (code == keys[i])
+                    {
+                        outputList.add(nmeaOut);
+                        break;
+                    }
+                }
+            }
+            
+            targets[i] = outputList.toArray(new NMEAGpsOutput[outputList.size()]);
+        }
+        
+        this.dispatchKeys = keys;
+        this.dispatchTargets = targets;
     }
     
     
@@ -113,6 +172,13 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
         if (started)
             return;
         
+        // replay log file if requested
+        if (config.replayFile != null && !config.replayFile.trim().isEmpty())
+        {
+            startReplay();
+            return;
+        }
+        
         // init comm provider
         if (commProvider == null)
         {
@@ -135,11 +201,24 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
         // connect to data stream
         try
         {
-            reader = new BufferedReader(new InputStreamReader(commProvider.getInputStream(), StandardCharsets.US_ASCII));
+            InputStream is = commProvider.getInputStream();
+            if (config.useSharedHub && NMEAStreamHub.canPoll(is))
+            {
+                // let shared hub read and dispatch messages
+                started = true;
+                NMEAStreamHub.register(this, is, config.sharedHubTimeout);
+                getLogger().info("Connected to NMEA data stream via shared hub");
+                return;
+            }
+            else if (config.useSharedHub)
+                getLogger().warn("Data stream doesn't report available bytes, reading it with a dedicated thread instead of the shared hub");
+            
+            reader = new NMEALineReader(is);
             getLogger().info("Connected to NMEA data stream");
         }
         catch (IOException e)
         {
+            started = false;
             throw new RuntimeException("Error while initializing communications ", e);
         }
         
@@ -162,42 +241,91 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
     }
     
     
-    private void pollAndSendMeasurement()
+    /*
+     * Starts replaying NMEA sentences from the configured log file
+     */
+    protected void startReplay() throws SensorHubException
     {
-        String msg = null;
+        File file = new File(config.replayFile.trim());
+        if (!file.canRead())
+            throw new SensorHubException("Cannot read NMEA log file " + file);
+        
+        // reference date used until a sentence with a date is found
+        if (config.replayDate != null && !config.replayDate.trim().isEmpty())
+            replayStartTime = LocalDate.parse(config.replayDate.trim()).toEpochDay() * 24*3600.;
+        else
+            replayStartTime = Math.floor(file.lastModified() / 1000. / (24*3600.)) * 24*3600.;
+        
+        lastFixUtcTime = Double.NaN;
+        final NMEALogReplay replay = new NMEALogReplay(this, file, config.replaySpeedFactor);
+        this.replay = replay;
+        getLogger().info("Replaying NMEA log file {}", file);
+        
+        // start replay thread
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    replay.replay();
+                }
+                catch (IOException e)
+                {
+                    getLogger().error("Error while reading NMEA log file", e);
+                }
+                
+                started = false;
+            }
+        });
         
+        started = true;
+        t.start();
+    }
+    
+    
+    /**
+     * @return current time in seconds since the unix epoch. This is the system time
+     * except when replaying a log file, in which case it is the time of the last fix.
+     */
+    protected double getCurrentTime()
+    {
+        if (replay != null)
+            return Double.isNaN(lastFixUtcTime) ? replayStartTime : lastFixUtcTime;
+        else
+            return System.currentTimeMillis() / 1000.;
+    }
+    
+    
+    /**
+     * @return UTC time of the last position fix, in seconds since the unix epoch,
+     * or NaN if no fix was received yet
+     */
+    protected double getLastFixTime()
+    {
+        return lastFixUtcTime;
+    }
+    
+    
+    protected boolean isReplaying()
+    {
+        return replay != null;
+    }
+    
+    
+    private void pollAndSendMeasurement()
+    {
         try
         {
             // read next message
-            msg = reader.readLine();
+            int msgLength = reader.readLine();
             long msgTime = System.currentTimeMillis();
             
-            // if null, it's EOF
-            if (msg == null)
-                return;            
-            
-            getLogger().trace("Received message: {}", msg);
-            
-            // discard messages not starting with $ or with wrong checksum
-            if (msg.charAt(0) != '$' || !validateChecksum(msg))
-            {
-                getLogger().warn("Skipping invalid message: {}", msg);
+            // if negative, it's EOF
+            if (msgLength < 0)
                 return;
-            }
-            
-            // extract NMEA message type (remove $TalkerID prefix)
-            int firstSep = msg.indexOf(',');
-            String msgID = msg.substring(3, firstSep);
             
-            // let each registered output handle this message
-            if (activeMessages.contains(msgID))
-            {
-                for (ISensorDataInterface output: this.getAllOutputs().values())
-                {
-                    NMEAGpsOutput nmeaOut = (NMEAGpsOutput)output;
-                    nmeaOut.handleMessage(msgTime, msgID, msg);
-                }
-            }
+            handleMessage(msgTime, reader.getLineBuffer(), 0, msgLength);
         }
         catch (EOFException e)
         {
@@ -209,38 +337,57 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
         {
             throw new RuntimeException("Error while parsing NMEA stream", e);
         }
-        catch (Exception e)
-        {
-            throw new RuntimeException("Error while parsing NMEA message: " + msg, e);
-        }
     }
     
     
     /*
-     * Check message is error free
+     * Parses a single NMEA message once and dispatches it to interested outputs
      */
-    protected boolean validateChecksum(String msg)
+    protected void handleMessage(long msgTime, byte[] buf, int off, int len)
     {
-        int checkSumIndex = msg.lastIndexOf('*');
-        if (checkSumIndex > 0)
+        try
         {
-            // extract message checksum
-            int msgCheckSum = Integer.parseInt(msg.substring(checkSumIndex + 1), 16);
+            if (getLogger().isTraceEnabled())
+                getLogger().trace("Received message: {}", new String(buf, off, len, StandardCharsets.US_ASCII));
             
-            // compute our own checksum
-            int checkSum = 0;
-            for (int i = 1; i < checkSumIndex; i++)
-                checkSum ^= (byte)(msg.charAt(i) & 0xFF);
-                        
-            // warn and return false if not equal
-            if (checkSum != msgCheckSum)
+            // discard messages not starting with $
+            if (buf[off] != '$')
             {
-                getLogger().warn("Wrong checksum {} for message: {}", checkSum, msg);
-                return false;
+                getLogger().warn("Skipping invalid message: {}", new String(buf, off, len, StandardCharsets.US_ASCII));
+                return;
+            }
+            
+            // discard messages with wrong checksum
+            sentence.parse(buf, off, len);
+            if (sentence.getChecksumStatus() == NMEASentence.CHECKSUM_INVALID)
+            {
+                getLogger().warn("Wrong checksum {} for message: {}", sentence.getComputedChecksum(), sentence);
+                return;
+            }
+            
+            // let each registered output handle this message
+            NMEAGpsOutput[] targets = getDispatchTargets(sentence.getSentenceID());
+            if (targets != null)
+            {
+                for (NMEAGpsOutput nmeaOut: targets)
+                    nmeaOut.handleMessage(msgTime, sentence);
             }
         }
-        
-        return true;
+        catch (Exception e)
+        {
+            throw new RuntimeException("Error while parsing NMEA message: " + new String(buf, off, len, StandardCharsets.US_ASCII), e);
+        }
+    }
+    
+    
+    /*
+     * Returns the outputs registered for the given sentence ID
+     * or null if sentence is not active
+     */
+    protected final NMEAGpsOutput[] getDispatchTargets(int sentenceID)
+    {
+        int index = Arrays.binarySearch(dispatchKeys, sentenceID);
+        return (index >= 0) ? dispatchTargets[index] : null;
     }
     
 
@@ -249,6 +396,9 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
     {
         started = false;
         
+        if (config.useSharedHub)
+            NMEAStreamHub.unregister(this);
+        
         if (reader != null)
         {
             try { reader.close(); }
@@ -260,6 +410,12 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
             commProvider.stop();
             commProvider = null;
         }
+        
+        if (replay != null)
+        {
+            replay.stop();
+            replay = null;
+        }
     }
     
 
@@ -273,6 +429,6 @@ public class NMEAGpsSensor extends AbstractSensorModule<NMEAGpsConfig>
     @Override
     public boolean isConnected()
     {
-        return (commProvider != null);
+        return (commProvider != null || replay != null);
     }
 }
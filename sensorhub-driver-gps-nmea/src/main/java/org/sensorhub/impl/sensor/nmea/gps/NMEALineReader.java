@@ -0,0 +1,117 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * <p>
+ * Reads ASCII lines from an input stream into a reusable byte buffer.<br/>
+ * Data is read from the stream by large chunks and CR/LF terminators are
+ * stripped. Lines longer than the buffer capacity are discarded.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEALineReader
+{
+    public static final int MAX_LINE_LENGTH = 256;
+
+    InputStream is;
+    byte[] readBuf = new byte[4096];
+    int readPos;
+    int readLimit;
+    byte[] lineBuf = new byte[MAX_LINE_LENGTH];
+    int lineLength;
+    boolean overflow;
+
+
+    public NMEALineReader(InputStream is)
+    {
+        this.is = is;
+    }
+
+
+    /**
+     * Reads the next non-empty line from the stream
+     * @return the length of the line or -1 if end of stream was reached
+     * (an unterminated last line is discarded)
+     * @throws IOException if an error occurs while reading from the stream
+     */
+    public int readLine() throws IOException
+    {
+        lineLength = 0;
+        overflow = false;
+
+        while (true)
+        {
+            // refill read buffer if needed
+            if (readPos >= readLimit)
+            {
+                int nBytes = is.read(readBuf, 0, readBuf.length);
+                if (nBytes < 0)
+                    return -1;
+                readPos = 0;
+                readLimit = nBytes;
+                continue;
+            }
+
+            byte b = readBuf[readPos++];
+            if (b == '\n')
+            {
+                if (lineLength > 0 && !overflow)
+                    return lineLength;
+
+                // skip empty and overflowing lines
+                lineLength = 0;
+                overflow = false;
+            }
+            else if (b != '\r')
+            {
+                if (lineLength < lineBuf.length)
+                    lineBuf[lineLength++] = b;
+                else
+                    overflow = true;
+            }
+        }
+    }
+
+
+    /**
+     * @return the buffer containing the last line read
+     */
+    public final byte[] getLineBuffer()
+    {
+        return lineBuf;
+    }
+
+
+    /**
+     * @return the length of the last line read
+     */
+    public final int getLineLength()
+    {
+        return lineLength;
+    }
+
+
+    public void close() throws IOException
+    {
+        is.close();
+    }
+}
@@ -0,0 +1,226 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * <p>
+ * Replays NMEA sentences recorded in a log file.<br/>
+ * The file is memory-mapped by large windows and sentence boundaries are
+ * found directly in the mapped buffer. Each sentence is copied once into a
+ * reusable line buffer and sent to the sensor's normal dispatch logic.
+ * </p><p>
+ * Sentences are replayed as fast as possible unless a speed factor is
+ * given, in which case replay is paced according to the UTC time of the
+ * position fixes found in the log.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEALogReplay
+{
+    public static final long DEFAULT_MAP_WINDOW_SIZE = 64*1024*1024;
+
+    NMEAGpsSensor sensor;
+    File file;
+    double speedFactor;
+    long mapWindowSize;
+    volatile boolean stopped;
+    byte[] lineBuf = new byte[NMEALineReader.MAX_LINE_LENGTH];
+    int lineLength;
+    boolean overflow;
+    long sentenceCount;
+
+    // pacing state
+    double firstFixTime = Double.NaN;
+    long firstFixWallTime;
+
+
+    /**
+     * @param sensor sensor to send sentences to
+     * @param file NMEA log file
+     * @param speedFactor replay speed relative to real-time (e.g. 2.0 to replay
+     * twice as fast as recorded), or 0 to replay as fast as possible
+     */
+    public NMEALogReplay(NMEAGpsSensor sensor, File file, double speedFactor)
+    {
+        this(sensor, file, speedFactor, DEFAULT_MAP_WINDOW_SIZE);
+    }
+
+
+    /**
+     * @param sensor sensor to send sentences to
+     * @param file NMEA log file
+     * @param speedFactor replay speed relative to real-time, or 0 to replay as fast as possible
+     * @param mapWindowSize max size of file regions mapped in memory at once, in bytes
+     */
+    public NMEALogReplay(NMEAGpsSensor sensor, File file, double speedFactor, long mapWindowSize)
+    {
+        this.sensor = sensor;
+        this.file = file;
+        this.speedFactor = speedFactor;
+        this.mapWindowSize = mapWindowSize;
+    }
+
+
+    /**
+     * Replays the whole file, or until {@link #stop()} is called
+     * @throws IOException if the file cannot be read
+     */
+    public void replay() throws IOException
+    {
+        long t0 = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            long filePos = 0;
+
+            while (!stopped && filePos < fileSize)
+            {
+                MappedByteBuffer buf = channel.map(MapMode.READ_ONLY, filePos, Math.min(mapWindowSize, fileSize - filePos));
+                int limit = buf.limit();
+                int lineStart = 0;
+
+                for (int i = 0; i < limit && !stopped; i++)
+                {
+                    if (buf.get(i) == '\n')
+                    {
+                        appendToLine(buf, lineStart, i);
+                        sendLine();
+                        lineStart = i + 1;
+                    }
+                }
+
+                // keep partial line for next window
+                appendToLine(buf, lineStart, limit);
+                filePos += limit;
+            }
+
+            // last line may not be terminated
+            if (!stopped)
+                sendLine();
+        }
+
+        double dt = (System.nanoTime() - t0) / 1e9;
+        sensor.getLogger().info("Replayed {} sentences from {} in {}s ({} sentences/s)",
+            sentenceCount, file, String.format("%.3f", dt), (long)(sentenceCount / dt));
+    }
+
+
+    private void appendToLine(MappedByteBuffer buf, int start, int end)
+    {
+        int len = end - start;
+        if (len <= 0 || overflow)
+            return;
+
+        if (lineLength + len > lineBuf.length)
+        {
+            overflow = true;
+            return;
+        }
+
+        buf.position(start);
+        buf.get(lineBuf, lineLength, len);
+        lineLength += len;
+    }
+
+
+    private void sendLine()
+    {
+        // strip CR
+        int len = lineLength;
+        if (len > 0 && lineBuf[len-1] == '\r')
+            len--;
+
+        // skip empty and overflowing lines
+        if (len > 0 && !overflow)
+        {
+            sentenceCount++;
+            try
+            {
+                sensor.handleMessage(getMessageTime(), lineBuf, 0, len);
+            }
+            catch (Exception e)
+            {
+                sensor.getLogger().error("Cannot handle NMEA sentence", e);
+            }
+
+            if (speedFactor > 0)
+                pace();
+        }
+
+        lineLength = 0;
+        overflow = false;
+    }
+
+
+    /*
+     * Time of last fix decoded from the log, in millis
+     */
+    private long getMessageTime()
+    {
+        return (long)(sensor.getCurrentTime() * 1000.);
+    }
+
+
+    /*
+     * Waits until the wall clock catches up with the time of the last fix
+     */
+    private void pace()
+    {
+        double fixTime = sensor.getLastFixTime();
+        if (Double.isNaN(fixTime))
+            return;
+
+        if (Double.isNaN(firstFixTime))
+        {
+            firstFixTime = fixTime;
+            firstFixWallTime = System.currentTimeMillis();
+            return;
+        }
+
+        long wallTime = firstFixWallTime + (long)((fixTime - firstFixTime) * 1000. / speedFactor);
+        long sleepTime = wallTime - System.currentTimeMillis();
+        if (sleepTime > 0)
+        {
+            try { Thread.sleep(sleepTime); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+
+    /**
+     * Stops replay after the current sentence
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+
+    public long getSentenceCount()
+    {
+        return sentenceCount;
+    }
+}
@@ -0,0 +1,192 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+
+/**
+ * <p>
+ * Parsed view of a single NMEA sentence, as dispatched to outputs.<br/>
+ * In addition to the field offsets computed by the tokenizer, this gives
+ * access to the talker ID, the sentence ID encoded as an integer code (so
+ * that it can be used in switch statements and lookup tables) and the
+ * checksum status.
+ * </p><p>
+ * A single instance is reused by the sensor for all sentences so outputs
+ * must not keep a reference to it after their handleMessage method returns.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEASentence extends NMEATokenizer
+{
+    public static final int GLL = ('G' << 16) | ('L' << 8) | 'L';
+    public static final int GGA = ('G' << 16) | ('G' << 8) | 'A';
+    public static final int GSA = ('G' << 16) | ('S' << 8) | 'A';
+    public static final int RMC = ('R' << 16) | ('M' << 8) | 'C';
+    public static final int VTG = ('V' << 16) | ('T' << 8) | 'G';
+    public static final int ZDA = ('Z' << 16) | ('D' << 8) | 'A';
+    public static final int HDT = ('H' << 16) | ('D' << 8) | 'T';
+
+    public static final int UNKNOWN_ID = 0;
+
+    public static final int CHECKSUM_MISSING = 0;
+    public static final int CHECKSUM_VALID = 1;
+    public static final int CHECKSUM_INVALID = 2;
+
+    int sentenceID;
+    char talker0, talker1;
+    int checksumStatus;
+    int computedChecksum;
+
+
+    /**
+     * Parses the sentence contained in the given byte array.<br/>
+     * The array is referenced, not copied, so it must not be modified until
+     * the caller is done accessing fields.
+     * @param buf buffer containing the sentence (without line terminator)
+     * @param off offset of first sentence byte in buffer (i.e. the '$' sign)
+     * @param len number of bytes in the sentence
+     */
+    public void parse(byte[] buf, int off, int len)
+    {
+        tokenize(buf, off, len);
+
+        // message ID is $ + 2 chars talker ID + 3 chars sentence ID
+        if (getFieldLength(0) == 6)
+        {
+            talker0 = charAt(0, 1);
+            talker1 = charAt(0, 2);
+            sentenceID = toSentenceID(charAt(0, 3), charAt(0, 4), charAt(0, 5));
+        }
+        else
+        {
+            talker0 = talker1 = 0;
+            sentenceID = UNKNOWN_ID;
+        }
+
+        checksumStatus = computeChecksumStatus(buf, off, len);
+    }
+
+
+    /*
+     * Computes the XOR checksum of all chars between $ and *
+     * and compares it with the hex value following the '*'
+     */
+    private int computeChecksumStatus(byte[] buf, int off, int len)
+    {
+        int end = off + len;
+        int checkSumIndex = -1;
+        for (int i = end - 1; i > off; i--)
+        {
+            if (buf[i] == '*')
+            {
+                checkSumIndex = i;
+                break;
+            }
+        }
+
+        computedChecksum = 0;
+        if (checkSumIndex < 0)
+            return CHECKSUM_MISSING;
+
+        // extract message checksum
+        int msgCheckSum = 0;
+        if (checkSumIndex + 1 == end)
+            return CHECKSUM_INVALID;
+        for (int i = checkSumIndex + 1; i < end; i++)
+        {
+            int digit = Character.digit(buf[i], 16);
+            if (digit < 0)
+                return CHECKSUM_INVALID;
+            msgCheckSum = (msgCheckSum << 4) | digit;
+        }
+
+        // compute our own checksum
+        int checkSum = 0;
+        for (int i = off + 1; i < checkSumIndex; i++)
+            checkSum ^= buf[i];
+        computedChecksum = checkSum;
+
+        return (checkSum == msgCheckSum) ? CHECKSUM_VALID : CHECKSUM_INVALID;
+    }
+
+
+    /**
+     * @return integer code of the sentence ID (e.g. {@link #GGA}) or
+     * {@link #UNKNOWN_ID} if the message ID field is not in the standard
+     * $TTSSS format
+     */
+    public final int getSentenceID()
+    {
+        return sentenceID;
+    }
+
+
+    /**
+     * @return the 2-chars talker ID (e.g. GP, GN, GL) or null if unknown
+     */
+    public String getTalkerID()
+    {
+        if (sentenceID == UNKNOWN_ID)
+            return null;
+        return new String(new char[] {talker0, talker1});
+    }
+
+
+    public final boolean isTalker(char c0, char c1)
+    {
+        return talker0 == c0 && talker1 == c1;
+    }
+
+
+    /**
+     * @return one of {@link #CHECKSUM_VALID}, {@link #CHECKSUM_INVALID} or
+     * {@link #CHECKSUM_MISSING} if the sentence has no checksum field
+     */
+    public final int getChecksumStatus()
+    {
+        return checksumStatus;
+    }
+
+
+    /**
+     * @return checksum computed from the sentence content or 0 if the sentence
+     * had no checksum field
+     */
+    public final int getComputedChecksum()
+    {
+        return computedChecksum;
+    }
+
+
+    public static final int toSentenceID(char c0, char c1, char c2)
+    {
+        return (c0 << 16) | (c1 << 8) | c2;
+    }
+
+
+    /**
+     * Converts a 3-chars sentence ID to its integer code
+     * @param id sentence ID (e.g. "GGA")
+     * @return integer code or {@link #UNKNOWN_ID} if id is not 3-chars long
+     */
+    public static int toSentenceID(String id)
+    {
+        if (id == null || id.length() != 3)
+            return UNKNOWN_ID;
+        return toSentenceID(id.charAt(0), id.charAt(1), id.charAt(2));
+    }
+}
@@ -0,0 +1,296 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>
+ * Shared service reading NMEA streams from many receivers with a small
+ * fixed pool of threads, instead of one blocking thread per receiver.<br/>
+ * Comm providers only expose blocking input streams so each worker polls
+ * the streams assigned to it for available bytes, reads them by chunks into
+ * a buffer shared by all its streams and assembles lines in a small
+ * per-receiver buffer. Complete lines are then handed to the receiver's
+ * own parsing and dispatch logic in the worker thread.
+ * </p><p>
+ * Since the end of a stream cannot be detected without a blocking read, a
+ * receiver that doesn't send any data for longer than its idle timeout is
+ * considered disconnected. It is then unregistered and its sensor is stopped,
+ * like when the dedicated reader reaches the end of the stream.
+ * </p><p>
+ * Only bytes reported by {@link InputStream#available()} are read, so the
+ * hub can only be used with streams that override it. The default
+ * implementation always returns 0 and such streams would never be read,
+ * see {@link #canPoll(InputStream)}.
+ * </p><p>
+ * The hub is created when the first receiver is registered and its threads
+ * are stopped when the last receiver is unregistered.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEAStreamHub
+{
+    static final Logger log = LoggerFactory.getLogger(NMEAStreamHub.class);
+
+    public static final int NUM_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    static final int READ_BUFFER_SIZE = 4096;
+    static final long IDLE_SLEEP_MS = 10;
+    public static final long DEFAULT_IDLE_TIMEOUT = 10000; // ms
+
+    static NMEAStreamHub instance;
+    static int refCount;
+
+    final Worker[] workers;
+
+
+    /*
+     * Stream registered with the hub and its line assembly state
+     */
+    static class Receiver
+    {
+        final NMEAGpsSensor sensor;
+        final InputStream is;
+        final long idleTimeout;
+        final byte[] lineBuf = new byte[NMEALineReader.MAX_LINE_LENGTH];
+        int lineLength;
+        boolean overflow;
+        long lastDataTime;
+
+        Receiver(NMEAGpsSensor sensor, InputStream is, long idleTimeout)
+        {
+            this.sensor = sensor;
+            this.is = is;
+            this.idleTimeout = idleTimeout;
+            this.lastDataTime = System.currentTimeMillis();
+        }
+    }
+
+
+    /*
+     * Worker thread polling a subset of the registered streams
+     */
+    class Worker implements Runnable
+    {
+        final CopyOnWriteArrayList<Receiver> receivers = new CopyOnWriteArrayList<Receiver>();
+        final byte[] readBuf = new byte[READ_BUFFER_SIZE];
+        volatile boolean started;
+        Thread thread;
+
+        void start(int index)
+        {
+            started = true;
+            thread = new Thread(this, "NMEAStreamHub-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public void run()
+        {
+            while (started)
+            {
+                boolean gotData = false;
+
+                for (Receiver r: receivers)
+                {
+                    try
+                    {
+                        gotData |= pollStream(r, readBuf);
+                    }
+                    catch (IOException e)
+                    {
+                        if (started && r.sensor.started)
+                            r.sensor.getLogger().error("Error while reading NMEA stream", e);
+                        r.sensor.started = false;
+                        unregister(r.sensor);
+                    }
+                }
+
+                if (!gotData)
+                {
+                    try { Thread.sleep(IDLE_SLEEP_MS); }
+                    catch (InterruptedException e) { return; }
+                }
+            }
+        }
+    }
+
+
+    private NMEAStreamHub()
+    {
+        workers = new Worker[NUM_THREADS];
+        for (int i = 0; i < workers.length; i++)
+        {
+            workers[i] = new Worker();
+            workers[i].start(i);
+        }
+
+        log.info("NMEA stream hub started with {} threads", workers.length);
+    }
+
+
+    /**
+     * Registers a new stream with the shared hub, creating the hub if needed
+     * @param sensor sensor to which NMEA sentences read from the stream are sent
+     * @param is input stream to read from
+     */
+    public static void register(NMEAGpsSensor sensor, InputStream is)
+    {
+        register(sensor, is, DEFAULT_IDLE_TIMEOUT);
+    }
+
+
+    /**
+     * Registers a new stream with the shared hub, creating the hub if needed
+     * @param sensor sensor to which NMEA sentences read from the stream are sent
+     * @param is input stream to read from
+     * @param idleTimeout max time without data before the stream is considered
+     * disconnected, in ms, or 0 to wait forever
+     */
+    public static synchronized void register(NMEAGpsSensor sensor, InputStream is, long idleTimeout)
+    {
+        if (instance == null)
+            instance = new NMEAStreamHub();
+        refCount++;
+
+        // assign to least loaded worker
+        Worker target = instance.workers[0];
+        for (Worker w: instance.workers)
+        {
+            if (w.receivers.size() < target.receivers.size())
+                target = w;
+        }
+
+        target.receivers.add(new Receiver(sensor, is, idleTimeout));
+    }
+
+
+    /**
+     * Checks if the shared hub can read the given stream. This is the case
+     * only if its class overrides {@link InputStream#available()}, since the
+     * default implementation never reports any available byte.
+     * @param is input stream to check
+     * @return true if the stream can be registered with the hub
+     */
+    public static boolean canPoll(InputStream is)
+    {
+        try
+        {
+            return is.getClass().getMethod("available").getDeclaringClass() != InputStream.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+
+    /**
+     * Unregisters all streams associated to the given sensor and stops the
+     * hub if no other receiver is registered
+     * @param sensor sensor to unregister
+     */
+    public static synchronized void unregister(NMEAGpsSensor sensor)
+    {
+        if (instance == null)
+            return;
+
+        for (Worker w: instance.workers)
+        {
+            for (Receiver r: w.receivers)
+            {
+                if (r.sensor == sensor)
+                {
+                    w.receivers.remove(r);
+                    refCount--;
+                }
+            }
+        }
+
+        if (refCount <= 0)
+        {
+            for (Worker w: instance.workers)
+                w.started = false;
+            instance = null;
+            refCount = 0;
+            log.info("NMEA stream hub stopped");
+        }
+    }
+
+
+    /*
+     * Reads available bytes from the stream and sends complete lines
+     * to the receiver. Returns true if some data was read.
+     */
+    static boolean pollStream(Receiver r, byte[] readBuf) throws IOException
+    {
+        int available = r.is.available();
+        if (available <= 0)
+        {
+            // available() is also 0 when stream was closed or disconnected
+            if (r.idleTimeout > 0 && System.currentTimeMillis() - r.lastDataTime > r.idleTimeout)
+                throw new IOException("No data received for " + r.idleTimeout + "ms, stream may be disconnected");
+            return false;
+        }
+
+        int nBytes = r.is.read(readBuf, 0, Math.min(available, readBuf.length));
+        if (nBytes < 0)
+            throw new IOException("End of stream");
+        r.lastDataTime = System.currentTimeMillis();
+
+        for (int i = 0; i < nBytes; i++)
+        {
+            byte b = readBuf[i];
+            if (b == '\n')
+            {
+                if (r.lineLength > 0 && !r.overflow)
+                {
+                    // errors are logged so that other lines and streams are still processed
+                    try { r.sensor.handleMessage(System.currentTimeMillis(), r.lineBuf, 0, r.lineLength); }
+                    catch (Exception e) { r.sensor.getLogger().error("Cannot handle NMEA sentence", e); }
+                }
+
+                // skip empty and overflowing lines
+                r.lineLength = 0;
+                r.overflow = false;
+            }
+            else if (b != '\r')
+            {
+                if (r.lineLength < r.lineBuf.length)
+                    r.lineBuf[r.lineLength++] = b;
+                else
+                    r.overflow = true;
+            }
+        }
+
+        return nBytes > 0;
+    }
+
+
+    /**
+     * @return number of streams currently registered with the hub
+     */
+    public static synchronized int getNumReceivers()
+    {
+        return refCount;
+    }
+}
@@ -0,0 +1,436 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * <p>
+ * Reusable tokenizer splitting an NMEA sentence held in a byte buffer into
+ * fields separated by ',' or '*'. Fields are only recorded as start/end
+ * offsets so that they can be accessed by index and converted to numbers
+ * without creating any intermediate String.<br/>
+ * Field numbering is the same as with msg.split(",|\\*"), i.e. field 0 is
+ * the complete message ID including the '$' sign and talker ID.
+ * </p><p>
+ * Instances of this class are not thread-safe and are meant to be reused
+ * for parsing successive sentences.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class NMEATokenizer
+{
+    public static final int MAX_FIELDS = 64;
+
+    private static final double[] DOUBLE_POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POW10 = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+    private static final long MAX_SAFE_MANTISSA = Long.MAX_VALUE / 10 - 10;
+
+    byte[] buf = new byte[0];
+    int lineStart;
+    int lineEnd;
+    int numFields;
+    final int[] fieldStart = new int[MAX_FIELDS];
+    final int[] fieldEnd = new int[MAX_FIELDS];
+
+    // state of last call to scanNumber
+    private long mantissa;
+    private int fracDigits;
+    private boolean negative;
+
+
+    /**
+     * Splits the sentence contained in the given byte array.<br/>
+     * The array is referenced, not copied, so it must not be modified until
+     * the caller is done accessing fields.
+     * @param buf buffer containing the sentence (without line terminator)
+     * @param off offset of first sentence byte in buffer
+     * @param len number of bytes in the sentence
+     */
+    public void tokenize(byte[] buf, int off, int len)
+    {
+        this.buf = buf;
+        this.lineStart = off;
+        this.lineEnd = off + len;
+        this.numFields = 0;
+
+        int start = off;
+        for (int i = off; i < lineEnd; i++)
+        {
+            byte b = buf[i];
+            if (b == ',' || b == '*')
+            {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+
+        addField(start, lineEnd);
+    }
+
+
+    /**
+     * Splits the sentence contained between the buffer's position and limit.<br/>
+     * The buffer's backing array is used directly when available.
+     * @param lineBuf buffer containing the sentence (without line terminator)
+     */
+    public void tokenize(ByteBuffer lineBuf)
+    {
+        int len = lineBuf.remaining();
+
+        if (lineBuf.hasArray())
+        {
+            tokenize(lineBuf.array(), lineBuf.arrayOffset() + lineBuf.position(), len);
+        }
+        else
+        {
+            if (buf.length < len)
+                buf = new byte[Math.max(len, 128)];
+            lineBuf.duplicate().get(buf, 0, len);
+            tokenize(buf, 0, len);
+        }
+    }
+
+
+    private void addField(int start, int end)
+    {
+        if (numFields < MAX_FIELDS)
+        {
+            fieldStart[numFields] = start;
+            fieldEnd[numFields] = end;
+            numFields++;
+        }
+    }
+
+
+    public final int getNumFields()
+    {
+        return numFields;
+    }
+
+
+    public final byte[] getBuffer()
+    {
+        return buf;
+    }
+
+
+    public final int getLineStart()
+    {
+        return lineStart;
+    }
+
+
+    public final int getLineLength()
+    {
+        return lineEnd - lineStart;
+    }
+
+
+    /**
+     * @param field field index
+     * @return offset of first byte of the field in the buffer
+     */
+    public final int getFieldStart(int field)
+    {
+        return fieldStart[field];
+    }
+
+
+    /**
+     * @param field field index
+     * @return offset of the byte following the last byte of the field
+     */
+    public final int getFieldEnd(int field)
+    {
+        return fieldEnd[field];
+    }
+
+
+    public final int getFieldLength(int field)
+    {
+        if (field >= numFields)
+            return 0;
+        return fieldEnd[field] - fieldStart[field];
+    }
+
+
+    /**
+     * @param field field index
+     * @return true if field is missing or only contains spaces
+     */
+    public boolean isEmpty(int field)
+    {
+        if (field >= numFields)
+            return true;
+
+        for (int i = fieldStart[field]; i < fieldEnd[field]; i++)
+        {
+            if (buf[i] != ' ')
+                return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @param field field index
+     * @param index index of character within field
+     * @return character at given index or 0 if index is out of the field bounds
+     */
+    public final char charAt(int field, int index)
+    {
+        if (index >= getFieldLength(field))
+            return 0;
+        return (char)(buf[fieldStart[field] + index] & 0xFF);
+    }
+
+
+    /**
+     * Compares field content to the given ASCII string
+     * @param field field index
+     * @param s string to compare with
+     * @return true if field content is exactly the same as the string
+     */
+    public boolean fieldEquals(int field, String s)
+    {
+        return regionMatches(field, 0, s);
+    }
+
+
+    /**
+     * Compares part of the field content to the given ASCII string
+     * @param field field index
+     * @param offset index of first character to compare within the field
+     * @param s string to compare with
+     * @return true if the field content starting at offset is exactly the string
+     */
+    public boolean regionMatches(int field, int offset, String s)
+    {
+        int len = s.length();
+        if (getFieldLength(field) - offset != len)
+            return false;
+
+        int start = fieldStart[field] + offset;
+        for (int i = 0; i < len; i++)
+        {
+            if (buf[start + i] != s.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+
+
+    public int parseInt(int field)
+    {
+        return parseInt(field, 0, getFieldLength(field));
+    }
+
+
+    /**
+     * Parses a decimal integer from part of a field.<br/>
+     * The result is the same as {@link Integer#parseInt(String)}, except that
+     * leading and trailing spaces are ignored (as {@link Double#parseDouble(String)}
+     * does) since some receivers pad numeric fields with spaces.
+     * @param field field index
+     * @param from index of first character within field (inclusive)
+     * @param to index of last character within field (exclusive)
+     * @return the integer value
+     * @throws NumberFormatException if the character range is not a valid integer
+     */
+    public int parseInt(int field, int from, int to)
+    {
+        checkRange(field, from, to);
+        if (!scanNumber(fieldStart[field] + from, fieldStart[field] + to) ||
+            fracDigits >= 0 || mantissa > Integer.MAX_VALUE)
+            return Integer.parseInt(getFieldAsString(field, from, to));
+
+        int val = (int)mantissa;
+        return negative ? -val : val;
+    }
+
+
+    /**
+     * Parses a hexadecimal integer from a field
+     * @param field field index
+     * @return the integer value
+     * @throws NumberFormatException if the field is not a valid hex integer
+     */
+    public int parseHex(int field)
+    {
+        int len = getFieldLength(field);
+        if (len == 0 || len > 7)
+            return Integer.parseInt(getFieldAsString(field), 16);
+
+        int val = 0;
+        for (int i = fieldStart[field]; i < fieldEnd[field]; i++)
+        {
+            int digit = Character.digit(buf[i], 16);
+            if (digit < 0)
+                return Integer.parseInt(getFieldAsString(field), 16);
+            val = (val << 4) | digit;
+        }
+
+        return val;
+    }
+
+
+    public double parseDouble(int field)
+    {
+        return parseDouble(field, 0, getFieldLength(field));
+    }
+
+
+    /**
+     * Parses a decimal number from part of a field.<br/>
+     * The result is bit-identical to {@link Double#parseDouble(String)}:
+     * numbers with up to 15 significant digits are computed exactly by a
+     * single correctly rounded division, and other numbers are delegated
+     * to the JDK parser.
+     * @param field field index
+     * @param from index of first character within field (inclusive)
+     * @param to index of last character within field (exclusive)
+     * @return the double value
+     * @throws NumberFormatException if the character range is not a valid number
+     */
+    public double parseDouble(int field, int from, int to)
+    {
+        checkRange(field, from, to);
+        if (!scanNumber(fieldStart[field] + from, fieldStart[field] + to) ||
+            mantissa >= MAX_EXACT_DOUBLE_MANTISSA || fracDigits >= DOUBLE_POW10.length)
+            return Double.parseDouble(getFieldAsString(field, from, to));
+
+        double val = (double)mantissa;
+        if (fracDigits > 0)
+            val /= DOUBLE_POW10[fracDigits];
+        return negative ? -val : val;
+    }
+
+
+    /**
+     * Parses a decimal number from a field.<br/>
+     * The result is bit-identical to {@link Float#parseFloat(String)}.
+     * @param field field index
+     * @return the float value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public float parseFloat(int field)
+    {
+        int len = getFieldLength(field);
+        if (!scanNumber(fieldStart[field], fieldStart[field] + len) ||
+            mantissa >= MAX_EXACT_FLOAT_MANTISSA || fracDigits >= FLOAT_POW10.length)
+            return Float.parseFloat(getFieldAsString(field));
+
+        float val = (float)mantissa;
+        if (fracDigits > 0)
+            val /= FLOAT_POW10[fracDigits];
+        return negative ? -val : val;
+    }
+
+
+    /*
+     * Scans a plain decimal number ([+-]digits[.digits]) surrounded by optional
+     * spaces and stores its integer mantissa, number of fractional digits
+     * (-1 if no decimal point) and sign.
+     * Returns false if the syntax is not supported by this fast path.
+     */
+    private boolean scanNumber(int start, int end)
+    {
+        // trim spaces
+        while (start < end && buf[start] == ' ')
+            start++;
+        while (end > start && buf[end-1] == ' ')
+            end--;
+
+        if (start >= end)
+            return false;
+
+        mantissa = 0;
+        fracDigits = -1;
+        negative = false;
+        boolean hasDigits = false;
+
+        int i = start;
+        byte b = buf[i];
+        if (b == '-' || b == '+')
+        {
+            negative = (b == '-');
+            i++;
+        }
+
+        for (; i < end; i++)
+        {
+            b = buf[i];
+            if (b >= '0' && b <= '9')
+            {
+                if (mantissa > MAX_SAFE_MANTISSA)
+                    return false;
+                mantissa = mantissa * 10 + (b - '0');
+                hasDigits = true;
+                if (fracDigits >= 0)
+                    fracDigits++;
+            }
+            else if (b == '.' && fracDigits < 0)
+                fracDigits = 0;
+            else
+                return false;
+        }
+
+        return hasDigits;
+    }
+
+
+    private void checkRange(int field, int from, int to)
+    {
+        if (from < 0 || to > getFieldLength(field) || from > to)
+            throw new NumberFormatException("Invalid character range [" + from + "," + to + "[ in field " + field);
+    }
+
+
+    public String getFieldAsString(int field)
+    {
+        return getFieldAsString(field, 0, getFieldLength(field));
+    }
+
+
+    public String getFieldAsString(int field, int from, int to)
+    {
+        if (field >= numFields)
+            return "";
+        return new String(buf, fieldStart[field] + from, to - from, StandardCharsets.US_ASCII);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.US_ASCII);
+    }
+}
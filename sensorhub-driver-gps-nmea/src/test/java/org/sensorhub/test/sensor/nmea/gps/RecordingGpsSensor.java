@@ -0,0 +1,50 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAGpsConfig;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAGpsSensor;
+
+
+/*
+ * Sensor recording lines it receives instead of decoding them
+ */
+class RecordingGpsSensor extends NMEAGpsSensor
+{
+    final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+    String failingLine;
+
+
+    RecordingGpsSensor()
+    {
+        NMEAGpsConfig config = new NMEAGpsConfig();
+        config.id = "test-gps";
+        setConfiguration(config);
+    }
+
+
+    @Override
+    protected void handleMessage(long msgTime, byte[] buf, int off, int len)
+    {
+        String line = new String(buf, off, len, StandardCharsets.US_ASCII);
+        if (line.equals(failingLine))
+            throw new IllegalStateException("Cannot parse " + line);
+        lines.add(line);
+    }
+}
@@ -0,0 +1,268 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEADecoder;
+import org.sensorhub.impl.sensor.nmea.gps.NMEATokenizer;
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>
+ * Checks that the NMEA field decoder gives exactly the same results as the
+ * previous implementation based on String.split, Double.parseDouble and
+ * GregorianCalendar, on a golden corpus of sentences and on randomly
+ * generated fields.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestNMEADecoder
+{
+    static final String[] GOLDEN_CORPUS =
+    {
+        "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47",
+        "$GPGGA,002153.000,3342.6618,N,11751.3858,W,1,10,1.2,27.0,M,-34.2,M,,0000*5E",
+        "$GNGGA,235959.99,0000.0000,S,00000.0000,W,2,12,0.7,-12.35,M,0.0,M,1.0,0000*6B",
+        "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76",
+        "$GPGGA,172814.0,3723.46587704,N,12202.26957864,W,2,6,1.2,18.893,M,-25.669,M,2.0,0031*4F",
+        "$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A",
+        "$GPRMC,225446.33,A,4916.45,N,12311.12,W,000.5,054.7,191194,020.3,E*68",
+        "$GNRMC,000000.00,A,8959.99999,N,17959.99999,E,0.0,0.0,010100,,,A*79",
+        "$GPRMC,235959.999,A,3342.6618,S,11751.3858,E,0.02,31.66,311299,,,A*76",
+        "$GPRMC,081836,A,3751.65,S,14507.36,E,000.0,360.0,130998,011.3,E*62",
+        "$GPRMC,120000.5,A,0130.5000,N,10330.5000,E,1.5,90.0,290216,,,A*6A",
+        "$GPZDA,201530.00,04,07,2002,00,00*60",
+        "$GPZDA,000000.000,01,01,1970,,*5C",
+        "$GPZDA,235959.999,31,12,2099,,*5F",
+        "$GPZDA,120000.5,29,02,2016,,*55",
+        "$GPZDA,060606.06,15,10,1582,,*5B"
+    };
+
+    static final long SECONDS_PER_DAY = 24*3600L;
+
+    GregorianCalendar cal;
+    NMEATokenizer msg = new NMEATokenizer();
+    NMEADecoder decoder = new NMEADecoder();
+
+
+    public TestNMEADecoder()
+    {
+        cal = new GregorianCalendar();
+        cal.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+
+    @Test
+    public void testGoldenCorpus()
+    {
+        for (String sentence: GOLDEN_CORPUS)
+            checkSentence(sentence);
+    }
+
+
+    @Test
+    public void testRandomFields()
+    {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50000; i++)
+        {
+            String time = randomTime(random);
+            String lat = randomLatLon(random, 2);
+            String lon = randomLatLon(random, 3);
+            String date = String.format(Locale.US, "%02d%02d%02d", 1+random.nextInt(31), 1+random.nextInt(12), random.nextInt(100));
+            checkSentence("$GPRMC," + time + ",A," + lat + ",N," + lon + ",W,0.0,0.0," + date + ",,,A*00");
+
+            String zdaDate = String.format(Locale.US, "%02d,%02d,%04d", 1+random.nextInt(31), 1+random.nextInt(12), 1970+random.nextInt(200));
+            checkSentence("$GPZDA," + time + "," + zdaDate + ",,*00");
+        }
+    }
+
+
+    @Test
+    public void testTimeOfDay()
+    {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50000; i++)
+        {
+            String time = randomTime(random);
+            tokenize("$GPGGA," + time + ",,,,,1,,,,,,,,*00");
+
+            double lastFix = random.nextInt(Integer.MAX_VALUE) + random.nextInt(1000)/1000.;
+            double secondsAtBeginingOfDay = Math.floor(lastFix / SECONDS_PER_DAY) * SECONDS_PER_DAY;
+            double expected = legacyTimeOfDay(time, secondsAtBeginingOfDay);
+            double actual = timeOfDay(1, secondsAtBeginingOfDay);
+            assertBitEquals(time, expected, actual);
+        }
+    }
+
+
+    @Test
+    public void testDaysFromCivil()
+    {
+        GregorianCalendar refCal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        refCal.clear();
+        refCal.set(1600, Calendar.JANUARY, 1);
+
+        while (refCal.get(Calendar.YEAR) < 2400)
+        {
+            long expected = Math.floorDiv(refCal.getTimeInMillis(), 24*3600*1000L);
+            long actual = NMEADecoder.daysFromCivil(refCal.get(Calendar.YEAR), refCal.get(Calendar.MONTH)+1, refCal.get(Calendar.DAY_OF_MONTH));
+            assertEquals(refCal.getTime().toString(), expected, actual);
+            refCal.add(Calendar.DAY_OF_MONTH, 1);
+        }
+    }
+
+
+    protected void checkSentence(String sentence)
+    {
+        String[] tokens = sentence.split(",|\\*");
+        tokenize(sentence);
+
+        if (tokens[0].endsWith("GGA"))
+        {
+            assertBitEquals(sentence, legacyDecimalDegrees(tokens[2], false), NMEADecoder.toDecimalDegrees(msg, 2, false));
+            assertBitEquals(sentence, legacyDecimalDegrees(tokens[4], true), NMEADecoder.toDecimalDegrees(msg, 4, true));
+            assertBitEquals(sentence, legacyTimeOfDay(tokens[1], 0.0), timeOfDay(1, 0.0));
+            assertBitEquals(sentence, legacyTimeOfDay(tokens[1], 1455494400.0), timeOfDay(1, 1455494400.0));
+        }
+        else if (tokens[0].endsWith("RMC"))
+        {
+            assertBitEquals(sentence, legacyDecimalDegrees(tokens[3], false), NMEADecoder.toDecimalDegrees(msg, 3, false));
+            assertBitEquals(sentence, legacyDecimalDegrees(tokens[5], true), NMEADecoder.toDecimalDegrees(msg, 5, true));
+
+            decoder.decodeDate(msg, 9);
+            decoder.decodeTime(msg, 1);
+            assertBitEquals(sentence, legacyJulianTime(tokens[1], tokens[9]), decoder.toEpochSeconds());
+        }
+        else if (tokens[0].endsWith("ZDA"))
+        {
+            decoder.setDate(msg.parseInt(2), msg.parseInt(3), msg.parseInt(4));
+            decoder.decodeTime(msg, 1);
+            assertBitEquals(sentence, legacyZdaTime(tokens), decoder.toEpochSeconds());
+        }
+    }
+
+
+    protected double timeOfDay(int field, double secondsAtBeginingOfDay)
+    {
+        decoder.decodeTime(msg, field);
+        return secondsAtBeginingOfDay + decoder.getHours()*3600. + decoder.getMinutes()*60. + decoder.getSeconds();
+    }
+
+
+    protected void tokenize(String sentence)
+    {
+        byte[] buf = sentence.getBytes(StandardCharsets.US_ASCII);
+        msg.tokenize(buf, 0, buf.length);
+    }
+
+
+    protected String randomTime(Random random)
+    {
+        String time = String.format(Locale.US, "%02d%02d%02d", random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        int numDecimals = random.nextInt(5);
+        if (numDecimals > 0)
+        {
+            time += '.';
+            for (int j = 0; j < numDecimals; j++)
+                time += (char)('0' + random.nextInt(10));
+        }
+        return time;
+    }
+
+
+    protected String randomLatLon(Random random, int degDigits)
+    {
+        int maxDeg = (degDigits == 2) ? 90 : 180;
+        int numDecimals = 1 + random.nextInt(8);
+        String format = "%0" + degDigits + "d%02d.%0" + numDecimals + "d";
+        return String.format(Locale.US, format, random.nextInt(maxDeg), random.nextInt(60), random.nextInt((int)Math.pow(10, numDecimals)));
+    }
+
+
+    protected void assertBitEquals(String msg, double expected, double actual)
+    {
+        assertEquals(msg, Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+
+
+    /*
+     * Legacy implementations, copied from LLALocationOutput before
+     * it was switched to NMEADecoder
+     */
+
+    protected double legacyDecimalDegrees(String latLon, boolean lon)
+    {
+        int sep = lon ? 3 : 2;
+        String integerDegrees = latLon.substring(0, sep);
+        String decimalMinutes = latLon.substring(sep);
+        return Double.parseDouble(integerDegrees) + Double.parseDouble(decimalMinutes) / 60.;
+    }
+
+
+    protected double legacyTimeOfDay(String utcTime, double secondsAtBeginingOfDay)
+    {
+        int hours = Integer.parseInt(utcTime.substring(0, 2));
+        int minutes = Integer.parseInt(utcTime.substring(2, 4));
+        double seconds = Double.parseDouble(utcTime.substring(4));
+        return secondsAtBeginingOfDay + hours*3600. + minutes*60. + seconds;
+    }
+
+
+    protected double legacyJulianTime(String utcTime, String utcDate)
+    {
+        cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(utcDate.substring(0, 2)));
+        cal.set(Calendar.MONTH, Integer.parseInt(utcDate.substring(2, 4))-1);
+        cal.set(Calendar.YEAR, 2000 + Integer.parseInt(utcDate.substring(4, 6)));
+
+        cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(utcTime.substring(0, 2)));
+        cal.set(Calendar.MINUTE, Integer.parseInt(utcTime.substring(2, 4)));
+        double seconds = Double.parseDouble(utcTime.substring(4));
+        cal.set(Calendar.SECOND, (int)seconds);
+        double subSeconds = seconds - Math.floor(seconds);
+        cal.set(Calendar.MILLISECOND, (int)(subSeconds*1000));
+
+        return cal.getTimeInMillis() / 1000.0;
+    }
+
+
+    protected double legacyZdaTime(String[] tokens)
+    {
+        cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(tokens[2]));
+        cal.set(Calendar.MONTH, Integer.parseInt(tokens[3])-1);
+        cal.set(Calendar.YEAR, Integer.parseInt(tokens[4]));
+
+        String utcTimeToken = tokens[1];
+        cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(utcTimeToken.substring(0, 2)));
+        cal.set(Calendar.MINUTE, Integer.parseInt(utcTimeToken.substring(2, 4)));
+        double seconds = Double.parseDouble(utcTimeToken.substring(4));
+        cal.set(Calendar.SECOND, (int)seconds);
+        double subSeconds = seconds - Math.floor(seconds);
+        cal.set(Calendar.MILLISECOND, (int)(subSeconds*1000));
+
+        return cal.getTimeInMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,178 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import static org.junit.Assert.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAGpsConfig;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAGpsOutput;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAGpsSensor;
+import org.sensorhub.impl.sensor.nmea.gps.NMEASentence;
+
+
+public class TestNMEADispatchTable
+{
+
+    /*
+     * Sensor with test outputs instead of the ones created by init()
+     */
+    static class DispatchSensor extends NMEAGpsSensor
+    {
+        DispatchSensor(String... activeSentences)
+        {
+            NMEAGpsConfig config = new NMEAGpsConfig();
+            config.id = "test-gps";
+            config.activeSentences = Arrays.asList(activeSentences);
+            setConfiguration(config);
+        }
+
+        void addTestOutput(TestOutput output)
+        {
+            addOutput(output, false);
+        }
+
+        void init(TestOutput... outputs)
+        {
+            for (TestOutput output: outputs)
+                addTestOutput(output);
+            buildDispatchTable();
+        }
+
+        NMEAGpsOutput[] getTargets(int sentenceID)
+        {
+            return getDispatchTargets(sentenceID);
+        }
+
+        void receive(String sentence)
+        {
+            byte[] buf = sentence.getBytes(StandardCharsets.US_ASCII);
+            handleMessage(System.currentTimeMillis(), buf, 0, buf.length);
+        }
+    }
+
+
+    /*
+     * Output recording sentences dispatched to it
+     */
+    static class TestOutput extends NMEAGpsOutput
+    {
+        final String name;
+        final int[] supportedSentences;
+        final List<String> received = new ArrayList<>();
+
+        TestOutput(DispatchSensor sensor, String name, int... supportedSentences)
+        {
+            super(sensor);
+            this.name = name;
+            this.supportedSentences = supportedSentences;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        protected int[] getSupportedSentences()
+        {
+            return supportedSentences;
+        }
+
+        @Override
+        protected void handleMessage(long msgTime, NMEASentence msg)
+        {
+            received.add(msg.toString());
+        }
+    }
+
+
+    @Test
+    public void testTargets()
+    {
+        DispatchSensor sensor = new DispatchSensor("GGA", "RMC", "ZDA");
+        TestOutput posOutput = new TestOutput(sensor, "pos", NMEASentence.GGA, NMEASentence.RMC, NMEASentence.GLL);
+        TestOutput altOutput = new TestOutput(sensor, "alt", NMEASentence.GGA);
+        TestOutput headingOutput = new TestOutput(sensor, "heading", NMEASentence.HDT);
+        sensor.init(posOutput, altOutput, headingOutput);
+
+        // output registered for several IDs
+        assertArrayEquals(new NMEAGpsOutput[] {posOutput, altOutput}, sensor.getTargets(NMEASentence.GGA));
+        assertArrayEquals(new NMEAGpsOutput[] {posOutput}, sensor.getTargets(NMEASentence.RMC));
+
+        // active sentence without output
+        assertArrayEquals(new NMEAGpsOutput[0], sensor.getTargets(NMEASentence.ZDA));
+
+        // inactive sentences
+        assertNull(sensor.getTargets(NMEASentence.GLL));
+        assertNull(sensor.getTargets(NMEASentence.HDT));
+        assertNull(sensor.getTargets(NMEASentence.UNKNOWN_ID));
+    }
+
+
+    @Test
+    public void testDuplicateAndUnknownActiveSentences()
+    {
+        DispatchSensor sensor = new DispatchSensor("RMC", "GGA", "XXXX", "GGA", "", "RMC", "GG");
+        TestOutput output = new TestOutput(sensor, "pos", NMEASentence.GGA, NMEASentence.RMC);
+        sensor.init(output);
+
+        // output is listed once per sentence ID
+        assertArrayEquals(new NMEAGpsOutput[] {output}, sensor.getTargets(NMEASentence.GGA));
+        assertArrayEquals(new NMEAGpsOutput[] {output}, sensor.getTargets(NMEASentence.RMC));
+        assertNull(sensor.getTargets(NMEASentence.UNKNOWN_ID));
+    }
+
+
+    @Test
+    public void testNoActiveSentence()
+    {
+        DispatchSensor sensor = new DispatchSensor();
+        TestOutput output = new TestOutput(sensor, "pos", NMEASentence.GGA);
+        sensor.init(output);
+        assertNull(sensor.getTargets(NMEASentence.GGA));
+    }
+
+
+    @Test
+    public void testDispatch()
+    {
+        DispatchSensor sensor = new DispatchSensor("GGA", "RMC", "ZDA");
+        TestOutput posOutput = new TestOutput(sensor, "pos", NMEASentence.GGA, NMEASentence.RMC);
+        TestOutput timeOutput = new TestOutput(sensor, "time", NMEASentence.ZDA, NMEASentence.RMC);
+        sensor.init(posOutput, timeOutput);
+
+        String gga = "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47";
+        String rmc = "$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A";
+        String zdaNoChecksum = "$GPZDA,201530.00,04,07,2002,00,00";
+        sensor.receive(gga);
+        sensor.receive(rmc);
+        sensor.receive(zdaNoChecksum);
+
+        // wrong checksum, inactive and invalid sentences are dropped
+        sensor.receive("$GPZDA,201530.00,04,07,2002,00,00*61");
+        sensor.receive("$GPGLL,4916.45,N,12311.12,W,225444,A*31");
+        sensor.receive("$PUBX,00,081350.00*5B");
+        sensor.receive("GPGGA,123519*00");
+
+        assertEquals(Arrays.asList(gga, rmc), posOutput.received);
+        assertEquals(Arrays.asList(rmc, zdaNoChecksum), timeOutput.received);
+    }
+}
@@ -0,0 +1,130 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEALineReader;
+import static org.junit.Assert.*;
+
+
+public class TestNMEALineReader
+{
+
+    /*
+     * Stream returning at most chunkSize bytes on each read
+     */
+    static class ChunkedInputStream extends ByteArrayInputStream
+    {
+        final int chunkSize;
+
+        ChunkedInputStream(String data, int chunkSize)
+        {
+            super(data.getBytes(StandardCharsets.US_ASCII));
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+        {
+            return super.read(b, off, Math.min(len, chunkSize));
+        }
+    }
+
+
+    protected List<String> readAll(String data, int chunkSize) throws IOException
+    {
+        NMEALineReader reader = new NMEALineReader(new ChunkedInputStream(data, chunkSize));
+        List<String> lines = new ArrayList<>();
+        int len;
+        while ((len = reader.readLine()) >= 0)
+        {
+            assertEquals(len, reader.getLineLength());
+            lines.add(new String(reader.getLineBuffer(), 0, len, StandardCharsets.US_ASCII));
+        }
+        return lines;
+    }
+
+
+    protected String repeat(char c, int count)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            sb.append(c);
+        return sb.toString();
+    }
+
+
+    @Test
+    public void testLineTerminators() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++)
+        {
+            String msg = String.format("$GPGGA,%06d.00,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47", i);
+            expected.add(msg);
+            sb.append(msg).append((i % 3 == 0) ? "\r\n" : (i % 3 == 1) ? "\n" : "\r\r\n");
+        }
+
+        // lines split across reads and across read buffer refills
+        for (int chunkSize: new int[] {1, 2, 7, 100, 4096, 100000})
+            assertEquals("chunk size " + chunkSize, expected, readAll(sb.toString(), chunkSize));
+    }
+
+
+    @Test
+    public void testSkipEmptyLines() throws Exception
+    {
+        String data = "\r\n\n\r\r\n$GPZDA,201530.00,04,07,2002,00,00*60\r\n\n\r\n$GPZDA,201531.00,04,07,2002,00,00*61\r\n\r\n";
+        List<String> lines = readAll(data, 5);
+        assertEquals(2, lines.size());
+        assertEquals("$GPZDA,201530.00,04,07,2002,00,00*60", lines.get(0));
+        assertEquals("$GPZDA,201531.00,04,07,2002,00,00*61", lines.get(1));
+    }
+
+
+    @Test
+    public void testOverflow() throws Exception
+    {
+        String maxLine = repeat('a', NMEALineReader.MAX_LINE_LENGTH);
+        String longLine = repeat('b', NMEALineReader.MAX_LINE_LENGTH + 1);
+        String veryLongLine = repeat('c', NMEALineReader.MAX_LINE_LENGTH * 20);
+
+        // CR doesn't count in line length
+        String data = maxLine + "\r\n" + longLine + "\r\n" + veryLongLine + "\n" + "$GPZDA\r\n" + maxLine + "\n";
+        List<String> lines = readAll(data, 50);
+        assertEquals(3, lines.size());
+        assertEquals(maxLine, lines.get(0));
+        assertEquals("$GPZDA", lines.get(1));
+        assertEquals(maxLine, lines.get(2));
+    }
+
+
+    @Test
+    public void testUnterminatedLastLine() throws Exception
+    {
+        // partial line at end of stream is discarded
+        List<String> lines = readAll("$GPZDA,201530.00,04,07,2002,00,00*60\r\n$GPZDA,2015", 10);
+        assertEquals(1, lines.size());
+        assertEquals("$GPZDA,201530.00,04,07,2002,00,00*60", lines.get(0));
+
+        assertTrue(readAll("", 10).isEmpty());
+    }
+}
@@ -0,0 +1,233 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEALineReader;
+import org.sensorhub.impl.sensor.nmea.gps.NMEALogReplay;
+
+
+public class TestNMEALogReplay
+{
+    static final long SMALL_WINDOW_SIZE = 16;
+
+    NMEALogReplay replay;
+
+
+    /*
+     * Sensor taking fix time from GGA sentences, so replay can be paced
+     * without decoding the whole sentence
+     */
+    static class FixTimeSensor extends RecordingGpsSensor
+    {
+        volatile double lastFixTime = Double.NaN;
+
+        @Override
+        protected void handleMessage(long msgTime, byte[] buf, int off, int len)
+        {
+            super.handleMessage(msgTime, buf, off, len);
+            String line = new String(buf, off, len, StandardCharsets.US_ASCII);
+            if (line.startsWith("$GPGGA,"))
+            {
+                String time = line.substring(7, line.indexOf(',', 7));
+                lastFixTime = Integer.parseInt(time.substring(0, 2)) * 3600 +
+                              Integer.parseInt(time.substring(2, 4)) * 60 +
+                              Double.parseDouble(time.substring(4));
+            }
+        }
+
+        @Override
+        protected double getLastFixTime()
+        {
+            return lastFixTime;
+        }
+    }
+
+
+    protected File writeLog(String data) throws IOException
+    {
+        File logFile = File.createTempFile("nmea", ".log");
+        logFile.deleteOnExit();
+        try (OutputStream os = new FileOutputStream(logFile))
+        {
+            os.write(data.getBytes(StandardCharsets.US_ASCII));
+        }
+        return logFile;
+    }
+
+
+    protected String ggaSentence(double time)
+    {
+        int secs = (int)time;
+        return String.format("$GPGGA,%02d%02d%05.2f,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47",
+            secs / 3600, (secs / 60) % 60, time - secs / 60 * 60);
+    }
+
+
+    protected List<String> replay(RecordingGpsSensor sensor, String data, double speedFactor, long mapWindowSize) throws IOException
+    {
+        replay = new NMEALogReplay(sensor, writeLog(data), speedFactor, mapWindowSize);
+        replay.replay();
+        return sensor.lines;
+    }
+
+
+    @Test
+    public void testLinesSplitAcrossWindows() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            String msg = ggaSentence(i);
+            expected.add(msg);
+            sb.append(msg).append((i % 2 == 0) ? "\r\n" : "\n");
+        }
+
+        // also split lines between CR and LF
+        for (long windowSize: new long[] {1, 7, SMALL_WINDOW_SIZE, expected.get(0).length() + 1, NMEALogReplay.DEFAULT_MAP_WINDOW_SIZE})
+        {
+            RecordingGpsSensor sensor = new RecordingGpsSensor();
+            assertEquals("window size " + windowSize, expected, replay(sensor, sb.toString(), 0, windowSize));
+            assertEquals(expected.size(), replay.getSentenceCount());
+        }
+    }
+
+
+    @Test
+    public void testUnterminatedLastLine() throws Exception
+    {
+        List<String> expected = Arrays.asList("$GPZDA,201530.00,04,07,2002,00,00*60", "$GPZDA,201531.00,04,07,2002,00,00*61");
+
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        replay(sensor, expected.get(0) + "\r\n" + expected.get(1), 0, SMALL_WINDOW_SIZE);
+        assertEquals(expected, sensor.lines);
+
+        sensor = new RecordingGpsSensor();
+        replay(sensor, expected.get(0) + "\r\n" + expected.get(1) + "\r", 0, SMALL_WINDOW_SIZE);
+        assertEquals(expected, sensor.lines);
+    }
+
+
+    @Test
+    public void testSkipEmptyAndOverflowingLines() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("$GPZDA,201530.00,04,07,2002,00,00*60\r\n");
+        sb.append("\r\n\n\r\n");
+        for (int i = 0; i < NMEALineReader.MAX_LINE_LENGTH + 10; i++)
+            sb.append('x');
+        sb.append("\r\n");
+        sb.append("$GPZDA,201531.00,04,07,2002,00,00*61\r\n");
+
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        replay(sensor, sb.toString(), 0, SMALL_WINDOW_SIZE);
+        assertEquals(Arrays.asList("$GPZDA,201530.00,04,07,2002,00,00*60", "$GPZDA,201531.00,04,07,2002,00,00*61"), sensor.lines);
+        assertEquals(2, replay.getSentenceCount());
+    }
+
+
+    @Test
+    public void testOverflowingLastLine() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("$GPZDA,201530.00,04,07,2002,00,00*60\r\n");
+        for (int i = 0; i < NMEALineReader.MAX_LINE_LENGTH + 1; i++)
+            sb.append('x');
+
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        replay(sensor, sb.toString(), 0, SMALL_WINDOW_SIZE);
+        assertEquals(Arrays.asList("$GPZDA,201530.00,04,07,2002,00,00*60"), sensor.lines);
+    }
+
+
+    @Test
+    public void testHandlerErrorDoesNotStopReplay() throws Exception
+    {
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        sensor.failingLine = "$GPZDA,bad";
+        replay(sensor, "$GPZDA,201530.00,04,07,2002,00,00*60\r\n" +
+                       "$GPZDA,bad\r\n" +
+                       "$GPZDA,201531.00,04,07,2002,00,00*61\r\n", 0, SMALL_WINDOW_SIZE);
+        assertEquals(2, sensor.lines.size());
+        assertEquals(3, replay.getSentenceCount());
+    }
+
+
+    @Test
+    public void testPacing() throws Exception
+    {
+        // 1s of fixes replayed 5 times faster than recorded
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= 10; i++)
+            sb.append(ggaSentence(43200 + i * 0.1)).append("\r\n");
+
+        long t0 = System.currentTimeMillis();
+        replay(new FixTimeSensor(), sb.toString(), 5.0, NMEALogReplay.DEFAULT_MAP_WINDOW_SIZE);
+        long dt = System.currentTimeMillis() - t0;
+        assertEquals(11, replay.getSentenceCount());
+        assertTrue("Replay too fast: " + dt + "ms", dt >= 180);
+        assertTrue("Replay too slow: " + dt + "ms", dt < 1000);
+    }
+
+
+    @Test
+    public void testNoPacingWhenSpeedFactorIsZero() throws Exception
+    {
+        // 100s of fixes replayed as fast as possible
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= 100; i++)
+            sb.append(ggaSentence(43200 + i)).append("\r\n");
+
+        long t0 = System.currentTimeMillis();
+        replay(new FixTimeSensor(), sb.toString(), 0, NMEALogReplay.DEFAULT_MAP_WINDOW_SIZE);
+        long dt = System.currentTimeMillis() - t0;
+        assertEquals(101, replay.getSentenceCount());
+        assertTrue("Replay too slow: " + dt + "ms", dt < 1000);
+    }
+
+
+    @Test
+    public void testStop() throws Exception
+    {
+        RecordingGpsSensor sensor = new RecordingGpsSensor()
+        {
+            @Override
+            protected void handleMessage(long msgTime, byte[] buf, int off, int len)
+            {
+                super.handleMessage(msgTime, buf, off, len);
+                if (lines.size() == 3)
+                    replay.stop();
+            }
+        };
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10; i++)
+            sb.append(ggaSentence(i)).append("\r\n");
+
+        replay(sensor, sb.toString(), 0, SMALL_WINDOW_SIZE);
+        assertEquals(3, sensor.lines.size());
+        assertEquals(3, replay.getSentenceCount());
+    }
+}
@@ -0,0 +1,129 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEASentence;
+import static org.junit.Assert.*;
+
+
+public class TestNMEASentence
+{
+    NMEASentence msg = new NMEASentence();
+
+
+    protected void parse(String sentence)
+    {
+        // parse with offset to check it is taken into account
+        byte[] buf = ("xx" + sentence + "yy").getBytes(StandardCharsets.US_ASCII);
+        msg.parse(buf, 2, sentence.length());
+    }
+
+
+    protected static int checksum(String content)
+    {
+        int checksum = 0;
+        for (int i = 0; i < content.length(); i++)
+            checksum ^= content.charAt(i);
+        return checksum;
+    }
+
+
+    @Test
+    public void testValidChecksum()
+    {
+        parse("$GPZDA,201530.00,04,07,2002,00,00*60");
+        assertEquals(NMEASentence.CHECKSUM_VALID, msg.getChecksumStatus());
+        assertEquals(0x60, msg.getComputedChecksum());
+
+        // lower case hex digits
+        String content = "GPRMC,225446.33,A,4916.45,N,12311.12,W,000.5,054.7,191194,020.3,E";
+        parse(String.format("$%s*%02x", content, checksum(content)));
+        assertEquals(NMEASentence.CHECKSUM_VALID, msg.getChecksumStatus());
+        assertEquals(checksum(content), msg.getComputedChecksum());
+    }
+
+
+    @Test
+    public void testMissingChecksum()
+    {
+        parse("$GPZDA,201530.00,04,07,2002,00,00");
+        assertEquals(NMEASentence.CHECKSUM_MISSING, msg.getChecksumStatus());
+        assertEquals(0, msg.getComputedChecksum());
+        assertEquals(NMEASentence.ZDA, msg.getSentenceID());
+    }
+
+
+    @Test
+    public void testWrongChecksum()
+    {
+        // mismatch
+        parse("$GPZDA,201530.00,04,07,2002,00,00*61");
+        assertEquals(NMEASentence.CHECKSUM_INVALID, msg.getChecksumStatus());
+        assertEquals(0x60, msg.getComputedChecksum());
+
+        // non hex digits
+        parse("$GPZDA,201530.00,04,07,2002,00,00*6G");
+        assertEquals(NMEASentence.CHECKSUM_INVALID, msg.getChecksumStatus());
+        parse("$GPZDA,201530.00,04,07,2002,00,00* 60");
+        assertEquals(NMEASentence.CHECKSUM_INVALID, msg.getChecksumStatus());
+
+        // '*' at end of line
+        parse("$GPZDA,201530.00,04,07,2002,00,00*");
+        assertEquals(NMEASentence.CHECKSUM_INVALID, msg.getChecksumStatus());
+    }
+
+
+    @Test
+    public void testSentenceAndTalkerID()
+    {
+        parse("$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47");
+        assertEquals(NMEASentence.GGA, msg.getSentenceID());
+        assertEquals("GP", msg.getTalkerID());
+        assertTrue(msg.isTalker('G', 'P'));
+        assertFalse(msg.isTalker('G', 'N'));
+
+        parse("$GNRMC,000000.00,A,8959.99999,N,17959.99999,E,0.0,0.0,010100,,,A*79");
+        assertEquals(NMEASentence.RMC, msg.getSentenceID());
+        assertEquals("GN", msg.getTalkerID());
+        assertTrue(msg.isTalker('G', 'N'));
+
+        parse("$HEHDT,274.07,T*03");
+        assertEquals(NMEASentence.HDT, msg.getSentenceID());
+        assertEquals("HE", msg.getTalkerID());
+
+        // IDs not in $TTSSS format
+        for (String sentence: new String[] {"$PUBX,00,081350.00*5B", "$GPGGAX,123519*00", "$GP", "$", ""})
+        {
+            parse(sentence);
+            assertEquals(sentence, NMEASentence.UNKNOWN_ID, msg.getSentenceID());
+            assertNull(sentence, msg.getTalkerID());
+            assertFalse(sentence, msg.isTalker('G', 'P'));
+        }
+    }
+
+
+    @Test
+    public void testToSentenceID()
+    {
+        assertEquals(NMEASentence.GGA, NMEASentence.toSentenceID("GGA"));
+        assertEquals(NMEASentence.ZDA, NMEASentence.toSentenceID('Z', 'D', 'A'));
+        assertEquals(NMEASentence.UNKNOWN_ID, NMEASentence.toSentenceID("GG"));
+        assertEquals(NMEASentence.UNKNOWN_ID, NMEASentence.toSentenceID("GGAX"));
+        assertEquals(NMEASentence.UNKNOWN_ID, NMEASentence.toSentenceID((String)null));
+    }
+}
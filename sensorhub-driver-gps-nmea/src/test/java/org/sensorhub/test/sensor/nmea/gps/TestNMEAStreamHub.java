@@ -0,0 +1,222 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEALineReader;
+import org.sensorhub.impl.sensor.nmea.gps.NMEAStreamHub;
+
+
+public class TestNMEAStreamHub
+{
+    static final long WAIT_TIMEOUT = 2000; // ms
+
+    List<RecordingGpsSensor> sensors = new ArrayList<>();
+
+
+    /*
+     * Stream returning data by small chunks, so lines are split across reads
+     */
+    static class ChunkedInputStream extends ByteArrayInputStream
+    {
+        final int chunkSize;
+
+        ChunkedInputStream(String data, int chunkSize)
+        {
+            super(data.getBytes(StandardCharsets.US_ASCII));
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int available()
+        {
+            return Math.min(super.available(), chunkSize);
+        }
+    }
+
+
+    protected RecordingGpsSensor register(InputStream is, long idleTimeout)
+    {
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        sensors.add(sensor);
+        NMEAStreamHub.register(sensor, is, idleTimeout);
+        return sensor;
+    }
+
+
+    protected void waitForLines(RecordingGpsSensor sensor, int numLines) throws InterruptedException
+    {
+        long t0 = System.currentTimeMillis();
+        while (sensor.lines.size() < numLines && System.currentTimeMillis() - t0 < WAIT_TIMEOUT)
+            Thread.sleep(10);
+        assertEquals(numLines, sensor.lines.size());
+    }
+
+
+    protected void waitForReceivers(int numReceivers) throws InterruptedException
+    {
+        long t0 = System.currentTimeMillis();
+        while (NMEAStreamHub.getNumReceivers() != numReceivers && System.currentTimeMillis() - t0 < WAIT_TIMEOUT)
+            Thread.sleep(10);
+        assertEquals(numReceivers, NMEAStreamHub.getNumReceivers());
+    }
+
+
+    protected int countWorkerThreads()
+    {
+        int count = 0;
+        for (Thread t: Thread.getAllStackTraces().keySet())
+        {
+            if (t.getName().startsWith("NMEAStreamHub-") && t.isAlive())
+                count++;
+        }
+        return count;
+    }
+
+
+    @Test
+    public void testLinesSplitAcrossChunks() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            String msg = String.format("$GPGGA,%06d.00,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47", i);
+            expected.add(msg);
+            sb.append(msg).append((i % 2 == 0) ? "\r\n" : "\n");
+        }
+
+        RecordingGpsSensor sensor = register(new ChunkedInputStream(sb.toString(), 7), 0);
+        waitForLines(sensor, expected.size());
+        assertEquals(expected, sensor.lines);
+    }
+
+
+    @Test
+    public void testSkipEmptyAndOverflowingLines() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("$GPZDA,201530.00,04,07,2002,00,00*60\r\n");
+        sb.append("\r\n\n");
+        for (int i = 0; i < NMEALineReader.MAX_LINE_LENGTH + 10; i++)
+            sb.append('x');
+        sb.append("\r\n");
+        sb.append("$GPZDA,201531.00,04,07,2002,00,00*61\r\n");
+
+        RecordingGpsSensor sensor = register(new ChunkedInputStream(sb.toString(), 50), 0);
+        waitForLines(sensor, 2);
+        assertEquals("$GPZDA,201530.00,04,07,2002,00,00*60", sensor.lines.get(0));
+        assertEquals("$GPZDA,201531.00,04,07,2002,00,00*61", sensor.lines.get(1));
+    }
+
+
+    @Test
+    public void testHandlerErrorDoesNotStopStream() throws Exception
+    {
+        String data = "$GPZDA,201530.00,04,07,2002,00,00*60\r\n" +
+                      "$GPZDA,bad\r\n" +
+                      "$GPZDA,201531.00,04,07,2002,00,00*61\r\n";
+
+        RecordingGpsSensor sensor = new RecordingGpsSensor();
+        sensor.failingLine = "$GPZDA,bad";
+        sensors.add(sensor);
+        NMEAStreamHub.register(sensor, new ChunkedInputStream(data, 1000), 0);
+
+        waitForLines(sensor, 2);
+        assertEquals(1, NMEAStreamHub.getNumReceivers());
+    }
+
+
+    @Test
+    public void testRegisterUnregister() throws Exception
+    {
+        assertEquals(0, NMEAStreamHub.getNumReceivers());
+
+        RecordingGpsSensor s1 = register(new ChunkedInputStream("", 10), 0);
+        RecordingGpsSensor s2 = register(new ChunkedInputStream("", 10), 0);
+        assertEquals(2, NMEAStreamHub.getNumReceivers());
+        assertEquals(NMEAStreamHub.NUM_THREADS, countWorkerThreads());
+
+        // unknown sensor is ignored
+        NMEAStreamHub.unregister(new RecordingGpsSensor());
+        assertEquals(2, NMEAStreamHub.getNumReceivers());
+
+        NMEAStreamHub.unregister(s1);
+        NMEAStreamHub.unregister(s1);
+        assertEquals(1, NMEAStreamHub.getNumReceivers());
+        assertEquals(NMEAStreamHub.NUM_THREADS, countWorkerThreads());
+
+        // hub threads are stopped with last receiver
+        NMEAStreamHub.unregister(s2);
+        assertEquals(0, NMEAStreamHub.getNumReceivers());
+        cleanup();
+        assertEquals(0, countWorkerThreads());
+    }
+
+
+    @Test
+    public void testUnregisterIdleStream() throws Exception
+    {
+        // stream at EOF looks the same as a stream without data
+        RecordingGpsSensor sensor = register(new ChunkedInputStream("$GPZDA,201530.00,04,07,2002,00,00*60\r\n", 100), 200);
+        RecordingGpsSensor otherSensor = register(new ChunkedInputStream("", 10), 0);
+        waitForLines(sensor, 1);
+        assertEquals(2, NMEAStreamHub.getNumReceivers());
+
+        // only idle stream with a timeout is unregistered
+        waitForReceivers(1);
+        NMEAStreamHub.unregister(otherSensor);
+        assertEquals(0, NMEAStreamHub.getNumReceivers());
+    }
+
+
+    @Test
+    public void testCanPoll() throws Exception
+    {
+        assertTrue(NMEAStreamHub.canPoll(new ChunkedInputStream("", 10)));
+        assertTrue(NMEAStreamHub.canPoll(new PipedInputStream()));
+
+        // default available() always returns 0
+        InputStream blockingOnly = new InputStream()
+        {
+            public int read()
+            {
+                return -1;
+            }
+        };
+        assertFalse(NMEAStreamHub.canPoll(blockingOnly));
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        for (RecordingGpsSensor sensor: sensors)
+            NMEAStreamHub.unregister(sensor);
+
+        // wait for hub threads to exit before next test
+        long t0 = System.currentTimeMillis();
+        while (countWorkerThreads() > 0 && System.currentTimeMillis() - t0 < WAIT_TIMEOUT)
+            Thread.sleep(10);
+    }
+}
@@ -0,0 +1,351 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.nmea.gps;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.nmea.gps.NMEATokenizer;
+import static org.junit.Assert.*;
+
+
+/**
+ * <p>
+ * Checks that the number parsing fast paths of the NMEA tokenizer give
+ * exactly the same results as the JDK parsers, on randomly generated
+ * fields including signs, leading zeros, long mantissas and empty fields.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestNMEATokenizer
+{
+    static final int NUM_SAMPLES = 200000;
+
+    NMEATokenizer msg = new NMEATokenizer();
+    Random random = new Random(42);
+
+
+    /*
+     * Tokenizes a sentence with the given string as field 1
+     */
+    protected void tokenize(String field)
+    {
+        byte[] buf = ("$GPXXX," + field + ",END*00").getBytes(StandardCharsets.US_ASCII);
+        msg.tokenize(buf, 0, buf.length);
+        assertEquals(field, msg.getFieldAsString(1));
+    }
+
+
+    protected String randomDigits(int maxDigits)
+    {
+        int numDigits = random.nextInt(maxDigits + 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numDigits; i++)
+            sb.append((char)('0' + random.nextInt(10)));
+        return sb.toString();
+    }
+
+
+    /*
+     * Generates decimal numbers, sometimes with sign, leading zeros,
+     * more than 15 significant digits, or no digits at all
+     */
+    protected String randomDecimal()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        int sign = random.nextInt(4);
+        if (sign == 1)
+            sb.append('-');
+        else if (sign == 2)
+            sb.append('+');
+
+        if (random.nextInt(4) == 0)
+        {
+            for (int i = random.nextInt(4); i >= 0; i--)
+                sb.append('0');
+        }
+
+        sb.append(randomDigits(random.nextBoolean() ? 6 : 20));
+        if (random.nextInt(4) != 0)
+            sb.append('.').append(randomDigits(random.nextBoolean() ? 8 : 25));
+
+        return sb.toString();
+    }
+
+
+    protected String randomInt()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        int sign = random.nextInt(4);
+        if (sign == 1)
+            sb.append('-');
+        else if (sign == 2)
+            sb.append('+');
+
+        if (random.nextInt(4) == 0)
+            sb.append('0');
+
+        sb.append(randomDigits(random.nextBoolean() ? 5 : 12));
+        return sb.toString();
+    }
+
+
+    protected String randomHex()
+    {
+        int numDigits = random.nextInt(10);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numDigits; i++)
+        {
+            char c = Character.forDigit(random.nextInt(16), 16);
+            sb.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return sb.toString();
+    }
+
+
+    protected void checkDouble(String s)
+    {
+        tokenize(s);
+
+        double expected;
+        try
+        {
+            expected = Double.parseDouble(s);
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                msg.parseDouble(1);
+                fail("Expected NumberFormatException for '" + s + "'");
+            }
+            catch (NumberFormatException e2) { }
+            return;
+        }
+
+        assertEquals(s, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(msg.parseDouble(1)));
+    }
+
+
+    protected void checkFloat(String s)
+    {
+        tokenize(s);
+
+        float expected;
+        try
+        {
+            expected = Float.parseFloat(s);
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                msg.parseFloat(1);
+                fail("Expected NumberFormatException for '" + s + "'");
+            }
+            catch (NumberFormatException e2) { }
+            return;
+        }
+
+        assertEquals(s, Float.floatToRawIntBits(expected), Float.floatToRawIntBits(msg.parseFloat(1)));
+    }
+
+
+    /*
+     * Spaces around integers are ignored like with parseDouble, so
+     * results are compared with Integer.parseInt on the trimmed string
+     */
+    protected void checkInt(String s)
+    {
+        tokenize(s);
+
+        int expected;
+        try
+        {
+            expected = Integer.parseInt(s.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                msg.parseInt(1);
+                fail("Expected NumberFormatException for '" + s + "'");
+            }
+            catch (NumberFormatException e2) { }
+            return;
+        }
+
+        assertEquals(s, expected, msg.parseInt(1));
+    }
+
+
+    protected void checkHex(String s)
+    {
+        tokenize(s);
+
+        int expected;
+        try
+        {
+            expected = Integer.parseInt(s, 16);
+        }
+        catch (NumberFormatException e)
+        {
+            try
+            {
+                msg.parseHex(1);
+                fail("Expected NumberFormatException for '" + s + "'");
+            }
+            catch (NumberFormatException e2) { }
+            return;
+        }
+
+        assertEquals(s, expected, msg.parseHex(1));
+    }
+
+
+    @Test
+    public void testParseDoubleEdgeCases()
+    {
+        String[] samples = {
+            "", " ", ".", "-", "+", "-.", "0", "-0", "+0", "-0.0", "0.", ".5", "-.5", "+.5",
+            "000123.4500", "4807.038", "-34.2", "123519", "1.7976931348623157",
+            "9007199254740991", "9007199254740992", "9007199254740993", "99999999999999999999",
+            "0.1", "0.30000000000000004", "3723.46587704", "0.0000000000000000000001",
+            "0.00000000000000000000001", "1234567890.1234567890123", "1e5", "1.5E-3",
+            "NaN", "Infinity", "1;5", "1.2.3", "--1", "1-", "12 34", " 12.5", "12.5 "
+        };
+
+        for (String s: samples)
+            checkDouble(s);
+    }
+
+
+    @Test
+    public void testParseDoubleRandom()
+    {
+        for (int i = 0; i < NUM_SAMPLES; i++)
+            checkDouble(randomDecimal());
+    }
+
+
+    @Test
+    public void testParseDoubleSubRange()
+    {
+        // e.g. minutes of latitude or longitude fields
+        for (int i = 0; i < NUM_SAMPLES / 10; i++)
+        {
+            String s = String.format("%03d%02d.%d%s", random.nextInt(180), random.nextInt(60), random.nextInt(10), randomDigits(10));
+            tokenize(s);
+            for (int from = 0; from < s.length(); from++)
+            {
+                String sub = s.substring(from);
+                double expected = Double.parseDouble(sub);
+                assertEquals(sub, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(msg.parseDouble(1, from, s.length())));
+            }
+        }
+    }
+
+
+    @Test
+    public void testParseFloatRandom()
+    {
+        String[] samples = { "", ".", "-0", "0.9", "545.4", "-12.35", "16777215", "16777216", "16777217", "0.0000000001", "0.00000000001" };
+        for (String s: samples)
+            checkFloat(s);
+
+        for (int i = 0; i < NUM_SAMPLES; i++)
+            checkFloat(randomDecimal());
+    }
+
+
+    @Test
+    public void testParseIntRandom()
+    {
+        String[] samples = {
+            "", "-", "+", "0", "-0", "+5", "007", "08", "2147483647", "2147483648",
+            "-2147483648", "-2147483649", "99999999999999999999", "5.", "5.0", "1e3", "0x1F", " 5", "5 ", " -12 "
+        };
+
+        for (String s: samples)
+            checkInt(s);
+
+        for (int i = 0; i < NUM_SAMPLES; i++)
+            checkInt(randomInt());
+    }
+
+
+    @Test
+    public void testParseIntSubRange()
+    {
+        // e.g. hours, minutes and seconds of time fields
+        tokenize("235959.99");
+        assertEquals(23, msg.parseInt(1, 0, 2));
+        assertEquals(59, msg.parseInt(1, 2, 4));
+        assertEquals(59, msg.parseInt(1, 4, 6));
+        assertEquals(59.99, msg.parseDouble(1, 4, 9), 0.0);
+    }
+
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseIntInvalidRange()
+    {
+        tokenize("235959.99");
+        msg.parseInt(1, 4, 12);
+    }
+
+
+    @Test
+    public void testParseHexRandom()
+    {
+        String[] samples = { "", "0", "00", "7F", "7fffffff", "80000000", "FFFFFFFF", "0FFFFFFF", "1g", "-1", "+1", " 1" };
+        for (String s: samples)
+            checkHex(s);
+
+        for (int i = 0; i < NUM_SAMPLES; i++)
+            checkHex(randomHex());
+    }
+
+
+    @Test
+    public void testFields()
+    {
+        String sentence = "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47";
+        String[] expected = sentence.split(",|\\*");
+
+        byte[] buf = ("xx" + sentence + "yy").getBytes(StandardCharsets.US_ASCII);
+        msg.tokenize(buf, 2, sentence.length());
+        assertEquals(expected.length, msg.getNumFields());
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], msg.getFieldAsString(i));
+        assertTrue(msg.isEmpty(13));
+        assertTrue(msg.isEmpty(msg.getNumFields()));
+        assertTrue(msg.fieldEquals(3, "N"));
+        assertEquals('N', msg.charAt(3, 0));
+        assertEquals(0, msg.charAt(3, 1));
+        assertEquals(sentence, msg.toString());
+
+        // direct buffer is copied
+        ByteBuffer directBuf = ByteBuffer.allocateDirect(buf.length);
+        directBuf.put(buf).position(2).limit(2 + sentence.length());
+        msg.tokenize(directBuf);
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], msg.getFieldAsString(i));
+    }
+}
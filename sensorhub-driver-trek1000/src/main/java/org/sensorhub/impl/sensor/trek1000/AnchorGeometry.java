@@ -0,0 +1,150 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import static org.sensorhub.impl.sensor.trek1000.Triangulation.*;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Part of the trilateration computation that only depends on anchor
+ * positions, i.e. the orthonormal frame attached to each combination of
+ * 3 anchors, their distances and concentricity checks.<br/>
+ * Since anchors don't move, it is computed once and shared by all solver
+ * instances, so that {@link Triangulation} only has to carry out the range
+ * dependent arithmetic for each fix. Operations are the same as in
+ * the full computation so results are identical.
+ * </p><p>
+ * Instances are immutable and must be recreated when anchors change.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class AnchorGeometry
+{
+    final Vec3d[] anchors;
+    final Frame[] frames;
+
+
+    /**
+     * Frame attached to anchors p1, p2, p3, with origin at p1, ex pointing
+     * to p2 and ey in the plane of the 3 anchors
+     */
+    public static class Frame
+    {
+        final Vec3d p1, p2, p3;
+        final Vec3d ex = new Vec3d(0, 0, 0);
+        final Vec3d ey = new Vec3d(0, 0, 0);
+        final Vec3d ez = new Vec3d(0, 0, 0);
+        final double h; // |p2 - p1|
+        final double i; // ex . (p3 - p1)
+        final double j; // ey . (p3 - p1)
+        final boolean concentric;
+        final boolean colinear;
+
+
+        Frame(Vec3d p1, Vec3d p2, Vec3d p3)
+        {
+            this.p1 = p1;
+            this.p2 = p2;
+            this.p3 = p3;
+
+            Vec3d t1 = new Vec3d(0, 0, 0);
+            Vec3d t2 = new Vec3d(0, 0, 0);
+
+            vdiff(ex, p2, p1);
+            h = vnorm(ex);
+            concentric = vdist(p3, p1) <= MAXZERO ||
+                         vdist(p3, p2) <= MAXZERO ||
+                         h <= MAXZERO;
+            if (concentric)
+            {
+                i = j = 0.0;
+                colinear = false;
+                return;
+            }
+            vdiv(ex, ex, h);
+
+            vdiff(t1, p3, p1);
+            i = dot(ex, t1);
+            vmul(t2, ex, i);
+
+            vdiff(ey, t1, t2);
+            double t = vnorm(ey);
+            if (t > MAXZERO)
+            {
+                vdiv(ey, ey, t);
+                j = dot(ey, t1);
+            }
+            else
+                j = 0.0;
+
+            colinear = Math.abs(j) <= MAXZERO;
+            if (!colinear)
+                cross(ez, ex, ey);
+        }
+    }
+
+
+    /**
+     * Precomputes frames for the given anchors. When 4 anchors are given,
+     * one frame is computed for each circular permutation of the anchors,
+     * in the order they are tried by the 4 spheres algorithm.
+     * @param anchors positions of 3 or 4 anchors
+     */
+    public AnchorGeometry(Vec3d[] anchors)
+    {
+        if (anchors.length < 3 || anchors.length > 4)
+            throw new IllegalArgumentException("Trilateration requires 3 or 4 anchors");
+
+        int numAnchors = anchors.length;
+        this.anchors = new Vec3d[numAnchors];
+        for (int k = 0; k < numAnchors; k++)
+            this.anchors[k] = new Vec3d(anchors[k].x, anchors[k].y, anchors[k].z);
+
+        int numFrames = (numAnchors == 4) ? 4 : 1;
+        this.frames = new Frame[numFrames];
+        for (int k = 0; k < numFrames; k++)
+        {
+            frames[k] = new Frame(this.anchors[k],
+                                  this.anchors[(k+1) % numAnchors],
+                                  this.anchors[(k+2) % numAnchors]);
+        }
+    }
+
+
+    /**
+     * @param combination index of anchor combination
+     * @return precomputed frame for this combination
+     */
+    public Frame getFrame(int combination)
+    {
+        return frames[combination];
+    }
+
+
+    public int getNumAnchors()
+    {
+        return anchors.length;
+    }
+
+
+    public Vec3d getAnchor(int index)
+    {
+        return anchors[index];
+    }
+}
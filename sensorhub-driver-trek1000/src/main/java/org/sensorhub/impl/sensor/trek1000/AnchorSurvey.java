@@ -0,0 +1,203 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Self-survey of anchor positions from anchor to anchor ranges.<br/>
+ * TREK1000 anchors report ranges between anchors A0, A1 and A2 in ma
+ * messages: A0-A1 in range slot 1, A0-A2 in slot 2 and A1-A2 in slot 3.
+ * Each pair range is accumulated in running mean and variance, so memory
+ * doesn't grow with calibration time, and the anchor triangle is
+ * recomputed from the mean ranges after each message.
+ * </p><p>
+ * Anchor heights are taken from the configuration since they are easily
+ * measured, and pair ranges are projected on the horizontal plane. The
+ * surveyed frame has its origin below A0, X axis towards A1 and A2 on the
+ * positive Y side. A3 is not ranged by other anchors so it cannot be
+ * surveyed and must be configured in this frame.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class AnchorSurvey
+{
+    public static final int NUM_SURVEYED_ANCHORS = 3;
+
+    // anchors measured in each range slot of ma messages, starting at slot 1
+    static final int[][] PAIRS = {{0, 1}, {0, 2}, {1, 2}};
+
+    final double[] heights;
+    final int minSamples;
+
+    // running statistics of each pair range in meters
+    final long[] count = new long[PAIRS.length];
+    final double[] mean = new double[PAIRS.length];
+    final double[] m2 = new double[PAIRS.length];
+
+    final Vec3d[] anchors = new Vec3d[NUM_SURVEYED_ANCHORS];
+    boolean solved;
+
+
+    /**
+     * @param heights heights of anchors A0, A1 and A2 in meters
+     * @param minSamples number of samples needed for each pair before a
+     * solution is computed
+     */
+    public AnchorSurvey(double[] heights, int minSamples)
+    {
+        if (heights.length < NUM_SURVEYED_ANCHORS)
+            throw new IllegalArgumentException("Heights of " + NUM_SURVEYED_ANCHORS + " anchors are needed");
+
+        this.heights = heights.clone();
+        this.minSamples = Math.max(1, minSamples);
+        for (int i = 0; i < NUM_SURVEYED_ANCHORS; i++)
+            anchors[i] = new Vec3d(0.0, 0.0, heights[i]);
+    }
+
+
+    /**
+     * Accumulates anchor to anchor ranges of an ma message
+     * @param mask bit mask of valid ranges
+     * @param ranges ranges in mm, indexed by range slot
+     * @return true if the anchor positions were updated
+     */
+    public synchronized boolean addRanges(int mask, int[] ranges)
+    {
+        for (int p = 0; p < PAIRS.length; p++)
+        {
+            int slot = p + 1;
+            if ((mask & (1 << slot)) != 0 && ranges[slot] > 0)
+                addSample(p, ranges[slot] * 0.001);
+        }
+
+        if (getNumSamples() < minSamples)
+            return false;
+
+        return solve();
+    }
+
+
+    /*
+     * Welford update of running mean and sum of squared deviations
+     */
+    private void addSample(int pair, double range)
+    {
+        long n = ++count[pair];
+        double delta = range - mean[pair];
+        mean[pair] += delta / n;
+        m2[pair] += delta * (range - mean[pair]);
+    }
+
+
+    /*
+     * Computes the anchor triangle from mean ranges
+     */
+    private boolean solve()
+    {
+        double d01 = horizontalDistance(0);
+        double d02 = horizontalDistance(1);
+        double d12 = horizontalDistance(2);
+        if (d01 <= Triangulation.MAXZERO)
+            return false;
+
+        // A2 is at distance d02 from A0 and d12 from A1
+        double x = (d01*d01 + d02*d02 - d12*d12) / (2.0*d01);
+        double y2 = d02*d02 - x*x;
+        double y = (y2 > 0.0) ? Math.sqrt(y2) : 0.0;
+
+        anchors[0].x = 0.0;
+        anchors[0].y = 0.0;
+        anchors[1].x = d01;
+        anchors[1].y = 0.0;
+        anchors[2].x = x;
+        anchors[2].y = y;
+        solved = true;
+        return true;
+    }
+
+
+    private double horizontalDistance(int pair)
+    {
+        double dz = heights[PAIRS[pair][1]] - heights[PAIRS[pair][0]];
+        double d2 = mean[pair]*mean[pair] - dz*dz;
+        return (d2 > 0.0) ? Math.sqrt(d2) : 0.0;
+    }
+
+
+    /**
+     * Copies surveyed anchor positions
+     * @param result array receiving positions of A0, A1 and A2
+     * @return false if no solution is available yet
+     */
+    public synchronized boolean getAnchors(Vec3d[] result)
+    {
+        if (!solved)
+            return false;
+
+        for (int i = 0; i < NUM_SURVEYED_ANCHORS; i++)
+            result[i].set(anchors[i]);
+        return true;
+    }
+
+
+    /**
+     * Sets anchor positions from a previous survey. They are replaced as
+     * soon as enough new ranges are accumulated.
+     * @param positions positions of A0, A1 and A2
+     */
+    public synchronized void setAnchors(Vec3d[] positions)
+    {
+        for (int i = 0; i < NUM_SURVEYED_ANCHORS; i++)
+            anchors[i].set(positions[i]);
+        solved = true;
+    }
+
+
+    /**
+     * @return smallest number of samples accumulated for an anchor pair
+     */
+    public synchronized long getNumSamples()
+    {
+        long n = Long.MAX_VALUE;
+        for (long c: count)
+            n = Math.min(n, c);
+        return n;
+    }
+
+
+    /**
+     * @param pair index of anchor pair (A0-A1, A0-A2, A1-A2)
+     * @return mean range of pair in meters
+     */
+    public synchronized double getMeanRange(int pair)
+    {
+        return mean[pair];
+    }
+
+
+    /**
+     * @param pair index of anchor pair (A0-A1, A0-A2, A1-A2)
+     * @return standard deviation of pair ranges in meters
+     */
+    public synchronized double getStdDev(int pair)
+    {
+        return (count[pair] > 1) ? Math.sqrt(m2[pair] / (count[pair] - 1)) : Double.NaN;
+    }
+}
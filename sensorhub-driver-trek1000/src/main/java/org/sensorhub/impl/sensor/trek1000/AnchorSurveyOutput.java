@@ -0,0 +1,136 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+import org.vast.data.DataRecordImpl;
+import org.vast.swe.SWEConstants;
+import org.vast.swe.SWEHelper;
+import org.vast.swe.helper.GeoPosHelper;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.Vector;
+
+
+/**
+ * <p>
+ * Output of anchor positions computed by {@link AnchorSurvey}, with the
+ * number of samples and standard deviation of each anchor pair range.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class AnchorSurveyOutput extends AbstractSensorOutput<Trek1000Sensor>
+{
+    DataRecord dataStruct;
+    DataEncoding dataEncoding;
+    final Vec3d[] anchors = new Vec3d[AnchorSurvey.NUM_SURVEYED_ANCHORS];
+
+
+    public AnchorSurveyOutput(Trek1000Sensor parentSensor)
+    {
+        super(parentSensor);
+        for (int i = 0; i < anchors.length; i++)
+            anchors[i] = new Vec3d(0.0, 0.0, 0.0);
+    }
+
+
+    protected void init()
+    {
+        GeoPosHelper fac = new GeoPosHelper();
+        dataStruct = new DataRecordImpl();
+        dataStruct.setName(getName());
+        dataStruct.setDefinition(SWEHelper.getPropertyUri("AnchorSurvey"));
+
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("numSamples", fac.newCount(SWEHelper.getPropertyUri("SampleCount"), "Number of Samples", "Smallest number of ranges accumulated for an anchor pair", DataType.LONG));
+
+        Vector locVector = fac.newLocationVectorXYZ(SWEConstants.DEF_SENSOR_LOC, "#UWB_FRAME", "m");
+        locVector.setLabel("Anchor Location");
+        DataArray locations = fac.newDataArray(anchors.length);
+        locations.setElementType("location", locVector);
+        locations.setLabel("Anchor Locations");
+        locations.setDescription("Surveyed locations of anchors A0, A1 and A2");
+        dataStruct.addComponent("anchors", locations);
+
+        DataArray stdDevs = fac.newDataArray(AnchorSurvey.PAIRS.length);
+        stdDevs.setElementType("stdDev", fac.newQuantity(SWEHelper.getPropertyUri("RangeStdDev"), "Range Standard Deviation", null, "m", DataType.FLOAT));
+        stdDevs.setLabel("Range Standard Deviations");
+        stdDevs.setDescription("Standard deviation of A0-A1, A0-A2 and A1-A2 ranges");
+        dataStruct.addComponent("rangeStdDevs", stdDevs);
+
+        dataEncoding = fac.newTextEncoding(",", "\n");
+    }
+
+
+    protected synchronized void sendData(long msgTime, AnchorSurvey survey)
+    {
+        if (!survey.getAnchors(anchors))
+            return;
+
+        DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
+
+        int idx = 0;
+        dataBlock.setDoubleValue(idx++, msgTime/1000.0);
+        dataBlock.setLongValue(idx++, survey.getNumSamples());
+        for (Vec3d loc: anchors)
+        {
+            dataBlock.setDoubleValue(idx++, loc.x);
+            dataBlock.setDoubleValue(idx++, loc.y);
+            dataBlock.setDoubleValue(idx++, loc.z);
+        }
+        for (int p = 0; p < AnchorSurvey.PAIRS.length; p++)
+            dataBlock.setDoubleValue(idx++, survey.getStdDev(p));
+
+        latestRecord = dataBlock;
+        latestRecordTime = msgTime;
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return "anchorSurvey";
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return 1.0;
+    }
+}
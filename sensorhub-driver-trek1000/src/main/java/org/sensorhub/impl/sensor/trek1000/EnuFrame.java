@@ -0,0 +1,120 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.algo.geoloc.GeoTransforms;
+import org.sensorhub.algo.vecmath.Vect3d;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Local East-North-Up frame tangent to the WGS84 ellipsoid at a given
+ * origin.<br/>
+ * The ECEF position of the origin and the rotation between ECEF and ENU
+ * axes are computed once, so mapping a local position back to ECEF only
+ * costs a matrix-vector product. Only the final ECEF to LLA conversion
+ * requires trigonometry.
+ * </p><p>
+ * Conversion methods use a GeoTransforms instance and scratch vectors, so
+ * they must not be called by several threads at the same time.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class EnuFrame
+{
+    final GeoTransforms geoConv = new GeoTransforms();
+    final Vect3d lla = new Vect3d();
+    final Vect3d ecef = new Vect3d();
+
+    // ECEF origin
+    final double ox, oy, oz;
+
+    // rows of ECEF to ENU rotation
+    final double ex, ey;
+    final double nx, ny, nz;
+    final double ux, uy, uz;
+
+
+    /**
+     * @param lat latitude of origin in degrees
+     * @param lon longitude of origin in degrees
+     * @param alt ellipsoidal height of origin in meters
+     */
+    public EnuFrame(double lat, double lon, double alt)
+    {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        lla.set(lambda, phi, alt);
+        geoConv.LLAtoECEF(lla, ecef);
+        ox = ecef.x;
+        oy = ecef.y;
+        oz = ecef.z;
+
+        double sinPhi = Math.sin(phi), cosPhi = Math.cos(phi);
+        double sinLambda = Math.sin(lambda), cosLambda = Math.cos(lambda);
+        ex = -sinLambda;
+        ey = cosLambda;
+        nx = -sinPhi*cosLambda;
+        ny = -sinPhi*sinLambda;
+        nz = cosPhi;
+        ux = cosPhi*cosLambda;
+        uy = cosPhi*sinLambda;
+        uz = sinPhi;
+    }
+
+
+    /**
+     * Converts geodetic coordinates to local ENU coordinates
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @param alt ellipsoidal height in meters
+     * @param enu vector receiving ENU coordinates in meters
+     */
+    public void llaToEnu(double lat, double lon, double alt, Vec3d enu)
+    {
+        lla.set(Math.toRadians(lon), Math.toRadians(lat), alt);
+        geoConv.LLAtoECEF(lla, ecef);
+
+        double dx = ecef.x - ox;
+        double dy = ecef.y - oy;
+        double dz = ecef.z - oz;
+        enu.x = ex*dx + ey*dy;
+        enu.y = nx*dx + ny*dy + nz*dz;
+        enu.z = ux*dx + uy*dy + uz*dz;
+    }
+
+
+    /**
+     * Converts local ENU coordinates to geodetic coordinates
+     * @param enu ENU coordinates in meters
+     * @param result vector receiving latitude (x) and longitude (y) in
+     * degrees, and ellipsoidal height (z) in meters
+     */
+    public void enuToLla(Vec3d enu, Vec3d result)
+    {
+        // ECEF = origin + transpose(R).ENU
+        ecef.x = ox + ex*enu.x + nx*enu.y + ux*enu.z;
+        ecef.y = oy + ey*enu.x + ny*enu.y + uy*enu.z;
+        ecef.z = oz + nz*enu.y + uz*enu.z;
+        geoConv.ECEFtoLLA(ecef, lla);
+
+        result.x = Math.toDegrees(lla.y);
+        result.y = Math.toDegrees(lla.x);
+        result.z = lla.z;
+    }
+}
@@ -0,0 +1,167 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Quality checks applied to each fix before it is published.<br/>
+ * A fix is rejected if the range residuals of the anchors used to compute
+ * it are too large, if its GDOP is too large, or if it implies a tag speed
+ * that is not plausible given the previous accepted fix of the same tag.
+ * </p><p>
+ * When residuals are too large, the caller can re-solve without each
+ * anchor in turn and keep the solution with the best {@link #score}.
+ * Since non line-of-sight propagation always makes measured ranges too
+ * long, the score favors solutions in which the excluded anchor's range
+ * is longer than the distance to the computed location.
+ * </p><p>
+ * With only 4 anchors there is a single redundant range, so several
+ * anchors can often explain the residuals equally well. The fix is then
+ * rejected rather than published with a possibly wrong anchor excluded.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class FixQualityGate
+{
+    public static final int ACCEPTED = 0;
+    public static final int ANCHOR_DROPPED = 1;
+    public static final int REJECTED_RESIDUALS = 2;
+    public static final int REJECTED_GDOP = 3;
+    public static final int REJECTED_JUMP = 4;
+    public static final int REJECTED_AMBIGUOUS = 5;
+    public static final String[] STATUS_NAMES = {"ACCEPTED", "ANCHOR_DROPPED", "REJECTED_RESIDUALS", "REJECTED_GDOP", "REJECTED_JUMP", "REJECTED_AMBIGUOUS"};
+
+    // jump check is skipped if previous fix is older than this
+    public static final long MAX_JUMP_CHECK_GAP = 2000; // ms
+
+    // number of consecutive jumps after which the new location is accepted
+    // so a tag doesn't stay locked on a bad fix
+    public static final int MAX_JUMP_REJECTIONS = 5;
+
+    final double maxResidual;
+    final double maxGdop;
+    final double maxSpeed;
+
+
+    /**
+     * @param maxResidual max absolute range residual of used anchors, in meters
+     * @param maxGdop max GDOP
+     * @param maxSpeed max tag speed in m/s, or 0 to disable jump check
+     */
+    public FixQualityGate(double maxResidual, double maxGdop, double maxSpeed)
+    {
+        this.maxResidual = maxResidual;
+        this.maxGdop = maxGdop;
+        this.maxSpeed = maxSpeed;
+    }
+
+
+    /**
+     * @param residuals range residuals of all anchors
+     * @param usedAnchors bit mask of anchors used to compute the fix
+     * @return max absolute residual of used anchors
+     */
+    public static double maxResidual(double[] residuals, int usedAnchors)
+    {
+        double max = 0.0;
+        for (int i = 0; i < residuals.length; i++)
+        {
+            if ((usedAnchors & (1 << i)) != 0)
+                max = Math.max(max, Math.abs(residuals[i]));
+        }
+        return max;
+    }
+
+
+    /**
+     * @param residuals range residuals of all anchors
+     * @param usedAnchors bit mask of anchors used to compute the fix
+     * @return true if residuals are too large
+     */
+    public boolean hasOutlier(double[] residuals, int usedAnchors)
+    {
+        return maxResidual(residuals, usedAnchors) > maxResidual;
+    }
+
+
+    /**
+     * Computes the score of a solution obtained without one anchor.
+     * Lower is better.
+     * @param residuals range residuals of all anchors
+     * @param usedAnchors bit mask of anchors used to compute the fix
+     * @param excluded index of excluded anchor
+     * @return score of solution
+     */
+    public double score(double[] residuals, int usedAnchors, int excluded)
+    {
+        // residual of excluded anchor is negative when its range is too long
+        return maxResidual(residuals, usedAnchors) + residuals[excluded];
+    }
+
+
+    /**
+     * @param bestScore best score of solutions excluding one anchor
+     * @param secondScore second best score
+     * @return true if the anchor to exclude cannot be identified with confidence
+     */
+    public boolean isAmbiguous(double bestScore, double secondScore)
+    {
+        return secondScore - bestScore < 2.0 * maxResidual;
+    }
+
+
+    /**
+     * Checks fix quality, and updates last accepted fix of the tag
+     * @param tag tag state holding last accepted fix
+     * @param time time of fix in ms
+     * @param fix location of tag
+     * @param gdop GDOP of fix
+     * @param residuals range residuals of all anchors
+     * @param usedAnchors bit mask of anchors used to compute the fix
+     * @param anchorDropped true if an anchor was excluded from the solution
+     * @return status code of fix
+     */
+    public int check(TagState tag, long time, Vec3d fix, double gdop, double[] residuals, int usedAnchors, boolean anchorDropped)
+    {
+        if (hasOutlier(residuals, usedAnchors))
+            return REJECTED_RESIDUALS;
+
+        if (!(gdop <= maxGdop))
+            return REJECTED_GDOP;
+
+        // check displacement from last accepted fix
+        long dt = time - tag.lastFixTime;
+        if (maxSpeed > 0 && tag.lastFixTime > 0 && dt >= 0 && dt <= MAX_JUMP_CHECK_GAP)
+        {
+            Vec3d last = tag.lastFix;
+            double dx = fix.x - last.x;
+            double dy = fix.y - last.y;
+            double dz = fix.z - last.z;
+            double maxDist = maxSpeed * dt / 1000.0 + maxResidual;
+            if (dx*dx + dy*dy + dz*dz > maxDist*maxDist && ++tag.jumpRejections < MAX_JUMP_REJECTIONS)
+                return REJECTED_JUMP;
+        }
+
+        tag.lastFix.set(fix);
+        tag.lastFixTime = time;
+        tag.jumpRejections = 0;
+        return anchorDropped ? ANCHOR_DROPPED : ACCEPTED;
+    }
+}
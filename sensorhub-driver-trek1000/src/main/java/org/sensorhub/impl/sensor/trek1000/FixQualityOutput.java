@@ -0,0 +1,116 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.vast.data.DataRecordImpl;
+import org.vast.swe.SWEHelper;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+
+
+/**
+ * <p>
+ * Diagnostic output reporting the outcome of {@link FixQualityGate} for
+ * each fix, including rejected ones, with the anchors that were used to
+ * compute the fix and the range residuals of all anchors.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class FixQualityOutput extends AbstractSensorOutput<Trek1000Sensor>
+{
+    DataRecord dataStruct;
+    DataEncoding dataEncoding;
+
+
+    public FixQualityOutput(Trek1000Sensor parentSensor)
+    {
+        super(parentSensor);
+    }
+
+
+    protected void init()
+    {
+        SWEHelper fac = new SWEHelper();
+        dataStruct = new DataRecordImpl();
+        dataStruct.setName(getName());
+        dataStruct.setDefinition(SWEHelper.getPropertyUri("FixQuality"));
+
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("tagID", fac.newText(SWEHelper.getPropertyUri("BeaconID"), "Tag ID", null));
+        dataStruct.addComponent("status", fac.newCategory(SWEHelper.getPropertyUri("FixStatus"), "Fix Status", "Outcome of quality checks: " + String.join(", ", FixQualityGate.STATUS_NAMES), null));
+        dataStruct.addComponent("usedAnchors", fac.newCount(SWEHelper.getPropertyUri("AnchorMask"), "Used Anchors", "Bit mask of anchors used to compute the fix (bit N set for anchor AN)", DataType.INT));
+        dataStruct.addComponent("gdop", fac.newQuantity(SWEHelper.getPropertyUri("GDOP"), "GDOP", "Geometric dilution of precision of the fix", "1", DataType.FLOAT));
+        DataArray residuals = fac.newDataArray(parentSensor.numAnchors);
+        residuals.setElementType("residual", fac.newQuantity(SWEHelper.getPropertyUri("RangeResidual"), "Range Residual", "Difference between distance of computed location to anchor and measured range", "m", DataType.FLOAT));
+        residuals.setLabel("Range Residuals");
+        dataStruct.addComponent("residuals", residuals);
+
+        dataEncoding = fac.newTextEncoding(",", "\n");
+    }
+
+
+    protected synchronized void sendData(long msgTime, String tagID, int status, int usedAnchors, double gdop, double[] residuals)
+    {
+        DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
+
+        dataBlock.setDoubleValue(0, msgTime/1000.0);
+        dataBlock.setStringValue(1, tagID);
+        dataBlock.setStringValue(2, FixQualityGate.STATUS_NAMES[status]);
+        dataBlock.setIntValue(3, usedAnchors);
+        dataBlock.setDoubleValue(4, gdop);
+        for (int i = 0; i < parentSensor.numAnchors; i++)
+            dataBlock.setDoubleValue(5+i, residuals[i]);
+
+        latestRecord = dataBlock;
+        latestRecordTime = msgTime;
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return "fixQuality";
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return 0.1;
+    }
+}
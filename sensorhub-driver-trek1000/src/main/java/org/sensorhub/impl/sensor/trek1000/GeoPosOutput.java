@@ -0,0 +1,118 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+import org.vast.data.DataRecordImpl;
+import org.vast.swe.SWEConstants;
+import org.vast.swe.SWEHelper;
+import org.vast.swe.helper.GeoPosHelper;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.Vector;
+
+
+/**
+ * <p>
+ * Output of geodetic tag locations, converted from the local ENU frame
+ * in which locations are computed
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class GeoPosOutput extends AbstractSensorOutput<Trek1000Sensor>
+{
+    DataRecord dataStruct;
+    DataEncoding dataEncoding;
+    EnuFrame enuFrame;
+    Vec3d lla = new Vec3d(0.0, 0.0, 0.0);
+
+
+    public GeoPosOutput(Trek1000Sensor parentSensor, EnuFrame enuFrame)
+    {
+        super(parentSensor);
+        this.enuFrame = enuFrame;
+    }
+
+
+    protected void init()
+    {
+        dataStruct = new DataRecordImpl();
+        dataStruct.setName(getName());
+        dataStruct.setDefinition(SWEHelper.getPropertyUri("LocationLLA"));
+
+        GeoPosHelper fac = new GeoPosHelper();
+        Vector locVector = fac.newLocationVectorLLA(SWEConstants.DEF_SENSOR_LOC);
+        locVector.setLabel("Tag Location");
+        locVector.setDescription("Geodetic location of tag");
+
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("tagID", fac.newText(SWEHelper.getPropertyUri("BeaconID"), "Tag ID", null));
+        dataStruct.addComponent("location", locVector);
+
+        dataEncoding = fac.newTextEncoding(",", "\n");
+    }
+
+
+    protected synchronized void sendData(long msgTime, String tagID, Vec3d enu)
+    {
+        enuFrame.enuToLla(enu, lla);
+
+        DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
+
+        dataBlock.setDoubleValue(0, msgTime/1000.0);
+        dataBlock.setStringValue(1, tagID);
+        dataBlock.setDoubleValue(2, lla.x);
+        dataBlock.setDoubleValue(3, lla.y);
+        dataBlock.setDoubleValue(4, lla.z);
+
+        latestRecord = dataBlock;
+        latestRecordTime = msgTime;
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return "geoLoc";
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return 0.1;
+    }
+}
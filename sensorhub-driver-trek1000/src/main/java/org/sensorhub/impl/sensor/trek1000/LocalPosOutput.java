@@ -3,14 +3,17 @@ package org.sensorhub.impl.sensor.trek1000;
 
 import org.sensorhub.api.sensor.SensorDataEvent;
 import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
 import org.vast.data.DataRecordImpl;
 import org.vast.swe.SWEConstants;
 import org.vast.swe.SWEHelper;
 import org.vast.swe.helper.GeoPosHelper;
+import net.opengis.swe.v20.DataArray;
 import net.opengis.swe.v20.DataBlock;
 import net.opengis.swe.v20.DataComponent;
 import net.opengis.swe.v20.DataEncoding;
 import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
 import net.opengis.swe.v20.Vector;
 
 
@@ -49,20 +52,30 @@ public class LocalPosOutput extends AbstractSensorOutput<Trek1000Sensor>
         dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
         dataStruct.addComponent("tagID", fac.newText(SWEHelper.getPropertyUri("BeaconID"), "Tag ID", null));
         dataStruct.addComponent("location", locVector);
+        
+        // add fix quality
+        dataStruct.addComponent("gdop", fac.newQuantity(SWEHelper.getPropertyUri("GDOP"), "GDOP", "Geometric dilution of precision of the fix", "1", DataType.FLOAT));
+        DataArray residuals = fac.newDataArray(parentSensor.numAnchors);
+        residuals.setElementType("residual", fac.newQuantity(SWEHelper.getPropertyUri("RangeResidual"), "Range Residual", "Difference between distance of computed location to anchor and measured range", "m", DataType.FLOAT));
+        residuals.setLabel("Range Residuals");
+        dataStruct.addComponent("residuals", residuals);
 
         dataEncoding = fac.newTextEncoding(",", "\n");
     }
 
 
-    protected void sendData(long msgTime, String tagID, double x, double y, double z)
+    protected synchronized void sendData(long msgTime, String tagID, Vec3d location, double gdop, double[] residuals)
     {
         DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
         
         dataBlock.setDoubleValue(0, msgTime/1000.0);
         dataBlock.setStringValue(1, tagID);
-        dataBlock.setDoubleValue(2, x);
-        dataBlock.setDoubleValue(3, y);
-        dataBlock.setDoubleValue(4, z);
+        dataBlock.setDoubleValue(2, location.x);
+        dataBlock.setDoubleValue(3, location.y);
+        dataBlock.setDoubleValue(4, location.z);
+        dataBlock.setDoubleValue(5, gdop);
+        for (int i = 0; i < parentSensor.numAnchors; i++)
+            dataBlock.setDoubleValue(6+i, residuals[i]);
         
         latestRecord = dataBlock;
         latestRecordTime = msgTime;
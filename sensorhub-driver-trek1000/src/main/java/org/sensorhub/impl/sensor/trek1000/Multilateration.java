@@ -0,0 +1,370 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Least-squares multilateration using any number of anchors.<br/>
+ * Subtracting the sphere equation of the first anchor from the others gives
+ * a linear system whose matrix only depends on anchor positions, so its
+ * pseudo-inverse is computed once when this object is created. Each fix
+ * then only requires a matrix-vector product, followed by a few Gauss-Newton
+ * iterations on the true range equations to remove the bias of the
+ * linearized solution.
+ * </p><p>
+ * When all anchors lie in the same plane (e.g. all mounted at ceiling
+ * height), the linear system only gives the position projected in that
+ * plane and the tag is assumed to be on the side of the plane opposite to
+ * its upward normal, that is below the anchors.
+ * </p><p>
+ * Instances are immutable and can be shared by several threads.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class Multilateration
+{
+    public static final int MAX_ITERATIONS = 5;
+    static final double MIN_SPREAD = 0.1; // m
+    static final double CONVERGENCE_THRESHOLD = 1e-8; // m^2
+    static final double SINGULAR_THRESHOLD = 1e-12;
+
+    final Vec3d[] anchors;
+    final int numAnchors;
+    final boolean planar;
+    final double nx, ny, nz; // upward normal of anchor plane
+
+    // anchor positions relative to first anchor and their squared norms
+    final double[] dx, dy, dz, d2;
+
+    // pseudo-inverse of linear system, expressed in anchor frame
+    final double[] gx, gy, gz;
+
+
+    /**
+     * Precomputes the linear system for the given anchors
+     * @param anchors anchor positions in meters
+     * @throws IllegalArgumentException if there are less than 3 anchors or if
+     * they are concentric or colinear
+     */
+    public Multilateration(Vec3d[] anchors)
+    {
+        if (anchors.length < 3)
+            throw new IllegalArgumentException("At least 3 anchors are needed for multilateration");
+
+        this.numAnchors = anchors.length;
+        this.anchors = new Vec3d[numAnchors];
+        this.dx = new double[numAnchors];
+        this.dy = new double[numAnchors];
+        this.dz = new double[numAnchors];
+        this.d2 = new double[numAnchors];
+        this.gx = new double[numAnchors];
+        this.gy = new double[numAnchors];
+        this.gz = new double[numAnchors];
+
+        Vec3d a0 = anchors[0];
+        for (int i = 0; i < numAnchors; i++)
+        {
+            this.anchors[i] = new Vec3d(anchors[i].x, anchors[i].y, anchors[i].z);
+            dx[i] = anchors[i].x - a0.x;
+            dy[i] = anchors[i].y - a0.y;
+            dz[i] = anchors[i].z - a0.z;
+            d2[i] = dx[i]*dx[i] + dy[i]*dy[i] + dz[i]*dz[i];
+        }
+
+        // first basis vector along longest baseline
+        int iu = 0;
+        for (int i = 1; i < numAnchors; i++)
+        {
+            if (d2[i] > d2[iu])
+                iu = i;
+        }
+
+        double norm = Math.sqrt(d2[iu]);
+        if (norm < MIN_SPREAD)
+            throw new IllegalArgumentException("Anchors are concentric");
+        double ux = dx[iu]/norm, uy = dy[iu]/norm, uz = dz[iu]/norm;
+
+        // second basis vector along largest component orthogonal to first one
+        double vx = 0, vy = 0, vz = 0;
+        double maxNorm2 = 0;
+        for (int i = 1; i < numAnchors; i++)
+        {
+            double dot = dx[i]*ux + dy[i]*uy + dz[i]*uz;
+            double px = dx[i] - dot*ux, py = dy[i] - dot*uy, pz = dz[i] - dot*uz;
+            double n2 = px*px + py*py + pz*pz;
+            if (n2 > maxNorm2)
+            {
+                maxNorm2 = n2;
+                vx = px; vy = py; vz = pz;
+            }
+        }
+
+        norm = Math.sqrt(maxNorm2);
+        if (norm < MIN_SPREAD)
+            throw new IllegalArgumentException("Anchors are colinear");
+        vx /= norm; vy /= norm; vz /= norm;
+
+        // third basis vector is normal to anchor plane, oriented upward
+        double wx = uy*vz - uz*vy;
+        double wy = uz*vx - ux*vz;
+        double wz = ux*vy - uy*vx;
+        if (wz < 0)
+        {
+            wx = -wx; wy = -wy; wz = -wz;
+        }
+        this.nx = wx;
+        this.ny = wy;
+        this.nz = wz;
+
+        double maxOffset = 0;
+        for (int i = 1; i < numAnchors; i++)
+            maxOffset = Math.max(maxOffset, Math.abs(dx[i]*wx + dy[i]*wy + dz[i]*wz));
+        this.planar = (maxOffset < MIN_SPREAD);
+
+        // normal matrix of linear system 2*d_i.y = b_i in basis (u,v,w)
+        // rows of the system matrix are 2*d_i
+        int k = planar ? 2 : 3;
+        double[][] basis = {{ux, uy, uz}, {vx, vy, vz}, {wx, wy, wz}};
+        double[][] m = new double[numAnchors][3];
+        for (int i = 1; i < numAnchors; i++)
+        {
+            for (int j = 0; j < k; j++)
+                m[i][j] = 2.0 * (dx[i]*basis[j][0] + dy[i]*basis[j][1] + dz[i]*basis[j][2]);
+        }
+
+        double[][] mtm = new double[3][3];
+        for (int r = 0; r < 3; r++)
+        {
+            for (int c = 0; c < 3; c++)
+            {
+                for (int i = 1; i < numAnchors; i++)
+                    mtm[r][c] += m[i][r] * m[i][c];
+            }
+        }
+
+        // unused axis of planar case doesn't contribute to solution
+        if (planar)
+            mtm[2][2] = 1.0;
+
+        double[][] inv = invert3(mtm);
+        if (inv == null)
+            throw new IllegalArgumentException("Anchor geometry is degenerate");
+
+        // pseudo-inverse rows, converted back to anchor frame
+        for (int i = 1; i < numAnchors; i++)
+        {
+            for (int j = 0; j < k; j++)
+            {
+                double p = 0;
+                for (int l = 0; l < k; l++)
+                    p += inv[j][l] * m[i][l];
+                gx[i] += p * basis[j][0];
+                gy[i] += p * basis[j][1];
+                gz[i] += p * basis[j][2];
+            }
+        }
+    }
+
+
+    /**
+     * Computes the location of a tag from its ranges to all anchors
+     * @param solution vector receiving the tag location in meters
+     * @param ranges ranges to each anchor in mm
+     * @param residuals array receiving the range residual of each anchor in meters
+     * @return GDOP of the solution (infinite if position is not observable)
+     */
+    public double solve(Vec3d solution, int[] ranges, double[] residuals)
+    {
+        // linear solution
+        double r0 = ranges[0] * 0.001;
+        double r02 = r0*r0;
+        double x = 0, y = 0, z = 0;
+        for (int i = 1; i < numAnchors; i++)
+        {
+            double ri = ranges[i] * 0.001;
+            double b = d2[i] + r02 - ri*ri;
+            x += gx[i] * b;
+            y += gy[i] * b;
+            z += gz[i] * b;
+        }
+
+        // distance to plane estimated from all ranges
+        if (planar)
+        {
+            double h2 = 0;
+            for (int i = 0; i < numAnchors; i++)
+            {
+                double ri = ranges[i] * 0.001;
+                double ex = x - dx[i], ey = y - dy[i], ez = z - dz[i];
+                h2 += ri*ri - (ex*ex + ey*ey + ez*ez);
+            }
+
+            double h = Math.sqrt(Math.max(0.0, h2 / numAnchors));
+            x -= h*nx;
+            y -= h*ny;
+            z -= h*nz;
+        }
+
+        // Gauss-Newton refinement
+        double stepX = 0, stepY = 0, stepZ = 0;
+        double prevCost = Double.POSITIVE_INFINITY;
+        for (int iter = 0; iter < MAX_ITERATIONS; iter++)
+        {
+            double a00 = 0, a01 = 0, a02 = 0, a11 = 0, a12 = 0, a22 = 0;
+            double b0 = 0, b1 = 0, b2 = 0;
+            double cost = 0;
+
+            for (int i = 0; i < numAnchors; i++)
+            {
+                double ex = x - dx[i], ey = y - dy[i], ez = z - dz[i];
+                double dist = Math.sqrt(ex*ex + ey*ey + ez*ez);
+                if (dist < 1e-9)
+                    continue;
+
+                double jx = ex/dist, jy = ey/dist, jz = ez/dist;
+                double f = dist - ranges[i] * 0.001;
+                cost += f*f;
+
+                a00 += jx*jx; a01 += jx*jy; a02 += jx*jz;
+                a11 += jy*jy; a12 += jy*jz; a22 += jz*jz;
+                b0 -= jx*f; b1 -= jy*f; b2 -= jz*f;
+            }
+
+            // undo last step if it didn't improve solution
+            if (cost > prevCost)
+            {
+                x -= stepX;
+                y -= stepY;
+                z -= stepZ;
+                break;
+            }
+            prevCost = cost;
+
+            // solve normal equations with Cramer's rule
+            double c00 = a11*a22 - a12*a12;
+            double c01 = a02*a12 - a01*a22;
+            double c02 = a01*a12 - a02*a11;
+            double det = a00*c00 + a01*c01 + a02*c02;
+            if (Math.abs(det) < SINGULAR_THRESHOLD)
+                break;
+
+            double c11 = a00*a22 - a02*a02;
+            double c12 = a01*a02 - a00*a12;
+            double c22 = a00*a11 - a01*a01;
+            stepX = (c00*b0 + c01*b1 + c02*b2) / det;
+            stepY = (c01*b0 + c11*b1 + c12*b2) / det;
+            stepZ = (c02*b0 + c12*b1 + c22*b2) / det;
+            x += stepX;
+            y += stepY;
+            z += stepZ;
+
+            if (stepX*stepX + stepY*stepY + stepZ*stepZ < CONVERGENCE_THRESHOLD)
+                break;
+        }
+
+        Vec3d a0 = anchors[0];
+        solution.x = a0.x + x;
+        solution.y = a0.y + y;
+        solution.z = a0.z + z;
+
+        return evaluate(anchors, numAnchors, solution, ranges, residuals);
+    }
+
+
+    /**
+     * Computes range residuals and GDOP of a tag location
+     * @param anchors anchor positions in meters
+     * @param numAnchors number of anchors to use
+     * @param pos tag location in meters
+     * @param ranges ranges to each anchor in mm
+     * @param residuals array receiving the range residual of each anchor in meters
+     * @return GDOP of the location (infinite if position is not observable)
+     */
+    public static double evaluate(Vec3d[] anchors, int numAnchors, Vec3d pos, int[] ranges, double[] residuals)
+    {
+        double a00 = 0, a01 = 0, a02 = 0, a11 = 0, a12 = 0, a22 = 0;
+
+        for (int i = 0; i < numAnchors; i++)
+        {
+            double ex = pos.x - anchors[i].x;
+            double ey = pos.y - anchors[i].y;
+            double ez = pos.z - anchors[i].z;
+            double dist = Math.sqrt(ex*ex + ey*ey + ez*ez);
+            residuals[i] = dist - ranges[i] * 0.001;
+            if (dist < 1e-9)
+                continue;
+
+            double jx = ex/dist, jy = ey/dist, jz = ez/dist;
+            a00 += jx*jx; a01 += jx*jy; a02 += jx*jz;
+            a11 += jy*jy; a12 += jy*jz; a22 += jz*jz;
+        }
+
+        // GDOP is sqrt of trace of (J^T.J)^-1
+        double c00 = a11*a22 - a12*a12;
+        double c11 = a00*a22 - a02*a02;
+        double c22 = a00*a11 - a01*a01;
+        double det = a00*c00 + a01*(a02*a12 - a01*a22) + a02*(a01*a12 - a02*a11);
+        if (Math.abs(det) < SINGULAR_THRESHOLD)
+            return Double.POSITIVE_INFINITY;
+
+        return Math.sqrt((c00 + c11 + c22) / det);
+    }
+
+
+    /*
+     * Inverts a 3x3 matrix, returns null if it is singular
+     */
+    static double[][] invert3(double[][] a)
+    {
+        double c00 = a[1][1]*a[2][2] - a[1][2]*a[2][1];
+        double c01 = a[1][2]*a[2][0] - a[1][0]*a[2][2];
+        double c02 = a[1][0]*a[2][1] - a[1][1]*a[2][0];
+        double det = a[0][0]*c00 + a[0][1]*c01 + a[0][2]*c02;
+        if (Math.abs(det) < SINGULAR_THRESHOLD)
+            return null;
+
+        double[][] inv = new double[3][3];
+        inv[0][0] = c00 / det;
+        inv[1][0] = c01 / det;
+        inv[2][0] = c02 / det;
+        inv[0][1] = (a[0][2]*a[2][1] - a[0][1]*a[2][2]) / det;
+        inv[1][1] = (a[0][0]*a[2][2] - a[0][2]*a[2][0]) / det;
+        inv[2][1] = (a[0][1]*a[2][0] - a[0][0]*a[2][1]) / det;
+        inv[0][2] = (a[0][1]*a[1][2] - a[0][2]*a[1][1]) / det;
+        inv[1][2] = (a[0][2]*a[1][0] - a[0][0]*a[1][2]) / det;
+        inv[2][2] = (a[0][0]*a[1][1] - a[0][1]*a[1][0]) / det;
+        return inv;
+    }
+
+
+    public int getNumAnchors()
+    {
+        return numAnchors;
+    }
+
+
+    /**
+     * @return true if all anchors lie in the same plane
+     */
+    public boolean isPlanar()
+    {
+        return planar;
+    }
+}
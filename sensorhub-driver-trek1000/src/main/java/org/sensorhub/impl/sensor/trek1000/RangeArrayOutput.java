@@ -0,0 +1,113 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.vast.data.DataRecordImpl;
+import org.vast.swe.SWEHelper;
+import net.opengis.swe.v20.DataArray;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+
+
+/**
+ * <p>
+ * Output of all tag to anchor ranges measured during one ranging cycle,
+ * as a single record with ranges indexed by anchor number.<br/>
+ * This is an alternative to {@link RangeOutput} producing one event per
+ * cycle instead of one event per anchor.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class RangeArrayOutput extends AbstractSensorOutput<Trek1000Sensor>
+{
+    DataRecord dataStruct;
+    DataEncoding dataEncoding;
+
+
+    public RangeArrayOutput(Trek1000Sensor parentSensor)
+    {
+        super(parentSensor);
+    }
+
+
+    protected void init()
+    {
+        SWEHelper fac = new SWEHelper();
+
+        dataStruct = new DataRecordImpl();
+        dataStruct.setName(getName());
+        dataStruct.setDefinition("http://sensorml.com/ont/swe/property/Event");
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("tagID", fac.newText(SWEHelper.getPropertyUri("BeaconID"), "Tag ID", null));
+
+        DataArray ranges = fac.newDataArray(Trek1000Sensor.NUM_ANCHORS);
+        ranges.setElementType("range", fac.newQuantity(SWEHelper.getPropertyUri("Range"), "Range", "Range from tag to anchor", "m", DataType.FLOAT));
+        ranges.setLabel("Anchor Ranges");
+        ranges.setDescription("Ranges from tag to each anchor, ordered by anchor number");
+        dataStruct.addComponent("ranges", ranges);
+
+        dataEncoding = fac.newTextEncoding(",", "\n");
+    }
+
+
+    protected void sendData(long msgTime, String tagID, int[] ranges)
+    {
+        DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
+
+        dataBlock.setDoubleValue(0, msgTime/1000.0);
+        dataBlock.setStringValue(1, tagID);
+        for (int i = 0; i < Trek1000Sensor.NUM_ANCHORS; i++)
+            dataBlock.setDoubleValue(2+i, ranges[i]*0.001);
+
+        latestRecord = dataBlock;
+        latestRecordTime = msgTime;
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return "rangeArrays";
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return 0.1;
+    }
+}
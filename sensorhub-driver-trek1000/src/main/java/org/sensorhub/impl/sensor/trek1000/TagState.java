@@ -0,0 +1,125 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Ranging and solver state of a single tag.<br/>
+ * Ranges received while a solve is pending are coalesced: only the latest
+ * set of ranges is solved. Each tag has its own solver instance and is
+ * never solved by two threads at the same time.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TagState
+{
+    final int id;
+    final String name;
+
+    // latest ranges received, guarded by this
+    final int[] pendingRanges = new int[Trek1000Sensor.NUM_ANCHORS];
+    long pendingTime;
+    boolean dirty;
+    boolean queued;
+
+    // solver state, only accessed by the thread solving this tag
+    final int[] ranges = new int[Trek1000Sensor.NUM_ANCHORS];
+    final Triangulation solver = new Triangulation();
+    final Vec3d solution = new Vec3d(0.0, 0.0, 0.0);
+    final double[] residuals = new double[Trek1000Sensor.NUM_ANCHORS];
+    int usedAnchors; // bit mask of anchors used by solution
+
+    // scratch state used to re-solve without a suspected outlier anchor
+    final int[] subsetRanges = new int[Trek1000Sensor.NUM_ANCHORS];
+    final Vec3d candidate = new Vec3d(0.0, 0.0, 0.0);
+    final double[] candidateResiduals = new double[Trek1000Sensor.NUM_ANCHORS];
+
+    // last fix accepted by quality gate
+    final Vec3d lastFix = new Vec3d(0.0, 0.0, 0.0);
+    long lastFixTime;
+    int jumpRejections;
+
+    final TagTracker tracker = new TagTracker();
+    final Vec3d trackPos = new Vec3d(0.0, 0.0, 0.0);
+    final Vec3d trackVel = new Vec3d(0.0, 0.0, 0.0);
+    Runnable solveTask;
+
+
+    TagState(int id)
+    {
+        this.id = id;
+        this.name = "T" + id;
+    }
+
+
+    /*
+     * Stores new ranges and returns true if a solve needs to be scheduled
+     */
+    synchronized boolean setRanges(long msgTime, int[] newRanges)
+    {
+        System.arraycopy(newRanges, 0, pendingRanges, 0, pendingRanges.length);
+        pendingTime = msgTime;
+        dirty = true;
+
+        if (queued)
+            return false;
+        queued = true;
+        return true;
+    }
+
+
+    /*
+     * Copies latest ranges to solver state and returns their time stamp,
+     * or returns -1 and releases the tag if no new ranges were received
+     */
+    synchronized long takeRanges()
+    {
+        if (!dirty)
+        {
+            queued = false;
+            return -1;
+        }
+
+        System.arraycopy(pendingRanges, 0, ranges, 0, ranges.length);
+        dirty = false;
+        return pendingTime;
+    }
+
+
+    /*
+     * Releases the tag when the solve task could not be scheduled
+     */
+    synchronized void cancelSolve()
+    {
+        queued = false;
+    }
+
+
+    public int getId()
+    {
+        return id;
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,126 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+
+/**
+ * <p>
+ * Map of tag states keyed by integer tag ID, using open addressing with
+ * linear probing so that lookups don't box keys or create entry objects.
+ * </p><p>
+ * This class is not thread safe. It is meant to be accessed only by the
+ * thread parsing incoming messages.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TagStateMap
+{
+    int[] keys;
+    TagState[] values;
+    int size;
+
+
+    public TagStateMap()
+    {
+        this(16);
+    }
+
+
+    public TagStateMap(int initialCapacity)
+    {
+        int capacity = Integer.highestOneBit(Math.max(4, initialCapacity-1)) << 1;
+        keys = new int[capacity];
+        values = new TagState[capacity];
+    }
+
+
+    /**
+     * @param tagId tag ID
+     * @return state of the given tag or null if not found
+     */
+    public TagState get(int tagId)
+    {
+        int mask = keys.length - 1;
+        for (int i = hash(tagId) & mask; values[i] != null; i = (i+1) & mask)
+        {
+            if (keys[i] == tagId)
+                return values[i];
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Gets the state of the given tag, creating it if needed
+     * @param tagId tag ID
+     * @return the new or existing tag state
+     */
+    public TagState getOrCreate(int tagId)
+    {
+        TagState state = get(tagId);
+        if (state != null)
+            return state;
+
+        if (2*(size+1) > keys.length)
+            resize(keys.length * 2);
+
+        state = new TagState(tagId);
+        insert(tagId, state);
+        size++;
+        return state;
+    }
+
+
+    private void insert(int tagId, TagState state)
+    {
+        int mask = keys.length - 1;
+        int i = hash(tagId) & mask;
+        while (values[i] != null)
+            i = (i+1) & mask;
+        keys[i] = tagId;
+        values[i] = state;
+    }
+
+
+    private void resize(int capacity)
+    {
+        int[] oldKeys = keys;
+        TagState[] oldValues = values;
+        keys = new int[capacity];
+        values = new TagState[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != null)
+                insert(oldKeys[i], oldValues[i]);
+        }
+    }
+
+
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+
+    public int size()
+    {
+        return size;
+    }
+}
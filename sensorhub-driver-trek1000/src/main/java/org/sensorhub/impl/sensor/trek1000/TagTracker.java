@@ -0,0 +1,139 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Constant velocity Kalman filter tracking the position of a single tag.<br/>
+ * Each axis is filtered independently with a 2-state (position, velocity)
+ * model driven by white acceleration noise, so the whole state and its
+ * covariance fit in a few fixed-size arrays and no object is allocated
+ * when processing a fix.
+ * </p><p>
+ * Fixes are processed by the thread solving the tag, while predictions can
+ * be requested at any time by another thread, so all methods are
+ * synchronized.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TagTracker
+{
+    public static final long MAX_PREDICTION_TIME = 2000; // ms
+
+    // state and covariance of each axis
+    final double[] pos = new double[3];
+    final double[] vel = new double[3];
+    final double[] p00 = new double[3];
+    final double[] p01 = new double[3];
+    final double[] p11 = new double[3];
+    long lastUpdateTime;
+    boolean initialized;
+
+
+    /**
+     * Updates filter with a new position fix
+     * @param time time of fix in ms
+     * @param fix measured position in meters
+     * @param fixVar variance of measured position on each axis in m^2
+     * @param accelVar variance of acceleration process noise in m^2/s^3
+     * @param initVelVar variance of velocity when filter is (re)initialized in m^2/s^2
+     */
+    public synchronized void update(long time, Vec3d fix, double fixVar, double accelVar, double initVelVar)
+    {
+        // (re)initialize on first fix or after a long gap
+        long dtMillis = time - lastUpdateTime;
+        if (!initialized || dtMillis > MAX_PREDICTION_TIME || dtMillis < 0)
+        {
+            pos[0] = fix.x;
+            pos[1] = fix.y;
+            pos[2] = fix.z;
+            for (int i = 0; i < 3; i++)
+            {
+                vel[i] = 0.0;
+                p00[i] = fixVar;
+                p01[i] = 0.0;
+                p11[i] = initVelVar;
+            }
+
+            lastUpdateTime = time;
+            initialized = true;
+            return;
+        }
+
+        double dt = dtMillis / 1000.0;
+        updateAxis(0, fix.x, dt, fixVar, accelVar);
+        updateAxis(1, fix.y, dt, fixVar, accelVar);
+        updateAxis(2, fix.z, dt, fixVar, accelVar);
+        lastUpdateTime = time;
+    }
+
+
+    private void updateAxis(int i, double z, double dt, double r, double q)
+    {
+        // predict
+        double dt2 = dt*dt;
+        pos[i] += vel[i] * dt;
+        p00[i] += dt * (2.0*p01[i] + dt*p11[i]) + q*dt2*dt/3.0;
+        p01[i] += dt * p11[i] + q*dt2/2.0;
+        p11[i] += q * dt;
+
+        // correct
+        double s = p00[i] + r;
+        double k0 = p00[i] / s;
+        double k1 = p01[i] / s;
+        double innov = z - pos[i];
+        pos[i] += k0 * innov;
+        vel[i] += k1 * innov;
+        p11[i] -= k1 * p01[i];
+        p00[i] *= 1.0 - k0;
+        p01[i] *= 1.0 - k0;
+    }
+
+
+    /**
+     * Predicts tag position and velocity at the given time, without
+     * modifying the filter state
+     * @param time time of prediction in ms
+     * @param predPos vector receiving the predicted position
+     * @param predVel vector receiving the predicted velocity
+     * @return false if the filter has no fix recent enough to predict from
+     */
+    public synchronized boolean predict(long time, Vec3d predPos, Vec3d predVel)
+    {
+        long dtMillis = time - lastUpdateTime;
+        if (!initialized || dtMillis > MAX_PREDICTION_TIME)
+            return false;
+
+        double dt = dtMillis / 1000.0;
+        predPos.x = pos[0] + vel[0] * dt;
+        predPos.y = pos[1] + vel[1] * dt;
+        predPos.z = pos[2] + vel[2] * dt;
+        predVel.x = vel[0];
+        predVel.y = vel[1];
+        predVel.z = vel[2];
+        return true;
+    }
+
+
+    public synchronized long getLastUpdateTime()
+    {
+        return lastUpdateTime;
+    }
+}
@@ -0,0 +1,122 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.AbstractSensorOutput;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+import org.vast.data.DataRecordImpl;
+import org.vast.swe.SWEConstants;
+import org.vast.swe.SWEHelper;
+import org.vast.swe.helper.GeoPosHelper;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataEncoding;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.Vector;
+
+
+/**
+ * <p>
+ * Output of filtered tag locations and velocities, produced either after
+ * each fix or at a fixed rate by extrapolating the tracking filter state
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TrackOutput extends AbstractSensorOutput<Trek1000Sensor>
+{
+    DataRecord dataStruct;
+    DataEncoding dataEncoding;
+    double samplingPeriod;
+
+
+    public TrackOutput(Trek1000Sensor parentSensor, double samplingPeriod)
+    {
+        super(parentSensor);
+        this.samplingPeriod = samplingPeriod;
+    }
+
+
+    protected void init()
+    {
+        dataStruct = new DataRecordImpl();
+        dataStruct.setName(getName());
+        dataStruct.setDefinition(SWEHelper.getPropertyUri("TagTrack"));
+
+        GeoPosHelper fac = new GeoPosHelper();
+        Vector locVector = fac.newLocationVectorXYZ(SWEConstants.DEF_SENSOR_LOC, "#UWB_FRAME", "m");
+        locVector.setLabel("Tag Location");
+        locVector.setDescription("Filtered local XYZ location of tag");
+        Vector velVector = fac.newVelocityVector(SWEHelper.getPropertyUri("Velocity"), "#UWB_FRAME", "m/s");
+        velVector.setLabel("Tag Velocity");
+        velVector.setDescription("Filtered local XYZ velocity of tag");
+
+        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
+        dataStruct.addComponent("tagID", fac.newText(SWEHelper.getPropertyUri("BeaconID"), "Tag ID", null));
+        dataStruct.addComponent("location", locVector);
+        dataStruct.addComponent("velocity", velVector);
+
+        dataEncoding = fac.newTextEncoding(",", "\n");
+    }
+
+
+    protected synchronized void sendData(long time, String tagID, Vec3d location, Vec3d velocity)
+    {
+        DataBlock dataBlock = (latestRecord == null) ? dataStruct.createDataBlock() : latestRecord.renew();
+
+        dataBlock.setDoubleValue(0, time/1000.0);
+        dataBlock.setStringValue(1, tagID);
+        dataBlock.setDoubleValue(2, location.x);
+        dataBlock.setDoubleValue(3, location.y);
+        dataBlock.setDoubleValue(4, location.z);
+        dataBlock.setDoubleValue(5, velocity.x);
+        dataBlock.setDoubleValue(6, velocity.y);
+        dataBlock.setDoubleValue(7, velocity.z);
+
+        latestRecord = dataBlock;
+        latestRecordTime = time;
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    @Override
+    public String getName()
+    {
+        return "trackedLoc";
+    }
+
+
+    @Override
+    public DataComponent getRecordDescription()
+    {
+        return dataStruct;
+    }
+
+
+    @Override
+    public DataEncoding getRecommendedEncoding()
+    {
+        return dataEncoding;
+    }
+
+
+    @Override
+    public double getAverageSamplingPeriod()
+    {
+        return samplingPeriod;
+    }
+}
@@ -33,6 +33,13 @@ import org.sensorhub.api.sensor.SensorConfig;
  */
 public class Trek1000Config extends SensorConfig
 {
+	public enum SolverType
+	{
+		TRILATERATION,
+		LEAST_SQUARES
+	}
+	
+	
 	@DisplayInfo(desc="Serial number used as suffix to generate unique identifier URI")
 	public String serialNumber = null;
 	
@@ -40,6 +47,48 @@ public class Trek1000Config extends SensorConfig
     public CommProviderConfig<?> commSettings;
 	
 	@Required
-	@DisplayInfo(desc="Anchor locations in the form of [latitude, longitude]")
+	@DisplayInfo(desc="Anchor locations. If geodeticAnchors is set, these are latitude/longitude in degrees and ellipsoidal height in meters, otherwise local coordinates in meters with X as longitude, Y as latitude and Z as altitude")
 	public List<LLALocation> anchorLocations = new ArrayList<>();
+	
+	@DisplayInfo(label="Geodetic Anchors", desc="Set if anchor locations are geodetic coordinates. Tag locations are then computed in a local East-North-Up frame centered on the first anchor and are also output as geodetic coordinates")
+	public boolean geodeticAnchors = false;
+	
+	@DisplayInfo(label="Group Ranges", desc="Set to publish all ranges of a tag ranging cycle in a single record instead of one record per anchor")
+	public boolean groupRanges = false;
+	
+	@DisplayInfo(label="Anchor Survey Enabled", desc="Set to compute locations of anchors A0, A1 and A2 from anchor to anchor ranges. Configured anchor heights are used, and surveyed locations are saved with the module state and used instead of configured ones at next start")
+	public boolean anchorSurveyEnabled = false;
+	
+	@DisplayInfo(label="Survey Min Samples", desc="Number of ranges to accumulate for each anchor pair before anchor locations are computed")
+	public int surveyMinSamples = 100;
+	
+	@DisplayInfo(label="Solver Threads", desc="Number of threads used to compute tag locations in parallel (0 to compute them on the reader thread)")
+	public int solverThreads = 2;
+	
+	@DisplayInfo(label="Solver Type", desc="Algorithm used to compute tag locations: sphere intersection of the first 3 anchors, or least-squares fit to all anchors")
+	public SolverType solverType = SolverType.TRILATERATION;
+	
+	@DisplayInfo(label="Range Noise", desc="Standard deviation of range measurements, in meters")
+	public double rangeNoise = 0.1;
+	
+	@DisplayInfo(label="Quality Gate Enabled", desc="Set to check residuals, GDOP and displacement of each fix before publishing it, and to re-solve without the anchor most likely affected by non line-of-sight propagation when residuals are too large")
+	public boolean qualityGateEnabled = false;
+	
+	@DisplayInfo(label="Max Range Residual", desc="Maximum absolute range residual of anchors used in a fix, in meters")
+	public double maxResidual = 0.5;
+	
+	@DisplayInfo(label="Max GDOP", desc="Maximum geometric dilution of precision of a fix")
+	public double maxGdop = 20.0;
+	
+	@DisplayInfo(label="Max Tag Speed", desc="Maximum tag speed used to reject fixes too far from the previous accepted fix, in m/s (0 to disable)")
+	public double maxTagSpeed = 10.0;
+	
+	@DisplayInfo(label="Tracking Enabled", desc="Set to enable tracking filter and output of filtered tag locations and velocities")
+	public boolean trackingEnabled = false;
+	
+	@DisplayInfo(label="Track Acceleration Noise", desc="Standard deviation of unmodeled tag accelerations used by tracking filter, in m/s^2")
+	public double trackAccelNoise = 1.0;
+	
+	@DisplayInfo(label="Track Output Rate", desc="Rate at which filtered locations of all tags are predicted and published, in Hz (0 to publish after each fix)")
+	public double trackOutputRate = 0.0;
 }
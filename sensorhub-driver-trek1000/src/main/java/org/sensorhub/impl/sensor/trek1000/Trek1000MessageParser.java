@@ -0,0 +1,357 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * <p>
+ * Parser of TREK1000 ranging messages, working directly on bytes.<br/>
+ * Messages are ASCII lines of space separated hexadecimal fields:
+ * <pre>
+ * mc MASK RANGE0 RANGE1 RANGE2 RANGE3 NRANGES RSEQ DEBUG aT:A
+ * </pre>
+ * where the message type is mc (tag to anchor ranges), mr (raw ranges) or
+ * ma (anchor to anchor ranges), and the last token identifies the
+ * reporting tag T and anchor A.
+ * </p><p>
+ * Data is read by chunks into a reusable buffer and fields are decoded in
+ * place, so no String is created for each message.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class Trek1000MessageParser
+{
+    public static final int MSG_UNKNOWN = 0;
+    public static final int MSG_MC = 1;
+    public static final int MSG_MR = 2;
+    public static final int MSG_MA = 3;
+    public static final int MAX_LINE_LENGTH = 256;
+    static final int NUM_FIELDS = 8;
+
+    final InputStream is;
+    final byte[] buf = new byte[4*MAX_LINE_LENGTH];
+    int start; // first unprocessed byte
+    int end;   // end of valid data
+    int lineStart, lineEnd;
+    boolean overflow;
+
+    // decoded fields of last message
+    final int[] fields = new int[NUM_FIELDS];
+    final int[] ranges = new int[Trek1000Sensor.NUM_ANCHORS];
+    int numFields;
+    int tagId;
+    int anchorId;
+
+    long messageCount;
+    long errorCount;
+
+
+    /**
+     * @param is stream to read messages from, or null if only
+     * {@link #parse(byte[], int, int)} is used
+     */
+    public Trek1000MessageParser(InputStream is)
+    {
+        this.is = is;
+    }
+
+
+    /**
+     * Reads and parses the next valid message.<br/>
+     * Decoded fields are available through getters until this method is
+     * called again. Unknown, malformed and overlong lines are skipped.
+     * @return message type
+     * @throws IOException if the end of the stream is reached or a read error occurs
+     */
+    public int nextMessage() throws IOException
+    {
+        while (true)
+        {
+            // look for end of line
+            int i = start;
+            while (i < end && buf[i] != '\n')
+                i++;
+
+            if (i == end)
+            {
+                // discard beginning of line that is too long
+                if (end - start > MAX_LINE_LENGTH)
+                {
+                    if (!overflow)
+                        errorCount++;
+                    overflow = true;
+                    start = end;
+                }
+
+                fill();
+                continue;
+            }
+
+            lineStart = start;
+            lineEnd = i;
+            start = i + 1;
+
+            // skip rest of line that was too long
+            if (overflow || lineEnd - lineStart > MAX_LINE_LENGTH)
+            {
+                if (!overflow)
+                    errorCount++;
+                overflow = false;
+                continue;
+            }
+
+            int msgType = parse(buf, lineStart, lineEnd);
+            if (msgType > 0)
+            {
+                messageCount++;
+                return msgType;
+            }
+            else if (msgType < 0)
+                errorCount++;
+        }
+    }
+
+
+    /*
+     * Moves unprocessed bytes to beginning of buffer and reads more data.
+     * There is always room left since partial lines are shorter than
+     * MAX_LINE_LENGTH
+     */
+    private void fill() throws IOException
+    {
+        if (start > 0)
+        {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+
+        int nBytes = is.read(buf, end, buf.length - end);
+        if (nBytes < 0)
+            throw new EOFException("End of TREK1000 data stream");
+        end += nBytes;
+    }
+
+
+    /**
+     * Parses a single message line
+     * @param line buffer containing the line
+     * @param off offset of first character of the line
+     * @param lineEnd offset of the character following the last character of
+     * the line (line terminators are ignored)
+     * @return message type, {@link #MSG_UNKNOWN} if it is not a ranging
+     * message, or -1 if the message is malformed
+     */
+    public int parse(byte[] line, int off, int lineEnd)
+    {
+        int i = skipSpaces(line, off, lineEnd);
+
+        // message type
+        if (lineEnd - i < 3 || line[i] != 'm' || line[i+2] != ' ')
+            return MSG_UNKNOWN;
+
+        int msgType;
+        switch (line[i+1])
+        {
+            case 'c': msgType = MSG_MC; break;
+            case 'r': msgType = MSG_MR; break;
+            case 'a': msgType = MSG_MA; break;
+            default: return MSG_UNKNOWN;
+        }
+        i += 3;
+
+        // hex fields and reporter ID
+        numFields = 0;
+        tagId = 0;
+        anchorId = 0;
+        while ((i = skipSpaces(line, i, lineEnd)) < lineEnd)
+        {
+            int tokenEnd = i;
+            int sep = -1;
+            while (tokenEnd < lineEnd && !isSpace(line[tokenEnd]))
+            {
+                if (line[tokenEnd] == ':')
+                    sep = tokenEnd;
+                tokenEnd++;
+            }
+
+            if (sep >= 0)
+                parseReporter(line, i, sep, tokenEnd);
+            else if (numFields < NUM_FIELDS)
+            {
+                long val = parseHex(line, i, tokenEnd);
+                if (val < 0)
+                    return -1;
+                fields[numFields++] = (int)val;
+            }
+
+            i = tokenEnd;
+        }
+
+        // need at least mask and 4 ranges
+        if (numFields < 1 + ranges.length)
+            return -1;
+
+        System.arraycopy(fields, 1, ranges, 0, ranges.length);
+        return msgType;
+    }
+
+
+    /*
+     * Parses reporter token of the form aT:A or tT:A
+     * IDs default to 0 if the token doesn't have the expected format
+     */
+    private void parseReporter(byte[] line, int i, int sep, int tokenEnd)
+    {
+        if (sep < i+2 || (line[i] != 'a' && line[i] != 't'))
+            return;
+
+        int tag = parseDecimal(line, i+1, sep);
+        if (tag < 0)
+            return;
+        tagId = tag;
+
+        int anchor = parseDecimal(line, sep+1, tokenEnd);
+        if (anchor >= 0)
+            anchorId = anchor;
+    }
+
+
+    /*
+     * Returns -1 for invalid numbers
+     */
+    private static long parseHex(byte[] line, int i, int end)
+    {
+        if (i == end || end - i > 8)
+            return -1;
+
+        long val = 0;
+        for (; i < end; i++)
+        {
+            int c = line[i];
+            int digit;
+            if (c >= '0' && c <= '9')
+                digit = c - '0';
+            else if (c >= 'a' && c <= 'f')
+                digit = c - 'a' + 10;
+            else if (c >= 'A' && c <= 'F')
+                digit = c - 'A' + 10;
+            else
+                return -1;
+            val = (val << 4) | digit;
+        }
+
+        return val;
+    }
+
+
+    private static int parseDecimal(byte[] line, int i, int end)
+    {
+        if (i == end || end - i > 9)
+            return -1;
+
+        int val = 0;
+        for (; i < end; i++)
+        {
+            int c = line[i];
+            if (c < '0' || c > '9')
+                return -1;
+            val = val*10 + (c - '0');
+        }
+
+        return val;
+    }
+
+
+    private static int skipSpaces(byte[] line, int i, int end)
+    {
+        while (i < end && isSpace(line[i]))
+            i++;
+        return i;
+    }
+
+
+    private static boolean isSpace(byte c)
+    {
+        return c == ' ' || c == '\r' || c == '\t';
+    }
+
+
+    /**
+     * @return ranges of last message in mm, indexed by anchor number
+     */
+    public int[] getRanges()
+    {
+        return ranges;
+    }
+
+
+    /**
+     * @return bit mask of valid ranges in last message
+     */
+    public int getMask()
+    {
+        return fields[0];
+    }
+
+
+    /**
+     * @return ranging sequence number of last message, or -1 if not present
+     */
+    public int getSequence()
+    {
+        return (numFields > 6) ? fields[6] : -1;
+    }
+
+
+    public int getTagId()
+    {
+        return tagId;
+    }
+
+
+    public int getAnchorId()
+    {
+        return anchorId;
+    }
+
+
+    /**
+     * @return text of last line read, only meant for logging
+     */
+    public String getLine()
+    {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.US_ASCII).trim();
+    }
+
+
+    public long getMessageCount()
+    {
+        return messageCount;
+    }
+
+
+    public long getErrorCount()
+    {
+        return errorCount;
+    }
+}
@@ -14,17 +14,27 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.trek1000;
 
-import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.sensorhub.api.comm.ICommProvider;
 import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.api.module.IModuleStateManager;
 import org.sensorhub.api.sensor.PositionConfig.LLALocation;
 import org.sensorhub.api.sensor.SensorException;
 import org.sensorhub.impl.sensor.AbstractSensorModule;
+import org.sensorhub.impl.sensor.trek1000.Trek1000Config.SolverType;
 import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
 
 
@@ -38,18 +48,38 @@ import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
  */
 public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
 {
+    static final int NUM_ANCHORS = 4;
+    static final String[] ANCHOR_NAMES = {"A0", "A1", "A2", "A3"};
+    static final double INIT_VELOCITY_VAR = 1.0; // (m/s)^2
+    private final static String STATE_SURVEYED_ANCHORS = "surveyed_anchors";
+    
     ICommProvider<?> commProvider;
-    BufferedReader reader;
+    InputStream dataIn;
+    Trek1000MessageParser parser;
     volatile boolean started;
 
     RangeOutput rangeOutput;
+    RangeArrayOutput rangeArrayOutput;
     LocalPosOutput localPosOutput;
-    //GeoPosOutput geoPosOutput;
+    TrackOutput trackOutput;
+    GeoPosOutput geoPosOutput;
+    FixQualityOutput qualityOutput;
+    AnchorSurveyOutput surveyOutput;
     
-    Triangulation trilatAlgo = new Triangulation();
-    Vec3d[] anchorLocations = new Vec3d[4];
-    int[] ranges = new int[4]; // in mm
-    Vec3d solution = new Vec3d(0.0, 0.0, 0.0);
+    Vec3d[] anchorLocations = new Vec3d[NUM_ANCHORS];
+    int numAnchors;
+    EnuFrame enuFrame;
+    Multilateration multilat;
+    AnchorGeometry anchorGeometry;
+    Multilateration[] multilatSubsets; // solvers excluding each anchor
+    FixQualityGate qualityGate;
+    AnchorSurvey anchorSurvey;
+    TagStateMap tags;
+    List<TagState> tagList;
+    volatile ExecutorService solverPool;
+    ScheduledExecutorService trackScheduler;
+    Vec3d trackPos = new Vec3d(0.0, 0.0, 0.0); // only used by track scheduler
+    Vec3d trackVel = new Vec3d(0.0, 0.0, 0.0);
     
 
     public Trek1000Sensor()
@@ -70,26 +100,159 @@ public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
         if (config.anchorLocations == null || config.anchorLocations.size() < 3)
             throw new SensorException("At least 3 anchor locations must be specified");            
             
-        for (int i=0; i<3; i++) 
+        if (config.anchorLocations.size() > NUM_ANCHORS)
+            throw new SensorException("TREK1000 reports ranges to at most " + NUM_ANCHORS + " anchors");
+        
+        // if anchors are geodetic, solve in ENU frame centered on first anchor
+        numAnchors = config.anchorLocations.size();
+        enuFrame = null;
+        if (config.geodeticAnchors)
+        {
+            LLALocation origin = config.anchorLocations.get(0);
+            enuFrame = new EnuFrame(origin.lat, origin.lon, origin.alt);
+        }
+        
+        for (int i=0; i<numAnchors; i++) 
         {
             LLALocation configLocation = config.anchorLocations.get(i);
             anchorLocations[i] = new Vec3d(configLocation.lon,
                                            configLocation.lat,
                                            configLocation.alt);
+            if (enuFrame != null)
+                enuFrame.llaToEnu(configLocation.lat, configLocation.lon, configLocation.alt, anchorLocations[i]);
+        }
+        
+        // precompute anchor geometry used by selected solver
+        initSolvers();
+        
+        // survey is done in local frame using configured anchor heights
+        anchorSurvey = null;
+        if (config.anchorSurveyEnabled)
+        {
+            if (enuFrame != null)
+                throw new SensorException("Anchor survey requires local anchor locations");
+            
+            double[] heights = new double[AnchorSurvey.NUM_SURVEYED_ANCHORS];
+            for (int i = 0; i < heights.length; i++)
+                heights[i] = anchorLocations[i].z;
+            anchorSurvey = new AnchorSurvey(heights, config.surveyMinSamples);
         }
 
         // init main data interfaces
-        rangeOutput = new RangeOutput(this);
-        addOutput(rangeOutput, false);
-        rangeOutput.init();
+        rangeOutput = null;
+        rangeArrayOutput = null;
+        if (config.groupRanges)
+        {
+            rangeArrayOutput = new RangeArrayOutput(this);
+            addOutput(rangeArrayOutput, false);
+            rangeArrayOutput.init();
+        }
+        else
+        {
+            rangeOutput = new RangeOutput(this);
+            addOutput(rangeOutput, false);
+            rangeOutput.init();
+        }
         
         localPosOutput = new LocalPosOutput(this);
         addOutput(localPosOutput, false);
         localPosOutput.init();
         
-        /*geoPosOutput = new GeoPosOutput(this);
-        addOutput(geoPosOutput, false);
-        geoPosOutput.init();*/
+        trackOutput = null;
+        if (config.trackingEnabled)
+        {
+            double samplingPeriod = (config.trackOutputRate > 0) ? 1.0 / config.trackOutputRate : 0.1;
+            trackOutput = new TrackOutput(this, samplingPeriod);
+            addOutput(trackOutput, false);
+            trackOutput.init();
+        }
+        
+        // geodetic output uses its own frame instance since conversions aren't thread safe
+        geoPosOutput = null;
+        if (enuFrame != null)
+        {
+            LLALocation origin = config.anchorLocations.get(0);
+            geoPosOutput = new GeoPosOutput(this, new EnuFrame(origin.lat, origin.lon, origin.alt));
+            addOutput(geoPosOutput, false);
+            geoPosOutput.init();
+        }
+        
+        qualityOutput = null;
+        if (qualityGate != null)
+        {
+            qualityOutput = new FixQualityOutput(this);
+            addOutput(qualityOutput, false);
+            qualityOutput.init();
+        }
+        
+        surveyOutput = null;
+        if (anchorSurvey != null)
+        {
+            surveyOutput = new AnchorSurveyOutput(this);
+            addOutput(surveyOutput, false);
+            surveyOutput.init();
+        }
+    }
+    
+    
+    /*
+     * Precomputes anchor geometry used by selected solver and quality gate
+     */
+    private void initSolvers() throws SensorException
+    {
+        multilat = null;
+        anchorGeometry = null;
+        try
+        {
+            if (config.solverType == SolverType.LEAST_SQUARES)
+                multilat = new Multilateration(Arrays.copyOf(anchorLocations, numAnchors));
+            else
+                anchorGeometry = new AnchorGeometry(Arrays.copyOf(anchorLocations, numAnchors));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new SensorException("Invalid anchor locations", e);
+        }
+        
+        // precompute solvers used to re-solve without a suspected NLOS anchor
+        qualityGate = null;
+        multilatSubsets = null;
+        if (config.qualityGateEnabled)
+        {
+            qualityGate = new FixQualityGate(config.maxResidual, config.maxGdop, config.maxTagSpeed);
+            if (multilat != null && numAnchors > 3)
+                multilatSubsets = createSubsetSolvers();
+        }
+    }
+    
+    
+    /*
+     * Creates one least-squares solver for each subset of anchors excluding
+     * one of them. Entries are null for degenerate subsets.
+     */
+    private Multilateration[] createSubsetSolvers()
+    {
+        Multilateration[] solvers = new Multilateration[numAnchors];
+        Vec3d[] subset = new Vec3d[numAnchors-1];
+        for (int excluded = 0; excluded < numAnchors; excluded++)
+        {
+            for (int i = 0, k = 0; i < numAnchors; i++)
+            {
+                if (i != excluded)
+                    subset[k++] = anchorLocations[i];
+            }
+            
+            try
+            {
+                solvers[excluded] = new Multilateration(subset);
+            }
+            catch (IllegalArgumentException e)
+            {
+                getLogger().debug("Cannot solve without anchor {}: {}", ANCHOR_NAMES[excluded], e.getMessage());
+            }
+        }
+        
+        return solvers;
     }
 
 
@@ -118,10 +281,25 @@ public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
             }
         }
         
+        // use anchor locations from last survey
+        if (anchorSurvey != null)
+        {
+            Vec3d[] surveyed = new Vec3d[AnchorSurvey.NUM_SURVEYED_ANCHORS];
+            for (int i = 0; i < surveyed.length; i++)
+                surveyed[i] = anchorLocations[i];
+            if (anchorSurvey.getAnchors(surveyed))
+            {
+                initSolvers();
+                getLogger().info("Using surveyed anchor locations: A0={}, A1={}, A2={}",
+                        toString(anchorLocations[0]), toString(anchorLocations[1]), toString(anchorLocations[2]));
+            }
+        }
+        
         // connect to data stream
         try
         {
-            reader = new BufferedReader(new InputStreamReader(commProvider.getInputStream(), StandardCharsets.US_ASCII));
+            dataIn = commProvider.getInputStream();
+            parser = new Trek1000MessageParser(dataIn);
             getLogger().info("Connected to TREK1000 data stream");
         }
         catch (IOException e)
@@ -129,6 +307,28 @@ public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
             throw new SensorException("Error while initializing communications ", e);
         }
         
+        // reset tag states left by previous run
+        tags = new TagStateMap();
+        tagList = new CopyOnWriteArrayList<>();
+        
+        // start solver threads
+        if (config.solverThreads > 0)
+            solverPool = Executors.newFixedThreadPool(config.solverThreads);
+        
+        // start fixed rate track output
+        if (trackOutput != null && config.trackOutputRate > 0)
+        {
+            long period = (long)(1e6 / config.trackOutputRate);
+            trackScheduler = Executors.newSingleThreadScheduledExecutor();
+            trackScheduler.scheduleAtFixedRate(new Runnable()
+            {
+                public void run()
+                {
+                    publishTracks();
+                }
+            }, period, period, TimeUnit.MICROSECONDS);
+        }
+        
         // start main measurement thread
         Thread t = new Thread(new Runnable()
         {
@@ -139,7 +339,9 @@ public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
                     pollAndSendMeasurement();
                 }
                 
-                reader = null;
+                getLogger().debug("{} messages received, {} parsing errors",
+                        parser.getMessageCount(), parser.getErrorCount());
+                dataIn = null;
             }
         });
         
@@ -150,65 +352,374 @@ public class Trek1000Sensor extends AbstractSensorModule<Trek1000Config>
     
     private void pollAndSendMeasurement()
     {
-        String msg = null;
-        
         try
         {
             // read next message
-            msg = reader.readLine();
+            int msgType = parser.nextMessage();
             long msgTime = System.currentTimeMillis();
             
-            // if null, it's EOF
-            if (msg == null)
-                return;            
-            
-            getLogger().trace("Received message: {}", msg);
+            if (getLogger().isTraceEnabled())
+                getLogger().trace("Received message: {}", parser.getLine());
             
-            // parse message
-            String[] parts = msg.trim().split(" ");
-            String msgType = parts[0];            
-            if (msgType.trim().equals("mc"))
+            if (msgType == Trek1000MessageParser.MSG_MC)
             {
+                int numTags = tags.size();
+                TagState tag = tags.getOrCreate(parser.getTagId());
+                if (tags.size() != numTags)
+                    tagList.add(tag);
+                
                 // send range data
-                for (int i=0; i<4; i++)
+                int[] ranges = parser.getRanges();
+                if (rangeOutput != null)
                 {
-                    int range = Integer.parseInt(parts[2+i].trim(), 16);
-                    rangeOutput.sendData(msgTime, "A"+i, "T0", range*0.001);
-                    ranges[i] = range;
+                    for (int i=0; i<NUM_ANCHORS; i++)
+                        rangeOutput.sendData(msgTime, ANCHOR_NAMES[i], tag.name, ranges[i]*0.001);
                 }
                 
-                // send xyz pos
-                trilatAlgo.getLocation(solution, 0, anchorLocations, ranges);
-                localPosOutput.sendData(msgTime, "T0", solution.x, solution.y, solution.z);
+                if (rangeArrayOutput != null)
+                    rangeArrayOutput.sendData(msgTime, tag.name, ranges);
                 
-                // send geo pos
+                // compute and send xyz pos
+                // if a solve is already pending for this tag, it will pick up the new ranges
+                if (tag.setRanges(msgTime, ranges))
+                {
+                    // pool can be shut down by stop() while we're here
+                    ExecutorService pool = solverPool;
+                    if (pool == null)
+                        solveTag(tag);
+                    else
+                        submitSolveTask(pool, tag);
+                }
+            }
+            else if (msgType == Trek1000MessageParser.MSG_MA)
+            {
+                // anchor to anchor ranges
+                int mask = parser.getMask();
+                int[] ranges = parser.getRanges();
+                if (rangeOutput != null)
+                {
+                    for (int p=0; p<AnchorSurvey.PAIRS.length; p++)
+                    {
+                        int slot = p + 1;
+                        if ((mask & (1 << slot)) != 0)
+                            rangeOutput.sendData(msgTime, ANCHOR_NAMES[AnchorSurvey.PAIRS[p][0]], ANCHOR_NAMES[AnchorSurvey.PAIRS[p][1]], ranges[slot]*0.001);
+                    }
+                }
                 
+                if (anchorSurvey != null && anchorSurvey.addRanges(mask, ranges))
+                    surveyOutput.sendData(msgTime, anchorSurvey);
             }
         }
         catch (EOFException e)
         {
             // do nothing
-            // this happens when reader is closed in stop() method
+            // this happens when stream is closed in stop() method
             started = false;
         }
         catch (Exception e)
         {
-            getLogger().error("Cannot parse TREK1000 message: " + msg, e);
+            getLogger().error("Cannot process TREK1000 message: " + parser.getLine(), e);
+        }
+    }
+    
+    
+    private void submitSolveTask(ExecutorService pool, TagState tag)
+    {
+        try
+        {
+            pool.execute(getSolveTask(tag));
+        }
+        catch (RejectedExecutionException e)
+        {
+            // release tag so it is scheduled again with next ranges
+            tag.cancelSolve();
+        }
+    }
+    
+    
+    private Runnable getSolveTask(final TagState tag)
+    {
+        if (tag.solveTask == null)
+        {
+            tag.solveTask = new Runnable()
+            {
+                public void run()
+                {
+                    solveTag(tag);
+                }
+            };
+        }
+        
+        return tag.solveTask;
+    }
+    
+    
+    /*
+     * Computes locations of the given tag until no new ranges are pending.
+     * Only one thread at a time runs this for a given tag.
+     */
+    private void solveTag(TagState tag)
+    {
+        long msgTime;
+        while ((msgTime = tag.takeRanges()) >= 0)
+        {
+            try
+            {
+                double gdop = solve(tag, -1, tag.solution, tag.residuals);
+                
+                // don't publish or track previous fix again if ranges are inconsistent
+                if (Double.isNaN(gdop))
+                {
+                    getLogger().debug("Cannot solve location of tag {}", tag.name);
+                    continue;
+                }
+                
+                // check fix quality and try without each anchor if residuals are too large
+                int status = FixQualityGate.ACCEPTED;
+                if (qualityGate != null)
+                {
+                    boolean anchorDropped = false;
+                    boolean ambiguous = false;
+                    // residuals of all anchors are checked since trilateration fits 3 of them exactly
+                    if (qualityGate.hasOutlier(tag.residuals, (1 << numAnchors) - 1))
+                    {
+                        int bestAnchors = tag.usedAnchors;
+                        double bestScore = Double.POSITIVE_INFINITY;
+                        double secondScore = Double.POSITIVE_INFINITY;
+                        for (int i = 0; i < numAnchors; i++)
+                        {
+                            double subsetGdop = solve(tag, i, tag.candidate, tag.candidateResiduals);
+                            if (Double.isNaN(subsetGdop))
+                                continue;
+                            
+                            double score = qualityGate.score(tag.candidateResiduals, tag.usedAnchors, i);
+                            if (score >= bestScore)
+                            {
+                                secondScore = Math.min(secondScore, score);
+                            }
+                            else
+                            {
+                                secondScore = bestScore;
+                                bestScore = score;
+                                bestAnchors = tag.usedAnchors;
+                                gdop = subsetGdop;
+                                tag.solution.set(tag.candidate);
+                                System.arraycopy(tag.candidateResiduals, 0, tag.residuals, 0, numAnchors);
+                                anchorDropped = true;
+                            }
+                        }
+                        tag.usedAnchors = bestAnchors;
+                        ambiguous = anchorDropped && qualityGate.isAmbiguous(bestScore, secondScore);
+                    }
+                    
+                    if (ambiguous)
+                        status = FixQualityGate.REJECTED_AMBIGUOUS;
+                    else
+                        status = qualityGate.check(tag, msgTime, tag.solution, gdop, tag.residuals, tag.usedAnchors, anchorDropped);
+                    qualityOutput.sendData(msgTime, tag.name, status, tag.usedAnchors, gdop, tag.residuals);
+                }
+                
+                if (status != FixQualityGate.ACCEPTED && status != FixQualityGate.ANCHOR_DROPPED)
+                    continue;
+                
+                localPosOutput.sendData(msgTime, tag.name, tag.solution, gdop, tag.residuals);
+                if (geoPosOutput != null)
+                    geoPosOutput.sendData(msgTime, tag.name, tag.solution);
+                
+                // update tracking filter with fix weighted by its geometry
+                if (trackOutput != null && !Double.isInfinite(gdop))
+                {
+                    double sigma = config.rangeNoise * gdop;
+                    double accelVar = config.trackAccelNoise * config.trackAccelNoise;
+                    tag.tracker.update(msgTime, tag.solution, sigma*sigma, accelVar, INIT_VELOCITY_VAR);
+                    
+                    if (config.trackOutputRate <= 0 && tag.tracker.predict(msgTime, tag.trackPos, tag.trackVel))
+                        trackOutput.sendData(msgTime, tag.name, tag.trackPos, tag.trackVel);
+                }
+            }
+            catch (Exception e)
+            {
+                getLogger().error("Cannot compute location of tag " + tag.name, e);
+            }
         }
     }
     
 
+    /*
+     * Computes location of tag using all anchors, or all anchors but the
+     * excluded one, and sets the mask of anchors used in tag.usedAnchors.
+     * Residuals are computed for all anchors.
+     * Returns the GDOP, or NaN if the tag cannot be solved with these anchors.
+     */
+    private double solve(TagState tag, int excluded, Vec3d solution, double[] residuals)
+    {
+        int allAnchors = (1 << numAnchors) - 1;
+        
+        if (multilat != null)
+        {
+            if (excluded < 0)
+            {
+                tag.usedAnchors = allAnchors;
+                return multilat.solve(solution, tag.ranges, residuals);
+            }
+            
+            if (multilatSubsets == null || multilatSubsets[excluded] == null)
+                return Double.NaN;
+            
+            for (int i = 0, k = 0; i < numAnchors; i++)
+            {
+                if (i != excluded)
+                    tag.subsetRanges[k++] = tag.ranges[i];
+            }
+            
+            tag.usedAnchors = allAnchors & ~(1 << excluded);
+            double gdop = multilatSubsets[excluded].solve(solution, tag.subsetRanges, residuals);
+            Multilateration.evaluate(anchorLocations, numAnchors, solution, tag.ranges, residuals);
+            return gdop;
+        }
+        else
+        {
+            // trilateration only uses 3 anchors, starting with the one following the excluded one
+            if (excluded < 0)
+            {
+                tag.usedAnchors = 0x7;
+                if (tag.solver.getLocation(solution, 0, anchorGeometry, tag.ranges) < 0)
+                    return Double.NaN;
+            }
+            else
+            {
+                if (numAnchors < 4)
+                    return Double.NaN;
+                
+                int combination = (excluded + 1) % numAnchors;
+                tag.usedAnchors = allAnchors & ~(1 << excluded);
+                if (tag.solver.getLocation(solution, anchorGeometry, combination, tag.ranges) < 0)
+                    return Double.NaN;
+            }
+            
+            return Multilateration.evaluate(anchorLocations, numAnchors, solution, tag.ranges, residuals);
+        }
+    }
+    
+
+    /*
+     * Publishes predicted location of all tracked tags at current time
+     */
+    private void publishTracks()
+    {
+        try
+        {
+            long now = System.currentTimeMillis();
+            for (TagState tag: tagList)
+            {
+                if (tag.tracker.predict(now, trackPos, trackVel))
+                    trackOutput.sendData(now, tag.name, trackPos, trackVel);
+            }
+        }
+        catch (Exception e)
+        {
+            getLogger().error("Cannot publish tag tracks", e);
+        }
+    }
+    
+
+    @Override
+    public void loadState(IModuleStateManager loader) throws SensorHubException
+    {
+        super.loadState(loader);
+        
+        if (anchorSurvey == null)
+            return;
+        
+        try
+        {
+            InputStream is = loader.getAsInputStream(STATE_SURVEYED_ANCHORS);
+            if (is != null)
+            {
+                DataInputStream dis = new DataInputStream(is);
+                int numAnchors = dis.readInt();
+                if (numAnchors != AnchorSurvey.NUM_SURVEYED_ANCHORS)
+                    throw new IOException("Surveyed anchor data must contain " + AnchorSurvey.NUM_SURVEYED_ANCHORS + " anchors");
+                
+                Vec3d[] anchors = new Vec3d[numAnchors];
+                for (int i = 0; i < numAnchors; i++)
+                    anchors[i] = new Vec3d(dis.readDouble(), dis.readDouble(), dis.readDouble());
+                anchorSurvey.setAnchors(anchors);
+            }
+        }
+        catch (Exception e)
+        {
+            getLogger().error("Cannot load surveyed anchor locations", e);
+        }
+    }
+
+
+    @Override
+    public void saveState(IModuleStateManager saver) throws SensorHubException
+    {
+        super.saveState(saver);
+        
+        if (anchorSurvey == null)
+            return;
+        
+        Vec3d[] anchors = new Vec3d[AnchorSurvey.NUM_SURVEYED_ANCHORS];
+        for (int i = 0; i < anchors.length; i++)
+            anchors[i] = new Vec3d(0.0, 0.0, 0.0);
+        
+        if (anchorSurvey.getAnchors(anchors))
+        {
+            try
+            {
+                OutputStream os = saver.getOutputStream(STATE_SURVEYED_ANCHORS);
+                DataOutputStream dos = new DataOutputStream(os);
+                dos.writeInt(anchors.length);
+                for (Vec3d loc: anchors)
+                {
+                    dos.writeDouble(loc.x);
+                    dos.writeDouble(loc.y);
+                    dos.writeDouble(loc.z);
+                }
+                dos.flush();
+            }
+            catch (IOException e)
+            {
+                getLogger().error("Cannot save surveyed anchor locations", e);
+            }
+        }
+    }
+    
+    
+    private static String toString(Vec3d v)
+    {
+        return String.format("[%.3f, %.3f, %.3f]", v.x, v.y, v.z);
+    }
+    
+
     @Override
     public void stop() throws SensorHubException
     {
         started = false;
         
-        if (reader != null)
+        if (dataIn != null)
         {
-            try { reader.close(); }
+            try { dataIn.close(); }
             catch (IOException e) { }
         }
         
+        if (trackScheduler != null)
+        {
+            trackScheduler.shutdownNow();
+            trackScheduler = null;
+        }
+        
+        if (solverPool != null)
+        {
+            solverPool.shutdown();
+            try { solverPool.awaitTermination(1, TimeUnit.SECONDS); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+            solverPool = null;
+        }
+        
         if (commProvider != null)
         {
             commProvider.stop();
@@ -0,0 +1,91 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.sensorhub.api.comm.CommProviderConfig;
+import org.sensorhub.api.config.DisplayInfo;
+import org.sensorhub.api.sensor.PositionConfig.LLALocation;
+
+
+/**
+ * <p>
+ * Configuration of simulated TREK1000 data stream
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class SimulatedTrek1000Config extends CommProviderConfig<Object>
+{
+    public enum TrajectoryType
+    {
+        CIRCLE,
+        RANDOM_WAYPOINTS
+    }
+
+
+    @DisplayInfo(desc="Anchor locations in local coordinates, in meters, with X as longitude, Y as latitude and Z as altitude")
+    public List<LLALocation> anchorLocations = new ArrayList<>();
+
+    @DisplayInfo(label="Number of Tags", desc="Number of simulated tags")
+    public int numTags = 1;
+
+    @DisplayInfo(label="Tag Rate", desc="Rate at which each tag reports its ranges, in Hz")
+    public double tagRate = 10.0;
+
+    @DisplayInfo(label="Trajectory", desc="Type of trajectory followed by tags: circles around the center of anchors, or straight lines between random points within anchors bounding box")
+    public TrajectoryType trajectory = TrajectoryType.CIRCLE;
+
+    @DisplayInfo(label="Tag Speed", desc="Speed of tags, in m/s")
+    public double tagSpeed = 1.0;
+
+    @DisplayInfo(label="Trajectory Radius", desc="Radius of circular trajectories, in meters")
+    public double trajectoryRadius = 3.0;
+
+    @DisplayInfo(label="Tag Height", desc="Altitude of tags, in meters")
+    public double tagHeight = 1.0;
+
+    @DisplayInfo(label="Range Noise", desc="Standard deviation of gaussian noise added to ranges, in meters")
+    public double rangeNoise = 0.05;
+
+    @DisplayInfo(label="NLOS Probability", desc="Probability that a range is affected by non line-of-sight propagation")
+    public double nlosProbability = 0.0;
+
+    @DisplayInfo(label="NLOS Max Excess", desc="Maximum excess length of NLOS ranges, in meters (excess is uniformly distributed)")
+    public double nlosMaxExcess = 2.0;
+
+    @DisplayInfo(label="Anchor Range Rate", desc="Rate at which anchor to anchor ranges are reported, in Hz (0 to disable)")
+    public double anchorRangeRate = 0.0;
+
+    @DisplayInfo(label="Random Seed", desc="Seed of random generator, so simulations can be reproduced")
+    public long randomSeed = 42;
+
+    @DisplayInfo(label="Replay File", desc="Path of captured TREK1000 log to replay instead of simulating tags")
+    public String replayFile;
+
+    @DisplayInfo(label="Replay Rate", desc="Rate at which lines of the log are replayed, in lines per second")
+    public double replayRate = 100.0;
+
+    @DisplayInfo(label="Replay Loop", desc="Set to restart replay at the beginning of the log when the end is reached")
+    public boolean replayLoop = true;
+
+
+    public SimulatedTrek1000Config()
+    {
+        this.moduleClass = SimulatedTrek1000Stream.class.getCanonicalName();
+    }
+}
@@ -0,0 +1,432 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import org.sensorhub.api.comm.ICommProvider;
+import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.api.sensor.PositionConfig.LLALocation;
+import org.sensorhub.impl.module.AbstractModule;
+import org.sensorhub.test.sensor.trek1000.SimulatedTrek1000Config.TrajectoryType;
+
+
+/**
+ * <p>
+ * Simulated TREK1000 data stream, generating mc messages for any number of
+ * tags moving along simple trajectories, with gaussian range noise and
+ * random NLOS range excess, and optionally ma messages with anchor to
+ * anchor ranges. It can also replay a log captured from a TREK1000 serial
+ * port at a given rate.
+ * </p><p>
+ * Messages are generated by a single timer thread at a fixed tick rate,
+ * and messages of different tags are spread evenly over each ranging
+ * cycle, so the driver can be load tested with many tags without hardware.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class SimulatedTrek1000Stream extends AbstractModule<SimulatedTrek1000Config> implements ICommProvider<SimulatedTrek1000Config>
+{
+    static final long TICK_PERIOD = 10; // ms
+    static final int PIPE_SIZE = 64*1024;
+    static final int MAX_ANCHORS = 4;
+    static final double MAX_BACKLOG = 1.0; // s
+
+    PipedInputStream is;
+    OutputStream os;
+    Timer timer;
+    Random random;
+    long startTime;
+    final byte[] msgBuf = new byte[256];
+
+    // anchors
+    int numAnchors;
+    final double[] ax = new double[MAX_ANCHORS];
+    final double[] ay = new double[MAX_ANCHORS];
+    final double[] az = new double[MAX_ANCHORS];
+    double minX, maxX, minY, maxY;
+
+    // tag states
+    double[] tagX, tagY, targetX, targetY, tagTime;
+    int[] tagSeq;
+    int nextTag;
+    long numTagMsgs;
+    long numAnchorMsgs;
+
+    // replay state
+    BufferedReader replayReader;
+    long numReplayLines;
+
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        return is;
+    }
+
+
+    @Override
+    public OutputStream getOutputStream() throws IOException
+    {
+        return null;
+    }
+
+
+    @Override
+    public void start() throws SensorHubException
+    {
+        // start simulated datastream thread
+        if (timer != null)
+            return;
+
+        if (config.replayFile == null)
+            initSimulation();
+        else
+            openReplayFile();
+
+        // create piped is / os pair
+        try
+        {
+            os = new PipedOutputStream();
+            is = new PipedInputStream(PIPE_SIZE);
+            is.connect((PipedOutputStream)os);
+        }
+        catch (IOException e)
+        {
+            throw new SensorHubException("Cannot create simulated data stream", e);
+        }
+
+        // start main measurement generation thread
+        startTime = System.currentTimeMillis();
+        timer = new Timer();
+        TimerTask task = new TimerTask() {
+            public void run()
+            {
+                try
+                {
+                    double time = (System.currentTimeMillis() - startTime) / 1000.0;
+                    if (replayReader != null)
+                        replayLines(time);
+                    else
+                        sendMeasurements(time);
+                }
+                catch (IOException e)
+                {
+                    // stream was closed by reader or stop() method
+                    cancel();
+                }
+            }
+        };
+
+        timer.scheduleAtFixedRate(task, 0, TICK_PERIOD);
+    }
+
+
+    private void initSimulation() throws SensorHubException
+    {
+        numAnchors = config.anchorLocations.size();
+        if (numAnchors < 3 || numAnchors > MAX_ANCHORS)
+            throw new SensorHubException("Simulation requires 3 to " + MAX_ANCHORS + " anchor locations");
+
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numAnchors; i++)
+        {
+            LLALocation loc = config.anchorLocations.get(i);
+            ax[i] = loc.lon;
+            ay[i] = loc.lat;
+            az[i] = loc.alt;
+            minX = Math.min(minX, ax[i]);
+            maxX = Math.max(maxX, ax[i]);
+            minY = Math.min(minY, ay[i]);
+            maxY = Math.max(maxY, ay[i]);
+        }
+
+        random = new Random(config.randomSeed);
+        int numTags = config.numTags;
+        tagX = new double[numTags];
+        tagY = new double[numTags];
+        targetX = new double[numTags];
+        targetY = new double[numTags];
+        tagTime = new double[numTags];
+        tagSeq = new int[numTags];
+        for (int i = 0; i < numTags; i++)
+        {
+            tagX[i] = minX + (maxX - minX) * random.nextDouble();
+            tagY[i] = minY + (maxY - minY) * random.nextDouble();
+            targetX[i] = tagX[i];
+            targetY[i] = tagY[i];
+        }
+
+        nextTag = 0;
+        numTagMsgs = 0;
+        numAnchorMsgs = 0;
+    }
+
+
+    private void openReplayFile() throws SensorHubException
+    {
+        try
+        {
+            replayReader = new BufferedReader(new FileReader(config.replayFile));
+            numReplayLines = 0;
+        }
+        catch (IOException e)
+        {
+            throw new SensorHubException("Cannot open replay file " + config.replayFile, e);
+        }
+    }
+
+
+    /*
+     * Sends all messages due at the given time since start
+     */
+    private void sendMeasurements(double time) throws IOException
+    {
+        int numTags = config.numTags;
+        if (numTags > 0)
+        {
+            // skip messages if we're too late
+            double tagMsgRate = config.tagRate * numTags;
+            long expected = (long)(time * tagMsgRate);
+            numTagMsgs = Math.max(numTagMsgs, expected - (long)(MAX_BACKLOG * tagMsgRate));
+
+            while (numTagMsgs < expected)
+            {
+                sendTagRanges(nextTag, time);
+                nextTag = (nextTag + 1) % numTags;
+                numTagMsgs++;
+            }
+        }
+
+        if (config.anchorRangeRate > 0)
+        {
+            long expected = (long)(time * config.anchorRangeRate);
+            if (numAnchorMsgs < expected)
+            {
+                sendAnchorRanges();
+                numAnchorMsgs = expected;
+            }
+        }
+    }
+
+
+    /*
+     * Generates mc message with ranges from tag to all anchors
+     */
+    private void sendTagRanges(int tag, double time) throws IOException
+    {
+        // compute tag position
+        double x, y, z = config.tagHeight;
+        if (config.trajectory == TrajectoryType.CIRCLE)
+        {
+            double r = config.trajectoryRadius;
+            double angle = 2.0 * Math.PI * tag / config.numTags + config.tagSpeed / r * time;
+            x = (minX + maxX) / 2.0 + r * Math.cos(angle);
+            y = (minY + maxY) / 2.0 + r * Math.sin(angle);
+        }
+        else
+        {
+            moveToWaypoint(tag, time);
+            x = tagX[tag];
+            y = tagY[tag];
+        }
+
+        int seq = tagSeq[tag]++;
+        int pos = putText(0, "mc ");
+        pos = putHex(pos, (1 << numAnchors) - 1, 2);
+        for (int i = 0; i < MAX_ANCHORS; i++)
+        {
+            int range = 0;
+            if (i < numAnchors)
+            {
+                double dx = x - ax[i], dy = y - ay[i], dz = z - az[i];
+                range = simulateRange(Math.sqrt(dx*dx + dy*dy + dz*dz));
+            }
+            msgBuf[pos++] = ' ';
+            pos = putHex(pos, range, 8);
+        }
+        msgBuf[pos++] = ' ';
+        pos = putHex(pos, seq & 0xFFFF, 4);
+        msgBuf[pos++] = ' ';
+        pos = putHex(pos, seq & 0xFF, 2);
+        pos = putText(pos, " 00000000 a");
+        pos = putDecimal(pos, tag);
+        pos = putText(pos, ":0\r\n");
+        os.write(msgBuf, 0, pos);
+    }
+
+
+    /*
+     * Generates ma message with ranges A0-A1, A0-A2 and A1-A2
+     */
+    private void sendAnchorRanges() throws IOException
+    {
+        int pos = putText(0, "ma 0e 00000000");
+        int[][] pairs = {{0, 1}, {0, 2}, {1, 2}};
+        for (int[] p: pairs)
+        {
+            double dx = ax[p[1]] - ax[p[0]], dy = ay[p[1]] - ay[p[0]], dz = az[p[1]] - az[p[0]];
+            msgBuf[pos++] = ' ';
+            pos = putHex(pos, simulateRange(Math.sqrt(dx*dx + dy*dy + dz*dz)), 8);
+        }
+        pos = putText(pos, " 0000 00 00000000 a0:0\r\n");
+        os.write(msgBuf, 0, pos);
+    }
+
+
+    /*
+     * Moves tag in straight line towards its current target, and picks
+     * a new random target when it's reached
+     */
+    private void moveToWaypoint(int tag, double time)
+    {
+        double dist = config.tagSpeed * (time - tagTime[tag]);
+        tagTime[tag] = time;
+
+        while (dist > 0)
+        {
+            double dx = targetX[tag] - tagX[tag];
+            double dy = targetY[tag] - tagY[tag];
+            double d = Math.sqrt(dx*dx + dy*dy);
+            if (d > dist)
+            {
+                tagX[tag] += dx * dist / d;
+                tagY[tag] += dy * dist / d;
+                return;
+            }
+
+            tagX[tag] = targetX[tag];
+            tagY[tag] = targetY[tag];
+            targetX[tag] = minX + (maxX - minX) * random.nextDouble();
+            targetY[tag] = minY + (maxY - minY) * random.nextDouble();
+            dist -= d;
+        }
+    }
+
+
+    /*
+     * Returns measured range in mm with noise and NLOS excess
+     */
+    private int simulateRange(double dist)
+    {
+        double range = dist + config.rangeNoise * random.nextGaussian();
+        if (config.nlosProbability > 0 && random.nextDouble() < config.nlosProbability)
+            range += config.nlosMaxExcess * random.nextDouble();
+        return (int)Math.round(Math.max(0.0, range) * 1000);
+    }
+
+
+    /*
+     * Writes log lines due at the given time since start
+     */
+    private void replayLines(double time) throws IOException
+    {
+        long expected = (long)(time * config.replayRate);
+        numReplayLines = Math.max(numReplayLines, expected - (long)(MAX_BACKLOG * config.replayRate));
+
+        while (numReplayLines < expected)
+        {
+            String line = replayReader.readLine();
+            if (line == null)
+            {
+                replayReader.close();
+                if (!config.replayLoop)
+                {
+                    // reader will get EOF
+                    os.close();
+                    throw new IOException("End of replay file");
+                }
+
+                replayReader = new BufferedReader(new FileReader(config.replayFile));
+                continue;
+            }
+
+            os.write(line.getBytes(StandardCharsets.US_ASCII));
+            os.write('\n');
+            numReplayLines++;
+        }
+    }
+
+
+    private int putText(int pos, String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+            msgBuf[pos++] = (byte)text.charAt(i);
+        return pos;
+    }
+
+
+    private int putHex(int pos, long val, int numDigits)
+    {
+        for (int i = numDigits-1; i >= 0; i--)
+        {
+            int digit = (int)(val >> (4*i)) & 0xF;
+            msgBuf[pos++] = (byte)((digit < 10) ? '0' + digit : 'a' + digit - 10);
+        }
+        return pos;
+    }
+
+
+    private int putDecimal(int pos, int val)
+    {
+        if (val >= 10)
+            pos = putDecimal(pos, val / 10);
+        msgBuf[pos++] = (byte)('0' + val % 10);
+        return pos;
+    }
+
+
+    @Override
+    public void stop() throws SensorHubException
+    {
+        if (timer != null)
+        {
+            timer.cancel();
+            timer = null;
+        }
+
+        if (is != null)
+        {
+            try { is.close(); }
+            catch (IOException e) { }
+            is = null;
+        }
+
+        if (replayReader != null)
+        {
+            try { replayReader.close(); }
+            catch (IOException e) { }
+            replayReader = null;
+        }
+    }
+
+
+    @Override
+    public void cleanup() throws SensorHubException
+    {
+    }
+}
@@ -0,0 +1,105 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.AnchorSurvey;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestAnchorSurvey
+{
+    static final int MA_MASK = 0x0E;
+
+
+    protected int range(Vec3d p1, Vec3d p2, double noise, Random random)
+    {
+        double dx = p2.x - p1.x, dy = p2.y - p1.y, dz = p2.z - p1.z;
+        double r = Math.sqrt(dx*dx + dy*dy + dz*dz) + noise*random.nextGaussian();
+        return (int)Math.round(r*1000);
+    }
+
+
+    protected Vec3d[] newVectors()
+    {
+        Vec3d[] v = new Vec3d[AnchorSurvey.NUM_SURVEYED_ANCHORS];
+        for (int i = 0; i < v.length; i++)
+            v[i] = new Vec3d(0, 0, 0);
+        return v;
+    }
+
+
+    @Test
+    public void testSurveyTriangle()
+    {
+        Random random = new Random(42);
+
+        // true anchor locations in surveyed frame
+        Vec3d[] truth = {new Vec3d(0, 0, 2.5), new Vec3d(12.0, 0, 2.8), new Vec3d(4.5, 9.0, 2.2)};
+        double[] heights = {truth[0].z, truth[1].z, truth[2].z};
+        AnchorSurvey survey = new AnchorSurvey(heights, 50);
+        Vec3d[] result = newVectors();
+
+        int[] ranges = new int[4];
+        for (int n = 0; n < 2000; n++)
+        {
+            ranges[0] = 0;
+            ranges[1] = range(truth[0], truth[1], 0.05, random);
+            ranges[2] = range(truth[0], truth[2], 0.05, random);
+            ranges[3] = range(truth[1], truth[2], 0.05, random);
+            boolean updated = survey.addRanges(MA_MASK, ranges);
+            assertEquals(n >= 49, updated);
+            assertEquals(n >= 49, survey.getAnchors(result));
+        }
+
+        assertEquals(2000, survey.getNumSamples());
+        for (int p = 0; p < 3; p++)
+            assertEquals(0.05, survey.getStdDev(p), 0.005);
+
+        for (int i = 0; i < truth.length; i++)
+        {
+            assertEquals(truth[i].x, result[i].x, 0.01);
+            assertEquals(truth[i].y, result[i].y, 0.01);
+            assertEquals(truth[i].z, result[i].z, 0.0);
+        }
+    }
+
+
+    @Test
+    public void testMaskAndPreviousSurvey()
+    {
+        AnchorSurvey survey = new AnchorSurvey(new double[] {2, 2, 2}, 1);
+        Vec3d[] result = newVectors();
+        assertFalse(survey.getAnchors(result));
+
+        // previous survey is used until enough ranges are accumulated
+        Vec3d[] previous = {new Vec3d(0, 0, 2), new Vec3d(5, 0, 2), new Vec3d(0, 5, 2)};
+        survey.setAnchors(previous);
+        assertTrue(survey.getAnchors(result));
+        assertEquals(5.0, result[1].x, 0.0);
+
+        // A1-A2 range not flagged as valid
+        assertFalse(survey.addRanges(0x06, new int[] {0, 3000, 4000, 5000}));
+        assertEquals(0, survey.getNumSamples());
+
+        assertTrue(survey.addRanges(MA_MASK, new int[] {0, 3000, 4000, 5000}));
+        assertTrue(survey.getAnchors(result));
+        assertEquals(3.0, result[1].x, 1e-9);
+        assertEquals(0.0, result[2].x, 1e-9);
+        assertEquals(4.0, result[2].y, 1e-9);
+    }
+}
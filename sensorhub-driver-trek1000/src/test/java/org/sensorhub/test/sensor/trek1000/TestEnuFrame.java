@@ -0,0 +1,80 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.EnuFrame;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestEnuFrame
+{
+    static final double LAT0 = 34.7304;
+    static final double LON0 = -86.5861;
+    static final double ALT0 = 190.0;
+
+
+    @Test
+    public void testOriginAndAxes()
+    {
+        EnuFrame frame = new EnuFrame(LAT0, LON0, ALT0);
+        Vec3d enu = new Vec3d(0, 0, 0);
+
+        frame.llaToEnu(LAT0, LON0, ALT0, enu);
+        assertEquals(0.0, enu.x, 1e-6);
+        assertEquals(0.0, enu.y, 1e-6);
+        assertEquals(0.0, enu.z, 1e-6);
+
+        // 1e-4 deg of latitude is about 11.1m north
+        frame.llaToEnu(LAT0 + 1e-4, LON0, ALT0, enu);
+        assertEquals(0.0, enu.x, 1e-3);
+        assertEquals(11.09, enu.y, 0.02);
+
+        // 1e-4 deg of longitude is about 11.1m*cos(lat) east
+        frame.llaToEnu(LAT0, LON0 + 1e-4, ALT0, enu);
+        assertEquals(11.13*Math.cos(Math.toRadians(LAT0)), enu.x, 0.02);
+        assertEquals(0.0, enu.y, 1e-3);
+
+        frame.llaToEnu(LAT0, LON0, ALT0 + 3.0, enu);
+        assertEquals(3.0, enu.z, 1e-6);
+    }
+
+
+    @Test
+    public void testRoundTrip()
+    {
+        EnuFrame frame = new EnuFrame(LAT0, LON0, ALT0);
+        Vec3d enu = new Vec3d(0, 0, 0);
+        Vec3d lla = new Vec3d(0, 0, 0);
+
+        for (double e = -50; e <= 50; e += 10)
+        {
+            for (double n = -50; n <= 50; n += 10)
+            {
+                enu.x = e;
+                enu.y = n;
+                enu.z = 1.5;
+                frame.enuToLla(enu, lla);
+
+                Vec3d enu2 = new Vec3d(0, 0, 0);
+                frame.llaToEnu(lla.x, lla.y, lla.z, enu2);
+                assertEquals(e, enu2.x, 1e-4);
+                assertEquals(n, enu2.y, 1e-4);
+                assertEquals(1.5, enu2.z, 1e-4);
+            }
+        }
+    }
+}
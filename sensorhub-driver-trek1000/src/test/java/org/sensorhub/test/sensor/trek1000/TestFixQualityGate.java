@@ -0,0 +1,197 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.FixQualityGate;
+import org.sensorhub.impl.sensor.trek1000.Multilateration;
+import org.sensorhub.impl.sensor.trek1000.TagState;
+import org.sensorhub.impl.sensor.trek1000.TagStateMap;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestFixQualityGate
+{
+    static final int ALL_ANCHORS = 0xF;
+
+
+    protected void computeRanges(Vec3d[] anchors, double x, double y, double z, double noise, Random random, int[] ranges)
+    {
+        for (int i = 0; i < anchors.length; i++)
+        {
+            double dx = x - anchors[i].x;
+            double dy = y - anchors[i].y;
+            double dz = z - anchors[i].z;
+            double r = Math.sqrt(dx*dx + dy*dy + dz*dz) + noise*random.nextGaussian();
+            ranges[i] = (int)Math.round(r*1000);
+        }
+    }
+
+
+    protected double distance(Vec3d pos, double x, double y, double z)
+    {
+        double dx = pos.x - x, dy = pos.y - y, dz = pos.z - z;
+        return Math.sqrt(dx*dx + dy*dy + dz*dz);
+    }
+
+
+    @Test
+    public void testRejectResidualsAndGdop()
+    {
+        FixQualityGate gate = new FixQualityGate(0.5, 10.0, 0.0);
+        TagState tag = new TagStateMap().getOrCreate(1);
+        Vec3d fix = new Vec3d(1, 2, 1);
+
+        double[] residuals = {0.1, -0.2, 0.6, 0.0};
+        assertEquals(FixQualityGate.REJECTED_RESIDUALS, gate.check(tag, 1000, fix, 2.0, residuals, ALL_ANCHORS, false));
+
+        // residual of anchor not used in fix is ignored
+        assertEquals(FixQualityGate.ANCHOR_DROPPED, gate.check(tag, 1000, fix, 2.0, residuals, 0xB, true));
+
+        residuals[2] = 0.1;
+        assertEquals(FixQualityGate.REJECTED_GDOP, gate.check(tag, 1000, fix, 12.0, residuals, ALL_ANCHORS, false));
+        assertEquals(FixQualityGate.REJECTED_GDOP, gate.check(tag, 1000, fix, Double.POSITIVE_INFINITY, residuals, ALL_ANCHORS, false));
+        assertEquals(FixQualityGate.ACCEPTED, gate.check(tag, 1000, fix, 2.0, residuals, ALL_ANCHORS, false));
+    }
+
+
+    @Test
+    public void testRejectJumps()
+    {
+        FixQualityGate gate = new FixQualityGate(0.5, 10.0, 2.0);
+        TagState tag = new TagStateMap().getOrCreate(1);
+        double[] residuals = new double[4];
+        Vec3d fix = new Vec3d(0, 0, 1);
+
+        long time = 1000;
+        assertEquals(FixQualityGate.ACCEPTED, gate.check(tag, time, fix, 1.0, residuals, ALL_ANCHORS, false));
+
+        // 0.7m in 100ms is within speed limit + residual margin
+        time += 100;
+        fix.x = 0.7;
+        assertEquals(FixQualityGate.ACCEPTED, gate.check(tag, time, fix, 1.0, residuals, ALL_ANCHORS, false));
+
+        // jump of 5m is rejected until it is confirmed by several fixes
+        fix.x = 5.7;
+        for (int i = 1; i < FixQualityGate.MAX_JUMP_REJECTIONS; i++)
+        {
+            time += 100;
+            assertEquals(FixQualityGate.REJECTED_JUMP, gate.check(tag, time, fix, 1.0, residuals, ALL_ANCHORS, false));
+        }
+        time += 100;
+        assertEquals(FixQualityGate.ACCEPTED, gate.check(tag, time, fix, 1.0, residuals, ALL_ANCHORS, false));
+
+        // no check after a long gap
+        time += FixQualityGate.MAX_JUMP_CHECK_GAP + 1;
+        fix.x = 50.0;
+        assertEquals(FixQualityGate.ACCEPTED, gate.check(tag, time, fix, 1.0, residuals, ALL_ANCHORS, false));
+    }
+
+
+    @Test
+    public void testDropNlosAnchor()
+    {
+        Random random = new Random(42);
+        FixQualityGate gate = new FixQualityGate(0.5, 20.0, 0.0);
+        Vec3d[] anchors = {
+            new Vec3d(0, 0, 3), new Vec3d(20, 0, 3), new Vec3d(20, 15, 3), new Vec3d(0, 15, 3)
+        };
+        Multilateration multilat = new Multilateration(anchors);
+
+        // solvers excluding each anchor
+        Multilateration[] subsets = new Multilateration[anchors.length];
+        for (int excluded = 0; excluded < anchors.length; excluded++)
+        {
+            Vec3d[] subset = new Vec3d[anchors.length-1];
+            for (int i = 0, k = 0; i < anchors.length; i++)
+            {
+                if (i != excluded)
+                    subset[k++] = anchors[i];
+            }
+            subsets[excluded] = new Multilateration(subset);
+        }
+
+        int[] ranges = new int[anchors.length];
+        int[] subsetRanges = new int[anchors.length-1];
+        double[] residuals = new double[anchors.length];
+        Vec3d full = new Vec3d(0, 0, 0);
+        Vec3d solution = new Vec3d(0, 0, 0);
+        Vec3d best = new Vec3d(0, 0, 0);
+        int numDetected = 0, numDropped = 0, numIdentified = 0;
+        double fullError = 0, droppedError = 0;
+
+        for (int n = 0; n < 1000; n++)
+        {
+            double x = 2 + 16*random.nextDouble();
+            double y = 2 + 11*random.nextDouble();
+            double z = 0.2 + 1.5*random.nextDouble();
+            computeRanges(anchors, x, y, z, 0.02, random, ranges);
+
+            // add NLOS excess delay to one anchor
+            int nlosAnchor = random.nextInt(anchors.length);
+            ranges[nlosAnchor] += 1500 + random.nextInt(1500);
+
+            multilat.solve(full, ranges, residuals);
+            if (!gate.hasOutlier(residuals, ALL_ANCHORS))
+                continue;
+            numDetected++;
+
+            // keep solution with best score
+            int bestExcluded = -1;
+            double bestScore = Double.POSITIVE_INFINITY;
+            double secondScore = Double.POSITIVE_INFINITY;
+            for (int excluded = 0; excluded < anchors.length; excluded++)
+            {
+                for (int i = 0, k = 0; i < anchors.length; i++)
+                {
+                    if (i != excluded)
+                        subsetRanges[k++] = ranges[i];
+                }
+                subsets[excluded].solve(solution, subsetRanges, residuals);
+                Multilateration.evaluate(anchors, anchors.length, solution, ranges, residuals);
+
+                double score = gate.score(residuals, ALL_ANCHORS & ~(1 << excluded), excluded);
+                if (score >= bestScore)
+                {
+                    secondScore = Math.min(secondScore, score);
+                }
+                else
+                {
+                    secondScore = bestScore;
+                    bestScore = score;
+                    bestExcluded = excluded;
+                    best.set(solution);
+                }
+            }
+
+            // only count fixes that would be published
+            if (gate.isAmbiguous(bestScore, secondScore))
+                continue;
+
+            numDropped++;
+            fullError += distance(full, x, y, z);
+            droppedError += distance(best, x, y, z);
+            if (bestExcluded == nlosAnchor)
+                numIdentified++;
+        }
+
+        assertTrue("Only " + numDetected + " NLOS ranges detected", numDetected > 700);
+        assertTrue("Only " + numDropped + " NLOS anchors dropped", numDropped > 100);
+        assertTrue("Only " + numIdentified + " NLOS anchors identified", numIdentified > 0.95*numDropped);
+        assertTrue("Mean error not reduced", droppedError < 0.1*fullError);
+    }
+}
@@ -0,0 +1,158 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.Multilateration;
+import org.sensorhub.impl.sensor.trek1000.Triangulation;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestMultilateration
+{
+    static final double[][] ANCHORS_3D =
+        {{0, 0, 2.0}, {12.3, 0.4, 2.8}, {6.1, 9.7, 0.3}, {0.2, 8.8, 1.5}};
+
+    static final double[][] ANCHORS_CEILING =
+        {{0, 0, 3}, {20, 0, 3}, {40, 0, 3}, {0, 15, 3}, {20, 15, 3}, {40, 15, 3}, {0, 30, 3}, {40, 30, 3}};
+
+
+    protected Vec3d[] toVectors(double[][] coords)
+    {
+        Vec3d[] anchors = new Vec3d[coords.length];
+        for (int i = 0; i < coords.length; i++)
+            anchors[i] = new Vec3d(coords[i][0], coords[i][1], coords[i][2]);
+        return anchors;
+    }
+
+
+    protected void computeRanges(Vec3d[] anchors, double x, double y, double z, double noise, Random random, int[] ranges)
+    {
+        for (int i = 0; i < anchors.length; i++)
+        {
+            double dx = x - anchors[i].x;
+            double dy = y - anchors[i].y;
+            double dz = z - anchors[i].z;
+            double r = Math.sqrt(dx*dx + dy*dy + dz*dz);
+            if (noise > 0)
+                r += noise*random.nextGaussian();
+            ranges[i] = (int)Math.round(r*1000);
+        }
+    }
+
+
+    protected void checkExactSolution(double[][] coords, boolean planar, double sizeX, double sizeY)
+    {
+        Random random = new Random(42);
+        Vec3d[] anchors = toVectors(coords);
+        Multilateration multilat = new Multilateration(anchors);
+        assertEquals(planar, multilat.isPlanar());
+
+        int[] ranges = new int[anchors.length];
+        double[] residuals = new double[anchors.length];
+        Vec3d solution = new Vec3d(0, 0, 0);
+
+        for (int n = 0; n < 1000; n++)
+        {
+            double x = sizeX*random.nextDouble();
+            double y = sizeY*random.nextDouble();
+            double z = 0.2 + 1.5*random.nextDouble();
+            computeRanges(anchors, x, y, z, 0.0, random, ranges);
+
+            // error can only come from rounding of ranges to mm
+            double gdop = multilat.solve(solution, ranges, residuals);
+            assertTrue(gdop > 0 && !Double.isInfinite(gdop));
+            double dx = solution.x - x, dy = solution.y - y, dz = solution.z - z;
+            assertEquals(0.0, Math.sqrt(dx*dx + dy*dy + dz*dz), 0.001*gdop);
+            for (int i = 0; i < anchors.length; i++)
+                assertEquals(0.0, residuals[i], 0.002);
+        }
+    }
+
+
+    @Test
+    public void test3DAnchors()
+    {
+        checkExactSolution(ANCHORS_3D, false, 12, 9);
+    }
+
+
+    @Test
+    public void testCeilingAnchors()
+    {
+        checkExactSolution(ANCHORS_CEILING, true, 40, 30);
+    }
+
+
+    @Test
+    public void testNoisyRangesMoreAccurateThanTrilateration()
+    {
+        Random random = new Random(42);
+        Vec3d[] anchors = toVectors(ANCHORS_3D);
+        Multilateration multilat = new Multilateration(anchors);
+        Triangulation trilat = new Triangulation();
+
+        int[] ranges = new int[anchors.length];
+        double[] residuals = new double[anchors.length];
+        Vec3d solution = new Vec3d(0, 0, 0);
+        double lsError = 0, trilatError = 0;
+
+        for (int n = 0; n < 2000; n++)
+        {
+            double x = 1 + 10*random.nextDouble();
+            double y = 1 + 8*random.nextDouble();
+            double z = 0.5 + random.nextDouble();
+            computeRanges(anchors, x, y, z, 0.05, random, ranges);
+
+            multilat.solve(solution, ranges, residuals);
+            lsError += Math.hypot(solution.x - x, solution.y - y);
+
+            trilat.getLocation(solution, 0, anchors, ranges);
+            trilatError += Math.hypot(solution.x - x, solution.y - y);
+        }
+
+        assertTrue(lsError < trilatError);
+    }
+
+
+    @Test
+    public void testGdopAndResiduals()
+    {
+        Vec3d[] anchors = toVectors(ANCHORS_CEILING);
+        int[] ranges = new int[anchors.length];
+        double[] residuals = new double[anchors.length];
+
+        // GDOP is lower in the middle of the anchor grid than outside of it
+        computeRanges(anchors, 20, 15, 1, 0.0, null, ranges);
+        double gdopInside = Multilateration.evaluate(anchors, anchors.length, new Vec3d(20, 15, 1), ranges, residuals);
+        computeRanges(anchors, 80, 60, 1, 0.0, null, ranges);
+        double gdopOutside = Multilateration.evaluate(anchors, anchors.length, new Vec3d(80, 60, 1), ranges, residuals);
+        assertTrue(gdopInside < gdopOutside);
+
+        // residuals are range errors
+        ranges[2] += 250;
+        Multilateration.evaluate(anchors, anchors.length, new Vec3d(80, 60, 1), ranges, residuals);
+        assertEquals(-0.25, residuals[2], 1e-3);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColinearAnchors()
+    {
+        new Multilateration(toVectors(new double[][] {{0, 0, 2}, {5, 0, 2}, {10, 0, 2}, {20, 0, 2}}));
+    }
+}
@@ -0,0 +1,152 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import org.junit.After;
+import org.junit.Test;
+import org.sensorhub.api.sensor.PositionConfig.LLALocation;
+import org.sensorhub.impl.sensor.trek1000.Multilateration;
+import org.sensorhub.impl.sensor.trek1000.Trek1000MessageParser;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestSimulatedTrek1000Stream
+{
+    static final double[][] ANCHORS = {{0, 0, 2.5}, {10, 0, 2.0}, {10, 8, 2.5}, {0, 8, 2.0}};
+
+    SimulatedTrek1000Stream stream;
+
+
+    protected SimulatedTrek1000Config newConfig()
+    {
+        SimulatedTrek1000Config config = new SimulatedTrek1000Config();
+        for (double[] coords: ANCHORS)
+        {
+            LLALocation loc = new LLALocation();
+            loc.lon = coords[0];
+            loc.lat = coords[1];
+            loc.alt = coords[2];
+            config.anchorLocations.add(loc);
+        }
+        return config;
+    }
+
+
+    @Test
+    public void testCircleTrajectories() throws Exception
+    {
+        SimulatedTrek1000Config config = newConfig();
+        config.numTags = 5;
+        config.tagRate = 50.0;
+        config.rangeNoise = 0.0;
+        config.anchorRangeRate = 20.0;
+
+        stream = new SimulatedTrek1000Stream();
+        stream.init(config);
+        stream.start();
+
+        Vec3d[] anchors = new Vec3d[ANCHORS.length];
+        for (int i = 0; i < anchors.length; i++)
+            anchors[i] = new Vec3d(ANCHORS[i][0], ANCHORS[i][1], ANCHORS[i][2]);
+        Multilateration multilat = new Multilateration(anchors);
+        Vec3d solution = new Vec3d(0, 0, 0);
+        double[] residuals = new double[anchors.length];
+
+        Trek1000MessageParser parser = new Trek1000MessageParser(stream.getInputStream());
+        int tagMask = 0, numTagMsgs = 0, numAnchorMsgs = 0;
+        while (numTagMsgs < 200 || numAnchorMsgs < 2)
+        {
+            int msgType = parser.nextMessage();
+            int[] ranges = parser.getRanges();
+
+            if (msgType == Trek1000MessageParser.MSG_MC)
+            {
+                assertEquals(0x0F, parser.getMask());
+                tagMask |= 1 << parser.getTagId();
+                numTagMsgs++;
+
+                // tags are on circle of configured radius around center of anchors
+                multilat.solve(solution, ranges, residuals);
+                double dx = solution.x - 5.0, dy = solution.y - 4.0;
+                assertEquals(config.trajectoryRadius, Math.sqrt(dx*dx + dy*dy), 0.01);
+                assertEquals(config.tagHeight, solution.z, 0.05);
+            }
+            else if (msgType == Trek1000MessageParser.MSG_MA)
+            {
+                assertEquals(0x0E, parser.getMask());
+                assertEquals(10012, ranges[1], 1);
+                assertEquals(12806, ranges[2], 1);
+                assertEquals(8016, ranges[3], 1);
+                numAnchorMsgs++;
+            }
+        }
+
+        assertEquals(0x1F, tagMask);
+        assertEquals(0, parser.getErrorCount());
+    }
+
+
+    @Test
+    public void testReplay() throws Exception
+    {
+        File logFile = File.createTempFile("trek1000", ".log");
+        logFile.deleteOnExit();
+        try (Writer writer = new FileWriter(logFile))
+        {
+            writer.write("mc 0f 00000663 000005a3 00000512 000004cb 095b 2c 00024bed a0:0\r\n");
+            writer.write("mc 0f 00000665 000005a1 00000511 000004cc 095c 2d 00024c0e a1:0\r\n");
+            writer.write("ma 0e 00000000 00002710 00003206 00001f50 0000 00 00000000 a0:0\r\n");
+        }
+
+        SimulatedTrek1000Config config = newConfig();
+        config.replayFile = logFile.getAbsolutePath();
+        config.replayRate = 1000.0;
+        config.replayLoop = false;
+
+        stream = new SimulatedTrek1000Stream();
+        stream.init(config);
+        stream.start();
+
+        Trek1000MessageParser parser = new Trek1000MessageParser(stream.getInputStream());
+        assertEquals(Trek1000MessageParser.MSG_MC, parser.nextMessage());
+        assertEquals(0, parser.getTagId());
+        assertEquals(0x663, parser.getRanges()[0]);
+        assertEquals(Trek1000MessageParser.MSG_MC, parser.nextMessage());
+        assertEquals(1, parser.getTagId());
+        assertEquals(Trek1000MessageParser.MSG_MA, parser.nextMessage());
+
+        try
+        {
+            parser.nextMessage();
+            fail("End of replay file should be reached");
+        }
+        catch (EOFException e)
+        {
+        }
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        if (stream != null)
+            stream.stop();
+    }
+}
@@ -0,0 +1,54 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.TagState;
+import org.sensorhub.impl.sensor.trek1000.TagStateMap;
+
+
+public class TestTagStateMap
+{
+
+    @Test
+    public void testGetOrCreate()
+    {
+        TagStateMap map = new TagStateMap(2);
+        int numTags = 1000;
+
+        TagState[] states = new TagState[numTags];
+        for (int i = 0; i < numTags; i++)
+        {
+            int id = (i % 2 == 0) ? i*64 : -i;
+            assertNull(map.get(id));
+            states[i] = map.getOrCreate(id);
+            assertEquals(id, states[i].getId());
+            assertEquals("T" + id, states[i].getName());
+        }
+
+        assertEquals(numTags, map.size());
+
+        // check same instances are returned after resizing
+        for (int i = 0; i < numTags; i++)
+        {
+            int id = (i % 2 == 0) ? i*64 : -i;
+            assertSame(states[i], map.get(id));
+            assertSame(states[i], map.getOrCreate(id));
+        }
+
+        assertEquals(numTags, map.size());
+    }
+}
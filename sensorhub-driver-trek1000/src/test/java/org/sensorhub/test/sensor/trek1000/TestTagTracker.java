@@ -0,0 +1,96 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.TagTracker;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+public class TestTagTracker
+{
+    static final double FIX_SIGMA = 0.1;
+    static final double ACCEL_VAR = 0.01;
+    static final double INIT_VEL_VAR = 1.0;
+
+
+    @Test
+    public void testConstantVelocity()
+    {
+        Random random = new Random(42);
+        TagTracker tracker = new TagTracker();
+        Vec3d fix = new Vec3d(0, 0, 0);
+        Vec3d pos = new Vec3d(0, 0, 0);
+        Vec3d vel = new Vec3d(0, 0, 0);
+        double vx = 1.2, vy = -0.5, vz = 0.0;
+        double rawError = 0, filteredError = 0;
+
+        // 20s of fixes at 10Hz
+        for (int n = 0; n < 200; n++)
+        {
+            long time = 1000000L + n*100L;
+            double t = n * 0.1;
+            fix.x = 2.0 + vx*t + FIX_SIGMA*random.nextGaussian();
+            fix.y = 5.0 + vy*t + FIX_SIGMA*random.nextGaussian();
+            fix.z = 1.0 + vz*t + FIX_SIGMA*random.nextGaussian();
+            tracker.update(time, fix, FIX_SIGMA*FIX_SIGMA, ACCEL_VAR, INIT_VEL_VAR);
+
+            assertTrue(tracker.predict(time, pos, vel));
+            if (n >= 100)
+            {
+                rawError += Math.abs(fix.x - (2.0 + vx*t));
+                filteredError += Math.abs(pos.x - (2.0 + vx*t));
+            }
+        }
+
+        // filtered positions are less noisy than fixes
+        assertTrue(filteredError < 0.75*rawError);
+        assertEquals(vx, vel.x, 0.1);
+        assertEquals(vy, vel.y, 0.1);
+        assertEquals(vz, vel.z, 0.1);
+
+        // prediction between fixes extrapolates with velocity
+        long lastTime = tracker.getLastUpdateTime();
+        Vec3d pos2 = new Vec3d(0, 0, 0);
+        assertTrue(tracker.predict(lastTime + 500, pos2, vel));
+        assertEquals(pos.x + 0.5*vel.x, pos2.x, 1e-9);
+        assertEquals(pos.y + 0.5*vel.y, pos2.y, 1e-9);
+    }
+
+
+    @Test
+    public void testStaleTrack()
+    {
+        TagTracker tracker = new TagTracker();
+        Vec3d pos = new Vec3d(0, 0, 0);
+        Vec3d vel = new Vec3d(0, 0, 0);
+        assertFalse(tracker.predict(0, pos, vel));
+
+        tracker.update(1000, new Vec3d(1, 2, 3), 0.01, ACCEL_VAR, INIT_VEL_VAR);
+        tracker.update(1100, new Vec3d(1.1, 2, 3), 0.01, ACCEL_VAR, INIT_VEL_VAR);
+        assertTrue(tracker.predict(1100 + TagTracker.MAX_PREDICTION_TIME, pos, vel));
+        assertFalse(tracker.predict(1101 + TagTracker.MAX_PREDICTION_TIME, pos, vel));
+
+        // filter is reset by a fix after a long gap
+        tracker.update(10000, new Vec3d(5, 6, 7), 0.01, ACCEL_VAR, INIT_VEL_VAR);
+        assertTrue(tracker.predict(10000, pos, vel));
+        assertEquals(5.0, pos.x, 0.0);
+        assertEquals(6.0, pos.y, 0.0);
+        assertEquals(7.0, pos.z, 0.0);
+        assertEquals(0.0, vel.x, 0.0);
+    }
+}
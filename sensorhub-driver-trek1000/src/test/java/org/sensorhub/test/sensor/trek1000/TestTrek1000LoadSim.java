@@ -0,0 +1,134 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sensorhub.api.common.Event;
+import org.sensorhub.api.common.IEventListener;
+import org.sensorhub.api.sensor.ISensorDataInterface;
+import org.sensorhub.api.sensor.PositionConfig.LLALocation;
+import org.sensorhub.api.sensor.SensorDataEvent;
+import org.sensorhub.impl.sensor.trek1000.Trek1000Config;
+import org.sensorhub.impl.sensor.trek1000.Trek1000Sensor;
+import org.sensorhub.test.sensor.trek1000.SimulatedTrek1000Config.TrajectoryType;
+
+
+/**
+ * <p>
+ * Load test of TREK1000 driver fed by simulated data stream.<br/>
+ * Reports latency between parsing of ranges and publication of location,
+ * and CPU time used by the whole process (simulator included).
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestTrek1000LoadSim implements IEventListener
+{
+    static final double[][] ANCHORS = {{0, 0, 2.5}, {20, 0, 2.0}, {20, 15, 2.5}, {0, 15, 2.0}};
+    static final int NUM_TAGS = 300;
+    static final double TAG_RATE = 10.0;
+    static final long DURATION = 10000; // ms
+
+    Trek1000Sensor driver;
+    Trek1000Config config;
+    long[] latencies = new long[1000000];
+    volatile int numFixes;
+
+
+    @Before
+    public void init() throws Exception
+    {
+        SimulatedTrek1000Config simConfig = new SimulatedTrek1000Config();
+        simConfig.numTags = NUM_TAGS;
+        simConfig.tagRate = TAG_RATE;
+        simConfig.trajectory = TrajectoryType.RANDOM_WAYPOINTS;
+        simConfig.nlosProbability = 0.02;
+
+        config = new Trek1000Config();
+        config.id = UUID.randomUUID().toString();
+        config.commSettings = simConfig;
+        for (double[] coords: ANCHORS)
+        {
+            LLALocation loc = new LLALocation();
+            loc.lon = coords[0];
+            loc.lat = coords[1];
+            loc.alt = coords[2];
+            config.anchorLocations.add(loc);
+            simConfig.anchorLocations.add(loc);
+        }
+
+        driver = new Trek1000Sensor();
+        driver.init(config);
+    }
+
+
+    @Test
+    public void testLoad() throws Exception
+    {
+        ISensorDataInterface locOutput = driver.getObservationOutputs().get("xyzLoc");
+        locOutput.registerListener(this);
+
+        com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+
+        driver.start();
+        Thread.sleep(DURATION);
+        driver.stop();
+
+        double cpuTime = (os.getProcessCpuTime() - cpuStart) / 1e9;
+        int n = Math.min(numFixes, latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+
+        System.out.printf("%d tags at %.0f Hz: %d fixes in %d ms%n", NUM_TAGS, TAG_RATE, numFixes, DURATION);
+        System.out.printf("Latency (ms): median=%d, p99=%d, max=%d%n", sorted[n/2], sorted[n*99/100], sorted[n-1]);
+        System.out.printf("CPU: %.1f%% of one core%n", cpuTime * 100000.0 / DURATION);
+
+        // allow for rejected fixes and start-up
+        assertTrue(numFixes > 0.5 * NUM_TAGS * TAG_RATE * DURATION / 1000);
+    }
+
+
+    @Override
+    public void handleEvent(Event<?> e)
+    {
+        assertTrue(e instanceof SensorDataEvent);
+        SensorDataEvent newDataEvent = (SensorDataEvent)e;
+
+        // event time stamp is time at which ranges were parsed
+        long latency = System.currentTimeMillis() - newDataEvent.getTimeStamp();
+        synchronized (this)
+        {
+            if (numFixes < latencies.length)
+                latencies[numFixes] = latency;
+            numFixes++;
+        }
+    }
+
+
+    @After
+    public void cleanup() throws Exception
+    {
+        driver.stop();
+    }
+}
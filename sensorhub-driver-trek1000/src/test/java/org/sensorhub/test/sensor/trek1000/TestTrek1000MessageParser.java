@@ -0,0 +1,178 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.Trek1000MessageParser;
+
+
+public class TestTrek1000MessageParser
+{
+
+    protected int parse(Trek1000MessageParser parser, String line)
+    {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return parser.parse(bytes, 0, bytes.length);
+    }
+
+
+    @Test
+    public void testParseLine()
+    {
+        Trek1000MessageParser parser = new Trek1000MessageParser(null);
+
+        int msgType = parse(parser, "mc 0f 000005a4 000004c8 00000436 000003f9 0958 c0 40424042 a0:0\r");
+        assertEquals(Trek1000MessageParser.MSG_MC, msgType);
+        assertEquals(0x0f, parser.getMask());
+        assertArrayEquals(new int[] {0x5a4, 0x4c8, 0x436, 0x3f9}, parser.getRanges());
+        assertEquals(0xc0, parser.getSequence());
+        assertEquals(0, parser.getTagId());
+        assertEquals(0, parser.getAnchorId());
+
+        msgType = parse(parser, "  mr 07 000005A4 000004C8 00000436 00000000 0958 c1 40424042 t12:3");
+        assertEquals(Trek1000MessageParser.MSG_MR, msgType);
+        assertArrayEquals(new int[] {0x5a4, 0x4c8, 0x436, 0}, parser.getRanges());
+        assertEquals(12, parser.getTagId());
+        assertEquals(3, parser.getAnchorId());
+
+        assertEquals(Trek1000MessageParser.MSG_MA, parse(parser, "ma 07 00000000 000004c8 00000436 000003f9 0958 c2 40424042 a1:2"));
+        assertEquals(Trek1000MessageParser.MSG_UNKNOWN, parse(parser, "hello"));
+        assertEquals(Trek1000MessageParser.MSG_UNKNOWN, parse(parser, ""));
+        assertEquals(-1, parse(parser, "mc 0f 000005a4 0000zzzz 00000436 000003f9 0958 c0 40424042 a0:0"));
+        assertEquals(-1, parse(parser, "mc 0f 000005a4 000004c8"));
+        assertEquals(-1, parse(parser, "mc 0f 000005a4 000004c8 00000436 1000003f9 0958 c0 40424042 a0:0"));
+    }
+
+
+    @Test
+    public void testParseTagId()
+    {
+        Trek1000MessageParser parser = new Trek1000MessageParser(null);
+        String msg = "mc 0f 000005a4 000004c8 00000436 000003f9 0958 c0 40424042 ";
+
+        parse(parser, msg + "a3:1");
+        assertEquals(3, parser.getTagId());
+        assertEquals(1, parser.getAnchorId());
+        parse(parser, msg + "t12:2");
+        assertEquals(12, parser.getTagId());
+
+        // default to tag 0 when reporter token is invalid or missing
+        parse(parser, msg + "ax:0");
+        assertEquals(0, parser.getTagId());
+        parse(parser, msg + ":0");
+        assertEquals(0, parser.getTagId());
+        assertEquals(Trek1000MessageParser.MSG_MC, parse(parser, msg.trim()));
+        assertEquals(0, parser.getTagId());
+    }
+
+
+    @Test
+    public void testSkipOverlongLine() throws Exception
+    {
+        String validMsg = "mc 0f 00000001 00000002 00000003 00000004 0958 c0 40424042 a1:0\r\n";
+        String hiddenMsg = "mc 0f 000000ff 000000ff 000000ff 000000ff 0958 c0 40424042 a9:0";
+        StringBuilder sb = new StringBuilder();
+
+        // line longer than max length but shorter than read buffer
+        for (int i = 0; i < Trek1000MessageParser.MAX_LINE_LENGTH; i++)
+            sb.append(' ');
+        sb.append(hiddenMsg).append("\r\n");
+        sb.append(validMsg);
+
+        // line longer than read buffer whose end looks like a message
+        for (int i = 0; i < 4*Trek1000MessageParser.MAX_LINE_LENGTH; i++)
+            sb.append('x');
+        sb.append(hiddenMsg).append("\r\n");
+        sb.append(validMsg);
+
+        byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        Trek1000MessageParser parser = new Trek1000MessageParser(new ByteArrayInputStream(data));
+
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(Trek1000MessageParser.MSG_MC, parser.nextMessage());
+            assertArrayEquals(new int[] {1, 2, 3, 4}, parser.getRanges());
+            assertEquals(1, parser.getTagId());
+        }
+
+        assertEquals(2, parser.getMessageCount());
+        assertEquals(2, parser.getErrorCount());
+    }
+
+
+    @Test
+    public void testReadStream() throws Exception
+    {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        int numMessages = 5000;
+        int numErrors = 0;
+
+        for (int i = 0; i < numMessages; i++)
+        {
+            if (random.nextInt(10) == 0)
+            {
+                sb.append("mc 0f 00zz\r\n");
+                numErrors++;
+            }
+            if (random.nextInt(10) == 0)
+                sb.append("some debug output\r\n");
+            if (random.nextInt(100) == 0)
+            {
+                for (int j = 0; j < 2000; j++)
+                    sb.append('x');
+                sb.append("\r\n");
+                numErrors++;
+            }
+
+            sb.append(String.format("mc 0f %08x %08x %08x %08x 0958 %02x 40424042 a%d:0\r\n",
+                    i, i+1, i+2, i+3, i & 0xFF, i % 50));
+        }
+
+        byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        Trek1000MessageParser parser = new Trek1000MessageParser(new ByteArrayInputStream(data)
+        {
+            @Override
+            public synchronized int read(byte[] b, int off, int len)
+            {
+                return super.read(b, off, Math.min(len, 1 + pos % 97));
+            }
+        });
+
+        for (int i = 0; i < numMessages; i++)
+        {
+            assertEquals(Trek1000MessageParser.MSG_MC, parser.nextMessage());
+            assertArrayEquals(new int[] {i, i+1, i+2, i+3}, parser.getRanges());
+            assertEquals(i % 50, parser.getTagId());
+        }
+
+        try
+        {
+            parser.nextMessage();
+            fail("Expected end of stream");
+        }
+        catch (EOFException e)
+        {
+        }
+
+        assertEquals(numMessages, parser.getMessageCount());
+        assertTrue(parser.getErrorCount() >= numErrors);
+    }
+}
@@ -0,0 +1,124 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.trek1000;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.trek1000.AnchorGeometry;
+import org.sensorhub.impl.sensor.trek1000.Triangulation;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Checks that the allocation free trilateration gives exactly the same
+ * results as the original implementation, on a corpus of ranges generated
+ * from known tag positions with noise and outliers, including degenerate
+ * anchor configurations.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class TestTriangulation
+{
+    static final double[][][] ANCHOR_SETS =
+    {
+        {{0, 0, 2.5}, {5, 0, 2.5}, {0, 5, 2.5}, {5, 5, 2.5}},
+        {{0, 0, 2.0}, {12.3, 0.4, 2.8}, {6.1, 9.7, 3.1}, {0.2, 8.8, 1.5}},
+        {{-3, 2, 0}, {4, -1, 0.5}, {1, 6, 1}, {0, 0, 3}},
+        {{0, 0, 2}, {5, 0, 2}, {10, 0, 2}, {0, 5, 2}}, // colinear
+        {{0, 0, 2}, {0, 0, 2}, {0, 5, 2}, {5, 5, 2}},  // concentric
+        {{0, 0, 2}, {5, 0, 2}, {0, 5, 2}, {0, 0, 2}}
+    };
+
+
+    @Test
+    public void testSameResultsAsLegacy()
+    {
+        Random random = new Random(42);
+        int numFixes = 0;
+
+        for (double[][] anchors: ANCHOR_SETS)
+        {
+            Vec3d[] anchorArray = new Vec3d[4];
+            LegacyTriangulation.Vec3d[] legacyAnchorArray = new LegacyTriangulation.Vec3d[4];
+            for (int i = 0; i < 4; i++)
+            {
+                anchorArray[i] = new Vec3d(anchors[i][0], anchors[i][1], anchors[i][2]);
+                legacyAnchorArray[i] = new LegacyTriangulation.Vec3d(anchors[i][0], anchors[i][1], anchors[i][2]);
+            }
+            AnchorGeometry geom = new AnchorGeometry(anchorArray);
+
+            for (int use4thAnchor = 0; use4thAnchor <= 1; use4thAnchor++)
+            {
+                Triangulation algo = new Triangulation();
+                LegacyTriangulation legacyAlgo = new LegacyTriangulation();
+                Vec3d solution = new Vec3d(0, 0, 0);
+                Vec3d cachedSolution = new Vec3d(0, 0, 0);
+                LegacyTriangulation.Vec3d legacySolution = new LegacyTriangulation.Vec3d(0, 0, 0);
+                int[] ranges = new int[4];
+
+                for (int n = 0; n < 20000; n++)
+                {
+                    double x = -2 + 14*random.nextDouble();
+                    double y = -2 + 14*random.nextDouble();
+                    double z = 3*random.nextDouble();
+
+                    for (int i = 0; i < 4; i++)
+                    {
+                        double dx = x - anchors[i][0];
+                        double dy = y - anchors[i][1];
+                        double dz = z - anchors[i][2];
+                        double noise = (random.nextInt(10) == 0) ? 2000*random.nextGaussian() : 50*random.nextGaussian();
+                        ranges[i] = Math.max(0, (int)(Math.sqrt(dx*dx + dy*dy + dz*dz)*1000 + noise));
+                    }
+
+                    int expected = legacyAlgo.getLocation(legacySolution, use4thAnchor, legacyAnchorArray, ranges);
+                    int actual = algo.getLocation(solution, use4thAnchor, anchorArray, ranges);
+                    assertEquals(expected, actual);
+                    assertBitEquals(legacySolution.x, solution.x);
+                    assertBitEquals(legacySolution.y, solution.y);
+                    assertBitEquals(legacySolution.z, solution.z);
+
+                    // same results with cached anchor geometry
+                    actual = algo.getLocation(cachedSolution, use4thAnchor, geom, ranges);
+                    assertEquals(expected, actual);
+                    assertBitEquals(legacySolution.x, cachedSolution.x);
+                    assertBitEquals(legacySolution.y, cachedSolution.y);
+                    assertBitEquals(legacySolution.z, cachedSolution.z);
+                    if (actual >= 0)
+                        numFixes++;
+                }
+            }
+        }
+
+        assertTrue(numFixes > 0);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGeometryNeedsThreeAnchors()
+    {
+        new AnchorGeometry(new Vec3d[] {new Vec3d(0, 0, 0), new Vec3d(1, 0, 0)});
+    }
+
+
+    protected void assertBitEquals(double expected, double actual)
+    {
+        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+}
@@ -0,0 +1,646 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.vectornav;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import net.opengis.swe.v20.DataRecord;
+import net.opengis.swe.v20.DataType;
+import net.opengis.swe.v20.Vector;
+import org.sensorhub.api.common.SensorHubException;
+import org.vast.swe.SWEConstants;
+import org.vast.swe.SWEHelper;
+import org.vast.swe.helper.GeoPosHelper;
+
+
+/**
+ * <p>
+ * Layout of a VN200 binary packet, compiled once from the group and field
+ * bitmasks configured for a binary output register.<br/>
+ * Fields are sent in group order, then in bit order within each group, so
+ * the offset and size of every field can be computed in advance. Payloads
+ * are then decoded by walking a flat table of (offset, type, index) entries,
+ * one per value, directly to the output datablock.
+ * </p><p>
+ * The datablock layout is that of the record generated by
+ * {@link #buildRecord(GeoPosHelper, String)}, i.e. the reception time
+ * followed by all enabled fields.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class VN200BinaryLayout
+{
+    public static final int NUM_GROUPS = 6;
+    static final String[] GROUP_NAMES = {"common", "time", "imu", "gps", "attitude", "ins"};
+    static final String REF_FRAME_ECEF = "http://www.opengis.net/def/crs/EPSG/0/4978";
+    static final String BODY_FRAME = null;
+
+    // binary value types
+    static final byte U8 = 0;
+    static final byte U16 = 1;
+    static final byte U32 = 2;
+    static final byte U64 = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte TIME_NS = 6; // u64 nanoseconds, decoded as seconds
+    static final byte UTC = 7;     // year, month, day, hour, min, sec, ms struct
+    static final int[] TYPE_SIZES = {1, 2, 4, 8, 4, 8, 8, 8};
+
+    // kinds of generated components
+    static final int COUNT = 0;
+    static final int SCALAR = 1;
+    static final int TIME = 2;
+    static final int VECTOR = 3;
+    static final int RECORD = 4;
+    static final int QUAT = 5;
+    static final int EULER = 6;
+    static final int LLA = 7;
+    static final int ECEF = 8;
+
+
+    /*
+     * Description of a field that can be enabled in a binary output group
+     */
+    static class Field
+    {
+        final String name;
+        final String label;
+        final int kind;
+        final byte type;
+        final int count;
+        final String uom;
+        final String refFrame;
+        final String[] compNames;
+        final String[] compUoms;
+
+        Field(String name, String label, int kind, byte type, int count, String uom, String refFrame, String[] compNames, String[] compUoms)
+        {
+            this.name = name;
+            this.label = label;
+            this.kind = kind;
+            this.type = type;
+            this.count = count;
+            this.uom = uom;
+            this.refFrame = refFrame;
+            this.compNames = compNames;
+            this.compUoms = compUoms;
+        }
+    }
+
+
+    static Field count(String name, String label, byte type)
+    {
+        return new Field(name, label, COUNT, type, 1, null, null, null, null);
+    }
+
+
+    static Field scalar(String name, String label, byte type, String uom)
+    {
+        return new Field(name, label, SCALAR, type, 1, uom, null, null, null);
+    }
+
+
+    static Field time(String name, String label, byte type)
+    {
+        return new Field(name, label, TIME, type, 1, null, null, null, null);
+    }
+
+
+    static Field vector(String name, String label, String refFrame, String uom)
+    {
+        return new Field(name, label, VECTOR, FLOAT, 3, uom, refFrame, null, null);
+    }
+
+
+    static Field record(String name, String label, String[] compNames, String[] compUoms)
+    {
+        return new Field(name, label, RECORD, FLOAT, compNames.length, null, null, compNames, compUoms);
+    }
+
+
+    static Field special(String name, String label, int kind, byte type, int count)
+    {
+        return new Field(name, label, kind, type, count, null, null, null, null);
+    }
+
+
+    /*
+     * Fields of each group, indexed by bit number (see VN200 user manual).
+     * Quaternion and GPS position keep the component names of the outputs
+     * of previous versions so default outputs have the same structure.
+     */
+    static final Field[][] CATALOG =
+    {
+        // group 1: Common
+        {
+            time("timeStartup", "Time Since Startup", TIME_NS),
+            time("timeGps", "GPS Time", TIME_NS),
+            time("timeSyncIn", "Time Since SyncIn", TIME_NS),
+            special("yawPitchRoll", "Yaw Pitch Roll", EULER, FLOAT, 3),
+            special("attitude", "Attitude Quaternion", QUAT, FLOAT, 4),
+            vector("angularRate", "Angular Rate", BODY_FRAME, "rad/s"),
+            special("position", "Position LLA", LLA, DOUBLE, 3),
+            vector("velocity", "Velocity NED", SWEConstants.REF_FRAME_NED, "m/s"),
+            vector("accel", "Acceleration", BODY_FRAME, "m/s2"),
+            record("imu", "Uncompensated IMU", new String[] {"accelX", "accelY", "accelZ", "gyroX", "gyroY", "gyroZ"},
+                   new String[] {"m/s2", "m/s2", "m/s2", "rad/s", "rad/s", "rad/s"}),
+            record("magPres", "Magnetic, Temperature and Pressure", new String[] {"magX", "magY", "magZ", "temp", "pres"},
+                   new String[] {"G", "G", "G", "Cel", "kPa"}),
+            record("deltaTheta", "Delta Theta and Delta Velocity", new String[] {"dtime", "dthetaX", "dthetaY", "dthetaZ", "dvelX", "dvelY", "dvelZ"},
+                   new String[] {"s", "deg", "deg", "deg", "m/s", "m/s", "m/s"}),
+            count("insStatus", "INS Status", U16),
+            count("syncInCnt", "SyncIn Count", U32),
+            time("timeGpsPps", "Time Since GPS PPS", TIME_NS)
+        },
+
+        // group 2: Time
+        {
+            time("timeStartup", "Time Since Startup", TIME_NS),
+            time("timeGps", "GPS Time", TIME_NS),
+            time("gpsTow", "GPS Time of Week", TIME_NS),
+            count("gpsWeek", "GPS Week", U16),
+            time("timeSyncIn", "Time Since SyncIn", TIME_NS),
+            time("timeGpsPps", "Time Since GPS PPS", TIME_NS),
+            time("timeUtc", "UTC Time", UTC),
+            count("syncInCnt", "SyncIn Count", U32),
+            count("syncOutCnt", "SyncOut Count", U32),
+            count("timeStatus", "Time Status", U8)
+        },
+
+        // group 3: IMU
+        {
+            count("imuStatus", "IMU Status", U16),
+            vector("uncompMag", "Uncompensated Magnetic Field", BODY_FRAME, "G"),
+            vector("uncompAccel", "Uncompensated Acceleration", BODY_FRAME, "m/s2"),
+            vector("uncompGyro", "Uncompensated Angular Rate", BODY_FRAME, "rad/s"),
+            scalar("temp", "Temperature", FLOAT, "Cel"),
+            scalar("pres", "Pressure", FLOAT, "kPa"),
+            record("deltaTheta", "Delta Theta", new String[] {"dtime", "dthetaX", "dthetaY", "dthetaZ"},
+                   new String[] {"s", "deg", "deg", "deg"}),
+            vector("deltaVel", "Delta Velocity", BODY_FRAME, "m/s"),
+            vector("mag", "Magnetic Field", BODY_FRAME, "G"),
+            vector("accel", "Acceleration", BODY_FRAME, "m/s2"),
+            vector("angularRate", "Angular Rate", BODY_FRAME, "rad/s"),
+            count("sensSat", "Sensor Saturation", U16)
+        },
+
+        // group 4: GPS
+        {
+            time("utc", "GPS UTC Time", UTC),
+            time("tow", "GPS Time of Week", TIME_NS),
+            count("week", "GPS Week", U16),
+            count("numSats", "Number of Satellites", U8),
+            count("fix", "GPS Fix Type", U8),
+            special("location", "GPS Position LLA", LLA, DOUBLE, 3),
+            special("posEcef", "GPS Position ECEF", ECEF, DOUBLE, 3),
+            vector("velNed", "GPS Velocity NED", SWEConstants.REF_FRAME_NED, "m/s"),
+            vector("velEcef", "GPS Velocity ECEF", REF_FRAME_ECEF, "m/s"),
+            vector("posU", "GPS Position Uncertainty NED", SWEConstants.REF_FRAME_NED, "m"),
+            scalar("velU", "GPS Velocity Uncertainty", FLOAT, "m/s"),
+            scalar("timeU", "GPS Time Uncertainty", U32, "ns")
+        },
+
+        // group 5: Attitude
+        {
+            count("vpeStatus", "VPE Status", U16),
+            special("yawPitchRoll", "Yaw Pitch Roll", EULER, FLOAT, 3),
+            special("attitude", "Attitude Quaternion", QUAT, FLOAT, 4),
+            record("dcm", "Direction Cosine Matrix", new String[] {"c11", "c12", "c13", "c21", "c22", "c23", "c31", "c32", "c33"},
+                   new String[] {"1", "1", "1", "1", "1", "1", "1", "1", "1"}),
+            vector("magNed", "Magnetic Field NED", SWEConstants.REF_FRAME_NED, "G"),
+            vector("accelNed", "Acceleration NED", SWEConstants.REF_FRAME_NED, "m/s2"),
+            vector("linearAccelBody", "Linear Acceleration", BODY_FRAME, "m/s2"),
+            vector("linearAccelNed", "Linear Acceleration NED", SWEConstants.REF_FRAME_NED, "m/s2"),
+            record("yprU", "Yaw Pitch Roll Uncertainty", new String[] {"yawU", "pitchU", "rollU"},
+                   new String[] {"deg", "deg", "deg"})
+        },
+
+        // group 6: INS
+        {
+            count("insStatus", "INS Status", U16),
+            special("posLla", "INS Position LLA", LLA, DOUBLE, 3),
+            special("posEcef", "INS Position ECEF", ECEF, DOUBLE, 3),
+            vector("velBody", "INS Velocity", BODY_FRAME, "m/s"),
+            vector("velNed", "INS Velocity NED", SWEConstants.REF_FRAME_NED, "m/s"),
+            vector("velEcef", "INS Velocity ECEF", REF_FRAME_ECEF, "m/s"),
+            vector("magEcef", "Magnetic Field ECEF", REF_FRAME_ECEF, "G"),
+            vector("accelEcef", "Acceleration ECEF", REF_FRAME_ECEF, "m/s2"),
+            vector("linearAccelEcef", "Linear Acceleration ECEF", REF_FRAME_ECEF, "m/s2"),
+            scalar("posU", "INS Position Uncertainty", FLOAT, "m"),
+            scalar("velU", "INS Velocity Uncertainty", FLOAT, "m/s")
+        }
+    };
+
+    byte groups;
+    int[] groupFields;
+    byte[] header;
+    int payloadLength;
+    Field[] fields;
+    int[] fieldGroups;
+
+    // flat decoding table, one entry per value
+    int numValues;
+    int[] offsets;
+    byte[] types;
+    int[] indices;
+
+
+    private VN200BinaryLayout()
+    {
+    }
+
+
+    /**
+     * Computes the layout of packets containing the given fields
+     * @param groupFields bitmask of enabled fields for each group
+     * @return the compiled layout
+     * @throws SensorHubException if no field is enabled or an unknown field is requested
+     */
+    public static VN200BinaryLayout compile(int[] groupFields) throws SensorHubException
+    {
+        if (groupFields.length > NUM_GROUPS)
+            throw new SensorHubException("VN200 binary outputs only support " + NUM_GROUPS + " groups");
+
+        VN200BinaryLayout layout = new VN200BinaryLayout();
+        layout.groupFields = new int[NUM_GROUPS];
+        ArrayList<Field> fields = new ArrayList<Field>();
+        ArrayList<Integer> fieldGroups = new ArrayList<Integer>();
+        int numGroups = 0;
+
+        // collect enabled fields in packet order
+        for (int g = 0; g < groupFields.length; g++)
+        {
+            int mask = groupFields[g];
+            if (mask == 0)
+                continue;
+
+            if ((mask & ~0xFFFF) != 0)
+                throw new SensorHubException("Invalid field bitmask for VN200 output group " + (g+1) + ": " + Integer.toHexString(mask));
+
+            layout.groupFields[g] = mask;
+            layout.groups |= 1 << g;
+            numGroups++;
+
+            for (int bit = 0; bit < 16; bit++)
+            {
+                if ((mask & (1 << bit)) == 0)
+                    continue;
+
+                if (bit >= CATALOG[g].length)
+                    throw new SensorHubException("Unsupported field " + bit + " in VN200 output group " + (g+1));
+
+                fields.add(CATALOG[g][bit]);
+                fieldGroups.add(g);
+                layout.numValues += CATALOG[g][bit].count;
+            }
+        }
+
+        if (numGroups == 0)
+            throw new SensorHubException("No field enabled in VN200 binary output");
+
+        layout.fields = fields.toArray(new Field[0]);
+        layout.fieldGroups = new int[fields.size()];
+        for (int i = 0; i < layout.fieldGroups.length; i++)
+            layout.fieldGroups[i] = fieldGroups.get(i);
+
+        // header is group byte followed by field bitmask of each active group
+        layout.header = new byte[1 + 2*numGroups];
+        layout.header[0] = layout.groups;
+        int k = 1;
+        for (int mask: layout.groupFields)
+        {
+            if (mask != 0)
+            {
+                layout.header[k++] = (byte)mask;
+                layout.header[k++] = (byte)(mask >> 8);
+            }
+        }
+
+        // flat decoding table
+        layout.offsets = new int[layout.numValues];
+        layout.types = new byte[layout.numValues];
+        layout.indices = new int[layout.numValues];
+        int offset = 0;
+        int index = 1; // after time stamp
+        int v = 0;
+        for (Field f: layout.fields)
+        {
+            int size = TYPE_SIZES[f.type];
+            for (int i = 0; i < f.count; i++, v++)
+            {
+                layout.offsets[v] = offset + i*size;
+                layout.types[v] = f.type;
+                // scalar is last on VN200 but first in SWE quaternions
+                layout.indices[v] = index + ((f.kind == QUAT) ? (i+1) % 4 : i);
+            }
+
+            offset += f.count * size;
+            index += f.count;
+        }
+
+        layout.payloadLength = offset;
+        return layout;
+    }
+
+
+    /**
+     * Generates the record structure produced by this layout
+     * @param fac helper used to create components
+     * @param bodyFrame URI of the sensor local frame
+     * @return record with a time stamp and one component per enabled field
+     */
+    public DataRecord buildRecord(GeoPosHelper fac, String bodyFrame)
+    {
+        DataRecord rec = fac.newDataRecord(fields.length + 1);
+        rec.addComponent("time", fac.newTimeStampIsoUTC());
+
+        Set<String> names = new HashSet<String>();
+        for (int i = 0; i < fields.length; i++)
+        {
+            Field f = fields[i];
+
+            // prefix field name with group name if same field is enabled in several groups
+            String name = f.name;
+            if (!names.add(name))
+                name = GROUP_NAMES[fieldGroups[i]] + capitalize(f.name);
+
+            DataComponent comp = buildComponent(fac, f, bodyFrame);
+            comp.setLabel(f.label);
+            rec.addComponent(name, comp);
+        }
+
+        return rec;
+    }
+
+
+    protected DataComponent buildComponent(GeoPosHelper fac, Field f, String bodyFrame)
+    {
+        String def = SWEHelper.getPropertyUri(capitalize(f.name));
+        Vector vect;
+
+        switch (f.kind)
+        {
+            case COUNT:
+                return fac.newCount(def, f.label, null, (f.type == U8 || f.type == U16) ? DataType.INT : DataType.LONG);
+
+            case SCALAR:
+                return fac.newQuantity(def, f.label, null, f.uom, getDataType(f.type));
+
+            case TIME:
+                if (f.type == UTC)
+                    return fac.newTimeStampIsoUTC();
+                return fac.newQuantity(def, f.label, null, "s", DataType.DOUBLE);
+
+            case RECORD:
+                DataRecord rec = fac.newDataRecord(f.count);
+                for (int i = 0; i < f.count; i++)
+                {
+                    String compName = f.compNames[i];
+                    rec.addComponent(compName, fac.newQuantity(SWEHelper.getPropertyUri(capitalize(compName)), compName, null, f.compUoms[i], DataType.FLOAT));
+                }
+                return rec;
+
+            case VECTOR:
+                boolean ned = SWEConstants.REF_FRAME_NED.equals(f.refFrame);
+                String[] axes = ned ? new String[] {"N", "E", "D"} : new String[] {"X", "Y", "Z"};
+                String[] names = ned ? new String[] {"n", "e", "d"} : new String[] {"x", "y", "z"};
+                vect = fac.newVector(def, f.refFrame, names, axes, new String[] {f.uom, f.uom, f.uom}, axes);
+                if (f.refFrame == null) // body frame
+                    vect.setLocalFrame(bodyFrame);
+                vect.setDataType(DataType.FLOAT);
+                return vect;
+
+            case QUAT:
+                vect = fac.newQuatOrientationNED(SWEHelper.getPropertyUri("Orientation"));
+                vect.setLocalFrame(bodyFrame);
+                vect.setDataType(DataType.FLOAT);
+                return vect;
+
+            case EULER:
+                vect = fac.newEulerOrientationNED(SWEHelper.getPropertyUri("Orientation"));
+                vect.setLocalFrame(bodyFrame);
+                vect.setDataType(DataType.FLOAT);
+                return vect;
+
+            case LLA:
+                return fac.newLocationVectorLLA(SWEConstants.DEF_SENSOR_LOC);
+
+            case ECEF:
+                return fac.newLocationVectorECEF(SWEConstants.DEF_SENSOR_LOC);
+
+            default:
+                throw new IllegalStateException("Unknown field kind " + f.kind);
+        }
+    }
+
+
+    /**
+     * Decodes all fields of a packet payload to a datablock
+     * @param buf little endian buffer containing the packet
+     * @param dataOffset offset of payload in buffer (i.e. after header)
+     * @param dataBlock datablock to write values to (index 0 is not modified)
+     */
+    public void decode(ByteBuffer buf, int dataOffset, DataBlock dataBlock)
+    {
+        for (int i = 0; i < numValues; i++)
+        {
+            int off = dataOffset + offsets[i];
+            int index = indices[i];
+
+            switch (types[i])
+            {
+                case U8:
+                    dataBlock.setIntValue(index, buf.get(off) & 0xFF);
+                    break;
+
+                case U16:
+                    dataBlock.setIntValue(index, buf.getShort(off) & 0xFFFF);
+                    break;
+
+                case U32:
+                    dataBlock.setLongValue(index, buf.getInt(off) & 0xFFFFFFFFL);
+                    break;
+
+                case U64:
+                    dataBlock.setLongValue(index, buf.getLong(off));
+                    break;
+
+                case FLOAT:
+                    dataBlock.setFloatValue(index, buf.getFloat(off));
+                    break;
+
+                case DOUBLE:
+                    dataBlock.setDoubleValue(index, buf.getDouble(off));
+                    break;
+
+                case TIME_NS:
+                    dataBlock.setDoubleValue(index, buf.getLong(off) / 1e9);
+                    break;
+
+                case UTC:
+                    dataBlock.setDoubleValue(index, toEpochSeconds(buf, off));
+                    break;
+            }
+        }
+    }
+
+
+    /*
+     * Converts a UTC time struct to seconds since 1970
+     */
+    static double toEpochSeconds(ByteBuffer buf, int off)
+    {
+        int year = 2000 + buf.get(off);
+        int month = buf.get(off+1) & 0xFF;
+        int day = buf.get(off+2) & 0xFF;
+        int hour = buf.get(off+3) & 0xFF;
+        int min = buf.get(off+4) & 0xFF;
+        int sec = buf.get(off+5) & 0xFF;
+        int ms = buf.getShort(off+6) & 0xFFFF;
+
+        long days = daysFromCivil(year, month, day);
+        long millis = ((days*24 + hour)*60 + min)*60000L + sec*1000L + ms;
+        return millis / 1000.0;
+    }
+
+
+    /*
+     * Number of days since 1970-01-01 of the given date in the proleptic
+     * gregorian calendar
+     */
+    static long daysFromCivil(long y, int m, int d)
+    {
+        // see http://howardhinnant.github.io/date_algorithms.html
+        y -= (m <= 2) ? 1 : 0;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe/4 - yoe/100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+
+    static DataType getDataType(byte type)
+    {
+        switch (type)
+        {
+            case FLOAT:
+                return DataType.FLOAT;
+            case DOUBLE:
+            case TIME_NS:
+            case UTC:
+                return DataType.DOUBLE;
+            case U64:
+            case U32:
+                return DataType.LONG;
+            default:
+                return DataType.INT;
+        }
+    }
+
+
+    static String capitalize(String name)
+    {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+
+    /**
+     * Checks if a packet header matches this layout
+     * @param buf buffer containing the header (group byte and group fields)
+     * @param off offset of group byte in buffer
+     * @return true if the group byte and all group fields are the same
+     */
+    public boolean matches(byte[] buf, int off)
+    {
+        for (int i = 0; i < header.length; i++)
+        {
+            if (buf[off+i] != header[i])
+                return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return group byte of packets with this layout
+     */
+    public int getGroups()
+    {
+        return groups & 0xFF;
+    }
+
+
+    /**
+     * @return number of active groups
+     */
+    public int getNumGroups()
+    {
+        return Integer.bitCount(getGroups());
+    }
+
+
+    /**
+     * @param group group index, starting at 0
+     * @return bitmask of enabled fields in the given group
+     */
+    public int getGroupFields(int group)
+    {
+        return groupFields[group];
+    }
+
+
+    /**
+     * @return length of header, including group byte and group fields
+     */
+    public int getHeaderLength()
+    {
+        return header.length;
+    }
+
+
+    /**
+     * @return length of payload data, excluding header and CRC
+     */
+    public int getPayloadLength()
+    {
+        return payloadLength;
+    }
+
+
+    /**
+     * @return total packet length, excluding sync byte but including header and CRC
+     */
+    public int getPacketLength()
+    {
+        return header.length + payloadLength + 2;
+    }
+
+
+    /**
+     * @return number of values in generated datablocks, including time stamp
+     */
+    public int getRecordSize()
+    {
+        return numValues + 1;
+    }
+}
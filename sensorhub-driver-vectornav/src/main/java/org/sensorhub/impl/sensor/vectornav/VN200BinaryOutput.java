@@ -7,9 +7,9 @@ at http://mozilla.org/MPL/2.0/.
 Software distributed under the License is distributed on an "AS IS" basis,
 WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
 for the specific language governing rights and limitations under the License.
- 
+
 Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
- 
+
 ******************************* END LICENSE BLOCK ***************************/
 
 package org.sensorhub.impl.sensor.vectornav;
@@ -17,69 +17,67 @@ package org.sensorhub.impl.sensor.vectornav;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import net.opengis.swe.v20.DataBlock;
-import net.opengis.swe.v20.Vector;
 import org.sensorhub.api.sensor.SensorDataEvent;
-import org.vast.swe.SWEHelper;
 import org.vast.swe.helper.GeoPosHelper;
 
 
-public class VN200GpsOutput extends VN200AbstractOutput
+/**
+ * <p>
+ * Output publishing the content of one VN200 binary output register.<br/>
+ * The record structure and the decoding of packets are both derived from
+ * the packet layout compiled from the register configuration.
+ * </p>
+ *
+ * @author Alex Robin <alex.robin@sensiasoftware.com>
+ * @since Oct 17, 2026
+ */
+public class VN200BinaryOutput extends VN200AbstractOutput
 {
-    float[] quat = new float[4];
-    
-    
-    public VN200GpsOutput(VN200Sensor parentSensor, double samplingPeriod)
+    VN200BinaryLayout layout;
+
+
+    public VN200BinaryOutput(String name, VN200Sensor parentSensor, VN200BinaryLayout layout, double samplingPeriod)
     {
-        super("gpsData", parentSensor, samplingPeriod);
+        super(name, parentSensor, samplingPeriod);
+        this.layout = layout;
     }
 
 
     protected void init()
     {
         GeoPosHelper fac = new GeoPosHelper();
-        
+
         // build SWE Common record structure
-        dataStruct = fac.newDataRecord(2);
-        dataStruct.setName(getName());
-        
         String localRefFrame = parentSensor.getUniqueIdentifier() + "#" + VN200Sensor.CRS_ID;
-                        
-        // time stamp
-        dataStruct.addComponent("time", fac.newTimeStampIsoUTC());
-        
-        // fused attiude measurement
-        Vector vect = fac.newLocationVectorLLA(SWEHelper.getPropertyUri("SensorLocation"));
-        vect.setLocalFrame(localRefFrame);
-        dataStruct.addComponent("location", vect);
-     
+        dataStruct = layout.buildRecord(fac, localRefFrame);
+        dataStruct.setName(getName());
+
         // also generate encoding definition as text block
-        dataEncoding = fac.newTextEncoding(",", "\n");        
+        dataEncoding = fac.newTextEncoding(",", "\n");
     }
-    
-    
+
+
     protected void decodeAndSendMeasurement(long timeStamp, ByteBuffer payload) throws IOException
     {
-        // decode GPS time and location message
-        quat[1] = payload.getFloat();
-        quat[2] = payload.getFloat();
-        quat[3] = payload.getFloat();
-        quat[0] = payload.getFloat();
-        
         // create and populate datablock
         DataBlock dataBlock;
         if (latestRecord == null)
             dataBlock = dataStruct.createDataBlock();
         else
             dataBlock = latestRecord.renew();
-        
-        int k = 0;
-        dataBlock.setDoubleValue(k++, timeStamp / 1000.);
-        for (int i=0; i<4; i++, k++)
-            dataBlock.setFloatValue(k, quat[i]);
-        
+
+        dataBlock.setDoubleValue(0, timeStamp / 1000.);
+        layout.decode(payload, payload.position(), dataBlock);
+
         // update latest record and send event
         latestRecord = dataBlock;
         latestRecordTime = timeStamp;
-        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));        
+        eventHandler.publishEvent(new SensorDataEvent(latestRecordTime, this, dataBlock));
+    }
+
+
+    public VN200BinaryLayout getLayout()
+    {
+        return layout;
     }
 }
@@ -0,0 +1,84 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.vectornav;
+
+import org.sensorhub.api.config.DisplayInfo;
+
+
+/**
+ * <p>
+ * Configuration of one of the VN200 binary output registers (75 to 77).<br/>
+ * Each non-zero field bitmask enables the corresponding output group, with
+ * bits numbered as in the VN200 user manual. All fields enabled in a given
+ * register are sent in a single binary packet and published as one record.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class VN200BinaryOutputConfig
+{
+    @DisplayInfo(desc="Name of the sensor output")
+    public String name;
+
+
+    @DisplayInfo(label="Rate Divisor", desc="Output rate divider from the base 800Hz frequency (e.g. 8 to get output at 100Hz)")
+    public int rateDivisor = 16;
+
+
+    @DisplayInfo(label="Common Fields", desc="Bitmask of fields enabled in group 1 (Common)")
+    public int commonFields;
+
+
+    @DisplayInfo(label="Time Fields", desc="Bitmask of fields enabled in group 2 (Time)")
+    public int timeFields;
+
+
+    @DisplayInfo(label="IMU Fields", desc="Bitmask of fields enabled in group 3 (IMU)")
+    public int imuFields;
+
+
+    @DisplayInfo(label="GPS Fields", desc="Bitmask of fields enabled in group 4 (GPS)")
+    public int gpsFields;
+
+
+    @DisplayInfo(label="Attitude Fields", desc="Bitmask of fields enabled in group 5 (Attitude)")
+    public int attitudeFields;
+
+
+    @DisplayInfo(label="INS Fields", desc="Bitmask of fields enabled in group 6 (INS)")
+    public int insFields;
+
+
+    public VN200BinaryOutputConfig()
+    {
+    }
+
+
+    public VN200BinaryOutputConfig(String name, int rateDivisor)
+    {
+        this.name = name;
+        this.rateDivisor = rateDivisor;
+    }
+
+
+    /**
+     * @return field bitmasks of all groups, in group order
+     */
+    public int[] getGroupFields()
+    {
+        return new int[] {commonFields, timeFields, imuFields, gpsFields, attitudeFields, insFields};
+    }
+}
@@ -14,6 +14,8 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.vectornav;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.sensorhub.api.comm.CommProviderConfig;
 import org.sensorhub.api.config.DisplayInfo;
 import org.sensorhub.api.sensor.SensorConfig;
@@ -21,21 +23,69 @@ import org.sensorhub.api.sensor.SensorConfig;
 
 public class VN200Config extends SensorConfig
 {
+    public static final String QUAT_OUTPUT_NAME = "quatData";
+    public static final String GPS_OUTPUT_NAME = "gpsData";
+    
     
     @DisplayInfo(desc="Communication settings to connect to IMU data stream")
     public CommProviderConfig<?> commSettings;
     
     
-    @DisplayInfo(label="Attitude Sampling Rate", desc="Desired attitude sampling rate divider from the base 800Hz frequency (e.g. 8 to get output at 100Hz)")
-    public int attSamplingFactor = 16;
+    @DisplayInfo(label="Binary Outputs", desc="Configuration of binary output registers 75 to 77 (at most 3 outputs)")
+    public List<VN200BinaryOutputConfig> binaryOutputs = new ArrayList<VN200BinaryOutputConfig>();
+    
     
+    /**
+     * @deprecated Only read from configurations saved by older versions,
+     * use the rate divisor of the quatData binary output instead
+     */
+    @Deprecated
+    @DisplayInfo(label="Attitude Sampling Rate (deprecated)", desc="Replaced by rate divisor of quatData binary output. Copied there at startup if set")
+    public int attSamplingFactor;
     
-    @DisplayInfo(label="GPS Sampling Rate", desc="Desired GPS sampling rate divider from the base 800Hz frequency (e.g. 80 to get output at 10Hz)")
-    public int gpsSamplingFactor = 80;
+    
+    /**
+     * @deprecated Only read from configurations saved by older versions,
+     * use the rate divisor of the gpsData binary output instead
+     */
+    @Deprecated
+    @DisplayInfo(label="GPS Sampling Rate (deprecated)", desc="Replaced by rate divisor of gpsData binary output. Copied there at startup if set")
+    public int gpsSamplingFactor;
     
     
     public VN200Config()
     {
         this.moduleClass = VN200Sensor.class.getCanonicalName();
+        
+        // attitude quaternion at 50Hz
+        VN200BinaryOutputConfig quatOutput = new VN200BinaryOutputConfig(QUAT_OUTPUT_NAME, 16);
+        quatOutput.attitudeFields = 0x0004; // Quaternion
+        binaryOutputs.add(quatOutput);
+        
+        // GPS time and location at 10Hz
+        VN200BinaryOutputConfig gpsOutput = new VN200BinaryOutputConfig(GPS_OUTPUT_NAME, 80);
+        gpsOutput.gpsFields = 0x0021; // UTC and PosLla
+        binaryOutputs.add(gpsOutput);
+    }
+    
+    
+    /**
+     * Copies the sampling factors of configurations saved before binary outputs
+     * were configurable onto the rate divisors of the default outputs, and
+     * clears them so they don't override the new settings once saved again
+     */
+    @SuppressWarnings("deprecation")
+    public void migrateSamplingFactors()
+    {
+        for (VN200BinaryOutputConfig output: binaryOutputs)
+        {
+            if (attSamplingFactor > 0 && QUAT_OUTPUT_NAME.equals(output.name))
+                output.rateDivisor = attSamplingFactor;
+            else if (gpsSamplingFactor > 0 && GPS_OUTPUT_NAME.equals(output.name))
+                output.rateDivisor = gpsSamplingFactor;
+        }
+        
+        attSamplingFactor = 0;
+        gpsSamplingFactor = 0;
     }
 }
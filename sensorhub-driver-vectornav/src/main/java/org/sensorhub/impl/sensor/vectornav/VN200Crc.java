@@ -0,0 +1,126 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.vectornav;
+
+
+/**
+ * <p>
+ * Table-driven implementation of the 16-bit CRC used by VectorNav binary
+ * packets (CRC-CCITT with polynomial 0x1021 and initial value 0, as in the
+ * XMODEM protocol).<br/>
+ * Data is processed 4 bytes at a time using 4 lookup tables (slice-by-4),
+ * directly from a byte array.
+ * </p><p>
+ * Since the CRC is appended in big endian order at the end of each packet,
+ * computing the CRC of a packet including its CRC gives 0 when the packet
+ * is valid.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class VN200Crc
+{
+    static final int POLY = 0x1021;
+    static final char[][] TABLES = new char[4][256];
+
+    static
+    {
+        // table for 1 byte
+        for (int i = 0; i < 256; i++)
+        {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++)
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ POLY : (crc << 1);
+            TABLES[0][i] = (char)crc;
+        }
+
+        // tables for the same byte followed by 1, 2 and 3 zero bytes
+        for (int k = 1; k < 4; k++)
+        {
+            for (int i = 0; i < 256; i++)
+            {
+                int crc = TABLES[k-1][i];
+                TABLES[k][i] = (char)((crc << 8) ^ TABLES[0][(crc >> 8) & 0xFF]);
+            }
+        }
+    }
+
+
+    private VN200Crc()
+    {
+    }
+
+
+    /**
+     * Computes the CRC of a series of bytes
+     * @param buf byte array containing the data
+     * @param off offset of first byte in array
+     * @param len number of bytes to process
+     * @return the 16-bit CRC value
+     */
+    public static int compute(byte[] buf, int off, int len)
+    {
+        return update(0, buf, off, len);
+    }
+
+
+    /**
+     * Updates a CRC value with more bytes
+     * @param crc CRC of previous bytes (0 to start a new computation)
+     * @param buf byte array containing the data
+     * @param off offset of first byte in array
+     * @param len number of bytes to process
+     * @return the updated 16-bit CRC value
+     */
+    public static int update(int crc, byte[] buf, int off, int len)
+    {
+        final char[] t0 = TABLES[0];
+        final char[] t1 = TABLES[1];
+        final char[] t2 = TABLES[2];
+        final char[] t3 = TABLES[3];
+
+        int i = off;
+        int end = off + len;
+
+        // process 4 bytes at a time
+        for (int end4 = end - 3; i < end4; i += 4)
+        {
+            crc = t3[((crc >> 8) ^ buf[i]) & 0xFF] ^
+                  t2[(crc ^ buf[i+1]) & 0xFF] ^
+                  t1[buf[i+2] & 0xFF] ^
+                  t0[buf[i+3] & 0xFF];
+        }
+
+        // remaining bytes
+        for (; i < end; i++)
+            crc = ((crc << 8) ^ t0[((crc >> 8) ^ buf[i]) & 0xFF]) & 0xFFFF;
+
+        return crc;
+    }
+
+
+    /**
+     * Checks a packet whose last 2 bytes are the big endian CRC of the previous bytes
+     * @param buf byte array containing the packet
+     * @param off offset of first byte covered by the CRC (i.e. byte following the sync byte)
+     * @param len number of bytes, including the CRC
+     * @return true if the CRC is valid
+     */
+    public static boolean check(byte[] buf, int off, int len)
+    {
+        return len >= 2 && compute(buf, off, len) == 0;
+    }
+}
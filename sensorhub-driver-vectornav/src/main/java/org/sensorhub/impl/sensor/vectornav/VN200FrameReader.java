@@ -0,0 +1,235 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.vectornav;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * <p>
+ * Extracts VN200 binary frames from a byte stream.<br/>
+ * Data is read by large chunks into a buffer in which sync bytes are
+ * searched for. The length of each candidate frame is given by the layout
+ * matching its header, and the frame is only accepted if its CRC is valid.
+ * When no layout matches or the CRC is wrong, the search resumes at the
+ * byte following the sync byte, so a valid frame that overlaps a corrupted
+ * one is never lost.
+ * </p><p>
+ * Unread bytes are moved back to the beginning of the buffer only when more
+ * data is needed, so that each frame is always contiguous and its payload
+ * can be decoded in place through a little endian view of the buffer.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class VN200FrameReader
+{
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    final InputStream is;
+    final VN200BinaryLayout[] layouts;
+    final byte[] buf;
+    final ByteBuffer view;
+    int start; // first unprocessed byte
+    int end;   // end of valid data
+
+    long frameCount;
+    long crcErrorCount;
+    long skippedByteCount;
+    long readCount;
+
+
+    /**
+     * @param is stream to read frames from
+     * @param layouts layouts of expected frames
+     */
+    public VN200FrameReader(InputStream is, VN200BinaryLayout[] layouts)
+    {
+        this.is = is;
+        this.layouts = layouts;
+
+        // make sure several frames can always fit in buffer
+        int maxFrameLength = 0;
+        for (VN200BinaryLayout layout: layouts)
+            maxFrameLength = Math.max(maxFrameLength, 1 + layout.getPacketLength());
+        this.buf = new byte[Math.max(DEFAULT_BUFFER_SIZE, 4*maxFrameLength)];
+
+        this.view = ByteBuffer.wrap(buf);
+        this.view.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Reads until the next valid frame.<br/>
+     * The frame payload is then available through {@link #getPayload()}
+     * until this method is called again.
+     * @return index of the layout matching the frame
+     * @throws IOException if the end of the stream is reached or a read error occurs
+     */
+    public int nextFrame() throws IOException
+    {
+        while (true)
+        {
+            // look for sync byte
+            int i = start;
+            while (i < end && buf[i] != VN200Sensor.SYNC)
+                i++;
+            skippedByteCount += i - start;
+            start = i;
+
+            if (end - start < 2)
+            {
+                fill();
+                continue;
+            }
+
+            // check header is complete
+            int groups = buf[start+1] & 0xFF;
+            if ((groups & ~VN200Sensor.SUPPORTED_GROUPS) != 0 || groups == 0)
+            {
+                resync();
+                continue;
+            }
+
+            int headerLength = 1 + 2*Integer.bitCount(groups);
+            if (end - start < 1 + headerLength)
+            {
+                fill();
+                continue;
+            }
+
+            // select layout from header
+            int index = findLayout();
+            if (index < 0)
+            {
+                resync();
+                continue;
+            }
+
+            // check frame is complete
+            int packetLength = layouts[index].getPacketLength();
+            if (end - start < 1 + packetLength)
+            {
+                fill();
+                continue;
+            }
+
+            // confirm with CRC
+            if (!VN200Crc.check(buf, start+1, packetLength))
+            {
+                crcErrorCount++;
+                resync();
+                continue;
+            }
+
+            // expose payload through buffer view
+            int payloadStart = start + 1 + headerLength;
+            view.limit(payloadStart + layouts[index].getPayloadLength());
+            view.position(payloadStart);
+
+            start += 1 + packetLength;
+            frameCount++;
+            return index;
+        }
+    }
+
+
+    /*
+     * Finds layout matching header at current position
+     */
+    private int findLayout()
+    {
+        for (int i = 0; i < layouts.length; i++)
+        {
+            if (layouts[i].matches(buf, start+1))
+                return i;
+        }
+
+        return -1;
+    }
+
+
+    /*
+     * Skips sync byte of invalid frame candidate
+     */
+    private void resync()
+    {
+        start++;
+        skippedByteCount++;
+    }
+
+
+    /*
+     * Moves unprocessed bytes to beginning of buffer and reads more data
+     */
+    private void fill() throws IOException
+    {
+        if (start > 0)
+        {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+
+        int nBytes = is.read(buf, end, buf.length - end);
+        if (nBytes < 0)
+            throw new EOFException("End of VN200 data stream");
+
+        end += nBytes;
+        readCount++;
+    }
+
+
+    /**
+     * @return view of the payload of the last frame, positioned at the first
+     * byte following the header and limited to the last byte before the CRC
+     */
+    public ByteBuffer getPayload()
+    {
+        return view;
+    }
+
+
+    public long getFrameCount()
+    {
+        return frameCount;
+    }
+
+
+    public long getCrcErrorCount()
+    {
+        return crcErrorCount;
+    }
+
+
+    public long getSkippedByteCount()
+    {
+        return skippedByteCount;
+    }
+
+
+    /**
+     * @return number of read calls made on the underlying stream
+     */
+    public long getReadCount()
+    {
+        return readCount;
+    }
+}
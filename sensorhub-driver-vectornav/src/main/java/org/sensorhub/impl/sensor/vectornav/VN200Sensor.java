@@ -14,11 +14,11 @@ Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
 
 package org.sensorhub.impl.sensor.vectornav;
 
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import net.opengis.sensorml.v20.ClassifierList;
 import net.opengis.sensorml.v20.PhysicalSystem;
 import net.opengis.sensorml.v20.SpatialFrame;
@@ -48,13 +48,15 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
     protected final static byte SYNC = (byte)0xFA;
     protected final static double BASE_FREQ = 800.0;
     
+    protected final static int FIRST_OUTPUT_REGISTER = 75;
+    protected final static int MAX_BINARY_OUTPUTS = 3;
+    protected final static int SUPPORTED_GROUPS = (1 << VN200BinaryLayout.NUM_GROUPS) - 1;
+    
     ICommProvider<?> commProvider;
-    VN200QuatOutput quatOutput;
-    VN200GpsOutput gpsOutput;
+    VN200BinaryOutput[] binaryOutputs;
     
     boolean started;
-    DataInputStream dataIn;
-    ByteBuffer readBuffer = ByteBuffer.allocate(32);
+    VN200FrameReader frameReader;
     
     
     public VN200Sensor()
@@ -71,14 +73,30 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
         generateUniqueID("urn:vectornav:imu:", null);
         generateXmlID("VNAV_INS_", null);
         
-        // create data interfaces
-        quatOutput = new VN200QuatOutput(this, config.attSamplingFactor / BASE_FREQ);
-        quatOutput.init();
-        addOutput(quatOutput, false);
-                
-        gpsOutput = new VN200GpsOutput(this, config.gpsSamplingFactor / BASE_FREQ);
-        gpsOutput.init();
-        addOutput(gpsOutput, false);        
+        // apply sampling rates of configurations saved by older versions
+        config.migrateSamplingFactors();
+        
+        // create one data interface per binary output register
+        if (config.binaryOutputs.size() > MAX_BINARY_OUTPUTS)
+            throw new SensorHubException("VN200 supports at most " + MAX_BINARY_OUTPUTS + " binary outputs");
+        
+        binaryOutputs = new VN200BinaryOutput[config.binaryOutputs.size()];
+        for (int i = 0; i < binaryOutputs.length; i++)
+        {
+            VN200BinaryOutputConfig outputConfig = config.binaryOutputs.get(i);
+            VN200BinaryLayout layout = VN200BinaryLayout.compile(outputConfig.getGroupFields());
+            
+            // packets must be identified by their header only
+            for (int j = 0; j < i; j++)
+            {
+                if (Arrays.equals(binaryOutputs[j].getLayout().header, layout.header))
+                    throw new SensorHubException("Binary outputs " + binaryOutputs[j].getName() + " and " + outputConfig.name + " have the same fields");
+            }
+            
+            binaryOutputs[i] = new VN200BinaryOutput(outputConfig.name, this, layout, outputConfig.rateDivisor / BASE_FREQ);
+            binaryOutputs[i].init();
+            addOutput(binaryOutputs[i], false);
+        }
     }
 
 
@@ -151,7 +169,7 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
             sendInitCommands();
                 
             // connect to data stream
-            dataIn = new DataInputStream(commProvider.getInputStream());
+            frameReader = createFrameReader(commProvider.getInputStream());
             VN200Sensor.log.info("Connected to IMU data stream");
         }
         catch (IOException e)
@@ -169,7 +187,9 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
                     processNextMessage();
                 }                
 
-                dataIn = null;
+                VN200Sensor.log.debug("Received {} frames, {} CRC errors, {} bytes skipped",
+                    frameReader.getFrameCount(), frameReader.getCrcErrorCount(), frameReader.getSkippedByteCount());
+                frameReader = null;
             }
         });
         t.start();
@@ -181,25 +201,51 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
     protected void sendInitCommands() throws IOException
     {
         OutputStream os = commProvider.getOutputStream();
-        StringBuilder buf;
         
-        // enable attitude message
-        buf = new StringBuilder();
-        buf.append("$VNWRG,75,1,") // async data on serial port 1
-           .append(config.attSamplingFactor).append(',') // output rate
-           .append(0x10) // enable output group 4 
-           .append(0x04) // enable field 'Quaternion' 
-           .append("*XX");
-        os.write(buf.toString().getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < binaryOutputs.length; i++)
+        {
+            VN200BinaryLayout layout = binaryOutputs[i].getLayout();
+            int rateDivisor = config.binaryOutputs.get(i).rateDivisor;
+            os.write(getBinaryOutputCommand(FIRST_OUTPUT_REGISTER + i, rateDivisor, layout).getBytes(StandardCharsets.US_ASCII));
+        }
+        
+        os.flush();
+    }
+    
+    
+    /*
+     * Generates the write register command enabling the given packet layout
+     */
+    protected static String getBinaryOutputCommand(int register, int rateDivisor, VN200BinaryLayout layout)
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append("$VNWRG,").append(register)
+           .append(",1,") // async data on serial port 1
+           .append(rateDivisor) // output rate
+           .append(',').append(String.format("%02X", layout.getGroups())); // enabled output groups
         
-        // enable GPS message
-        buf = new StringBuilder();
-        buf.append("$VNWRG,76,1,") // async data on serial port 1
-           .append(config.gpsSamplingFactor).append(',') // output rate
-           .append(0x08) // enable output group 4 
-           .append(0x21) // enable fields 'UTC' and 'PosLla'
-           .append("*XX");
-        os.write(buf.toString().getBytes(StandardCharsets.US_ASCII));
+        // enabled fields in each active group
+        for (int g = 0; g < VN200BinaryLayout.NUM_GROUPS; g++)
+        {
+            int fields = layout.getGroupFields(g);
+            if (fields != 0)
+                buf.append(',').append(String.format("%04X", fields));
+        }
+        
+        buf.append("*XX\r\n");
+        return buf.toString();
+    }
+    
+    
+    /*
+     * Creates frame reader expecting frames with layouts of all binary outputs
+     */
+    protected VN200FrameReader createFrameReader(InputStream is)
+    {
+        VN200BinaryLayout[] layouts = new VN200BinaryLayout[binaryOutputs.length];
+        for (int i = 0; i < layouts.length; i++)
+            layouts[i] = binaryOutputs[i].getLayout();
+        return new VN200FrameReader(is, layouts);
     }
     
     
@@ -207,51 +253,12 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
     {
         try
         {
-            // wait for sync
-            byte b = 0;
-            while (b != SYNC)
-                b = dataIn.readByte();
-            
-            // prepare for reading message
-            readBuffer.clear();
+            // extract next valid frame
+            int index = frameReader.nextFrame();
             long timeStamp = System.currentTimeMillis();
-            VN200AbstractOutput output;
-            int payloadLength;
-            
-            // read group config and select corresponding output
-            byte groups = dataIn.readByte();
-            readBuffer.put(groups);
-            switch (groups)
-            {
-                case 8:
-                    payloadLength = 32+4;
-                    output = gpsOutput;
-                    break;
-                    
-                case 16:
-                    payloadLength = 16+4;
-                    output = quatOutput;
-                    break;
-                    
-                default:
-                    VN200Sensor.log.debug("Unexpected group config: " + Integer.toHexString(groups));
-                    return false;
-            }
             
-            // read data to buffer
-            dataIn.read(readBuffer.array(), 1, payloadLength);
-            readBuffer.limit(payloadLength);
-            
-            // check CRC
-            if (!checkCRC(readBuffer))
-            {
-                VN200Sensor.log.debug("Wrong message CRC");
-                return false;
-            }
-            
-            // let output class decode the payload
-            readBuffer.position(3);
-            output.decodeAndSendMeasurement(timeStamp, readBuffer);            
+            // let output class decode the payload in place
+            binaryOutputs[index].decodeAndSendMeasurement(timeStamp, frameReader.getPayload());
         }
         catch (IOException e)
         {
@@ -266,31 +273,6 @@ public class VN200Sensor extends AbstractSensorModule<VN200Config>
     }
     
     
-    protected boolean checkCRC(ByteBuffer readBuffer)
-    {
-        readBuffer.flip();
-        int crc = 0;
-        
-        // compute message CRC
-        for (int i = 0; i < readBuffer.limit()-2; i++)
-        {
-            crc = (crc >> 8) | (crc << 8);
-            crc ^= readBuffer.get() & 0xff;
-            crc ^= (crc & 0xff) >> 4;
-            crc ^= crc << 12;
-            crc ^= (crc & 0xff) << 5;
-            crc &= 0xFFFF;            
-        }
-        
-        // compare with embedded CRC
-        int readCrc = readBuffer.getShort() & 0xFFFF;
-        if (readCrc != crc)
-            return false;
-        
-        return true;
-    }
-    
-    
     @Override
     public void stop() throws SensorHubException
     {
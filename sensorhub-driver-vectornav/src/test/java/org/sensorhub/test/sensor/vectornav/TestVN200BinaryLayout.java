@@ -0,0 +1,133 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.vectornav;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.opengis.swe.v20.DataRecord;
+import org.junit.Test;
+import org.sensorhub.api.common.SensorHubException;
+import org.sensorhub.impl.sensor.vectornav.VN200BinaryLayout;
+import org.vast.data.DataBlockDouble;
+import org.vast.swe.helper.GeoPosHelper;
+import static org.junit.Assert.*;
+
+
+public class TestVN200BinaryLayout
+{
+
+    @Test
+    public void testDefaultLayouts() throws Exception
+    {
+        // quaternion only
+        VN200BinaryLayout layout = VN200BinaryLayout.compile(new int[] {0, 0, 0, 0, 0x0004, 0});
+        assertEquals(0x10, layout.getGroups());
+        assertEquals(3, layout.getHeaderLength());
+        assertEquals(16, layout.getPayloadLength());
+        assertEquals(1+2+16+2, layout.getPacketLength());
+        assertEquals(1+4, layout.getRecordSize());
+        assertTrue(layout.matches(new byte[] {0x10, 0x04, 0x00}, 0));
+        assertFalse(layout.matches(new byte[] {0x10, 0x06, 0x00}, 0));
+
+        // GPS UTC time and LLA position
+        layout = VN200BinaryLayout.compile(new int[] {0, 0, 0, 0x0021, 0, 0});
+        assertEquals(0x08, layout.getGroups());
+        assertEquals(32, layout.getPayloadLength());
+        assertEquals(1+1+3, layout.getRecordSize());
+        assertTrue(layout.matches(new byte[] {0x08, 0x21, 0x00}, 0));
+    }
+
+
+    @Test
+    public void testDefaultRecordNames() throws Exception
+    {
+        // same components as fixed outputs of previous versions
+        VN200BinaryLayout layout = VN200BinaryLayout.compile(new int[] {0, 0, 0, 0, 0x0004, 0});
+        DataRecord rec = layout.buildRecord(new GeoPosHelper(), "#BODY");
+        assertEquals(2, rec.getComponentCount());
+        assertEquals("time", rec.getComponent(0).getName());
+        assertEquals("attitude", rec.getComponent(1).getName());
+
+        layout = VN200BinaryLayout.compile(new int[] {0, 0, 0, 0x0021, 0, 0});
+        rec = layout.buildRecord(new GeoPosHelper(), "#BODY");
+        assertEquals(3, rec.getComponentCount());
+        assertEquals("time", rec.getComponent(0).getName());
+        assertEquals("utc", rec.getComponent(1).getName());
+        assertEquals("location", rec.getComponent(2).getName());
+    }
+
+
+    @Test
+    public void testDecodeCombinedPacket() throws Exception
+    {
+        // time since startup + IMU accel and gyro + GPS UTC and LLA + quaternion + INS LLA
+        VN200BinaryLayout layout = VN200BinaryLayout.compile(new int[] {0x0001, 0, 0x0600, 0x0021, 0x0004, 0x0002});
+        assertEquals(0x3D, layout.getGroups());
+        assertEquals(1 + 2*5, layout.getHeaderLength());
+        assertEquals(8 + 12+12 + 8+24 + 16 + 24, layout.getPayloadLength());
+
+        // generate packet in little endian order
+        ByteBuffer buf = ByteBuffer.allocate(layout.getPacketLength());
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.put((byte)0x3D);
+        buf.putShort((short)0x0001).putShort((short)0x0600).putShort((short)0x0021).putShort((short)0x0004).putShort((short)0x0002);
+        buf.putLong(12345678901L);
+        buf.putFloat(0.1f).putFloat(0.2f).putFloat(9.81f);
+        buf.putFloat(0.01f).putFloat(-0.02f).putFloat(0.03f);
+        buf.put((byte)26).put((byte)10).put((byte)17).put((byte)13).put((byte)45).put((byte)30).putShort((short)250);
+        buf.putDouble(34.5).putDouble(-86.25).putDouble(205.1);
+        buf.putFloat(0.5f).putFloat(0.6f).putFloat(0.7f).putFloat(0.8f);
+        buf.putDouble(34.6).putDouble(-86.35).putDouble(210.2);
+        assertTrue(layout.matches(buf.array(), 0));
+
+        DataBlockDouble data = new DataBlockDouble(layout.getRecordSize());
+        layout.decode(buf, layout.getHeaderLength(), data);
+
+        int i = 1;
+        assertEquals(12.345678901, data.getDoubleValue(i++), 1e-12);
+        assertEquals(0.1f, data.getFloatValue(i++), 0.0);
+        assertEquals(0.2f, data.getFloatValue(i++), 0.0);
+        assertEquals(9.81f, data.getFloatValue(i++), 0.0);
+        assertEquals(0.01f, data.getFloatValue(i++), 0.0);
+        assertEquals(-0.02f, data.getFloatValue(i++), 0.0);
+        assertEquals(0.03f, data.getFloatValue(i++), 0.0);
+        assertEquals(1792244730.250, data.getDoubleValue(i++), 1e-9); // 2026-10-17T13:45:30.250Z
+        assertEquals(34.5, data.getDoubleValue(i++), 0.0);
+        assertEquals(-86.25, data.getDoubleValue(i++), 0.0);
+        assertEquals(205.1, data.getDoubleValue(i++), 0.0);
+        assertEquals(0.8f, data.getFloatValue(i++), 0.0); // scalar first
+        assertEquals(0.5f, data.getFloatValue(i++), 0.0);
+        assertEquals(0.6f, data.getFloatValue(i++), 0.0);
+        assertEquals(0.7f, data.getFloatValue(i++), 0.0);
+        assertEquals(34.6, data.getDoubleValue(i++), 0.0);
+        assertEquals(-86.35, data.getDoubleValue(i++), 0.0);
+        assertEquals(210.2, data.getDoubleValue(i++), 0.0);
+        assertEquals(layout.getRecordSize(), i);
+    }
+
+
+    @Test(expected = SensorHubException.class)
+    public void testUnsupportedField() throws Exception
+    {
+        VN200BinaryLayout.compile(new int[] {0, 0, 0, 0, 0x1000, 0});
+    }
+
+
+    @Test(expected = SensorHubException.class)
+    public void testNoField() throws Exception
+    {
+        VN200BinaryLayout.compile(new int[] {0, 0, 0, 0, 0, 0});
+    }
+}
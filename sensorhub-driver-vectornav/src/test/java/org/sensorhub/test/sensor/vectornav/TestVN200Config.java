@@ -0,0 +1,57 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.vectornav;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.vectornav.VN200Config;
+
+
+@SuppressWarnings("deprecation")
+public class TestVN200Config
+{
+
+    @Test
+    public void testDefaultRates()
+    {
+        VN200Config config = new VN200Config();
+        config.migrateSamplingFactors();
+        assertEquals(16, config.binaryOutputs.get(0).rateDivisor);
+        assertEquals(80, config.binaryOutputs.get(1).rateDivisor);
+    }
+
+
+    @Test
+    public void testMigrateSamplingFactors()
+    {
+        // as loaded from a configuration saved by an older version
+        VN200Config config = new VN200Config();
+        config.attSamplingFactor = 8;
+        config.gpsSamplingFactor = 160;
+
+        config.migrateSamplingFactors();
+        assertEquals(VN200Config.QUAT_OUTPUT_NAME, config.binaryOutputs.get(0).name);
+        assertEquals(8, config.binaryOutputs.get(0).rateDivisor);
+        assertEquals(VN200Config.GPS_OUTPUT_NAME, config.binaryOutputs.get(1).name);
+        assertEquals(160, config.binaryOutputs.get(1).rateDivisor);
+
+        // new settings are not overridden once migrated
+        assertEquals(0, config.attSamplingFactor);
+        assertEquals(0, config.gpsSamplingFactor);
+        config.binaryOutputs.get(0).rateDivisor = 4;
+        config.migrateSamplingFactors();
+        assertEquals(4, config.binaryOutputs.get(0).rateDivisor);
+    }
+}
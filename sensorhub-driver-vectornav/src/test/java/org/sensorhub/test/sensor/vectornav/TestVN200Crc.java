@@ -0,0 +1,103 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.vectornav;
+
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.vectornav.VN200Crc;
+import static org.junit.Assert.*;
+
+
+public class TestVN200Crc
+{
+
+    /*
+     * Byte by byte implementation previously used in VN200Sensor.checkCRC
+     */
+    static int legacyCrc(byte[] buf, int off, int len)
+    {
+        int crc = 0;
+
+        for (int i = off; i < off+len; i++)
+        {
+            crc = (crc >> 8) | (crc << 8);
+            crc ^= buf[i] & 0xff;
+            crc ^= (crc & 0xff) >> 4;
+            crc ^= crc << 12;
+            crc ^= (crc & 0xff) << 5;
+            crc &= 0xFFFF;
+        }
+
+        return crc;
+    }
+
+
+    @Test
+    public void testKnownValue() throws Exception
+    {
+        // standard check value of CRC-16/XMODEM
+        byte[] data = "123456789".getBytes("US-ASCII");
+        assertEquals(0x31C3, VN200Crc.compute(data, 0, data.length));
+    }
+
+
+    @Test
+    public void testRandomPackets()
+    {
+        Random random = new Random(42);
+        byte[] buf = new byte[512];
+
+        for (int i = 0; i < 200000; i++)
+        {
+            int len = random.nextInt(200);
+            int off = random.nextInt(buf.length - len);
+            for (int j = off; j < off+len; j++)
+                buf[j] = (byte)random.nextInt(256);
+
+            int expected = legacyCrc(buf, off, len);
+            assertEquals("len=" + len, expected, VN200Crc.compute(buf, off, len));
+
+            // check chunked update gives same result
+            int split = (len == 0) ? 0 : random.nextInt(len);
+            int crc = VN200Crc.update(0, buf, off, split);
+            assertEquals(expected, VN200Crc.update(crc, buf, off+split, len-split));
+        }
+    }
+
+
+    @Test
+    public void testCheckPacketWithCrc()
+    {
+        Random random = new Random(42);
+        byte[] buf = new byte[256];
+
+        for (int i = 0; i < 10000; i++)
+        {
+            int len = 1 + random.nextInt(200);
+            random.nextBytes(buf);
+
+            // append CRC in big endian order
+            int crc = legacyCrc(buf, 0, len);
+            buf[len] = (byte)(crc >> 8);
+            buf[len+1] = (byte)crc;
+            assertTrue(VN200Crc.check(buf, 0, len+2));
+
+            // corrupt one byte
+            int k = random.nextInt(len+2);
+            buf[k] ^= (byte)(1 + random.nextInt(255));
+            assertFalse(VN200Crc.check(buf, 0, len+2));
+        }
+    }
+}
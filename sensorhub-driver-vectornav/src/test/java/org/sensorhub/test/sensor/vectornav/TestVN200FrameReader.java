@@ -0,0 +1,181 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.test.sensor.vectornav;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import org.sensorhub.impl.sensor.vectornav.VN200BinaryLayout;
+import org.sensorhub.impl.sensor.vectornav.VN200Crc;
+import org.sensorhub.impl.sensor.vectornav.VN200FrameReader;
+import static org.junit.Assert.*;
+
+
+public class TestVN200FrameReader
+{
+    static final byte SYNC = (byte)0xFA;
+
+    VN200BinaryLayout[] layouts;
+    int[][] headers = {{0x10, 0x0004}, {0x08, 0x0021}};
+
+
+    public TestVN200FrameReader() throws Exception
+    {
+        layouts = new VN200BinaryLayout[] {
+            VN200BinaryLayout.compile(new int[] {0, 0, 0, 0, 0x0004, 0}),
+            VN200BinaryLayout.compile(new int[] {0, 0, 0, 0x0021, 0, 0})
+        };
+    }
+
+
+    /*
+     * Stream returning random small chunks to simulate partial reads
+     */
+    static class ChunkedInputStream extends ByteArrayInputStream
+    {
+        Random random;
+
+        ChunkedInputStream(byte[] buf, Random random)
+        {
+            super(buf);
+            this.random = random;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+        {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(40)));
+        }
+    }
+
+
+    protected byte[] makeFrame(int layoutIndex, Random random)
+    {
+        VN200BinaryLayout layout = layouts[layoutIndex];
+        ByteBuffer buf = ByteBuffer.allocate(1 + layout.getPacketLength());
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(SYNC);
+        buf.put((byte)headers[layoutIndex][0]);
+        buf.putShort((short)headers[layoutIndex][1]);
+        for (int i = 0; i < layout.getPayloadLength(); i++)
+            buf.put((byte)random.nextInt(256));
+        int crc = VN200Crc.compute(buf.array(), 1, buf.position()-1);
+        buf.put((byte)(crc >> 8));
+        buf.put((byte)crc);
+        return buf.array();
+    }
+
+
+    @Test
+    public void testResyncAndPartialReads() throws Exception
+    {
+        Random random = new Random(42);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ArrayList<byte[]> expectedFrames = new ArrayList<byte[]>();
+        ArrayList<Integer> expectedLayouts = new ArrayList<Integer>();
+        int numCorrupted = 0;
+
+        for (int i = 0; i < 20000; i++)
+        {
+            int layoutIndex = random.nextInt(layouts.length);
+            byte[] frame = makeFrame(layoutIndex, random);
+
+            // insert garbage
+            if (random.nextInt(10) == 0)
+            {
+                int n = random.nextInt(10);
+                for (int j = 0; j < n; j++)
+                    os.write(SYNC + 1 + random.nextInt(200));
+            }
+
+            // corrupt or truncate some frames
+            int r = random.nextInt(20);
+            if (r == 0)
+            {
+                frame[4 + random.nextInt(frame.length-4)] ^= (byte)(1 + random.nextInt(255));
+                os.write(frame);
+                numCorrupted++;
+            }
+            else if (r == 1)
+            {
+                // drop at least 2 bytes, otherwise the next sync byte can be
+                // taken as the last CRC byte with a probability of 1/256
+                os.write(frame, 0, 1 + random.nextInt(frame.length-3));
+                numCorrupted++;
+            }
+            else
+            {
+                os.write(frame);
+                expectedFrames.add(frame);
+                expectedLayouts.add(layoutIndex);
+            }
+        }
+
+        InputStream is = new ChunkedInputStream(os.toByteArray(), random);
+        VN200FrameReader reader = new VN200FrameReader(is, layouts);
+
+        for (int i = 0; i < expectedFrames.size(); i++)
+        {
+            int index = reader.nextFrame();
+            assertEquals("Frame #" + i, (int)expectedLayouts.get(i), index);
+
+            // check payload view points to frame data
+            byte[] frame = expectedFrames.get(i);
+            ByteBuffer payload = reader.getPayload();
+            assertEquals(layouts[index].getPayloadLength(), payload.remaining());
+            for (int j = 0; j < payload.remaining(); j++)
+                assertEquals(frame[4+j], payload.get(payload.position()+j));
+        }
+
+        try
+        {
+            reader.nextFrame();
+            fail("Expected end of stream");
+        }
+        catch (EOFException e)
+        {
+        }
+
+        assertEquals(expectedFrames.size(), reader.getFrameCount());
+        assertTrue(reader.getCrcErrorCount() <= numCorrupted);
+        assertTrue(reader.getReadCount() < os.size());
+    }
+
+
+    @Test
+    public void testLargeReads() throws Exception
+    {
+        Random random = new Random(42);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        int numFrames = 10000;
+        for (int i = 0; i < numFrames; i++)
+            os.write(makeFrame(i % 2, random));
+
+        VN200FrameReader reader = new VN200FrameReader(new ByteArrayInputStream(os.toByteArray()), layouts);
+        for (int i = 0; i < numFrames; i++)
+            assertEquals(i % 2, reader.nextFrame());
+
+        // many frames are extracted from each chunk
+        assertEquals(0, reader.getCrcErrorCount());
+        assertEquals(0, reader.getSkippedByteCount());
+        assertTrue(reader.getReadCount() <= os.size() / VN200FrameReader.DEFAULT_BUFFER_SIZE * 2 + 2);
+    }
+}
@@ -0,0 +1,70 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.bench;
+
+import java.io.InputStream;
+
+
+/**
+ * <p>
+ * Input stream endlessly repeating the content of a byte array, so that
+ * recorded or synthetic data can be fed to decoders during benchmarks.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+public class LoopInputStream extends InputStream
+{
+    final byte[] data;
+    int pos;
+
+
+    public LoopInputStream(byte[] data)
+    {
+        if (data.length == 0)
+            throw new IllegalArgumentException("Data cannot be empty");
+        this.data = data;
+    }
+
+
+    @Override
+    public int read()
+    {
+        int b = data[pos++] & 0xFF;
+        if (pos >= data.length)
+            pos = 0;
+        return b;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        int n = Math.min(len, data.length - pos);
+        System.arraycopy(data, pos, b, off, n);
+        pos += n;
+        if (pos >= data.length)
+            pos = 0;
+        return n;
+    }
+
+
+    @Override
+    public int available()
+    {
+        return data.length - pos;
+    }
+}
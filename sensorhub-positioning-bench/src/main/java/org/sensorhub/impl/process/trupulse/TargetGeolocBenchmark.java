@@ -0,0 +1,109 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.process.trupulse;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.opengis.swe.v20.DataBlock;
+import net.opengis.swe.v20.DataComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.api.processing.ProcessException;
+import org.sensorhub.impl.sensor.trupulse.TruPulseOutput;
+import org.vast.process.DataQueue;
+
+
+/**
+ * <p>
+ * Benchmark of TruPulse target geolocation, from a range measurement
+ * record to the target location output, with a fixed sensor position.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargetGeolocBenchmark
+{
+    static final int NUM_SAMPLES = 1024;
+
+    TargetGeolocProcess process;
+    DataBlock[] rangeMeas = new DataBlock[NUM_SAMPLES];
+    int sampleIndex;
+
+
+    /*
+     * Process with config set directly, so it can be used without a hub
+     */
+    static class BenchProcess extends TargetGeolocProcess
+    {
+        BenchProcess(TargetGeolocConfig config)
+        {
+            this.config = config;
+        }
+    }
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        TargetGeolocConfig config = new TargetGeolocConfig();
+        config.id = "geoloc-bench";
+        process = new BenchProcess(config);
+
+        // fixed sensor position
+        process.lla.set(Math.toRadians(-86.58), Math.toRadians(34.73), 193.0);
+        process.geoConv.LLAtoECEF(process.lla, process.lastSensorPosEcef);
+        process.lastSensorPosSet = true;
+
+        process.targetLocOutput = new TargetGeolocOutput(process);
+        process.rangeMeasQueue = new DataQueue();
+
+        // generate range measurements
+        Random random = new Random(42);
+        DataComponent rangeStruct = TruPulseOutput.getOutputDescription();
+        for (int i = 0; i < NUM_SAMPLES; i++)
+        {
+            DataBlock dataBlk = rangeStruct.createDataBlock();
+            dataBlk.setDoubleValue(0, 1.5e9 + i);
+            dataBlk.setDoubleValue(2, 10.0 + random.nextDouble() * 500.0);
+            dataBlk.setDoubleValue(3, random.nextDouble() * 360.0);
+            dataBlk.setDoubleValue(4, random.nextDouble() * 20.0 - 10.0);
+            rangeMeas[i] = dataBlk;
+        }
+    }
+
+
+    @Benchmark
+    public DataBlock process() throws ProcessException
+    {
+        process.rangeMeasQueue.add(rangeMeas[sampleIndex++ & (NUM_SAMPLES-1)]);
+        process.process(null);
+        return process.targetLocOutput.getLatestRecord();
+    }
+}
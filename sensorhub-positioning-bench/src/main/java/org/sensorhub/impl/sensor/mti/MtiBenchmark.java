@@ -0,0 +1,93 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.mti;
+
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.bench.LoopInputStream;
+
+
+/**
+ * <p>
+ * Benchmark of XSens MTi frame decoding from a synthetic stream of
+ * MTData messages with valid checksums.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MtiBenchmark
+{
+    static final int NUM_FRAMES = 1000;
+    static final int MSG_SIZE = 62;
+
+    MtiOutput output;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        Random random = new Random(42);
+        ByteBuffer buf = ByteBuffer.allocate(NUM_FRAMES * (MSG_SIZE+1));
+
+        for (int i = 0; i < NUM_FRAMES; i++)
+        {
+            int start = buf.position();
+            buf.put(MtiOutput.PREAMBLE);
+            buf.put((byte)0xFF); // bus ID
+            buf.put((byte)0x32); // MTData message ID
+            buf.put((byte)(MSG_SIZE-4)); // length
+            for (int j = 0; j < 14; j++) // temp, accel, gyro, mag, quat
+                buf.putFloat(random.nextFloat());
+            buf.putShort((short)i); // sample counter
+
+            // checksum so that sum of all bytes after preamble is 0
+            int checksum = 0;
+            for (int j = start+1; j < buf.position(); j++)
+                checksum += buf.get(j) & 0xFF;
+            buf.put((byte)(-checksum));
+        }
+
+        output = new MtiOutput(new MtiSensor());
+        output.dataIn = new DataInputStream(new LoopInputStream(buf.array()));
+        output.started = true;
+    }
+
+
+    @Benchmark
+    public float decodeNextMessage()
+    {
+        output.decodeNextMessage();
+        return output.quat[0];
+    }
+}
@@ -0,0 +1,142 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.bench.LoopInputStream;
+
+
+/**
+ * <p>
+ * Benchmarks of NMEA sentence handling, from raw bytes to data events
+ * published by the GPS outputs.<br/>
+ * Synthetic GGA, RMC, GSA and VTG sentences with increasing fix times
+ * are used so that outputs don't discard them as duplicates.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NMEABenchmark
+{
+    static final int NUM_FIXES = 1000;
+
+    NMEAGpsSensor sensor;
+    byte[][] sentences;
+    int sentenceIndex;
+    NMEATokenizer tokenizer = new NMEATokenizer();
+    NMEALineReader reader;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        NMEAGpsConfig config = new NMEAGpsConfig();
+        config.id = "nmea-bench";
+        config.serialNumber = "BENCH";
+        config.activeSentences = Arrays.asList("GGA", "RMC", "GSA", "VTG");
+        sensor = new NMEAGpsSensor();
+        sensor.init(config);
+
+        // generate synthetic sentences
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        sentences = new byte[NUM_FIXES*4][];
+        int k = 0;
+        for (int i = 0; i < NUM_FIXES; i++)
+        {
+            String time = String.format("%02d%02d%02d.%02d", 12, (i/600)%60, (i/10)%60, (i%10)*10);
+            String lat = String.format("48%02d.%05d", i%60, (i*37)%100000);
+            String lon = String.format("011%02d.%05d", i%60, (i*91)%100000);
+            sentences[k++] = toSentence("GPGGA," + time + "," + lat + ",N," + lon + ",E,1,08,0.9,545.4,M,46.9,M,,");
+            sentences[k++] = toSentence("GPRMC," + time + ",A," + lat + ",N," + lon + ",E,022.4,084.4,230394,003.1,W");
+            sentences[k++] = toSentence("GPGSA,A,3,04,05,,09,12,,,24,,,,,2.5,1.3,2.1");
+            sentences[k++] = toSentence("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K");
+        }
+
+        for (byte[] s: sentences)
+        {
+            stream.write(s);
+            stream.write('\r');
+            stream.write('\n');
+        }
+
+        reader = new NMEALineReader(new LoopInputStream(stream.toByteArray()));
+    }
+
+
+    static byte[] toSentence(String content)
+    {
+        int checksum = 0;
+        for (int i = 0; i < content.length(); i++)
+            checksum ^= content.charAt(i);
+        return String.format("$%s*%02X", content, checksum).getBytes(StandardCharsets.US_ASCII);
+    }
+
+
+    private byte[] nextSentence()
+    {
+        byte[] s = sentences[sentenceIndex++];
+        if (sentenceIndex >= sentences.length)
+            sentenceIndex = 0;
+        return s;
+    }
+
+
+    @Benchmark
+    public int tokenize()
+    {
+        byte[] s = nextSentence();
+        tokenizer.tokenize(s, 0, s.length);
+        return tokenizer.getNumFields();
+    }
+
+
+    @Benchmark
+    public double handleSentence()
+    {
+        byte[] s = nextSentence();
+        sensor.handleMessage(System.currentTimeMillis(), s, 0, s.length);
+        return sensor.lastFixUtcTime;
+    }
+
+
+    @Benchmark
+    public double readAndHandleSentence() throws IOException
+    {
+        int len = reader.readLine();
+        sensor.handleMessage(System.currentTimeMillis(), reader.getLineBuffer(), 0, len);
+        return sensor.lastFixUtcTime;
+    }
+}
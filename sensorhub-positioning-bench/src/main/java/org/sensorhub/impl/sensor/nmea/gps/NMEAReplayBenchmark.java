@@ -0,0 +1,120 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.nmea.gps;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * <p>
+ * Benchmark of NMEA log file replay at full speed, from the memory mapped
+ * file to data events published by the GPS outputs.<br/>
+ * Scores are given per sentence. The synthetic log is replayed with a
+ * small and with the default map window, to also measure the cost of
+ * remapping the file and of lines split across windows.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NMEAReplayBenchmark
+{
+    static final int NUM_FIXES = 25000;
+    static final int NUM_SENTENCES = NUM_FIXES*4;
+
+    @Param({"65536", "67108864"})
+    long mapWindowSize;
+
+    NMEAGpsSensor sensor;
+    File logFile;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        NMEAGpsConfig config = new NMEAGpsConfig();
+        config.id = "nmea-replay-bench";
+        config.serialNumber = "BENCH";
+        config.activeSentences = Arrays.asList("GGA", "RMC", "GSA", "VTG");
+        sensor = new NMEAGpsSensor();
+        sensor.init(config);
+
+        // write synthetic log file
+        logFile = File.createTempFile("nmea-bench", ".log");
+        logFile.deleteOnExit();
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(logFile)))
+        {
+            for (int i = 0; i < NUM_FIXES; i++)
+            {
+                String time = String.format("%02d%02d%02d.%02d", 12 + i/36000, (i/600)%60, (i/10)%60, (i%10)*10);
+                String lat = String.format("48%02d.%05d", i%60, (i*37)%100000);
+                String lon = String.format("011%02d.%05d", i%60, (i*91)%100000);
+                writeLine(os, NMEABenchmark.toSentence("GPGGA," + time + "," + lat + ",N," + lon + ",E,1,08,0.9,545.4,M,46.9,M,,"));
+                writeLine(os, NMEABenchmark.toSentence("GPRMC," + time + ",A," + lat + ",N," + lon + ",E,022.4,084.4,230394,003.1,W"));
+                writeLine(os, NMEABenchmark.toSentence("GPGSA,A,3,04,05,,09,12,,,24,,,,,2.5,1.3,2.1"));
+                writeLine(os, NMEABenchmark.toSentence("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K"));
+            }
+        }
+    }
+
+
+    private static void writeLine(OutputStream os, byte[] sentence) throws Exception
+    {
+        os.write(sentence);
+        os.write('\r');
+        os.write('\n');
+    }
+
+
+    @TearDown
+    public void cleanup()
+    {
+        logFile.delete();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SENTENCES)
+    public long replay() throws Exception
+    {
+        NMEALogReplay replay = new NMEALogReplay(sensor, logFile, 0.0, mapWindowSize);
+        replay.replay();
+        return replay.getSentenceCount();
+    }
+}
@@ -0,0 +1,103 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.bench.LoopInputStream;
+
+
+/**
+ * <p>
+ * Benchmark of TREK1000 message parsing, comparing the byte level parser
+ * with the previous approach splitting each line read as a String.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Trek1000ParserBenchmark
+{
+    static final int NUM_MESSAGES = 1000;
+
+    Trek1000MessageParser parser;
+    BufferedReader reader;
+    int[] ranges = new int[4];
+
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NUM_MESSAGES; i++)
+        {
+            sb.append(String.format("mc 0f %08x %08x %08x %08x 0958 %02x 40424042 a%d:0\r\n",
+                    random.nextInt(20000), random.nextInt(20000), random.nextInt(20000), random.nextInt(20000),
+                    i & 0xFF, random.nextInt(16)));
+        }
+
+        byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        parser = new Trek1000MessageParser(new LoopInputStream(data));
+        reader = new BufferedReader(new InputStreamReader(new LoopInputStream(data), StandardCharsets.US_ASCII));
+    }
+
+
+    @Benchmark
+    public int parseBytes() throws IOException
+    {
+        parser.nextMessage();
+        int[] r = parser.getRanges();
+        return r[0] + r[1] + r[2] + r[3] + parser.getTagId();
+    }
+
+
+    @Benchmark
+    public int parseSplitString() throws IOException
+    {
+        String msg = reader.readLine();
+        String[] parts = msg.trim().split(" ");
+        if (parts[0].trim().equals("mc"))
+        {
+            for (int i = 0; i < 4; i++)
+                ranges[i] = Integer.parseInt(parts[2+i].trim(), 16);
+        }
+
+        String reporter = parts[parts.length-1];
+        int tagId = Integer.parseInt(reporter.substring(1, reporter.indexOf(':')));
+        return ranges[0] + ranges[1] + ranges[2] + ranges[3] + tagId;
+    }
+}
@@ -0,0 +1,112 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.trek1000;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.impl.sensor.trek1000.Triangulation.Vec3d;
+
+
+/**
+ * <p>
+ * Benchmark of TREK1000 tag location computation from anchor ranges.<br/>
+ * Ranges are computed from random tag positions inside the area covered
+ * by the anchors, with some added noise.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriangulationBenchmark
+{
+    static final int NUM_SAMPLES = 1024;
+
+    Triangulation trilatAlgo = new Triangulation();
+    Vec3d[] anchorLocations = new Vec3d[4];
+    AnchorGeometry anchorGeometry;
+    int[][] ranges = new int[NUM_SAMPLES][4];
+    Vec3d solution = new Vec3d(0.0, 0.0, 0.0);
+    int sampleIndex;
+
+
+    @Setup
+    public void setup()
+    {
+        anchorLocations[0] = new Vec3d(0.0, 0.0, 2.0);
+        anchorLocations[1] = new Vec3d(10.0, 0.0, 2.5);
+        anchorLocations[2] = new Vec3d(0.0, 8.0, 2.2);
+        anchorLocations[3] = new Vec3d(10.0, 8.0, 2.8);
+        anchorGeometry = new AnchorGeometry(anchorLocations);
+
+        Random random = new Random(42);
+        for (int i = 0; i < NUM_SAMPLES; i++)
+        {
+            double x = random.nextDouble() * 10.0;
+            double y = random.nextDouble() * 8.0;
+            double z = random.nextDouble() * 1.5;
+
+            for (int j = 0; j < 4; j++)
+            {
+                Vec3d a = anchorLocations[j];
+                double dx = x - a.x, dy = y - a.y, dz = z - a.z;
+                double range = Math.sqrt(dx*dx + dy*dy + dz*dz) + random.nextGaussian() * 0.05;
+                ranges[i][j] = (int)Math.round(range * 1000.);
+            }
+        }
+    }
+
+
+    @Benchmark
+    public double getLocation()
+    {
+        int[] r = ranges[sampleIndex++ & (NUM_SAMPLES-1)];
+        trilatAlgo.getLocation(solution, 0, anchorLocations, r);
+        return solution.x + solution.y + solution.z;
+    }
+
+
+    @Benchmark
+    public double getLocationWith4thAnchor()
+    {
+        int[] r = ranges[sampleIndex++ & (NUM_SAMPLES-1)];
+        trilatAlgo.getLocation(solution, 1, anchorLocations, r);
+        return solution.x + solution.y + solution.z;
+    }
+
+
+    @Benchmark
+    public double getLocationCachedGeometry()
+    {
+        int[] r = ranges[sampleIndex++ & (NUM_SAMPLES-1)];
+        trilatAlgo.getLocation(solution, 0, anchorGeometry, r);
+        return solution.x + solution.y + solution.z;
+    }
+}
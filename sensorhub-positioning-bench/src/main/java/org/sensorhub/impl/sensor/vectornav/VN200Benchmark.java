@@ -0,0 +1,121 @@
+/***************************** BEGIN LICENSE BLOCK ***************************
+
+The contents of this file are subject to the Mozilla Public License, v. 2.0.
+If a copy of the MPL was not distributed with this file, You can obtain one
+at http://mozilla.org/MPL/2.0/.
+
+Software distributed under the License is distributed on an "AS IS" basis,
+WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+for the specific language governing rights and limitations under the License.
+
+Copyright (C) 2012-2015 Sensia Software LLC. All Rights Reserved.
+
+******************************* END LICENSE BLOCK ***************************/
+
+package org.sensorhub.impl.sensor.vectornav;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sensorhub.bench.LoopInputStream;
+
+
+/**
+ * <p>
+ * Benchmarks of VN200 binary message framing and CRC computation, using
+ * a synthetic stream of quaternion messages with valid CRCs.
+ * </p>
+ *
+ * @author agent <agent@local>
+ * @since Oct 17, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VN200Benchmark
+{
+    static final int NUM_FRAMES = 1000;
+    static final int QUAT_MSG_LENGTH = 1 + 2 + 16 + 2; // groups + group field + payload + CRC
+
+    VN200Sensor sensor;
+    byte[] frames;
+
+
+    @Setup
+    public void setup() throws Exception
+    {
+        VN200Config config = new VN200Config();
+        config.id = "vn200-bench";
+        sensor = new VN200Sensor();
+        sensor.init(config);
+
+        // generate synthetic quaternion messages
+        Random random = new Random(42);
+        ByteBuffer buf = ByteBuffer.allocate(NUM_FRAMES * (QUAT_MSG_LENGTH+1));
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < NUM_FRAMES; i++)
+        {
+            buf.put(VN200Sensor.SYNC);
+            int start = buf.position();
+            buf.put((byte)0x10); // group 4
+            buf.putShort((short)0x0004); // quaternion field
+            for (int j = 0; j < 4; j++)
+                buf.putFloat(random.nextFloat());
+            int crc = computeCRC(buf.array(), start, buf.position());
+            buf.put((byte)(crc >> 8));
+            buf.put((byte)crc);
+        }
+
+        frames = buf.array();
+        sensor.frameReader = sensor.createFrameReader(new LoopInputStream(frames));
+        sensor.started = true;
+    }
+
+
+    /*
+     * Reference CRC16-CCITT implementation from VN200 user manual
+     */
+    static int computeCRC(byte[] data, int start, int end)
+    {
+        int crc = 0;
+        for (int i = start; i < end; i++)
+        {
+            crc = ((crc >> 8) & 0xFF) | (crc << 8);
+            crc ^= data[i] & 0xFF;
+            crc ^= (crc & 0xFF) >> 4;
+            crc ^= crc << 12;
+            crc ^= (crc & 0xFF) << 5;
+            crc &= 0xFFFF;
+        }
+        return crc;
+    }
+
+
+    @Benchmark
+    public boolean processNextMessage()
+    {
+        return sensor.processNextMessage();
+    }
+
+
+    @Benchmark
+    public boolean checkCRC()
+    {
+        // first message of stream
+        return VN200Crc.check(frames, 1, QUAT_MSG_LENGTH);
+    }
+}